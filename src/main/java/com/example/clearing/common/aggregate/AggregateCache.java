@@ -0,0 +1,132 @@
+package com.example.clearing.common.aggregate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.dto.AggregateTotals;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded cache of aggregates responses, keyed by scope, tenant and normalised filters.
+ *
+ * <p>
+ * Entries are tied to the {@link TotalCountResolver} generation of their scope, so an
+ * allocation, settlement or claim through this instance drops them like it drops cached
+ * totals. That generation is local to the JVM: writes through other instances or other
+ * services, and reads from a lagging replica, are only bounded by the TTL. A range that
+ * includes today expires after {@code open-ttl-seconds}; a range that ended before today
+ * changes rarely and is kept for the longer {@code closed-ttl-seconds}.
+ */
+@Component
+public class AggregateCache {
+
+    private record Key(String scope, Object filters) {
+    }
+
+    private record Entry(AggregateTotals totals, long generation, long expiresAtMillis) {
+    }
+
+    private final TotalCountResolver totalCountResolver;
+    private final boolean enabled;
+    private final long openTtlMillis;
+    private final long closedTtlMillis;
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public AggregateCache(
+            TotalCountResolver totalCountResolver,
+            MeterRegistry meterRegistry,
+            @Value("${clearing.aggregate-cache.enabled:true}") boolean enabled,
+            @Value("${clearing.aggregate-cache.open-ttl-seconds:30}") long openTtlSeconds,
+            @Value("${clearing.aggregate-cache.closed-ttl-seconds:900}") long closedTtlSeconds,
+            @Value("${clearing.aggregate-cache.max-entries:2000}") int maxEntries) {
+        this(totalCountResolver, meterRegistry, enabled, openTtlSeconds, closedTtlSeconds, maxEntries,
+                Clock.systemDefaultZone());
+    }
+
+    AggregateCache(TotalCountResolver totalCountResolver, MeterRegistry meterRegistry, boolean enabled,
+            long openTtlSeconds, long closedTtlSeconds, int maxEntries, Clock clock) {
+        if (openTtlSeconds < 1 || closedTtlSeconds < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid clearing.aggregate-cache configuration");
+        }
+        this.totalCountResolver = totalCountResolver;
+        this.enabled = enabled;
+        this.openTtlMillis = Duration.ofSeconds(openTtlSeconds).toMillis();
+        this.closedTtlMillis = Duration.ofSeconds(closedTtlSeconds).toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > AggregateCache.this.maxEntries;
+            }
+        };
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * Returns the cached totals for {@code filters}, or loads and caches them.
+     *
+     * @param filters value object (a record) holding the tenant and every filter
+     * @param endDate last day of the aggregated range
+     */
+    public AggregateTotals get(String scope, Object filters, LocalDate endDate, Supplier<AggregateTotals> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(scope, filters);
+        long generation = totalCountResolver.generation(scope);
+        long now = clock.millis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.generation() == generation && now < entry.expiresAtMillis()) {
+                hits.increment();
+                return entry.totals();
+            }
+        }
+        misses.increment();
+        // Stored under the generation read before loading, so a write committed meanwhile
+        // makes the entry stale rather than hiding the write
+        AggregateTotals totals = loader.get();
+        boolean closed = endDate.isBefore(LocalDate.now(clock));
+        synchronized (this) {
+            entries.put(key, new Entry(totals, generation, now + (closed ? closedTtlMillis : openTtlMillis)));
+        }
+        return totals;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("clearing.aggregate.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Aggregates requests answered from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.aggregate.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Aggregates requests that queried the database")
+                .register(meterRegistry);
+        Gauge.builder("clearing.aggregate.cache.size", this, AggregateCache::size)
+                .description("Cached aggregates responses")
+                .register(meterRegistry);
+    }
+}
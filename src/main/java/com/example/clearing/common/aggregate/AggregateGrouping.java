@@ -0,0 +1,34 @@
+package com.example.clearing.common.aggregate;
+
+import java.util.Locale;
+
+/**
+ * Dimension an aggregates request groups its totals by. Not every search supports every
+ * dimension; the DAO rejects the ones it cannot group by.
+ */
+public enum AggregateGrouping {
+
+    DAY,
+    VOUCHER,
+    BANK_ACCOUNT,
+    STATUS;
+
+    public static AggregateGrouping fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return DAY;
+        }
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        if ("BANKACCOUNT".equals(normalized)) {
+            return BANK_ACCOUNT;
+        }
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("groupBy must be one of day, voucher, bankAccount, status");
+        }
+    }
+
+    public String paramValue() {
+        return this == BANK_ACCOUNT ? "bankAccount" : name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.clearing.common.dedupe;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Identity of a bank credit independent of the feed it came from: account number,
+ * value date, amount and a normalized reference. Two rows with the same fingerprint are
+ * treated as the same money movement.
+ */
+public record TransactionFingerprint(String accountNumber, LocalDate valueDate, BigDecimal amount,
+        String reference) {
+
+    public static TransactionFingerprint of(String accountNumber, LocalDate valueDate, BigDecimal amount,
+            String rawReference) {
+        if (accountNumber == null || accountNumber.isBlank() || valueDate == null || amount == null) {
+            throw new IllegalArgumentException("accountNumber, valueDate and amount are required for a fingerprint");
+        }
+        // stripTrailingZeros so 100, 100.0 and 100.00 compare equal in the exact index
+        return new TransactionFingerprint(accountNumber.trim(), valueDate, amount.stripTrailingZeros(),
+                normalizeReference(rawReference));
+    }
+
+    /**
+     * Upper-cases the reference and drops everything but letters and digits, so
+     * "utr/2025-0001" from a statement matches "UTR20250001" from the VAN feed.
+     */
+    public static String normalizeReference(String rawReference) {
+        if (rawReference == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(rawReference.length());
+        for (int i = 0; i < rawReference.length(); i++) {
+            char c = rawReference.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toUpperCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+}
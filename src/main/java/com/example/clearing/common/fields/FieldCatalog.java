@@ -0,0 +1,94 @@
+package com.example.clearing.common.fields;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * JSON properties a response row type can be trimmed to with a {@code fields=}
+ * parameter, each with the columns it is read from. Declare one catalog per row type as
+ * a constant; {@link #select} parses a parameter into a {@link FieldSet} and keeps the
+ * parsed sets, so a dashboard repeating the same {@code fields=} reuses its serializer.
+ */
+public final class FieldCatalog<T> {
+
+    // Distinct fields= values kept; further ones are parsed per request
+    private static final int MAX_CACHED_SELECTIONS = 256;
+
+    record Property<T>(String name, SerializedString jsonName, List<String> columns, Function<T, ?> accessor) {
+    }
+
+    private final Map<String, Integer> indexByName = new LinkedHashMap<>();
+    private final List<Property<T>> properties = new ArrayList<>();
+    private final Map<String, FieldSet<T>> selections = new ConcurrentHashMap<>();
+
+    private FieldCatalog() {
+    }
+
+    public static <T> FieldCatalog<T> of() {
+        return new FieldCatalog<>();
+    }
+
+    /**
+     * Adds a property read by {@code accessor}; {@code columns} are the result-set labels
+     * it needs, none for properties computed after the query.
+     */
+    public FieldCatalog<T> field(String name, Function<T, ?> accessor, String... columns) {
+        if (properties.size() == Long.SIZE) {
+            throw new IllegalStateException("Too many fields in catalog");
+        }
+        if (indexByName.putIfAbsent(name, properties.size()) != null) {
+            throw new IllegalStateException("Duplicate field " + name);
+        }
+        properties.add(new Property<>(name, new SerializedString(name), List.of(columns), accessor));
+        return this;
+    }
+
+    /**
+     * Parses a comma-separated {@code fields=} value. Returns null when it is absent or
+     * blank, meaning every field in the row type's own serialization.
+     *
+     * @throws IllegalArgumentException on a field the catalog does not have
+     */
+    public FieldSet<T> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        FieldSet<T> cached = selections.get(fields);
+        if (cached != null) {
+            return cached;
+        }
+        long mask = 0;
+        for (String raw : fields.split(",")) {
+            String name = raw.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Integer index = indexByName.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException(
+                        "Unknown field '" + name + "'; fields must be among " + String.join(", ", indexByName.keySet()));
+            }
+            mask |= 1L << index;
+        }
+        if (mask == 0) {
+            return null;
+        }
+        List<Property<T>> selected = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            if ((mask & (1L << i)) != 0) {
+                selected.add(properties.get(i));
+            }
+        }
+        FieldSet<T> fieldSet = new FieldSet<>(Long.toHexString(mask), selected);
+        if (selections.size() < MAX_CACHED_SELECTIONS) {
+            selections.putIfAbsent(fields, fieldSet);
+        }
+        return fieldSet;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.clearing.common.fields;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Properties picked from a {@link FieldCatalog} by one {@code fields=} value, in catalog
+ * order whatever order they were asked in. Rows wrapped by {@link #row} serialize as an
+ * object of exactly those properties, written straight from the accessors without bean
+ * introspection; a requested property that is null is written as null.
+ */
+public final class FieldSet<T> {
+
+    private final String key;
+    private final List<FieldCatalog.Property<T>> properties;
+    private final List<String> columns;
+
+    FieldSet(String key, List<FieldCatalog.Property<T>> properties) {
+        this.key = key;
+        this.properties = List.copyOf(properties);
+        Set<String> labels = new LinkedHashSet<>();
+        properties.forEach(property -> labels.addAll(property.columns()));
+        this.columns = List.copyOf(labels);
+    }
+
+    /** Identifies the set within its catalog, for query shape variants and cache keys. */
+    public String key() {
+        return key;
+    }
+
+    /** Result-set labels the selected properties are read from, without duplicates. */
+    public List<String> columns() {
+        return columns;
+    }
+
+    public boolean includes(String name) {
+        for (FieldCatalog.Property<T> property : properties) {
+            if (property.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Object row(T row) {
+        return new Row(row);
+    }
+
+    public List<Object> rows(List<T> rows) {
+        List<Object> wrapped = new ArrayList<>(rows.size());
+        rows.forEach(row -> wrapped.add(new Row(row)));
+        return wrapped;
+    }
+
+    private final class Row implements JsonSerializable {
+
+        private final T row;
+
+        Row(T row) {
+            this.row = row;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            for (FieldCatalog.Property<T> property : properties) {
+                gen.writeFieldName(property.jsonName());
+                provider.defaultSerializeValue(property.accessor().apply(row), gen);
+            }
+            gen.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, provider);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.clearing.common.ndjson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes one JSON document per line ({@code application/x-ndjson}) straight to a
+ * response stream as rows are read. Nothing is flushed per row: the generator's buffer
+ * fills and blocks on the servlet output stream, so a slow client slows the cursor
+ * feeding it instead of rows piling up in memory.
+ *
+ * <p>
+ * A failed write, usually the client going away, is thrown as
+ * {@link UncheckedIOException} so it unwinds the row callback; that closes the JDBC
+ * cursor and ends the transaction before another batch is fetched.
+ */
+public final class NdjsonWriter implements Closeable {
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private long rows;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                // Lines are terminated explicitly below; no space between root values
+                .setRootValueSeparator(null);
+    }
+
+    public void write(Object row) {
+        try {
+            writer.writeValue(generator, row);
+            generator.writeRaw('\n');
+            rows++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /** Flushes buffered lines; the response stream itself is left to the container. */
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
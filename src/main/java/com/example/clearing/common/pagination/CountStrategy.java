@@ -0,0 +1,38 @@
+package com.example.clearing.common.pagination;
+
+import java.util.Locale;
+
+/**
+ * How a paginated search computes its total. Only EXACT is guaranteed correct; the
+ * cheaper modes trade accuracy for skipping the COUNT(*) over the full filtered join.
+ */
+public enum CountStrategy {
+
+    /** COUNT(*) over the filtered query on every request. */
+    EXACT,
+    /** Exact count reused per filter fingerprint until the TTL elapses or a write invalidates it. */
+    CACHED,
+    /** Planner row estimate from EXPLAIN; cheap but can be far off for skewed filters. */
+    ESTIMATED,
+    /** No count; one extra row is fetched only to tell whether a next page exists. */
+    NONE;
+
+    public static CountStrategy fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        if ("HASNEXT".equals(normalized)) {
+            return NONE;
+        }
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("countStrategy must be one of exact, cached, estimated, none");
+        }
+    }
+
+    public String headerValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
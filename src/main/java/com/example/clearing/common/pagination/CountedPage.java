@@ -0,0 +1,12 @@
+package com.example.clearing.common.pagination;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * A page together with the count strategy that actually produced its total, which
+ * can differ from the requested one when a cheaper strategy had to fall back.
+ */
+public record CountedPage<T>(Page<T> page, CountStrategy countStrategy) {
+
+    public static final String COUNT_STRATEGY_HEADER = "X-Count-Strategy";
+}
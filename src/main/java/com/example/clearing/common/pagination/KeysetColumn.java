@@ -0,0 +1,52 @@
+package com.example.clearing.common.pagination;
+
+import java.util.List;
+
+import org.jooq.SelectField;
+import org.jooq.impl.DSL;
+
+/**
+ * A sortable column usable for keyset (seek) pagination. Rows are ordered by the
+ * column and then by a unique tie-breaking id in the same direction, with NULL keys
+ * last, so "the rows after the cursor" is a single range predicate instead of an
+ * OFFSET that has to scan and discard every earlier row.
+ *
+ * @param expression SQL expression of the sort key (a column or an aggregate)
+ * @param type       Java type the key is read and bound as
+ * @param nullable   whether the key can be NULL; non-null keys get a plain row
+ *                   comparison that an index on (key, id) can serve directly
+ */
+public record KeysetColumn(String expression, Class<?> type, boolean nullable) {
+
+    public static final String KEY_PARAM = "keysetKey";
+    public static final String ID_PARAM = "keysetId";
+    public static final String KEY_ALIAS = "keyset_key";
+    public static final String ID_ALIAS = "keyset_id";
+
+    public String orderBy(String idExpression, boolean ascending) {
+        String direction = ascending ? "ASC" : "DESC";
+        String nulls = nullable && !ascending ? " NULLS LAST" : "";
+        return expression + " " + direction + nulls + ", " + idExpression + " " + direction;
+    }
+
+    /**
+     * Predicate selecting the rows strictly after the cursor position, binding
+     * {@code :keysetKey} and {@code :keysetId}.
+     */
+    public String seekPredicate(String idExpression, boolean ascending, boolean lastKeyNull) {
+        String op = ascending ? ">" : "<";
+        if (lastKeyNull) {
+            return "(" + expression + " IS NULL AND " + idExpression + " " + op + " :" + ID_PARAM + ")";
+        }
+        String rowComparison = "(" + expression + ", " + idExpression + ") " + op
+                + " (:" + KEY_PARAM + ", :" + ID_PARAM + ")";
+        return nullable
+                ? "(" + rowComparison + " OR " + expression + " IS NULL)"
+                : rowComparison;
+    }
+
+    /** Key and id select-list entries, aliased for {@link KeysetRowMapper}. */
+    public List<SelectField<?>> selectFields(String idExpression) {
+        return List.of(DSL.field(expression).as(KEY_ALIAS), DSL.field(idExpression).as(ID_ALIAS));
+    }
+}
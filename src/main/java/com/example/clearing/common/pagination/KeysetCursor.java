@@ -0,0 +1,69 @@
+package com.example.clearing.common.pagination;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque cursor carrying the last returned row's sort key and tie-breaking id.
+ * The sort spec is embedded so a cursor cannot be replayed against another sort.
+ */
+public record KeysetCursor(String sortSpec, Object lastKey, long lastId) {
+
+    private static final String VERSION = "k1";
+    private static final String NULL_MARKER = "~";
+
+    public String encode() {
+        String value = lastKey == null ? NULL_MARKER : "=" + render(lastKey);
+        String raw = VERSION + "|" + sortSpec + "|" + lastId + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token, String expectedSortSpec, KeysetColumn column) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 4);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[1].equals(expectedSortSpec)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort; restart from the first page");
+        }
+        try {
+            long lastId = Long.parseLong(parts[2]);
+            Object lastKey = NULL_MARKER.equals(parts[3]) ? null : parse(parts[3].substring(1), column.type());
+            return new KeysetCursor(parts[1], lastKey, lastId);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String render(Object value) {
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+
+    private static Object parse(String value, Class<?> type) {
+        if (type == LocalDate.class) {
+            return LocalDate.parse(value);
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.parse(value);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(value);
+        }
+        if (type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.clearing.common.pagination;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated search. There is no total count: counting would
+ * reintroduce the full scan that seeking avoids.
+ */
+public record KeysetPage<T>(List<T> content, boolean hasNext, String nextCursor) {
+}
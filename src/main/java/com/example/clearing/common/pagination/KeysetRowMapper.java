@@ -0,0 +1,54 @@
+package com.example.clearing.common.pagination;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Decorates a row mapper to remember each row's keyset sort key and id
+ * ({@code keyset_key} / {@code keyset_id}) so the next cursor can be built without
+ * exposing those columns on the mapped DTO.
+ */
+public class KeysetRowMapper<T> implements RowMapper<T> {
+
+    private final RowMapper<T> delegate;
+    private final Class<?> keyType;
+    private final List<Object> keys = new ArrayList<>();
+    private final List<Long> ids = new ArrayList<>();
+    private ResultSet boundTo;
+    private int keyIndex;
+    private int idIndex;
+
+    public KeysetRowMapper(RowMapper<T> delegate, Class<?> keyType) {
+        this.delegate = delegate;
+        this.keyType = keyType;
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (rs != boundTo) {
+            keyIndex = rs.findColumn(KeysetColumn.KEY_ALIAS);
+            idIndex = rs.findColumn(KeysetColumn.ID_ALIAS);
+            boundTo = rs;
+        }
+        keys.add(rs.getObject(keyIndex, keyType));
+        ids.add(rs.getLong(idIndex));
+        return delegate.mapRow(rs, rowNum);
+    }
+
+    /**
+     * Builds the page from rows fetched with {@code LIMIT size + 1}; the extra row only
+     * signals that another page exists.
+     */
+    public KeysetPage<T> toPage(List<T> rows, int size, String sortSpec) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, false, null);
+        }
+        int last = size - 1;
+        String nextCursor = new KeysetCursor(sortSpec, keys.get(last), ids.get(last)).encode();
+        return new KeysetPage<>(new ArrayList<>(rows.subList(0, size)), true, nextCursor);
+    }
+}
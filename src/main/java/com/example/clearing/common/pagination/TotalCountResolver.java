@@ -0,0 +1,181 @@
+package com.example.clearing.common.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Resolves page totals for the paginated searches according to a {@link CountStrategy}.
+ * DAOs fetch {@link #fetchLimit} rows for the page and hand the un-ordered, un-limited
+ * query to {@link #toPage}, which decides whether and how to count it.
+ */
+@Component
+public class TotalCountResolver {
+
+    public static final String SCOPE_BANK_TRANSACTIONS = "bank_transaction";
+    public static final String SCOPE_ALLOCATION_DETAILS = "allocation_details";
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(TotalCountResolver.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, CachedTotal> cache = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public TotalCountResolver(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            @Value("${clearing.count-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${clearing.count-cache.max-entries:10000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Rows the data query should fetch: one extra when no count is taken, so the
+     * presence of a next page can still be reported.
+     */
+    public int fetchLimit(CountStrategy strategy, int pageSize) {
+        return strategy == CountStrategy.NONE ? pageSize + 1 : pageSize;
+    }
+
+    /**
+     * Builds the page for {@code rows} fetched with {@link #fetchLimit}.
+     *
+     * @param countBaseSql the filtered query without ORDER BY/LIMIT; counted or explained as-is
+     * @param params       bind parameters of {@code countBaseSql}; limit/offset are ignored
+     */
+    public <T> CountedPage<T> toPage(List<T> rows, Pageable pageable, CountStrategy strategy, String scope,
+            String countBaseSql, Map<String, Object> params) {
+        int pageSize = pageable.getPageSize();
+        if (strategy == CountStrategy.NONE) {
+            boolean hasNext = rows.size() > pageSize;
+            List<T> content = hasNext ? rows.subList(0, pageSize) : rows;
+            // Lower bound that is just large enough for Page#hasNext to answer correctly
+            long total = pageable.getOffset() + content.size() + (hasNext ? 1 : 0);
+            return new CountedPage<>(new PageImpl<>(content, pageable, total), CountStrategy.NONE);
+        }
+        // A partial page (or an empty first page) already pins down the exact total
+        if (rows.size() < pageSize && (!rows.isEmpty() || pageable.getOffset() == 0)) {
+            long total = pageable.getOffset() + rows.size();
+            return new CountedPage<>(new PageImpl<>(rows, pageable, total), CountStrategy.EXACT);
+        }
+
+        return switch (strategy) {
+            case CACHED -> cachedCount(rows, pageable, scope, countBaseSql, params);
+            case ESTIMATED -> estimatedCount(rows, pageable, countBaseSql, params);
+            default -> new CountedPage<>(new PageImpl<>(rows, pageable, exactCount(countBaseSql, params)),
+                    CountStrategy.EXACT);
+        };
+    }
+
+    /**
+     * Drops cached totals for {@code scope}. Inside a transaction this happens after
+     * commit, so a concurrent reader cannot re-cache the pre-write total.
+     */
+    public void invalidate(String scope) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generations.merge(scope, 1L, Long::sum);
+                }
+            });
+        } else {
+            generations.merge(scope, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Number of invalidations of {@code scope} so far, for other caches of data derived
+     * from the same tables; a value cached under an older generation is stale.
+     */
+    public long generation(String scope) {
+        return generations.getOrDefault(scope, 0L);
+    }
+
+    private <T> CountedPage<T> cachedCount(List<T> rows, Pageable pageable, String scope, String countBaseSql,
+            Map<String, Object> params) {
+        String key = scope + ":" + fingerprint(countBaseSql, params);
+        long generation = generations.getOrDefault(scope, 0L);
+        long now = System.nanoTime();
+        CachedTotal cached = cache.get(key);
+        if (cached != null && cached.generation == generation && now - cached.expiresAt < 0) {
+            return new CountedPage<>(new PageImpl<>(rows, pageable, cached.total), CountStrategy.CACHED);
+        }
+
+        long total = exactCount(countBaseSql, params);
+        if (cache.size() >= maxEntries) {
+            cache.values().removeIf(entry -> now - entry.expiresAt >= 0);
+            if (cache.size() >= maxEntries) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedTotal(total, generation, now + ttlNanos));
+        return new CountedPage<>(new PageImpl<>(rows, pageable, total), CountStrategy.EXACT);
+    }
+
+    private <T> CountedPage<T> estimatedCount(List<T> rows, Pageable pageable, String countBaseSql,
+            Map<String, Object> params) {
+        try {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + countBaseSql, params, String.class);
+            JsonNode root = objectMapper.readTree(plan);
+            long estimate = root.path(0).path("Plan").path("Plan Rows").asLong(-1);
+            if (estimate >= 0) {
+                long total = Math.max(estimate, pageable.getOffset() + rows.size());
+                return new CountedPage<>(new PageImpl<>(rows, pageable, total), CountStrategy.ESTIMATED);
+            }
+            log.warn("EXPLAIN returned no row estimate; falling back to an exact count");
+        } catch (Exception ex) {
+            log.warn("Row estimate failed; falling back to an exact count", ex);
+        }
+        return new CountedPage<>(new PageImpl<>(rows, pageable, exactCount(countBaseSql, params)),
+                CountStrategy.EXACT);
+    }
+
+    private long exactCount(String countBaseSql, Map<String, Object> params) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (" + countBaseSql + ") AS count_base", params, Long.class);
+        return total != null ? total : 0L;
+    }
+
+    private String fingerprint(String sql, Map<String, Object> params) {
+        Map<String, Object> filters = new TreeMap<>(params);
+        filters.remove("limit");
+        filters.remove("offset");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(sql.getBytes(StandardCharsets.UTF_8));
+            digest.update(filters.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private record CachedTotal(long total, long generation, long expiresAt) {
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.clearing.common.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.example.clearing.domain.VoucherHeader;
+import com.example.clearing.domain.VoucherLine;
+import com.itextpdf.text.BadElementException;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfPageEventHelper;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Voucher print layout. Fonts, the logo, column widths and header cells are built once
+ * at startup and only copied per document, so a bulk run spends its time on voucher
+ * content rather than on re-parsing fonts and images.
+ *
+ * <p>
+ * Each document draws the page header band (logo and title) once into a
+ * {@link PdfTemplate} and stamps that XObject on every page. Rendering is thread-safe:
+ * shared objects are never mutated after construction.
+ */
+@Component
+public class VoucherPdfLayout {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VoucherPdfLayout.class);
+
+    private static final float MARGIN = 36f;
+    private static final float HEADER_BAND_HEIGHT = 48f;
+    private static final float LOGO_MAX_WIDTH = 120f;
+    private static final float[] LINE_COLUMN_WIDTHS = { 1f, 7f, 2.5f };
+    private static final String[] LINE_HEADER = { "#", "Description", "Amount" };
+    private static final float[] SUMMARY_COLUMN_WIDTHS = { 2f, 3f, 2f, 3f };
+
+    /** One voucher to print: the header, its resolved status code and its lines. */
+    public record Voucher(VoucherHeader header, String status, List<VoucherLine> lines) {
+    }
+
+    private final String title;
+    private final BaseFont boldBase;
+    private final Font titleFont;
+    private final Font labelFont;
+    private final Font valueFont;
+    private final Image logo;
+    private final PdfPCell[] lineHeaderCells;
+
+    public VoucherPdfLayout(
+            ResourceLoader resourceLoader,
+            @Value("${clearing.voucher-pdf.title:Payment Clearing Voucher}") String title,
+            @Value("${clearing.voucher-pdf.logo:}") String logoLocation) throws DocumentException, IOException {
+        this.title = title;
+        // Standard Type 1 fonts: nothing to embed, so every page stays small
+        BaseFont regularBase = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        this.boldBase = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        this.titleFont = new Font(boldBase, 14f);
+        this.labelFont = new Font(boldBase, 9f);
+        this.valueFont = new Font(regularBase, 9f);
+        Font headerCellFont = new Font(boldBase, 9f, Font.NORMAL, BaseColor.WHITE);
+        this.logo = loadLogo(resourceLoader, logoLocation);
+        this.lineHeaderCells = new PdfPCell[LINE_HEADER.length];
+        for (int i = 0; i < LINE_HEADER.length; i++) {
+            PdfPCell cell = new PdfPCell(new Phrase(LINE_HEADER[i], headerCellFont));
+            cell.setBackgroundColor(BaseColor.DARK_GRAY);
+            cell.setPadding(4f);
+            cell.setHorizontalAlignment(i == LINE_HEADER.length - 1 ? Element.ALIGN_RIGHT : Element.ALIGN_LEFT);
+            lineHeaderCells[i] = cell;
+        }
+    }
+
+    /**
+     * Writes the vouchers into one PDF, each starting on a new page. The stream is left
+     * open.
+     */
+    public void render(List<Voucher> vouchers, OutputStream out) throws DocumentException, IOException {
+        if (vouchers.isEmpty()) {
+            throw new IllegalArgumentException("No vouchers to render");
+        }
+        Document document = new Document(PageSize.A4, MARGIN, MARGIN, MARGIN + HEADER_BAND_HEIGHT, MARGIN);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        writer.setFullCompression();
+        writer.setPageEvent(new HeaderBand());
+        document.open();
+        // NumberFormat is not thread-safe; one per document is cheap
+        NumberFormat amounts = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        amounts.setMinimumFractionDigits(2);
+        amounts.setMaximumFractionDigits(2);
+        for (int i = 0; i < vouchers.size(); i++) {
+            if (i > 0) {
+                document.newPage();
+            }
+            addVoucher(document, vouchers.get(i), amounts);
+        }
+        document.close();
+    }
+
+    private void addVoucher(Document document, Voucher voucher, NumberFormat amounts) throws DocumentException {
+        VoucherHeader header = voucher.header();
+
+        PdfPTable summary = new PdfPTable(SUMMARY_COLUMN_WIDTHS);
+        summary.setWidthPercentage(100f);
+        summary.setSpacingAfter(12f);
+        summaryRow(summary, "Voucher No", header.getVoucherNumber(), "Voucher Date", header.getVoucherDate());
+        summaryRow(summary, "Status", voucher.status(), "Voucher ID", header.getVoucherId());
+        summaryRow(summary, "Board", header.getBoardId(), "Employer", header.getEmployerId());
+        document.add(summary);
+
+        PdfPTable lines = new PdfPTable(LINE_COLUMN_WIDTHS);
+        lines.setWidthPercentage(100f);
+        // Repeated at the top of every page a long voucher spills onto
+        lines.setHeaderRows(1);
+        for (PdfPCell prototype : lineHeaderCells) {
+            lines.addCell(new PdfPCell(prototype));
+        }
+        BigDecimal linesTotal = BigDecimal.ZERO;
+        for (VoucherLine line : voucher.lines()) {
+            lines.addCell(bodyCell(line.getLineNumber() == null ? "" : line.getLineNumber().toString(),
+                    Element.ALIGN_LEFT));
+            lines.addCell(bodyCell(line.getDescription(), Element.ALIGN_LEFT));
+            lines.addCell(bodyCell(format(amounts, line.getAmount()), Element.ALIGN_RIGHT));
+            if (line.getAmount() != null) {
+                linesTotal = linesTotal.add(line.getAmount());
+            }
+        }
+        BigDecimal total = header.getTotalAmount() != null ? header.getTotalAmount() : linesTotal;
+        PdfPCell totalLabel = new PdfPCell(new Phrase("Total", labelFont));
+        totalLabel.setColspan(2);
+        totalLabel.setPadding(4f);
+        totalLabel.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        lines.addCell(totalLabel);
+        PdfPCell totalValue = new PdfPCell(new Phrase(format(amounts, total), labelFont));
+        totalValue.setPadding(4f);
+        totalValue.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        lines.addCell(totalValue);
+        document.add(lines);
+    }
+
+    private void summaryRow(PdfPTable table, String label1, Object value1, String label2, Object value2) {
+        table.addCell(summaryCell(label1, labelFont));
+        table.addCell(summaryCell(value1 == null ? "" : value1.toString(), valueFont));
+        table.addCell(summaryCell(label2, labelFont));
+        table.addCell(summaryCell(value2 == null ? "" : value2.toString(), valueFont));
+    }
+
+    private static PdfPCell summaryCell(String text, Font font) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, font));
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setPadding(2f);
+        return cell;
+    }
+
+    private PdfPCell bodyCell(String text, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text == null ? "" : text, valueFont));
+        cell.setPadding(4f);
+        cell.setHorizontalAlignment(alignment);
+        return cell;
+    }
+
+    private static String format(NumberFormat amounts, BigDecimal value) {
+        return value == null ? "" : amounts.format(value);
+    }
+
+    private static Image loadLogo(ResourceLoader resourceLoader, String location) throws IOException {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        Resource resource = resourceLoader.getResource(location.trim());
+        if (!resource.exists()) {
+            log.warn("Voucher PDF logo {} not found; printing without a logo", location);
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            Image image = Image.getInstance(in.readAllBytes());
+            image.scaleToFit(LOGO_MAX_WIDTH, HEADER_BAND_HEIGHT - 8f);
+            return image;
+        } catch (BadElementException ex) {
+            throw new IOException("Unreadable voucher PDF logo " + location, ex);
+        }
+    }
+
+    /**
+     * Draws the header band into a template when the document opens and stamps it on
+     * every page, so the logo image and title are written to the file only once.
+     */
+    private final class HeaderBand extends PdfPageEventHelper {
+        private PdfTemplate band;
+
+        @Override
+        public void onOpenDocument(PdfWriter writer, Document document) {
+            Rectangle page = document.getPageSize();
+            float width = page.getWidth() - 2 * MARGIN;
+            band = writer.getDirectContent().createTemplate(width, HEADER_BAND_HEIGHT);
+            try {
+                float textX = 0f;
+                if (logo != null) {
+                    // Copy: positioning mutates the image and the prototype is shared across threads
+                    Image copy = Image.getInstance(logo);
+                    copy.setAbsolutePosition(0f, HEADER_BAND_HEIGHT - copy.getScaledHeight());
+                    band.addImage(copy);
+                    textX = copy.getScaledWidth() + 12f;
+                }
+                band.beginText();
+                band.setFontAndSize(boldBase, titleFont.getSize());
+                band.showTextAligned(Element.ALIGN_LEFT, title, textX, HEADER_BAND_HEIGHT - 20f, 0f);
+                band.endText();
+                band.setLineWidth(0.5f);
+                band.moveTo(0f, 4f);
+                band.lineTo(width, 4f);
+                band.stroke();
+            } catch (DocumentException ex) {
+                throw new IllegalStateException("Unable to draw voucher PDF header", ex);
+            }
+        }
+
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            PdfContentByte canvas = writer.getDirectContent();
+            Rectangle page = document.getPageSize();
+            canvas.addTemplate(band, MARGIN, page.getHeight() - MARGIN - HEADER_BAND_HEIGHT);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.clearing.common.replica;
+
+/**
+ * Read-your-writes tokens. A request that committed a write gets the primary's WAL
+ * position in the {@value #HEADER} response header; presenting that token on a later
+ * request keeps its read-only transactions off any replica that has not replayed up to
+ * that position yet.
+ *
+ * <p>
+ * Tokens are PostgreSQL {@code pg_lsn} text ({@code 16/B374D848}).
+ */
+public final class ReadConsistency {
+
+    public static final String HEADER = "X-Clearing-Read-Token";
+
+    private static final ThreadLocal<Long> REQUIRED_LSN = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    static void require(long lsn) {
+        REQUIRED_LSN.set(lsn);
+    }
+
+    static void clear() {
+        REQUIRED_LSN.remove();
+    }
+
+    /**
+     * WAL position the current request must observe; 0 when it presented no token.
+     */
+    static long requiredLsn() {
+        Long lsn = REQUIRED_LSN.get();
+        return lsn == null ? 0L : lsn;
+    }
+
+    static long parseLsn(String token) {
+        String value = token.trim();
+        int slash = value.indexOf('/');
+        if (slash <= 0 || slash == value.length() - 1 || slash > 8 || value.length() - slash - 1 > 8
+                || !value.chars().allMatch(c -> c == '/' || Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Invalid read token");
+        }
+        try {
+            long high = Long.parseLong(value.substring(0, slash), 16);
+            long low = Long.parseLong(value.substring(slash + 1), 16);
+            return (high << 32) | low;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid read token");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.clearing.common.replica;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Binds the request's {@link ReadConsistency#HEADER} token to the request thread for
+ * {@link ReplicaRoutingDataSource}. A malformed token pins the request's reads to the
+ * primary rather than risking a stale read.
+ */
+public class ReadTokenFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = request.getHeader(ReadConsistency.HEADER);
+        if (token == null || token.isBlank()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long lsn;
+        try {
+            lsn = ReadConsistency.parseLsn(token);
+        } catch (IllegalArgumentException ex) {
+            lsn = Long.MAX_VALUE;
+        }
+        ReadConsistency.require(lsn);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.clearing.common.replica;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Primary DataSource for read-write transactions. When such a transaction commits
+ * during an HTTP request, the primary's WAL position is written to the response as
+ * the {@link ReadConsistency#HEADER} token. The position is read after the commit, so
+ * it is at or past the commit record.
+ */
+public class ReadTokenIssuingDataSource extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(ReadTokenIssuingDataSource.class);
+
+    private static final String CURRENT_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    public ReadTokenIssuingDataSource(DataSource primary) {
+        super(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        issueTokenOnCommit();
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        issueTokenOnCommit();
+        return connection;
+    }
+
+    private void issueTokenOnCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)
+                || attributes.getResponse() == null) {
+            // Scheduled jobs and other non-request work have nobody to hand a token to
+            return;
+        }
+        HttpServletResponse response = attributes.getResponse();
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (!response.isCommitted()) {
+                    String token = currentLsn();
+                    if (token != null) {
+                        response.setHeader(ReadConsistency.HEADER, token);
+                    }
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadTokenIssuingDataSource.this);
+            }
+        });
+    }
+
+    private String currentLsn() {
+        // Own connection: the transaction's connection is already committed and about to be released
+        try (Connection connection = obtainTargetDataSource().getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(CURRENT_LSN_SQL)) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException ex) {
+            // Without a token the client simply reads without a consistency requirement
+            log.warn("Unable to read the primary WAL position for a read token", ex);
+            return null;
+        }
+    }
+}
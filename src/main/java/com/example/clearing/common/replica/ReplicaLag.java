@@ -0,0 +1,65 @@
+package com.example.clearing.common.replica;
+
+import java.util.ArrayDeque;
+
+/**
+ * Replication state of the read replica as last sampled by {@link ReplicaLagMonitor}.
+ *
+ * <p>
+ * Lag is measured in time, not bytes: each sample remembers when the primary reached
+ * its WAL position, and the lag is the age of the oldest sampled position the replica
+ * has not replayed yet. An idle primary therefore reads as zero lag, and a stuck
+ * replica reads as growing lag even when nothing is being written.
+ */
+public class ReplicaLag {
+
+    // Bounds memory if the replica stops replaying; the oldest sample is always kept
+    private static final int MAX_PENDING_SAMPLES = 10_000;
+
+    private record Snapshot(boolean available, long sampledAt, long replayedLsn, long lagMillis) {
+    }
+
+    private final long staleAfterMillis;
+    private final ArrayDeque<long[]> pending = new ArrayDeque<>();
+    private volatile Snapshot snapshot = new Snapshot(false, 0L, 0L, Long.MAX_VALUE);
+
+    public ReplicaLag(long staleAfterMillis) {
+        this.staleAfterMillis = staleAfterMillis;
+    }
+
+    public synchronized void record(long now, long primaryLsn, long replayedLsn) {
+        long[] newest = pending.peekLast();
+        if ((newest == null || primaryLsn > newest[1]) && pending.size() < MAX_PENDING_SAMPLES) {
+            pending.addLast(new long[] { now, primaryLsn });
+        }
+        while (!pending.isEmpty() && pending.peekFirst()[1] <= replayedLsn) {
+            pending.removeFirst();
+        }
+        long lag = pending.isEmpty() ? 0L : now - pending.peekFirst()[0];
+        snapshot = new Snapshot(true, now, replayedLsn, lag);
+    }
+
+    public synchronized void unavailable(long now) {
+        pending.clear();
+        snapshot = new Snapshot(false, now, 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Whether a read that must observe {@code requiredLsn} may go to the replica.
+     */
+    public boolean canServe(long requiredLsn, long maxLagMillis, long now) {
+        Snapshot current = snapshot;
+        return current.available()
+                && now - current.sampledAt() <= staleAfterMillis
+                && current.lagMillis() <= maxLagMillis
+                && current.replayedLsn() >= requiredLsn;
+    }
+
+    /**
+     * Last measured lag in milliseconds; -1 while the replica is unavailable.
+     */
+    public long lagMillis() {
+        Snapshot current = snapshot;
+        return current.available() ? current.lagMillis() : -1L;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.clearing.common.replica;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Samples the primary's WAL position and the replica's replay position on a fixed
+ * delay and feeds them to {@link ReplicaLag}. A replica that cannot be reached is
+ * marked unavailable, which sends all reads to the primary until it answers again.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(ReplicaLagMonitor.class);
+
+    private static final String PRIMARY_LSN_SQL = "SELECT (pg_current_wal_lsn() - '0/0'::pg_lsn)::bigint";
+    // A non-standby (e.g. the primary itself used as a local replica) has no replay position
+    private static final String REPLAYED_LSN_SQL = """
+            SELECT (CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn()
+                         ELSE pg_current_wal_lsn() END - '0/0'::pg_lsn)::bigint""";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLag lag;
+    private volatile boolean reachable = true;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, ReplicaLag lag) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lag = lag;
+    }
+
+    @Scheduled(fixedDelayString = "${clearing.read-replica.lag-check-interval-ms:1000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        try {
+            // Primary first: a replay position read afterwards can only make the lag look smaller
+            long primaryLsn = queryLsn(primary, PRIMARY_LSN_SQL);
+            long replayedLsn = queryLsn(replica, REPLAYED_LSN_SQL);
+            lag.record(now, primaryLsn, replayedLsn);
+            if (!reachable) {
+                reachable = true;
+                log.info("Read replica is reachable again; lag {} ms", lag.lagMillis());
+            }
+        } catch (SQLException | RuntimeException ex) {
+            lag.unavailable(now);
+            if (reachable) {
+                reachable = false;
+                log.warn("Read replica lag check failed; routing reads to the primary", ex);
+            }
+        }
+    }
+
+    private static long queryLsn(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new SQLException("No WAL position returned");
+            }
+            long lsn = rs.getLong(1);
+            if (rs.wasNull()) {
+                throw new SQLException("WAL position is not available");
+            }
+            return lsn;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.clearing.common.replica;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Chooses where a read-only connection comes from: the replica while it is reachable,
+ * within {@code maxLagMillis}, and past the caller's read token; otherwise the primary.
+ * Only ever asked for connections of read-only transactions (see
+ * {@code ReadReplicaConfig}).
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLag lag;
+    private final long maxLagMillis;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLag lag, long maxLagMillis,
+            MeterRegistry meterRegistry) {
+        this.lag = lag;
+        this.maxLagMillis = maxLagMillis;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+        this.replicaReads = Counter.builder("clearing.datasource.reads")
+                .tag("target", "replica")
+                .description("Read-only transactions served by the read replica")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("clearing.datasource.reads")
+                .tag("target", "primary")
+                .description("Read-only transactions sent to the primary (replica lagging, behind a read token or down)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (lag.canServe(ReadConsistency.requiredLsn(), maxLagMillis, System.currentTimeMillis())) {
+            replicaReads.increment();
+            return Target.REPLICA;
+        }
+        primaryReads.increment();
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.clearing.common.sql;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Column-to-setter mapping for a DTO, read by column index. Labels are resolved against
+ * the {@link ResultSetMetaData} once per result set instead of once per column per row,
+ * and optional columns the query does not select are skipped without the
+ * {@code findColumn}/{@link SQLException} round trip.
+ *
+ * <p>
+ * Declare one mapping per DTO as a constant and call {@link #rowMapper()} per query;
+ * the mapper binds to the first result set it sees and re-binds if handed another.
+ * NULLs map to null for every type, and numeric columns are read as primitives and
+ * only boxed when present.
+ */
+public final class ColumnMapping<T> {
+
+    @FunctionalInterface
+    private interface ColumnReader<T> {
+        void read(ResultSet rs, int index, T target) throws SQLException;
+    }
+
+    private record Column<T>(String label, boolean optional, ColumnReader<T> reader) {
+    }
+
+    private final Supplier<T> factory;
+    private final List<Column<T>> columns = new ArrayList<>();
+
+    private ColumnMapping(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> ColumnMapping<T> of(Supplier<T> factory) {
+        return new ColumnMapping<>(factory);
+    }
+
+    public ColumnMapping<T> string(String label, BiConsumer<T, String> setter) {
+        return add(label, (rs, i, target) -> setter.accept(target, rs.getString(i)));
+    }
+
+    public ColumnMapping<T> integer(String label, BiConsumer<T, Integer> setter) {
+        return add(label, (rs, i, target) -> {
+            int value = rs.getInt(i);
+            setter.accept(target, rs.wasNull() ? null : value);
+        });
+    }
+
+    public ColumnMapping<T> longValue(String label, BiConsumer<T, Long> setter) {
+        return add(label, (rs, i, target) -> {
+            long value = rs.getLong(i);
+            setter.accept(target, rs.wasNull() ? null : value);
+        });
+    }
+
+    public ColumnMapping<T> bool(String label, BiConsumer<T, Boolean> setter) {
+        return add(label, (rs, i, target) -> {
+            boolean value = rs.getBoolean(i);
+            setter.accept(target, rs.wasNull() ? null : value);
+        });
+    }
+
+    public ColumnMapping<T> decimal(String label, BiConsumer<T, BigDecimal> setter) {
+        return add(label, (rs, i, target) -> setter.accept(target, rs.getBigDecimal(i)));
+    }
+
+    public ColumnMapping<T> date(String label, BiConsumer<T, LocalDate> setter) {
+        return add(label, (rs, i, target) -> {
+            Date value = rs.getDate(i);
+            setter.accept(target, value != null ? value.toLocalDate() : null);
+        });
+    }
+
+    public ColumnMapping<T> localDateTime(String label, BiConsumer<T, LocalDateTime> setter) {
+        return add(label, (rs, i, target) -> {
+            Timestamp value = rs.getTimestamp(i);
+            setter.accept(target, value != null ? value.toLocalDateTime() : null);
+        });
+    }
+
+    public ColumnMapping<T> offsetDateTime(String label, BiConsumer<T, OffsetDateTime> setter) {
+        return add(label, (rs, i, target) -> setter.accept(target, rs.getObject(i, OffsetDateTime.class)));
+    }
+
+    /**
+     * Marks the column added last as optional: left unset when the query does not
+     * select it, instead of failing the mapping.
+     */
+    public ColumnMapping<T> optional() {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("No column to mark optional");
+        }
+        Column<T> last = columns.remove(columns.size() - 1);
+        columns.add(new Column<>(last.label(), true, last.reader()));
+        return this;
+    }
+
+    /** New mapper for one query execution; not thread-safe. */
+    public RowMapper<T> rowMapper() {
+        return new BoundRowMapper<>(factory, List.copyOf(columns), false);
+    }
+
+    /**
+     * Like {@link #rowMapper()}, but treats every column as optional, for queries that
+     * select only the columns a sparse fieldset needs.
+     */
+    public RowMapper<T> lenientRowMapper() {
+        return new BoundRowMapper<>(factory, List.copyOf(columns), true);
+    }
+
+    private ColumnMapping<T> add(String label, ColumnReader<T> reader) {
+        columns.add(new Column<>(label.toLowerCase(Locale.ROOT), false, reader));
+        return this;
+    }
+
+    private static final class BoundRowMapper<T> implements RowMapper<T> {
+
+        private final Supplier<T> factory;
+        private final List<Column<T>> columns;
+        private final int[] indexes;
+        private final boolean lenient;
+        private ResultSet boundTo;
+
+        BoundRowMapper(Supplier<T> factory, List<Column<T>> columns, boolean lenient) {
+            this.factory = factory;
+            this.columns = columns;
+            this.indexes = new int[columns.size()];
+            this.lenient = lenient;
+        }
+
+        @Override
+        public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (rs != boundTo) {
+                bind(rs);
+            }
+            T target = factory.get();
+            for (int c = 0; c < indexes.length; c++) {
+                int index = indexes[c];
+                if (index > 0) {
+                    columns.get(c).reader().read(rs, index, target);
+                }
+            }
+            return target;
+        }
+
+        private void bind(ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            Map<String, Integer> indexByLabel = new HashMap<>();
+            // Walk backwards so a duplicated label resolves to its first occurrence, like findColumn
+            for (int i = metaData.getColumnCount(); i >= 1; i--) {
+                indexByLabel.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+            for (int c = 0; c < indexes.length; c++) {
+                Column<T> column = columns.get(c);
+                Integer index = indexByLabel.get(column.label());
+                if (index == null && !column.optional() && !lenient) {
+                    throw new SQLException("Column '" + column.label() + "' not found in result set");
+                }
+                indexes[c] = index != null ? index : 0;
+            }
+            boundTo = rs;
+        }
+    }
+}
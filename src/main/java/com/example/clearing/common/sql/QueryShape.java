@@ -0,0 +1,122 @@
+package com.example.clearing.common.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.jooq.Condition;
+import org.jooq.QueryPart;
+
+/**
+ * Describes one execution of a dynamic query as a shape (which optional fragments are
+ * present, plus named variants such as the sort) and its bind parameters. SQL text is
+ * only assembled by {@link QueryShapeCache} the first time a shape is seen.
+ *
+ * <p>
+ * Every optional fragment must be declared on every call, present or not, so a bit
+ * position always means the same fragment; mutually exclusive branches are separate
+ * optional fragments. Values that vary per call (limit, offset, cursor keys) are always
+ * bound, never inlined.
+ *
+ * <p>
+ * Fragments can be SQL text or jOOQ query parts using named parameters
+ * ({@code DSL.param("txnRef", ...)}); parts are rendered by {@link SqlRenderer} together
+ * with the rest of the text, so only on a cache miss.
+ */
+public final class QueryShape {
+
+    private final String name;
+    private final List<Supplier<String>> fragments = new ArrayList<>();
+    private final StringBuilder variantKey = new StringBuilder();
+    private final Map<String, Object> params = new HashMap<>();
+    private long mask;
+    private int nextBit;
+
+    public QueryShape(String name) {
+        this.name = name;
+    }
+
+    /** Fragment present in every execution of this query. */
+    public QueryShape sql(String fragment) {
+        fragments.add(() -> fragment);
+        return this;
+    }
+
+    /** Typed fragment present in every execution of this query. */
+    public QueryShape sql(QueryPart part) {
+        fragments.add(() -> SqlRenderer.render(part));
+        return this;
+    }
+
+    public QueryShape optional(boolean present, String fragment) {
+        return optionalFragment(present, () -> fragment);
+    }
+
+    public QueryShape optional(boolean present, String fragment, String param, Object value) {
+        optional(present, fragment);
+        if (present) {
+            params.put(param, value);
+        }
+        return this;
+    }
+
+    /** Optional {@code AND} predicate, for conditions binding several parameters. */
+    public QueryShape optional(boolean present, Condition condition) {
+        return optionalFragment(present, () -> " AND " + SqlRenderer.render(condition));
+    }
+
+    public QueryShape optional(boolean present, Condition condition, String param, Object value) {
+        optional(present, condition);
+        if (present) {
+            params.put(param, value);
+        }
+        return this;
+    }
+
+    /**
+     * Fragment chosen from a small closed set (a whitelisted sort, a seek direction);
+     * {@code key} must identify the fragment text, which is only built on a cache miss.
+     */
+    public QueryShape variant(String key, Supplier<String> fragment) {
+        variantKey.append('|').append(key);
+        fragments.add(fragment);
+        return this;
+    }
+
+    public QueryShape param(String param, Object value) {
+        params.put(param, value);
+        return this;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String key() {
+        return name + "#" + Long.toHexString(mask) + variantKey;
+    }
+
+    public Map<String, Object> params() {
+        return params;
+    }
+
+    private QueryShape optionalFragment(boolean present, Supplier<String> fragment) {
+        if (nextBit == Long.SIZE) {
+            throw new IllegalStateException("Too many optional fragments for query " + name);
+        }
+        if (present) {
+            mask |= 1L << nextBit;
+            fragments.add(fragment);
+        }
+        nextBit++;
+        return this;
+    }
+
+    String render() {
+        StringBuilder sql = new StringBuilder();
+        fragments.forEach(fragment -> sql.append(fragment.get()));
+        return sql.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.clearing.common.sql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caches the SQL text of each {@link QueryShape} so every execution of a shape sends
+ * byte-identical SQL, which keeps NamedParameterJdbcTemplate's parsed-SQL cache and
+ * PgJDBC's per-connection prepared statement cache warm.
+ *
+ * <p>
+ * Exposes {@code clearing.query.shape.lookups{result=hit|miss}} and
+ * {@code clearing.query.shape.distinct{query=...}}. The total distinct shape count
+ * should stay below the datasource's {@code preparedStatementCacheQueries}.
+ */
+@Component
+public class QueryShapeCache {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(QueryShapeCache.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxShapes;
+    private final Map<String, String> sqlByShape = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> distinctByQuery = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryShapeCache(MeterRegistry meterRegistry,
+            @Value("${clearing.query-shapes.max-shapes:1024}") int maxShapes) {
+        this.meterRegistry = meterRegistry;
+        this.maxShapes = maxShapes;
+        FunctionCounter.builder("clearing.query.shape.lookups", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Dynamic query executions whose SQL text was already cached")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.query.shape.lookups", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Dynamic query executions that assembled SQL text for a new shape")
+                .register(meterRegistry);
+    }
+
+    public String sql(QueryShape shape) {
+        String key = shape.key();
+        String cached = sqlByShape.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        String sql = shape.render();
+        if (sqlByShape.size() >= maxShapes) {
+            // Shapes are bounded by design; reaching this means a caller inlines values
+            log.warn("Query shape cache is full ({} shapes); not caching {}", maxShapes, key);
+            return sql;
+        }
+        if (sqlByShape.putIfAbsent(key, sql) == null) {
+            distinctShapes(shape.name()).incrementAndGet();
+        }
+        return sql;
+    }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int distinctShapes() {
+        return sqlByShape.size();
+    }
+
+    private AtomicInteger distinctShapes(String queryName) {
+        return distinctByQuery.computeIfAbsent(queryName, name -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("clearing.query.shape.distinct", counter, AtomicInteger::get)
+                    .tag("query", name)
+                    .description("Distinct SQL shapes cached for a dynamic query")
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+}
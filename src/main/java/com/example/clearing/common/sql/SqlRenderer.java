@@ -0,0 +1,39 @@
+package com.example.clearing.common.sql;
+
+import org.jooq.DSLContext;
+import org.jooq.QueryPart;
+import org.jooq.SQLDialect;
+import org.jooq.conf.RenderKeywordCase;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+
+/**
+ * Renders jOOQ query parts built from the generated schema classes as PostgreSQL text
+ * with {@code :name} parameters, so typed fragments can go into a {@link QueryShape} and
+ * run on NamedParameterJdbcTemplate next to hand-written ones.
+ *
+ * <p>
+ * Names are rendered unquoted, so fragments can refer to the table aliases used in the
+ * typed parts ({@code bt}, {@code p}) and the SQL reads like what the DAOs sent before.
+ * Rendering is not free; {@link QueryShapeCache} only does it once per shape.
+ */
+public final class SqlRenderer {
+
+    private static final DSLContext RENDERER = DSL.using(SQLDialect.POSTGRES, settings());
+
+    private SqlRenderer() {
+    }
+
+    /** Settings shared by shape rendering and the application's DSLContext. */
+    public static Settings settings() {
+        return new Settings()
+                .withRenderQuotedNames(RenderQuotedNames.EXPLICIT_DEFAULT_UNQUOTED)
+                .withRenderKeywordCase(RenderKeywordCase.UPPER)
+                .withRenderCatalog(false);
+    }
+
+    public static String render(QueryPart part) {
+        return RENDERER.renderNamedParams(part);
+    }
+}
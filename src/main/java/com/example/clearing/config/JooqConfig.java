@@ -0,0 +1,23 @@
+package com.example.clearing.config;
+
+import org.springframework.boot.autoconfigure.jooq.DefaultConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.clearing.common.sql.SqlRenderer;
+
+/**
+ * The DSLContext itself comes from Spring Boot's jOOQ auto-configuration, which runs
+ * statements on the application DataSource inside the current Spring transaction and
+ * translates exceptions. This only aligns its rendering with {@link SqlRenderer}, so SQL
+ * executed through jOOQ and SQL rendered into query shapes look the same in logs and
+ * pg_stat_statements.
+ */
+@Configuration
+public class JooqConfig {
+
+    @Bean
+    public DefaultConfigurationCustomizer jooqSettingsCustomizer() {
+        return configuration -> configuration.set(SqlRenderer.settings());
+    }
+}
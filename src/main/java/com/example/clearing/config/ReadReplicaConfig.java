@@ -0,0 +1,113 @@
+package com.example.clearing.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import com.example.clearing.common.replica.ReadTokenFilter;
+import com.example.clearing.common.replica.ReadTokenIssuingDataSource;
+import com.example.clearing.common.replica.ReplicaLag;
+import com.example.clearing.common.replica.ReplicaLagMonitor;
+import com.example.clearing.common.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends read-only transactions to a read replica when
+ * {@code clearing.read-replica.enabled=true}.
+ *
+ * <p>
+ * The application DataSource is a {@link LazyConnectionDataSourceProxy}: the physical
+ * connection is fetched at the first statement, after the transaction manager has
+ * marked it read-only, and read-only connections come from
+ * {@link ReplicaRoutingDataSource}. Everything else (allocation locks, claims, imports)
+ * stays on the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "clearing.read-replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("clearing-primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("clearing.read-replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Value("${clearing.read-replica.url}") String url,
+            @Value("${clearing.read-replica.username:}") String username,
+            @Value("${clearing.read-replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                .password(StringUtils.hasText(password) ? password : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("clearing-replica");
+        // Same driver tuning (statement cache, keepalive) as the primary
+        dataSource.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLag replicaLag(@Value("${clearing.read-replica.lag-check-interval-ms:1000}") long checkIntervalMillis,
+            MeterRegistry meterRegistry) {
+        // A few missed checks in a row means the measurement can no longer be trusted
+        ReplicaLag lag = new ReplicaLag(checkIntervalMillis * 5);
+        Gauge.builder("clearing.datasource.replica.lag", lag, ReplicaLag::lagMillis)
+                .baseUnit("milliseconds")
+                .description("Age of the oldest primary WAL position the replica has not replayed; -1 when unreachable")
+                .register(meterRegistry);
+        return lag;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+            ReplicaLag replicaLag) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, replicaLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+            ReplicaLag replicaLag,
+            @Value("${clearing.read-replica.max-lag-ms:5000}") long maxLagMillis,
+            MeterRegistry meterRegistry) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(
+                new ReadTokenIssuingDataSource(primaryDataSource));
+        proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLag,
+                maxLagMillis, meterRegistry));
+        return proxy;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadTokenFilter> readTokenFilter() {
+        FilterRegistrationBean<ReadTokenFilter> registration = new FilterRegistrationBean<>(new ReadTokenFilter());
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
@@ -1,24 +1,38 @@
 package com.example.clearing.controller;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetPage;
 import com.example.clearing.dto.AllocationDetailsView;
 import com.example.clearing.service.AllocationDetailsService;
 import com.shared.common.annotation.SecurePagination;
+import com.shared.common.dao.TenantAccessDao;
 import com.shared.common.dto.SecurePaginationRequest;
 import com.shared.common.dto.SecurePaginationResponse;
 import com.shared.common.util.SecurePaginationUtil;
@@ -62,7 +76,13 @@ public class AllocationDetailsController {
     @Operation(summary = "Secure paginated search of allocation details", description = "Search allocation details with mandatory date range (filters on receipt_date). "
             +
             "Returns combined data from voucher_header, payment_allocation, bank_transaction and request_settlement. " +
-            "Supports filters: employerReceiptNumber, voucherNumber, voucherDate range, txnDate range.")
+            "Supports filters: employerReceiptNumber, voucherNumber, voucherDate range, txnDate range. " +
+            "With paginationMode=keyset (or a cursor) pages are fetched by seeking past the previous page's " +
+            "last row; the response carries nextCursor instead of page numbers and totals. " +
+            "countStrategy (exact, cached, estimated, none) selects how totals are computed; the strategy " +
+            "actually used is returned in the X-Count-Strategy header. " +
+            "fields (comma-separated, e.g. voucherNumber,receiptDate,allocatedAmountFromTxn) reads and returns " +
+            "only those properties.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Allocation details retrieved successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(schema = @Schema(implementation = Map.class))),
@@ -83,7 +103,15 @@ public class AllocationDetailsController {
 
             @Parameter(description = "Transaction date start (YYYY-MM-DD)") @RequestParam(required = false) String txnDateStart,
 
-            @Parameter(description = "Transaction date end (YYYY-MM-DD)") @RequestParam(required = false) String txnDateEnd) {
+            @Parameter(description = "Transaction date end (YYYY-MM-DD)") @RequestParam(required = false) String txnDateEnd,
+
+            @Parameter(description = "Pagination mode: offset (default) or keyset") @RequestParam(defaultValue = "offset") String paginationMode,
+
+            @Parameter(description = "nextCursor from the previous keyset page; implies paginationMode=keyset") @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Total count strategy: exact (default), cached, estimated or none (hasNext only)") @RequestParam(defaultValue = "exact") String countStrategy,
+
+            @Parameter(description = "Comma-separated properties to return, e.g. voucherNumber,receiptDate,allocatedAmountFromTxn; all when omitted") @RequestParam(required = false) String fields) {
 
         try {
             // Apply page token if present
@@ -101,19 +129,37 @@ public class AllocationDetailsController {
             LocalDate voucherDateEndParsed = parseDate(voucherDateEnd);
             LocalDate txnDateStartParsed = parseDate(txnDateStart);
             LocalDate txnDateEndParsed = parseDate(txnDateEnd);
+            FieldSet<AllocationDetailsView> fieldSet = allocationDetailsService.detailFields(fields);
 
             // Create sort and pageable
             Sort sort = SecurePaginationUtil.createSecureSort(request, SECURE_SORT_FIELDS);
             if (sort == null) {
                 sort = Sort.by(Sort.Direction.DESC, "receiptDate");
             }
+            if (isKeysetMode(paginationMode, cursor)) {
+                KeysetPage<AllocationDetailsView> page = allocationDetailsService.searchAllocationDetailsKeyset(
+                        validation.getStartDateTime().toLocalDate(),
+                        validation.getEndDateTime().toLocalDate(),
+                        employerReceiptNumber,
+                        voucherNumber,
+                        voucherDateStartParsed,
+                        voucherDateEndParsed,
+                        txnDateStartParsed,
+                        txnDateEndParsed,
+                        sort,
+                        request.getSize(),
+                        cursor,
+                        fieldSet);
+                return ResponseEntity.ok(createKeysetResponse(page, request.getSize(), fieldSet));
+            }
+
             Pageable pageable = PageRequest.of(
                     request.getPage(),
                     request.getSize(),
                     sort);
 
             // Search allocation details
-            Page<AllocationDetailsView> result = allocationDetailsService.searchAllocationDetails(
+            CountedPage<AllocationDetailsView> result = allocationDetailsService.searchAllocationDetails(
                     validation.getStartDateTime().toLocalDate(),
                     validation.getEndDateTime().toLocalDate(),
                     employerReceiptNumber,
@@ -122,13 +168,18 @@ public class AllocationDetailsController {
                     voucherDateEndParsed,
                     txnDateStartParsed,
                     txnDateEndParsed,
-                    pageable);
+                    pageable,
+                    CountStrategy.fromParam(countStrategy),
+                    fieldSet);
 
             // Create secure pagination response
-            SecurePaginationResponse<AllocationDetailsView> response = SecurePaginationUtil.createSecureResponse(result,
-                    request);
+            SecurePaginationResponse<?> response = fieldSet != null
+                    ? SecurePaginationUtil.createSecureResponse(result.page().map(fieldSet::row), request)
+                    : SecurePaginationUtil.createSecureResponse(result.page(), request);
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok()
+                    .header(CountedPage.COUNT_STRATEGY_HEADER, result.countStrategy().headerValue())
+                    .body(response);
 
         } catch (IllegalArgumentException ex) {
             log.warn("Invalid request for allocation details search: {}", ex.getMessage());
@@ -140,6 +191,151 @@ public class AllocationDetailsController {
         }
     }
 
+    @GetMapping("/details/export.csv")
+    @Operation(summary = "Export allocation details as CSV", description = "Streams every allocation detail in the receipt date range "
+            + "(ordered by receipt date) as CSV while it is read from the database, so large month-end exports need "
+            + "one call and no paging. Accepts the same optional filters as the secure search. "
+            + "With gzip=true the file is gzip-compressed (export.csv.gz).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "CSV stream", content = @Content(mediaType = "text/csv")),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public ResponseEntity<?> exportAllocationDetailsCsv(
+            @Parameter(description = "Receipt date start (YYYY-MM-DD)", required = true) @RequestParam String startDate,
+
+            @Parameter(description = "Receipt date end (YYYY-MM-DD)", required = true) @RequestParam String endDate,
+
+            @Parameter(description = "Employer receipt number (exact match)") @RequestParam(required = false) String employerReceiptNumber,
+
+            @Parameter(description = "Voucher number (exact match)") @RequestParam(required = false) String voucherNumber,
+
+            @Parameter(description = "Voucher date start (YYYY-MM-DD)") @RequestParam(required = false) String voucherDateStart,
+
+            @Parameter(description = "Voucher date end (YYYY-MM-DD)") @RequestParam(required = false) String voucherDateEnd,
+
+            @Parameter(description = "Transaction date start (YYYY-MM-DD)") @RequestParam(required = false) String txnDateStart,
+
+            @Parameter(description = "Transaction date end (YYYY-MM-DD)") @RequestParam(required = false) String txnDateEnd,
+
+            @Parameter(description = "Gzip-compress the file") @RequestParam(defaultValue = "false") boolean gzip) {
+
+        try {
+            LocalDate start = parseDate(startDate);
+            LocalDate end = parseDate(endDate);
+            if (start == null || end == null) {
+                throw new IllegalArgumentException("startDate and endDate are required");
+            }
+            if (end.isBefore(start)) {
+                throw new IllegalArgumentException("endDate must not be before startDate");
+            }
+            LocalDate voucherDateStartParsed = parseDate(voucherDateStart);
+            LocalDate voucherDateEndParsed = parseDate(voucherDateEnd);
+            LocalDate txnDateStartParsed = parseDate(txnDateStart);
+            LocalDate txnDateEndParsed = parseDate(txnDateEnd);
+            // Resolved on the request thread; once streaming starts errors can no longer become a 4xx
+            TenantAccessDao.TenantAccess tenantAccess = allocationDetailsService.requireTenantAccess();
+
+            StreamingResponseBody body = outputStream -> {
+                OutputStream out = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+                allocationDetailsService.exportAllocationDetailsCsv(start, end, employerReceiptNumber, voucherNumber,
+                        voucherDateStartParsed, voucherDateEndParsed, txnDateStartParsed, txnDateEndParsed,
+                        tenantAccess, out);
+                if (out instanceof GZIPOutputStream gzipOut) {
+                    gzipOut.finish();
+                }
+            };
+
+            String filename = "allocation-details_" + start + "_" + end + (gzip ? ".csv.gz" : ".csv");
+            return ResponseEntity.ok()
+                    .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                            : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(body);
+
+        } catch (IllegalArgumentException ex) {
+            log.warn("Invalid request for allocation details export: {}", ex.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to start allocation details export", ex);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Unable to export allocation details right now"));
+        }
+    }
+
+    @GetMapping("/details/aggregates")
+    @Operation(summary = "Totals of allocation details", description = "Allocation count and allocated amount for the "
+            + "receipt date range, grouped by receipt day (groupBy=day) or voucher number (groupBy=voucher), plus "
+            + "grand totals, so the grid header needs no paging through the search. Accepts the same optional "
+            + "filters as the secure search. Ranges that ended before today are cached until an allocation or "
+            + "settlement through this service; ranges that include today are cached for a few seconds.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Totals computed"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public ResponseEntity<?> aggregateAllocationDetails(
+            @Parameter(description = "Receipt date start (YYYY-MM-DD)", required = true) @RequestParam String startDate,
+
+            @Parameter(description = "Receipt date end (YYYY-MM-DD)", required = true) @RequestParam String endDate,
+
+            @Parameter(description = "Grouping: day (default) or voucher") @RequestParam(defaultValue = "day") String groupBy,
+
+            @Parameter(description = "Employer receipt number (exact match)") @RequestParam(required = false) String employerReceiptNumber,
+
+            @Parameter(description = "Voucher number (exact match)") @RequestParam(required = false) String voucherNumber,
+
+            @Parameter(description = "Voucher date start (YYYY-MM-DD)") @RequestParam(required = false) String voucherDateStart,
+
+            @Parameter(description = "Voucher date end (YYYY-MM-DD)") @RequestParam(required = false) String voucherDateEnd,
+
+            @Parameter(description = "Transaction date start (YYYY-MM-DD)") @RequestParam(required = false) String txnDateStart,
+
+            @Parameter(description = "Transaction date end (YYYY-MM-DD)") @RequestParam(required = false) String txnDateEnd) {
+
+        try {
+            LocalDate start = parseDate(startDate);
+            LocalDate end = parseDate(endDate);
+            if (start == null || end == null) {
+                throw new IllegalArgumentException("startDate and endDate are required");
+            }
+            if (end.isBefore(start)) {
+                throw new IllegalArgumentException("endDate must not be before startDate");
+            }
+            return ResponseEntity.ok(allocationDetailsService.aggregateAllocationDetails(start, end,
+                    employerReceiptNumber, voucherNumber, parseDate(voucherDateStart), parseDate(voucherDateEnd),
+                    parseDate(txnDateStart), parseDate(txnDateEnd), AggregateGrouping.fromParam(groupBy)));
+
+        } catch (IllegalArgumentException ex) {
+            log.warn("Invalid request for allocation details aggregates: {}", ex.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to aggregate allocation details", ex);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Unable to aggregate allocation details right now"));
+        }
+    }
+
+    private boolean isKeysetMode(String paginationMode, String cursor) {
+        if (!"offset".equalsIgnoreCase(paginationMode) && !"keyset".equalsIgnoreCase(paginationMode)) {
+            throw new IllegalArgumentException("paginationMode must be 'offset' or 'keyset'");
+        }
+        return cursor != null || "keyset".equalsIgnoreCase(paginationMode);
+    }
+
+    private Map<String, Object> createKeysetResponse(KeysetPage<AllocationDetailsView> page, int size,
+            FieldSet<AllocationDetailsView> fields) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("content", fields != null ? fields.rows(page.content()) : page.content());
+        response.put("pageSize", size);
+        response.put("hasNext", page.hasNext());
+        response.put("nextCursor", page.nextCursor());
+        return response;
+    }
+
     /**
      * Parse date string in YYYY-MM-DD format
      */
@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -17,6 +18,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,8 +28,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetPage;
 import com.example.clearing.domain.BankTransaction;
+import com.example.clearing.dto.BatchLookup;
 import com.example.clearing.model.AllocationBatchRequest;
 import com.example.clearing.model.AllocationResponse;
 import com.example.clearing.model.BankTransactionClaimRequest;
@@ -33,8 +44,10 @@ import com.example.clearing.model.BankTransactionClaimResult;
 import com.example.clearing.model.BankTransactionView;
 import com.example.clearing.service.AllocationService;
 import com.example.clearing.service.BankTransactionClaimService;
+import com.example.clearing.service.BankTransactionExportService;
 import com.example.clearing.service.BankTransactionSearchService;
 import com.shared.common.annotation.SecurePagination;
+import com.shared.common.dao.TenantAccessDao;
 import com.shared.common.dto.SecurePaginationRequest;
 import com.shared.common.dto.SecurePaginationResponse;
 import com.shared.common.util.SecurePaginationUtil;
@@ -53,19 +66,24 @@ public class BankTransactionController {
 
     private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionController.class);
     private static final int MAX_PAGE_SIZE = 200;
-    private static final List<String> SECURE_SORT_FIELDS = List.of("receiptDate", "createdAt", "amount", "id");
+    // Ids per batch lookup; a batch is one query bound as a single array parameter
+    private static final int MAX_BATCH_IDS = 500;
+    private static final List<String> SECURE_SORT_FIELDS = List.of("txnDate", "receiptDate", "createdAt", "amount", "id");
 
     private final BankTransactionSearchService searchService;
     private final BankTransactionClaimService claimService;
     private final AllocationService allocationService;
+    private final BankTransactionExportService exportService;
 
     public BankTransactionController(
             BankTransactionSearchService searchService,
             BankTransactionClaimService claimService,
-            AllocationService allocationService) {
+            AllocationService allocationService,
+            BankTransactionExportService exportService) {
         this.searchService = searchService;
         this.claimService = claimService;
         this.allocationService = allocationService;
+        this.exportService = exportService;
     }
 
     @GetMapping("/search")
@@ -103,7 +121,10 @@ public class BankTransactionController {
     }
 
     @PostMapping("/secure")
-    @Operation(summary = "Secure paginated search of clearing.bank_transactions", description = "Mandatory date range (filters on created_at) with opaque page tokens; filters by amount, dr_cr_flag, bank_account_id, bank_account_nmbr, txn_ref")
+    @Operation(summary = "Secure paginated search of clearing.bank_transactions", description = "Mandatory date range (filters on created_at) with opaque page tokens; filters by amount, dr_cr_flag, bank_account_id, bank_account_nmbr, txn_ref. "
+            + "paginationMode=keyset (or a cursor) seeks past the previous page instead of using offsets and returns nextCursor without totals. "
+            + "countStrategy (exact, cached, estimated, none) selects how totals are computed; X-Count-Strategy reports the one used. "
+            + "fields (comma-separated, e.g. txnRef,txnDate,amount) limits the properties of each row")
     @SecurePagination
     public ResponseEntity<?> searchTransactionsSecure(
             @Valid @RequestBody SecurePaginationRequest request,
@@ -112,7 +133,11 @@ public class BankTransactionController {
             @RequestParam(required = false) Long bankAccountId,
             @RequestParam(name = "bankAccountNmbr", required = false) String bankAccountNmbr,
             @RequestParam(name = "bankAccountNumber", required = false) String bankAccountNumberAlias,
-            @RequestParam(required = false) String txnRef) {
+            @RequestParam(required = false) String txnRef,
+            @RequestParam(defaultValue = "offset") String paginationMode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "exact") String countStrategy,
+            @RequestParam(required = false) String fields) {
         try {
             SecurePaginationUtil.applyPageToken(request);
             SecurePaginationUtil.ValidationResult validation = SecurePaginationUtil.validatePaginationRequest(request);
@@ -121,13 +146,29 @@ public class BankTransactionController {
             }
 
             String bankAccountNumber = resolveAccountNumber(bankAccountNmbr, bankAccountNumberAlias);
+            FieldSet<BankTransactionView> fieldSet = searchService.secureFields(fields);
             Sort sort = SecurePaginationUtil.createSecureSort(request, SECURE_SORT_FIELDS);
+            if (isKeysetMode(paginationMode, cursor)) {
+                KeysetPage<BankTransactionView> page = searchService.searchSecureKeyset(
+                        validation.getStartDateTime().toLocalDate(),
+                        validation.getEndDateTime().toLocalDate(),
+                        amount,
+                        drCrFlag,
+                        bankAccountId,
+                        bankAccountNumber,
+                        txnRef,
+                        request.getStatus(),
+                        sort != null ? sort : Sort.unsorted(),
+                        request.getSize(),
+                        cursor);
+                return ResponseEntity.ok(createKeysetResponse(page, request.getSize(), fieldSet));
+            }
             Pageable pageable = PageRequest.of(
                     request.getPage(),
                     request.getSize(),
                     sort);
 
-            Page<BankTransactionView> result = searchService.searchSecure(
+            CountedPage<BankTransactionView> result = searchService.searchSecure(
                     validation.getStartDateTime().toLocalDate(),
                     validation.getEndDateTime().toLocalDate(),
                     amount,
@@ -136,10 +177,14 @@ public class BankTransactionController {
                     bankAccountNumber,
                     txnRef,
                     request.getStatus(),
-                    pageable);
-            SecurePaginationResponse<BankTransactionView> response = SecurePaginationUtil.createSecureResponse(result,
-                    request);
-            return ResponseEntity.ok(response);
+                    pageable,
+                    CountStrategy.fromParam(countStrategy));
+            SecurePaginationResponse<?> response = fieldSet != null
+                    ? SecurePaginationUtil.createSecureResponse(result.page().map(fieldSet::row), request)
+                    : SecurePaginationUtil.createSecureResponse(result.page(), request);
+            return ResponseEntity.ok()
+                    .header(CountedPage.COUNT_STRATEGY_HEADER, result.countStrategy().headerValue())
+                    .body(response);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         } catch (Exception ex) {
@@ -150,7 +195,8 @@ public class BankTransactionController {
     }
 
     @GetMapping
-    @Operation(summary = "List clearing bank transactions", description = "Filters by bankTxnId, txnRef (contains), isSettled for the caller's tenant")
+    @Operation(summary = "List clearing bank transactions", description = "Filters by bankTxnId, txnRef (contains), isSettled for the caller's tenant. "
+            + "fields (comma-separated, e.g. bankTxnId,txnRef,txnDate,amount,statusCode) reads and returns only those properties")
     public ResponseEntity<?> listClearingBankTransactions(
             @RequestParam(name = "bankTxnId", required = false) Integer bankTxnId,
             @RequestParam(name = "txnRef", required = false) String txnRef,
@@ -158,7 +204,8 @@ public class BankTransactionController {
             @RequestParam(name = "startDate", required = false) String startDateRaw,
             @RequestParam(name = "endDate", required = false) String endDateRaw,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "0") int page) {
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(name = "fields", required = false) String fields) {
         try {
             int safeSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
             int safePage = Math.max(0, page);
@@ -167,9 +214,10 @@ public class BankTransactionController {
             if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "startDate cannot be after endDate"));
             }
+            FieldSet<BankTransaction> fieldSet = searchService.clearingFields(fields);
             Page<BankTransaction> txns = searchService.findClearingTransactions(
-                    bankTxnId, txnRef, isSettled, startDate, endDate, safePage, safeSize);
-            return ResponseEntity.ok(createPageResponse(txns));
+                    bankTxnId, txnRef, isSettled, startDate, endDate, safePage, safeSize, fieldSet);
+            return ResponseEntity.ok(createPageResponse(txns, fieldSet));
         } catch (IllegalArgumentException | IllegalStateException ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         } catch (Exception ex) {
@@ -179,9 +227,133 @@ public class BankTransactionController {
         }
     }
 
-    private Map<String, Object> createPageResponse(Page<BankTransaction> page) {
+    @GetMapping("/batch")
+    @Operation(summary = "Look up clearing bank transactions by id", description = "bankTxnIds=1,2,3 (up to "
+            + MAX_BATCH_IDS + ") are fetched in one query for the caller's tenant. results is keyed by bankTxnId; "
+            + "ids that are unknown or belong to another tenant are listed in missing")
+    public ResponseEntity<?> getClearingBankTransactionsBatch(
+            @RequestParam(name = "bankTxnIds", required = false) List<Integer> bankTxnIds) {
+        try {
+            List<Integer> ids = BatchLookup.ids("bankTxnIds", bankTxnIds, MAX_BATCH_IDS);
+            return ResponseEntity.ok(searchService.findClearingTransactionsByIds(ids));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to look up clearing bank transactions by id", ex);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Unable to fetch clearing bank transactions right now"));
+        }
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream clearing bank transactions as NDJSON", description = "Selected with "
+            + "Accept: application/x-ndjson. Same filters as the list endpoint, without paging: every match is written "
+            + "as one JSON object per line, in created_at order, as it is read from a database cursor. The query stops "
+            + "when the client disconnects.")
+    public ResponseEntity<?> streamClearingBankTransactions(
+            @RequestParam(name = "bankTxnId", required = false) Integer bankTxnId,
+            @RequestParam(name = "txnRef", required = false) String txnRef,
+            @RequestParam(name = "isSettled", required = false) Boolean isSettled,
+            @RequestParam(name = "startDate", required = false) String startDateRaw,
+            @RequestParam(name = "endDate", required = false) String endDateRaw) {
+        // Errors are plain JSON; the content type is set so they are not negotiated as NDJSON
+        try {
+            LocalDate startDate = parseDate(startDateRaw);
+            LocalDate endDate = parseDate(endDateRaw);
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                        .body(Map.of("error", "startDate cannot be after endDate"));
+            }
+            TenantAccessDao.TenantAccess tenantAccess = exportService.requireTenantAccess();
+            StreamingResponseBody body = out -> exportService.exportNdjson(
+                    bankTxnId, txnRef, isSettled, startDate, endDate, tenantAccess, out);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to start clearing bank transaction stream", ex);
+            return ResponseEntity.internalServerError().contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Unable to stream clearing bank transactions right now"));
+        }
+    }
+
+    @GetMapping("/export.xlsx")
+    @Operation(summary = "Export clearing bank transactions as XLSX", description = "Same filters as the list endpoint, without paging. "
+            + "Rows are read through a database cursor into a streaming workbook, so large extracts do not hold the "
+            + "workbook in memory; sheets roll over at the Excel row limit.")
+    public ResponseEntity<?> exportClearingBankTransactionsXlsx(
+            @RequestParam(name = "bankTxnId", required = false) Integer bankTxnId,
+            @RequestParam(name = "txnRef", required = false) String txnRef,
+            @RequestParam(name = "isSettled", required = false) Boolean isSettled,
+            @RequestParam(name = "startDate", required = false) String startDateRaw,
+            @RequestParam(name = "endDate", required = false) String endDateRaw) {
+        try {
+            LocalDate startDate = parseDate(startDateRaw);
+            LocalDate endDate = parseDate(endDateRaw);
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "startDate cannot be after endDate"));
+            }
+            TenantAccessDao.TenantAccess tenantAccess = exportService.requireTenantAccess();
+            StreamingResponseBody body = out -> exportService.exportXlsx(
+                    bankTxnId, txnRef, isSettled, startDate, endDate, tenantAccess, out);
+            String filename = "bank-transactions_" + LocalDate.now() + ".xlsx";
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(
+                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(body);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to start clearing bank transaction export", ex);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Unable to export clearing bank transactions right now"));
+        }
+    }
+
+    @GetMapping("/aggregates")
+    @Operation(summary = "Totals of the secure bank transaction search", description = "Transaction count and summed amount, "
+            + "allocated and remaining amounts for the created_at date range and the secure search filters, grouped by "
+            + "created day (groupBy=day), bank account (groupBy=bankAccount) or status code (groupBy=status), plus "
+            + "grand totals. Ranges that ended before today are cached until a claim or allocation through this "
+            + "service; ranges that include today are cached for a few seconds.")
+    public ResponseEntity<?> aggregateTransactionsSecure(
+            @RequestParam(name = "startDate") String startDateRaw,
+            @RequestParam(name = "endDate") String endDateRaw,
+            @RequestParam(defaultValue = "day") String groupBy,
+            @RequestParam(required = false) BigDecimal amount,
+            @RequestParam(required = false) String drCrFlag,
+            @RequestParam(required = false) Long bankAccountId,
+            @RequestParam(name = "bankAccountNmbr", required = false) String bankAccountNmbr,
+            @RequestParam(name = "bankAccountNumber", required = false) String bankAccountNumberAlias,
+            @RequestParam(required = false) String txnRef,
+            @RequestParam(required = false) String status) {
+        try {
+            LocalDate startDate = parseDate(startDateRaw);
+            LocalDate endDate = parseDate(endDateRaw);
+            if (startDate == null || endDate == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "startDate and endDate are required"));
+            }
+            if (startDate.isAfter(endDate)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "startDate cannot be after endDate"));
+            }
+            return ResponseEntity.ok(searchService.aggregateSecure(startDate, endDate, amount, drCrFlag,
+                    bankAccountId, resolveAccountNumber(bankAccountNmbr, bankAccountNumberAlias), txnRef, status,
+                    AggregateGrouping.fromParam(groupBy)));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to aggregate bank transactions", ex);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Unable to aggregate bank transactions right now"));
+        }
+    }
+
+    private Map<String, Object> createPageResponse(Page<BankTransaction> page, FieldSet<BankTransaction> fields) {
         Map<String, Object> response = new LinkedHashMap<>();
-        response.put("content", page.getContent());
+        response.put("content", fields != null ? fields.rows(page.getContent()) : page.getContent());
         response.put("currentPage", page.getNumber());
         response.put("pageSize", page.getSize());
         response.put("totalElements", page.getTotalElements());
@@ -191,6 +363,23 @@ public class BankTransactionController {
         return response;
     }
 
+    private boolean isKeysetMode(String paginationMode, String cursor) {
+        if (!"offset".equalsIgnoreCase(paginationMode) && !"keyset".equalsIgnoreCase(paginationMode)) {
+            throw new IllegalArgumentException("paginationMode must be 'offset' or 'keyset'");
+        }
+        return cursor != null || "keyset".equalsIgnoreCase(paginationMode);
+    }
+
+    private Map<String, Object> createKeysetResponse(KeysetPage<BankTransactionView> page, int size,
+            FieldSet<BankTransactionView> fields) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("content", fields != null ? fields.rows(page.content()) : page.content());
+        response.put("pageSize", size);
+        response.put("hasNext", page.hasNext());
+        response.put("nextCursor", page.nextCursor());
+        return response;
+    }
+
     private LocalDate parseDate(String raw) {
         if (raw == null || raw.isBlank()) {
             return null;
@@ -210,14 +399,30 @@ public class BankTransactionController {
                 return ResponseEntity.badRequest().body(Map.of("error", "At least one claim is required"));
             }
 
-            List<BankTransactionClaimResult> results = requests.stream()
-                    .map(req -> {
-                        validateClaimRequest(req);
-                        String claimedBy = resolveClaimedBy(req.getClaimedBy());
-                        String internalRef = normalizeInternalRef(req.getInternalRef());
-                        return claimService.claimFromRecon(req.getType(), req.getSourceTxnId(), claimedBy, internalRef);
-                    })
-                    .toList();
+            // Claims ahead of the first failing one still commit, as when each was claimed on its own
+            List<BankTransactionClaimService.Claim> claims = new ArrayList<>(requests.size());
+            RuntimeException invalid = null;
+            for (BankTransactionClaimRequest req : requests) {
+                try {
+                    validateClaimRequest(req);
+                } catch (IllegalArgumentException ex) {
+                    invalid = ex;
+                    break;
+                }
+                claims.add(new BankTransactionClaimService.Claim(req.getType(), req.getSourceTxnId(),
+                        resolveClaimedBy(req.getClaimedBy()), normalizeInternalRef(req.getInternalRef())));
+            }
+            List<BankTransactionClaimResult> results = List.of();
+            if (!claims.isEmpty()) {
+                BankTransactionClaimService.ClaimBatch batch = claimService.claimFromRecon(claims);
+                if (batch.failure() != null) {
+                    throw batch.failure();
+                }
+                results = batch.results();
+            }
+            if (invalid != null) {
+                throw invalid;
+            }
 
             // Preserve legacy behavior: single payload returns a single object; bulk returns a list
             if (results.size() == 1) {
@@ -0,0 +1,99 @@
+package com.example.clearing.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clearing.service.EmployerStatementService;
+import com.shared.common.dao.TenantAccessDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST API for downloading precomputed employer statements of account
+ */
+@RestController
+@RequestMapping("/clearing-service/api/clearing/statements")
+@Tag(name = "Employer Statements", description = "APIs to download monthly employer statements of account")
+@SecurityRequirement(name = "Bearer Authentication")
+public class EmployerStatementController {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(EmployerStatementController.class);
+
+    private final EmployerStatementService employerStatementService;
+
+    public EmployerStatementController(EmployerStatementService employerStatementService) {
+        this.employerStatementService = employerStatementService;
+    }
+
+    @GetMapping("/{period}")
+    @Operation(summary = "Download a monthly statement", description = "Returns the caller's statement of account for a closed "
+            + "month (receipts, allocations and vouchers) as CSV. Statements are generated ahead of time after the "
+            + "month closes and served straight from disk. A statement is rewritten when allocations of its month are "
+            + "posted or reversed later, so clients should revalidate (If-Modified-Since) rather than keep a copy; "
+            + "Range requests are answered with 206 Partial Content so interrupted downloads can resume.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Statement file", content = @Content(mediaType = "text/csv")),
+            @ApiResponse(responseCode = "206", description = "Requested byte range of the statement file"),
+            @ApiResponse(responseCode = "400", description = "Invalid period or no statement available", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public ResponseEntity<?> downloadStatement(
+            @Parameter(description = "Statement month (YYYY-MM)", required = true) @PathVariable String period) {
+        try {
+            YearMonth month = parsePeriod(period);
+            TenantAccessDao.TenantAccess tenantAccess = employerStatementService.requireTenantAccess();
+            Path file = employerStatementService.findStatement(month, tenantAccess);
+
+            // A Resource body lets Spring answer Range requests with ResourceRegions read
+            // straight from the file, so no statement is ever loaded onto the heap
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .lastModified(Files.getLastModifiedTime(file).toMillis())
+                    // Late allocations rewrite the file; revalidating against Last-Modified costs a 304
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("statement_" + month + ".csv").build().toString())
+                    .body(new FileSystemResource(file));
+
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            log.warn("Invalid request for statement {}: {}", period, ex.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to serve statement {}", period, ex);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Unable to download the statement right now"));
+        }
+    }
+
+    private YearMonth parsePeriod(String period) {
+        try {
+            return YearMonth.parse(period.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid period '" + period + "'. Use YYYY-MM.");
+        }
+    }
+}
@@ -1,21 +1,26 @@
 package com.example.clearing.controller;
 
-import com.example.clearing.domain.PaymentAllocation;
-import com.example.clearing.domain.RequestSettlement;
-import com.example.clearing.domain.VoucherHeader;
-import com.example.clearing.repository.PaymentAllocationRepository;
-import com.example.clearing.repository.RequestSettlementRepository;
-import com.example.clearing.repository.VoucherHeaderRepository;
+import com.example.clearing.dto.BatchLookup;
+import com.example.clearing.dto.PaymentAllocationView;
+import com.example.clearing.dto.RequestSettlementView;
+import com.example.clearing.dto.VoucherHeaderView;
+import com.example.clearing.service.QueryService;
+import com.example.clearing.service.QueryStreamService;
 import com.example.clearing.service.StatusService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import org.springframework.data.domain.PageRequest;
+import java.util.function.LongFunction;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/clearing-service/api/clearing")
@@ -23,21 +28,20 @@ import org.springframework.web.bind.annotation.RestController;
 public class QueryController {
 
     private static final int MAX_LIMIT = 200;
+    // Ids per batch lookup; a batch is one query bound as a single array parameter
+    private static final int MAX_BATCH_IDS = 500;
 
-    private final VoucherHeaderRepository voucherHeaderRepository;
-    private final PaymentAllocationRepository paymentAllocationRepository;
-    private final RequestSettlementRepository requestSettlementRepository;
+    private final QueryService queryService;
     private final StatusService statusService;
+    private final QueryStreamService queryStreamService;
 
     public QueryController(
-            VoucherHeaderRepository voucherHeaderRepository,
-            PaymentAllocationRepository paymentAllocationRepository,
-            RequestSettlementRepository requestSettlementRepository,
-            StatusService statusService) {
-        this.voucherHeaderRepository = voucherHeaderRepository;
-        this.paymentAllocationRepository = paymentAllocationRepository;
-        this.requestSettlementRepository = requestSettlementRepository;
+            QueryService queryService,
+            StatusService statusService,
+            QueryStreamService queryStreamService) {
+        this.queryService = queryService;
         this.statusService = statusService;
+        this.queryStreamService = queryStreamService;
     }
 
     @GetMapping("/voucher-headers")
@@ -47,19 +51,45 @@ public class QueryController {
             @RequestParam(required = false) String voucherNumber,
             @RequestParam(required = false) Integer statusId,
             @RequestParam(name = "status", required = false) String statusCode,
-            @RequestParam(defaultValue = "100") int limit) {
+            @RequestParam(defaultValue = "100") int limit,
+            WebRequest webRequest) {
         try {
             int size = Math.max(1, Math.min(limit, MAX_LIMIT));
             Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "voucher_header");
-            List<VoucherHeader> result = voucherHeaderRepository.search(
-                    boardId, employerId, voucherNumber, resolvedStatusId, PageRequest.of(0, size));
-            result.forEach(vh -> vh.setStatus(statusService.resolveStatusCode("voucher_header", vh.getStatusId())));
-            return ResponseEntity.ok(result);
+            LongFunction<String> etag = version -> etag("voucher-headers", version,
+                    boardId, employerId, voucherNumber, resolvedStatusId, size);
+            QueryService.Versioned<VoucherHeaderView> result = queryService.voucherHeaders(
+                    boardId, employerId, voucherNumber, resolvedStatusId, size,
+                    version -> webRequest.checkNotModified(etag.apply(version)));
+            if (result.rows() == null) {
+                return null;
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag.apply(result.version()))
+                    .body(result.rows());
         } catch (IllegalArgumentException | IllegalStateException ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         }
     }
 
+    // NDJSON variants (Accept: application/x-ndjson) stream every match unless a limit is given
+
+    @GetMapping(path = "/voucher-headers", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> streamVoucherHeaders(
+            @RequestParam(required = false) Integer boardId,
+            @RequestParam(required = false) Integer employerId,
+            @RequestParam(required = false) String voucherNumber,
+            @RequestParam(required = false) Integer statusId,
+            @RequestParam(name = "status", required = false) String statusCode,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "voucher_header");
+            return ndjson(out -> queryStreamService.streamVoucherHeaders(
+                    boardId, employerId, voucherNumber, resolvedStatusId, limit, out));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return jsonError(ex);
+        }
+    }
+
     @GetMapping("/payment-allocations")
     public ResponseEntity<?> getPaymentAllocations(
             @RequestParam(required = false) Long requestId,
@@ -67,19 +97,57 @@ public class QueryController {
             @RequestParam(required = false) Integer voucherId,
             @RequestParam(required = false) Integer statusId,
             @RequestParam(name = "status", required = false) String statusCode,
-            @RequestParam(defaultValue = "100") int limit) {
+            @RequestParam(defaultValue = "100") int limit,
+            WebRequest webRequest) {
         try {
             int size = Math.max(1, Math.min(limit, MAX_LIMIT));
             Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "payment_allocation");
-            List<PaymentAllocation> result = paymentAllocationRepository.search(
-                    requestId, bankTxnId, voucherId, resolvedStatusId, PageRequest.of(0, size));
-            result.forEach(pa -> pa.setStatus(statusService.resolveStatusCode("payment_allocation", pa.getStatusId())));
-            return ResponseEntity.ok(result);
+            LongFunction<String> etag = version -> etag("payment-allocations", version,
+                    requestId, bankTxnId, voucherId, resolvedStatusId, size);
+            QueryService.Versioned<PaymentAllocationView> result = queryService.paymentAllocations(
+                    requestId, bankTxnId, voucherId, resolvedStatusId, size,
+                    version -> webRequest.checkNotModified(etag.apply(version)));
+            if (result.rows() == null) {
+                return null;
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag.apply(result.version()))
+                    .body(result.rows());
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Allocations of several receipts at once ({@code requestIds=1,2,3}), keyed by request
+     * id; requests without allocations are listed in {@code missing}.
+     */
+    @GetMapping("/payment-allocations/batch")
+    public ResponseEntity<?> getPaymentAllocationsBatch(@RequestParam(required = false) List<Long> requestIds) {
+        try {
+            List<Long> ids = BatchLookup.ids("requestIds", requestIds, MAX_BATCH_IDS);
+            return ResponseEntity.ok(queryService.paymentAllocationsByRequestIds(ids));
         } catch (IllegalArgumentException | IllegalStateException ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         }
     }
 
+    @GetMapping(path = "/payment-allocations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> streamPaymentAllocations(
+            @RequestParam(required = false) Long requestId,
+            @RequestParam(required = false) Integer bankTxnId,
+            @RequestParam(required = false) Integer voucherId,
+            @RequestParam(required = false) Integer statusId,
+            @RequestParam(name = "status", required = false) String statusCode,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "payment_allocation");
+            return ndjson(out -> queryStreamService.streamPaymentAllocations(
+                    requestId, bankTxnId, voucherId, resolvedStatusId, limit, out));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return jsonError(ex);
+        }
+    }
+
     @GetMapping("/request-settlements")
     public ResponseEntity<?> getRequestSettlements(
             @RequestParam(required = false) Long requestId,
@@ -87,19 +155,77 @@ public class QueryController {
             @RequestParam(required = false) Long employerId,
             @RequestParam(required = false) Integer statusId,
             @RequestParam(name = "status", required = false) String statusCode,
-            @RequestParam(defaultValue = "100") int limit) {
+            @RequestParam(defaultValue = "100") int limit,
+            WebRequest webRequest) {
         try {
             int size = Math.max(1, Math.min(limit, MAX_LIMIT));
             Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "request_settlement");
-            List<RequestSettlement> result = requestSettlementRepository.search(
-                    requestId, boardId, employerId, resolvedStatusId, PageRequest.of(0, size));
-            result.forEach(rs -> rs.setStatus(statusService.resolveStatusCode("request_settlement", rs.getStatusId())));
-            return ResponseEntity.ok(result);
+            LongFunction<String> etag = version -> etag("request-settlements", version,
+                    requestId, boardId, employerId, resolvedStatusId, size);
+            QueryService.Versioned<RequestSettlementView> result = queryService.requestSettlements(
+                    requestId, boardId, employerId, resolvedStatusId, size,
+                    version -> webRequest.checkNotModified(etag.apply(version)));
+            if (result.rows() == null) {
+                return null;
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag.apply(result.version()))
+                    .body(result.rows());
         } catch (IllegalArgumentException | IllegalStateException ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
         }
     }
 
+    /**
+     * Settlements of several receipts at once ({@code requestIds=1,2,3}) in place of one
+     * {@code /request-settlements?requestId=} call each, keyed by request id; unknown ids
+     * are listed in {@code missing}.
+     */
+    @GetMapping("/request-settlements/batch")
+    public ResponseEntity<?> getRequestSettlementsBatch(@RequestParam(required = false) List<Long> requestIds) {
+        try {
+            List<Long> ids = BatchLookup.ids("requestIds", requestIds, MAX_BATCH_IDS);
+            return ResponseEntity.ok(queryService.requestSettlementsByRequestIds(ids));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = "/request-settlements", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> streamRequestSettlements(
+            @RequestParam(required = false) Long requestId,
+            @RequestParam(required = false) Long boardId,
+            @RequestParam(required = false) Long employerId,
+            @RequestParam(required = false) Integer statusId,
+            @RequestParam(name = "status", required = false) String statusCode,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Integer resolvedStatusId = resolveStatusId(statusCode, statusId, "request_settlement");
+            return ndjson(out -> queryStreamService.streamRequestSettlements(
+                    requestId, boardId, employerId, resolvedStatusId, limit, out));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return jsonError(ex);
+        }
+    }
+
+    /**
+     * ETag of a JSON list: the write counter of the tenants it can contain plus the
+     * request's filters. The counter is read in the list's own read-only transaction, and
+     * an unchanged one answers If-None-Match with 304 (the {@code checkNotModified} calls)
+     * without running the list query; no-cache makes clients revalidate on every poll.
+     */
+    private static String etag(String list, long version, Object... filters) {
+        return list + "-" + version + "-" + Integer.toHexString(Arrays.hashCode(filters));
+    }
+
+    private static ResponseEntity<?> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Set explicitly so the error is written as JSON rather than negotiated as NDJSON
+    private static ResponseEntity<?> jsonError(RuntimeException ex) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(Map.of("error", ex.getMessage()));
+    }
+
     private Integer resolveStatusId(String statusCode, Integer statusId, String statusType) {
         if (statusId != null) {
             return statusId;
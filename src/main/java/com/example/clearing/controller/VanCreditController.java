@@ -0,0 +1,78 @@
+package com.example.clearing.controller;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clearing.model.VanCreditAck;
+import com.example.clearing.model.VanCreditNotification;
+import com.example.clearing.service.VanCreditIntakeService;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+
+/**
+ * Push endpoint for real-time VAN credits from the bank.
+ */
+@RestController
+@RequestMapping("/clearing-service/api/v1/reconciliation/van-credits")
+@Tag(name = "VAN Credit Intake", description = "Real-time intake of VAN credit notifications into reconciliation.van_transaction")
+@SecurityRequirement(name = "Bearer Authentication")
+public class VanCreditController {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VanCreditController.class);
+
+    private final VanCreditIntakeService intakeService;
+
+    public VanCreditController(VanCreditIntakeService intakeService) {
+        this.intakeService = intakeService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Receive a single VAN credit", description = "Buffers the credit into a micro-batch and responds only after the batch holding it has committed. "
+            + "A 503 means the credit was not acknowledged and must be re-sent; a re-sent transaction reference is recorded once "
+            + "and answered with its first row (redelivery=true).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Credit committed", content = @Content(schema = @Schema(implementation = VanCreditAck.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid notification", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "503", description = "Intake saturated or commit not confirmed in time", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "500", description = "Commit failed", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public CompletableFuture<ResponseEntity<?>> receiveCredit(@Valid @RequestBody VanCreditNotification notification) {
+        try {
+            return intakeService.submit(notification)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(ex -> toErrorResponse(notification, ex));
+        } catch (IllegalStateException ex) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(503).body(Map.of("error", ex.getMessage())));
+        }
+    }
+
+    private ResponseEntity<?> toErrorResponse(VanCreditNotification notification, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof TimeoutException) {
+            log.warn("VAN credit {} not acknowledged within timeout", notification.getTransactionReferenceNumber());
+            return ResponseEntity.status(503)
+                    .body(Map.of("error", "VAN credit not acknowledged in time; re-send the notification, it will be recorded once"));
+        }
+        log.error("Failed to commit VAN credit {}", notification.getTransactionReferenceNumber(), cause);
+        return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Unable to record VAN credit right now"));
+    }
+}
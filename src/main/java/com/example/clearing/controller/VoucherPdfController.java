@@ -0,0 +1,151 @@
+package com.example.clearing.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.clearing.domain.VoucherHeader;
+import com.example.clearing.service.StatusService;
+import com.example.clearing.service.VoucherPdfService;
+import com.shared.common.dao.TenantAccessDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST API for printing vouchers as PDF
+ */
+@RestController
+@RequestMapping("/clearing-service/api/clearing/vouchers")
+@Tag(name = "Voucher PDFs", description = "APIs to print single vouchers and bulk voucher runs as PDF")
+@SecurityRequirement(name = "Bearer Authentication")
+public class VoucherPdfController {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VoucherPdfController.class);
+
+    private final VoucherPdfService voucherPdfService;
+    private final StatusService statusService;
+
+    public VoucherPdfController(VoucherPdfService voucherPdfService, StatusService statusService) {
+        this.voucherPdfService = voucherPdfService;
+        this.statusService = statusService;
+    }
+
+    @GetMapping("/{voucherId}/pdf")
+    @Operation(summary = "Print a voucher", description = "Renders one voucher of the caller's tenant with its lines as PDF.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Voucher PDF", content = @Content(mediaType = "application/pdf")),
+            @ApiResponse(responseCode = "400", description = "Voucher not found for the caller's tenant", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public ResponseEntity<?> getVoucherPdf(
+            @Parameter(description = "Voucher ID", required = true) @PathVariable Integer voucherId) {
+        try {
+            TenantAccessDao.TenantAccess tenantAccess = voucherPdfService.requireTenantAccess();
+            byte[] pdf = voucherPdfService.renderVoucher(voucherId, tenantAccess);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.inline().filename("voucher_" + voucherId + ".pdf").build().toString())
+                    .body(pdf);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            log.warn("Invalid request for voucher {} PDF: {}", voucherId, ex.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to print voucher {}", voucherId, ex);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Unable to print the voucher right now"));
+        }
+    }
+
+    @GetMapping("/pdf")
+    @Operation(summary = "Print vouchers in bulk", description = "Renders every voucher of the caller's tenant dated in the range, "
+            + "ordered by voucher date. format=merged (default) streams one PDF with each voucher starting on a new page; "
+            + "format=zip streams a zip with one PDF per voucher. Vouchers are rendered in parallel and written "
+            + "while the run progresses.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "PDF or zip stream", content = {
+                    @Content(mediaType = "application/pdf"), @Content(mediaType = "application/zip") }),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters or no vouchers in range", content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    public ResponseEntity<?> getVoucherPdfs(
+            @Parameter(description = "Voucher date start (YYYY-MM-DD)", required = true) @RequestParam String fromDate,
+
+            @Parameter(description = "Voucher date end (YYYY-MM-DD)", required = true) @RequestParam String toDate,
+
+            @Parameter(description = "Voucher status code, e.g. POSTED") @RequestParam(name = "status", required = false) String statusCode,
+
+            @Parameter(description = "merged or zip") @RequestParam(defaultValue = "merged") String format) {
+
+        try {
+            boolean zip;
+            if ("zip".equalsIgnoreCase(format)) {
+                zip = true;
+            } else if ("merged".equalsIgnoreCase(format)) {
+                zip = false;
+            } else {
+                throw new IllegalArgumentException("format must be 'merged' or 'zip'");
+            }
+            LocalDate from = parseDate(fromDate);
+            LocalDate to = parseDate(toDate);
+            Integer statusId = statusCode == null || statusCode.isBlank() ? null
+                    : statusService.requireStatusId("voucher_header", statusCode.trim());
+            // Resolved on the request thread; once streaming starts errors can no longer become a 4xx
+            TenantAccessDao.TenantAccess tenantAccess = voucherPdfService.requireTenantAccess();
+            List<VoucherHeader> vouchers = voucherPdfService.findVouchersToPrint(from, to, statusId, tenantAccess);
+
+            StreamingResponseBody body = zip
+                    ? out -> voucherPdfService.writeZip(vouchers, out)
+                    : out -> voucherPdfService.writeMerged(vouchers, out);
+
+            String filename = "vouchers_" + from + "_" + to + (zip ? ".zip" : ".pdf");
+            return ResponseEntity.ok()
+                    .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(body);
+
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            log.warn("Invalid request for bulk voucher PDFs: {}", ex.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            log.error("Failed to start bulk voucher printing", ex);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Unable to print vouchers right now"));
+        }
+    }
+
+    /**
+     * Parse date string in YYYY-MM-DD format
+     */
+    private LocalDate parseDate(String dateStr) {
+        if (dateStr == null || dateStr.trim().isEmpty()) {
+            throw new IllegalArgumentException("fromDate and toDate are required");
+        }
+        try {
+            return LocalDate.parse(dateStr.trim());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid date format for '" + dateStr + "'. Use YYYY-MM-DD.");
+        }
+    }
+}
@@ -1,45 +1,176 @@
 package com.example.clearing.dao;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import static com.example.clearing.jooq.clearing.Tables.ALLOCATION_DETAILS;
+
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import org.jooq.Field;
+import org.jooq.QueryPart;
+import org.jooq.Select;
+import org.jooq.SelectConditionStep;
+import org.jooq.SelectField;
+import org.jooq.SortField;
+import org.jooq.SortOrder;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.fields.FieldCatalog;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetColumn;
+import com.example.clearing.common.pagination.KeysetCursor;
+import com.example.clearing.common.pagination.KeysetPage;
+import com.example.clearing.common.pagination.KeysetRowMapper;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.common.sql.ColumnMapping;
+import com.example.clearing.common.sql.QueryShape;
+import com.example.clearing.common.sql.QueryShapeCache;
+import com.example.clearing.common.sql.SqlRenderer;
+import com.example.clearing.dto.AggregateRow;
 import com.example.clearing.dto.AllocationDetailsView;
+import com.example.clearing.jooq.clearing.tables.AllocationDetails;
 import com.shared.utilities.logger.LoggerFactoryProvider;
 
 /**
- * DAO for querying allocation details with joins across voucher_header,
- * payment_allocation, bank_transaction, and request_settlement tables
+ * DAO for querying allocation details from the clearing.allocation_details projection,
+ * which triggers keep in step with payment_allocation, voucher_header, bank_transaction,
+ * request_settlement and receipt_reference (migrations 006 and 007)
  */
 @Repository
 public class AllocationDetailsDao {
 
     private static final Logger log = LoggerFactoryProvider.getLogger(AllocationDetailsDao.class);
 
+    private static final AllocationDetails D = ALLOCATION_DETAILS.as("d");
+
+    private static final List<SelectField<?>> SELECT_FIELDS = List.of(
+            D.VOUCHER_NUMBER,
+            D.VOUCHER_DATE,
+            D.EMPLOYER_RECEIPT_NUMBER,
+            D.WORKER_RECEIPT_NUMBER,
+            D.RECEIPT_DATE,
+            D.RECEIPT_AMOUNT,
+            D.BANK_TXN_ID,
+            D.INTERNAL_REF,
+            D.TXN_REF,
+            D.TXN_AMOUNT,
+            D.ALLOCATED_AMOUNT_FROM_TXN,
+            D.REMAINING_AMOUNT_OF_TXN,
+            D.TXN_DATE);
+
+    private static final Select<?> BASE_SELECT = baseSelect(SELECT_FIELDS, List.of());
+
+    /** Properties of {@link AllocationDetailsView} for {@code fields=}, each read from one column. */
+    public static final FieldCatalog<AllocationDetailsView> FIELDS = FieldCatalog.<AllocationDetailsView>of()
+            .field("voucherNumber", AllocationDetailsView::getVoucherNumber, "voucher_number")
+            .field("voucherDate", AllocationDetailsView::getVoucherDate, "voucher_date")
+            .field("employerReceiptNumber", AllocationDetailsView::getEmployerReceiptNumber,
+                    "employer_receipt_number")
+            .field("workerReceiptNumber", AllocationDetailsView::getWorkerReceiptNumber, "worker_receipt_number")
+            .field("receiptDate", AllocationDetailsView::getReceiptDate, "receipt_date")
+            .field("receiptAmount", AllocationDetailsView::getReceiptAmount, "receipt_amount")
+            .field("bankTxnId", AllocationDetailsView::getBankTxnId, "bank_txn_id")
+            .field("internalRef", AllocationDetailsView::getInternalRef, "internal_ref")
+            .field("txnRef", AllocationDetailsView::getTxnRef, "txn_ref")
+            .field("txnAmount", AllocationDetailsView::getTxnAmount, "txn_amount")
+            .field("allocatedAmountFromTxn", AllocationDetailsView::getAllocatedAmountFromTxn,
+                    "allocated_amount_from_txn")
+            .field("remainingAmountOfTxn", AllocationDetailsView::getRemainingAmountOfTxn, "remaining_amount_of_txn")
+            .field("txnDate", AllocationDetailsView::getTxnDate, "txn_date");
+
+    // Package-private for RowMapperBenchmark
+    static final ColumnMapping<AllocationDetailsView> COLUMNS = ColumnMapping
+            .of(AllocationDetailsView::new)
+            .string("voucher_number", AllocationDetailsView::setVoucherNumber)
+            .date("voucher_date", AllocationDetailsView::setVoucherDate)
+            .string("employer_receipt_number", AllocationDetailsView::setEmployerReceiptNumber)
+            .string("worker_receipt_number", AllocationDetailsView::setWorkerReceiptNumber)
+            .date("receipt_date", AllocationDetailsView::setReceiptDate)
+            .decimal("receipt_amount", AllocationDetailsView::setReceiptAmount)
+            .longValue("bank_txn_id", AllocationDetailsView::setBankTxnId)
+            .string("internal_ref", AllocationDetailsView::setInternalRef)
+            .string("txn_ref", AllocationDetailsView::setTxnRef)
+            .decimal("txn_amount", AllocationDetailsView::setTxnAmount)
+            .decimal("allocated_amount_from_txn", AllocationDetailsView::setAllocatedAmountFromTxn)
+            .decimal("remaining_amount_of_txn", AllocationDetailsView::setRemainingAmountOfTxn)
+            .date("txn_date", AllocationDetailsView::setTxnDate);
+
+    // Sortable properties, whitelisted by the service; each has a (tenant, key,
+    // allocation_id) index on the projection
+    private static final Map<String, Field<?>> SORT_FIELDS = Map.ofEntries(
+            Map.entry("voucherNumber", D.VOUCHER_NUMBER),
+            Map.entry("voucherDate", D.VOUCHER_DATE),
+            Map.entry("employerReceiptNumber", D.EMPLOYER_RECEIPT_NUMBER),
+            Map.entry("workerReceiptNumber", D.WORKER_RECEIPT_NUMBER),
+            Map.entry("receiptDate", D.RECEIPT_DATE),
+            Map.entry("receiptAmount", D.RECEIPT_AMOUNT),
+            Map.entry("txnDate", D.TXN_DATE),
+            Map.entry("txnAmount", D.TXN_AMOUNT),
+            Map.entry("amount", D.TXN_AMOUNT),
+            Map.entry("allocatedAmountFromTxn", D.ALLOCATED_AMOUNT_FROM_TXN),
+            Map.entry("createdAt", D.CREATED_AT),
+            Map.entry("id", D.ALLOCATION_ID));
+
+    // Nullable columns come from outer joins or optional fields and need an explicit NULL
+    // branch in the seek predicate
+    private static final Map<String, KeysetColumn> KEYSET_COLUMNS = Map.ofEntries(
+            keyset("voucherNumber", D.VOUCHER_NUMBER, true),
+            keyset("voucherDate", D.VOUCHER_DATE, true),
+            keyset("employerReceiptNumber", D.EMPLOYER_RECEIPT_NUMBER, true),
+            keyset("workerReceiptNumber", D.WORKER_RECEIPT_NUMBER, true),
+            keyset("receiptAmount", D.RECEIPT_AMOUNT, false),
+            keyset("txnDate", D.TXN_DATE, true),
+            keyset("txnAmount", D.TXN_AMOUNT, false),
+            keyset("amount", D.TXN_AMOUNT, false),
+            keyset("allocatedAmountFromTxn", D.ALLOCATED_AMOUNT_FROM_TXN, false),
+            keyset("createdAt", D.CREATED_AT, true),
+            keyset("id", D.ALLOCATION_ID, false));
+
+    private static final String KEYSET_ID = SqlRenderer.render(D.ALLOCATION_ID);
+    // receipt_date is never NULL in results because the mandatory range filter excludes NULLs
+    private static final KeysetColumn DEFAULT_KEYSET_COLUMN = keyset("receiptDate", D.RECEIPT_DATE, false).getValue();
+
+    private static final QueryPart EXPORT_ORDER = DSL.list(D.RECEIPT_DATE, D.ALLOCATION_ID);
+
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TotalCountResolver totalCountResolver;
+    private final QueryShapeCache queryShapes;
+    // Same DataSource with a fetch size, so exports use a server-side cursor instead of
+    // buffering the whole result; PgJDBC only honours it inside a transaction
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
 
-    public AllocationDetailsDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public AllocationDetailsDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+            TotalCountResolver totalCountResolver, QueryShapeCache queryShapes,
+            @Value("${clearing.export.fetch-size:1000}") int exportFetchSize) {
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.totalCountResolver = totalCountResolver;
+        this.queryShapes = queryShapes;
+        JdbcTemplate streaming = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(exportFetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
     }
 
     /**
      * Search allocation details with pagination and filtering
      * 
      * @param startDate             Mandatory start date for filtering (on
-     *                              p.receipt_date)
+     *                              d.receipt_date)
      * @param endDate               Mandatory end date for filtering (on
-     *                              p.receipt_date)
+     *                              d.receipt_date)
      * @param employerReceiptNumber Optional filter on employer receipt number
      * @param voucherNumber         Optional filter on voucher number
      * @param voucherDateStart      Optional filter on voucher date start
@@ -49,9 +180,12 @@ public class AllocationDetailsDao {
      * @param boardId               Board ID from context
      * @param employerId            Employer ID from context
      * @param pageable              Pagination and sorting info
-     * @return Page of AllocationDetailsView
+     * @param countStrategy         How the total is computed
+     * @param fields                Properties to read, from {@link #FIELDS}; null reads
+     *                              every column, otherwise the others are left null
+     * @return Page of AllocationDetailsView with the count strategy actually used
      */
-    public Page<AllocationDetailsView> searchAllocationDetails(
+    public CountedPage<AllocationDetailsView> searchAllocationDetails(
             LocalDate startDate,
             LocalDate endDate,
             String employerReceiptNumber,
@@ -62,170 +196,280 @@ public class AllocationDetailsDao {
             LocalDate txnDateEnd,
             Integer boardId,
             Integer employerId,
-            Pageable pageable) {
+            Pageable pageable,
+            CountStrategy countStrategy,
+            FieldSet<AllocationDetailsView> fields) {
 
         if (startDate == null || endDate == null) {
             throw new IllegalArgumentException("startDate and endDate are required for secure pagination");
         }
 
-        // Base query
-        String baseSelect = """
-                SELECT
-                    c.voucher_number,
-                    c.voucher_date,
-                    p.employer_receipt_number,
-                    ep.worker_receipt_number,
-                    p.receipt_date,
-                    rs.total_amount AS receipt_amount,
-                    p.bank_txn_id,
-                    b.internal_ref,
-                    b.txn_ref,
-                    b.amount AS txn_amount,
-                    p.allocated_amount AS allocated_amount_from_txn,
-                    b.remaining_amount AS remaining_amount_of_txn,
-                    b.txn_date
-                FROM clearing.payment_allocation p
-                LEFT JOIN clearing.voucher_header c ON c.voucher_id = p.voucher_id
-                LEFT JOIN payment_flow.employer_payment_receipts ep ON ep.id = p.request_id
-                JOIN clearing.bank_transaction b ON p.bank_txn_id = b.bank_txn_id
-                JOIN clearing.request_settlement rs ON p.request_id = rs.request_id
-                WHERE p.board_id = :boardId
-                  AND p.employer_id = :employerId
-                """;
-
-        StringBuilder whereClause = new StringBuilder();
-        Map<String, Object> params = new HashMap<>();
-        params.put("boardId", boardId);
-        params.put("employerId", employerId);
-
-        // Mandatory date range filter on receipt_date
-        whereClause.append(" AND p.receipt_date BETWEEN :startDate AND :endDate");
-        params.put("startDate", startDate);
-        params.put("endDate", endDate);
-
-        // Optional filters
-        if (employerReceiptNumber != null && !employerReceiptNumber.trim().isEmpty()) {
-            whereClause.append(" AND p.employer_receipt_number = :employerReceiptNumber");
-            params.put("employerReceiptNumber", employerReceiptNumber.trim());
+        QueryShape shape = new QueryShape("allocationDetailsSearch");
+        if (fields == null) {
+            shape.sql(BASE_SELECT);
+        } else {
+            shape.variant("fields=" + fields.key(),
+                    () -> SqlRenderer.render(baseSelect(selectFields(fields), List.of())));
         }
+        appendFilters(shape, startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, boardId, employerId);
+        String countBaseSql = queryShapes.sql(shape);
 
-        if (voucherNumber != null && !voucherNumber.trim().isEmpty()) {
-            whereClause.append(" AND c.voucher_number = :voucherNumber");
-            params.put("voucherNumber", voucherNumber.trim());
-        }
+        // ORDER BY is keyed by the sort spec; sort properties are whitelisted by the service
+        Sort sort = pageable.getSort();
+        shape.variant("sort=" + sort, () -> orderByClause(sort));
 
-        if (voucherDateStart != null && voucherDateEnd != null) {
-            whereClause.append(" AND c.voucher_date BETWEEN :voucherDateStart AND :voucherDateEnd");
-            params.put("voucherDateStart", voucherDateStart);
-            params.put("voucherDateEnd", voucherDateEnd);
-        } else if (voucherDateStart != null) {
-            whereClause.append(" AND c.voucher_date >= :voucherDateStart");
-            params.put("voucherDateStart", voucherDateStart);
-        } else if (voucherDateEnd != null) {
-            whereClause.append(" AND c.voucher_date <= :voucherDateEnd");
-            params.put("voucherDateEnd", voucherDateEnd);
-        }
+        // Data query with pagination; the total is resolved afterwards per count strategy
+        shape.variant("page", () -> " LIMIT :limit OFFSET :offset")
+                .param("limit", totalCountResolver.fetchLimit(countStrategy, pageable.getPageSize()))
+                .param("offset", pageable.getOffset());
+        String dataSql = queryShapes.sql(shape);
 
-        if (txnDateStart != null && txnDateEnd != null) {
-            whereClause.append(" AND b.txn_date BETWEEN :txnDateStart AND :txnDateEnd");
-            params.put("txnDateStart", txnDateStart);
-            params.put("txnDateEnd", txnDateEnd);
-        } else if (txnDateStart != null) {
-            whereClause.append(" AND b.txn_date >= :txnDateStart");
-            params.put("txnDateStart", txnDateStart);
-        } else if (txnDateEnd != null) {
-            whereClause.append(" AND b.txn_date <= :txnDateEnd");
-            params.put("txnDateEnd", txnDateEnd);
-        }
+        log.debug("Executing allocation details search SQL: {} with params {}", dataSql, shape.params());
+        List<AllocationDetailsView> results = namedParameterJdbcTemplate.query(
+                dataSql,
+                shape.params(),
+                rowMapper(fields));
 
-        // Build ORDER BY clause from Pageable
-        StringBuilder orderByClause = new StringBuilder(" ORDER BY ");
-        if (pageable.getSort().isSorted()) {
-            orderByClause.append(pageable.getSort().stream()
-                    .map(order -> {
-                        String column = mapSortField(order.getProperty());
-                        return column + " " + (order.isAscending() ? "ASC" : "DESC");
-                    })
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse("p.receipt_date DESC"));
-        } else {
-            orderByClause.append("p.receipt_date DESC");
-        }
+        CountedPage<AllocationDetailsView> page = totalCountResolver.toPage(results, pageable, countStrategy,
+                TotalCountResolver.SCOPE_ALLOCATION_DETAILS, countBaseSql, shape.params());
+        log.debug("Fetched {} allocation details out of {} total ({})", page.page().getNumberOfElements(),
+                page.page().getTotalElements(), page.countStrategy());
+        return page;
+    }
 
-        // Count query
-        String countSql = "SELECT COUNT(*) FROM (" + baseSelect + whereClause.toString() + ") subquery";
-        Long total = namedParameterJdbcTemplate.queryForObject(countSql, params, Long.class);
-        if (total == null) {
-            total = 0L;
+    /**
+     * Keyset variant of {@link #searchAllocationDetails}: seeks past the row encoded in
+     * {@code cursor} instead of skipping {@code page * size} rows, so deep pages cost the
+     * same as the first. Only the first sort order is honoured, tie-broken by allocation id.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     * @param fields properties to read, as in {@link #searchAllocationDetails}
+     */
+    public KeysetPage<AllocationDetailsView> searchAllocationDetailsKeyset(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            Integer boardId,
+            Integer employerId,
+            Sort sort,
+            int size,
+            String cursor,
+            FieldSet<AllocationDetailsView> fields) {
+
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("startDate and endDate are required for secure pagination");
         }
 
-        // Data query with pagination
-        String dataSql = baseSelect + whereClause.toString() + orderByClause.toString() +
-                " LIMIT :limit OFFSET :offset";
-        params.put("limit", pageable.getPageSize());
-        params.put("offset", pageable.getOffset());
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.desc("receiptDate"));
+        KeysetColumn column = KEYSET_COLUMNS.getOrDefault(order.getProperty(), DEFAULT_KEYSET_COLUMN);
+        String sortSpec = order.getProperty() + ":" + order.getDirection();
 
-        log.debug("Executing allocation details search SQL: {} with params {}", dataSql, params);
-        List<AllocationDetailsView> results = namedParameterJdbcTemplate.query(
-                dataSql,
-                params,
-                new AllocationDetailsRowMapper());
+        KeysetCursor after = cursor != null && !cursor.isBlank()
+                ? KeysetCursor.decode(cursor, sortSpec, column)
+                : null;
+        boolean ascending = order.isAscending();
+        boolean lastKeyNull = after != null && after.lastKey() == null;
+
+        QueryShape shape = new QueryShape("allocationDetailsKeyset")
+                .variant("key=" + column.expression() + ",fields=" + (fields != null ? fields.key() : "all"),
+                        () -> SqlRenderer.render(baseSelect(selectFields(fields), column.selectFields(KEYSET_ID))));
+        appendFilters(shape, startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, boardId, employerId);
+        shape.variant("seek=" + (after == null ? "none" : lastKeyNull ? "null" : "key") + ",asc=" + ascending,
+                () -> after == null ? "" : " AND " + column.seekPredicate(KEYSET_ID, ascending, lastKeyNull))
+                .variant("order", () -> " ORDER BY " + column.orderBy(KEYSET_ID, ascending) + " LIMIT :limit")
+                .param("limit", size + 1);
+        if (after != null) {
+            shape.param(KeysetColumn.KEY_PARAM, after.lastKey())
+                    .param(KeysetColumn.ID_PARAM, after.lastId());
+        }
+        String dataSql = queryShapes.sql(shape);
 
-        log.debug("Fetched {} allocation details out of {} total", results.size(), total);
-        return new PageImpl<>(results, pageable, total);
+        log.debug("Executing allocation details keyset SQL: {} with params {}", dataSql, shape.params());
+        KeysetRowMapper<AllocationDetailsView> rowMapper = new KeysetRowMapper<>(rowMapper(fields), column.type());
+        List<AllocationDetailsView> results = namedParameterJdbcTemplate.query(dataSql, shape.params(), rowMapper);
+        return rowMapper.toPage(results, size, sortSpec);
     }
 
     /**
-     * Map sort field names to database column names
+     * Count and allocated amount of the allocation details matching the filters, per
+     * receipt day ({@link AggregateGrouping#DAY}) or voucher number
+     * ({@link AggregateGrouping#VOUCHER}), in key order.
      */
-    private String mapSortField(String sortField) {
-        return switch (sortField) {
-            case "voucherNumber" -> "c.voucher_number";
-            case "voucherDate" -> "c.voucher_date";
-            case "employerReceiptNumber" -> "p.employer_receipt_number";
-            case "workerReceiptNumber" -> "ep.worker_receipt_number";
-            case "receiptDate" -> "p.receipt_date";
-            case "receiptAmount" -> "rs.total_amount";
-            case "txnDate" -> "b.txn_date";
-            case "txnAmount", "amount" -> "b.amount";
-            case "allocatedAmountFromTxn" -> "p.allocated_amount";
-            case "createdAt" -> "p.created_at";
-            case "id" -> "p.allocation_id";
-            default -> "p.receipt_date"; // Default sort
+    public List<AggregateRow> aggregateAllocationDetails(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            Integer boardId,
+            Integer employerId,
+            AggregateGrouping grouping) {
+
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("startDate and endDate are required for aggregates");
+        }
+        Field<?> key = switch (grouping) {
+            case DAY -> D.RECEIPT_DATE;
+            case VOUCHER -> D.VOUCHER_NUMBER;
+            default -> throw new IllegalArgumentException(
+                    "groupBy must be day or voucher for allocation details");
         };
+
+        QueryShape shape = new QueryShape("allocationDetailsAggregate")
+                .variant("groupBy=" + grouping, () -> SqlRenderer.render(tenantRows(List.of(
+                        key.as("group_key"),
+                        DSL.count().as("row_count"),
+                        DSL.sum(D.ALLOCATED_AMOUNT_FROM_TXN).as("allocated_amount")))));
+        appendFilters(shape, startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, boardId, employerId);
+        shape.variant("groupOrder",
+                () -> " GROUP BY " + SqlRenderer.render(key) + " ORDER BY " + SqlRenderer.render(key));
+        String sql = queryShapes.sql(shape);
+
+        log.debug("Executing allocation details aggregate SQL: {} with params {}", sql, shape.params());
+        return namedParameterJdbcTemplate.query(sql, shape.params(), (rs, rowNum) -> {
+            Object value = rs.getObject(1);
+            return new AggregateRow(value != null ? value.toString() : null, rs.getLong(2), null,
+                    rs.getBigDecimal(3), null);
+        });
     }
 
     /**
-     * RowMapper for AllocationDetailsView
+     * Streams every allocation detail matching the filters to {@code consumer} in
+     * (receipt_date, allocation_id) order, fetching rows in batches through a cursor.
+     * Must run inside a transaction so the driver does not materialise the result.
+     *
+     * @return number of rows streamed
      */
-    private static class AllocationDetailsRowMapper implements RowMapper<AllocationDetailsView> {
-        @Override
-        @SuppressWarnings("null")
-        public AllocationDetailsView mapRow(ResultSet rs, int rowNum) throws SQLException {
-            AllocationDetailsView view = new AllocationDetailsView();
-            view.setVoucherNumber(rs.getString("voucher_number"));
-
-            java.sql.Date voucherDate = rs.getDate("voucher_date");
-            view.setVoucherDate(voucherDate != null ? voucherDate.toLocalDate() : null);
-
-            view.setEmployerReceiptNumber(rs.getString("employer_receipt_number"));
-            view.setWorkerReceiptNumber(rs.getString("worker_receipt_number"));
-
-            java.sql.Date receiptDate = rs.getDate("receipt_date");
-            view.setReceiptDate(receiptDate != null ? receiptDate.toLocalDate() : null);
-
-            view.setReceiptAmount(rs.getBigDecimal("receipt_amount"));
-            view.setBankTxnId(rs.getLong("bank_txn_id"));
-            view.setInternalRef(rs.getString("internal_ref"));
-            view.setTxnRef(rs.getString("txn_ref"));
-            view.setTxnAmount(rs.getBigDecimal("txn_amount"));
-            view.setAllocatedAmountFromTxn(rs.getBigDecimal("allocated_amount_from_txn"));
-            view.setRemainingAmountOfTxn(rs.getBigDecimal("remaining_amount_of_txn"));
-
-            java.sql.Date txnDate = rs.getDate("txn_date");
-            view.setTxnDate(txnDate != null ? txnDate.toLocalDate() : null);
-
-            return view;
+    public long streamAllocationDetails(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            Integer boardId,
+            Integer employerId,
+            Consumer<AllocationDetailsView> consumer) {
+
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("startDate and endDate are required for export");
+        }
+
+        QueryShape shape = new QueryShape("allocationDetailsExport").sql(BASE_SELECT);
+        appendFilters(shape, startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, boardId, employerId);
+        shape.sql(" ORDER BY ").sql(EXPORT_ORDER);
+        String sql = queryShapes.sql(shape);
+
+        log.debug("Streaming allocation details export SQL: {} with params {}", sql, shape.params());
+        RowMapper<AllocationDetailsView> rowMapper = COLUMNS.rowMapper();
+        long[] rows = new long[1];
+        streamingJdbcTemplate.query(sql, shape.params(), rs -> {
+            consumer.accept(rowMapper.mapRow(rs, (int) rows[0]));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private void appendFilters(
+            QueryShape shape,
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            Integer boardId,
+            Integer employerId) {
+        // Mandatory date range filter on receipt_date
+        shape.sql(" AND ").sql(D.RECEIPT_DATE.between(DSL.param("startDate", D.RECEIPT_DATE),
+                        DSL.param("endDate", D.RECEIPT_DATE)))
+                .param("boardId", boardId)
+                .param("employerId", employerId)
+                .param("startDate", startDate)
+                .param("endDate", endDate);
+
+        // Optional filters; each branch of a range is its own fragment so the mask stays unambiguous
+        String receiptNumber = employerReceiptNumber != null ? employerReceiptNumber.trim() : "";
+        String voucher = voucherNumber != null ? voucherNumber.trim() : "";
+        Field<LocalDate> voucherFrom = DSL.param("voucherDateStart", D.VOUCHER_DATE);
+        Field<LocalDate> voucherTo = DSL.param("voucherDateEnd", D.VOUCHER_DATE);
+        Field<LocalDate> txnFrom = DSL.param("txnDateStart", D.TXN_DATE);
+        Field<LocalDate> txnTo = DSL.param("txnDateEnd", D.TXN_DATE);
+        shape.optional(!receiptNumber.isEmpty(),
+                        D.EMPLOYER_RECEIPT_NUMBER.eq(DSL.param("employerReceiptNumber", D.EMPLOYER_RECEIPT_NUMBER)),
+                        "employerReceiptNumber", receiptNumber)
+                .optional(!voucher.isEmpty(), D.VOUCHER_NUMBER.eq(DSL.param("voucherNumber", D.VOUCHER_NUMBER)),
+                        "voucherNumber", voucher)
+                .optional(voucherDateStart != null && voucherDateEnd != null,
+                        D.VOUCHER_DATE.between(voucherFrom, voucherTo))
+                .optional(voucherDateStart != null && voucherDateEnd == null, D.VOUCHER_DATE.ge(voucherFrom))
+                .optional(voucherDateStart == null && voucherDateEnd != null, D.VOUCHER_DATE.le(voucherTo))
+                .optional(txnDateStart != null && txnDateEnd != null, D.TXN_DATE.between(txnFrom, txnTo))
+                .optional(txnDateStart != null && txnDateEnd == null, D.TXN_DATE.ge(txnFrom))
+                .optional(txnDateStart == null && txnDateEnd != null, D.TXN_DATE.le(txnTo))
+                .param("voucherDateStart", voucherDateStart)
+                .param("voucherDateEnd", voucherDateEnd)
+                .param("txnDateStart", txnDateStart)
+                .param("txnDateEnd", txnDateEnd);
+    }
+
+    private String orderByClause(Sort sort) {
+        List<SortField<?>> fields = sort.stream()
+                .<SortField<?>>map(order -> SORT_FIELDS.getOrDefault(order.getProperty(), D.RECEIPT_DATE)
+                        .sort(order.isAscending() ? SortOrder.ASC : SortOrder.DESC))
+                .toList();
+        return " ORDER BY " + SqlRenderer.render(fields.isEmpty() ? D.RECEIPT_DATE.desc() : DSL.list(fields));
+    }
+
+    /** View columns of {@code fields}, or all of them when null. */
+    private static List<SelectField<?>> selectFields(FieldSet<AllocationDetailsView> fields) {
+        if (fields == null) {
+            return SELECT_FIELDS;
         }
+        return SELECT_FIELDS.stream().filter(field -> fields.columns().contains(field.getName())).toList();
+    }
+
+    // A sparse page selects only some of the mapped columns
+    private static RowMapper<AllocationDetailsView> rowMapper(FieldSet<AllocationDetailsView> fields) {
+        return fields != null ? COLUMNS.lenientRowMapper() : COLUMNS.rowMapper();
+    }
+
+    /**
+     * Allocation details of one tenant, with {@code extraFields} after {@code columns};
+     * filters follow as {@code AND} fragments.
+     */
+    private static SelectConditionStep<?> baseSelect(List<SelectField<?>> columns,
+            Collection<? extends SelectField<?>> extraFields) {
+        List<SelectField<?>> fields = new ArrayList<>(columns);
+        fields.addAll(extraFields);
+        return tenantRows(fields);
+    }
+
+    /** {@code fields} of one tenant's allocation details; filters follow as {@code AND} fragments. */
+    private static SelectConditionStep<?> tenantRows(Collection<? extends SelectField<?>> fields) {
+        return DSL.select(fields)
+                .from(D)
+                .where(D.BOARD_ID.eq(DSL.param("boardId", D.BOARD_ID)))
+                .and(D.EMPLOYER_ID.eq(DSL.param("employerId", D.EMPLOYER_ID)));
+    }
+
+    private static Map.Entry<String, KeysetColumn> keyset(String property, Field<?> field, boolean nullable) {
+        return Map.entry(property, new KeysetColumn(SqlRenderer.render(field), field.getType(), nullable));
     }
 }
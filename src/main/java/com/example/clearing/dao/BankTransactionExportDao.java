@@ -0,0 +1,74 @@
+package com.example.clearing.dao;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.clearing.common.sql.ColumnMapping;
+import com.example.clearing.domain.BankTransaction;
+import com.example.clearing.repository.BankTransactionFilterQuery;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Cursor-based reads of clearing.bank_transaction for file extracts. Rows are handed
+ * to the caller one at a time and are not attached to a persistence context.
+ */
+@Repository
+public class BankTransactionExportDao {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionExportDao.class);
+
+    private static final ColumnMapping<BankTransaction> COLUMNS = ColumnMapping
+            .of(BankTransaction::new)
+            .integer("bank_txn_id", BankTransaction::setBankTxnId)
+            .integer("bank_account_id", BankTransaction::setBankAccountId)
+            .string("txn_ref", BankTransaction::setTxnRef)
+            .string("internal_ref", BankTransaction::setInternalRef)
+            .date("txn_date", BankTransaction::setTxnDate)
+            .decimal("amount", BankTransaction::setAmount)
+            .string("dr_cr_flag", BankTransaction::setDrCrFlag)
+            .string("description", BankTransaction::setDescription)
+            .decimal("allocated_amount", BankTransaction::setAllocatedAmount)
+            .decimal("remaining_amount", BankTransaction::setRemainingAmount)
+            .integer("status_id", BankTransaction::setStatusId)
+            .string("txn_type", BankTransaction::setTxnType)
+            .string("source_system", BankTransaction::setSourceSystem)
+            .string("source_txn_id", BankTransaction::setSourceTxnId)
+            .string("claimed_by", BankTransaction::setClaimedBy)
+            .offsetDateTime("claimed_at", BankTransaction::setClaimedAt)
+            .bool("is_settled", BankTransaction::setIsSettled)
+            .offsetDateTime("created_at", BankTransaction::setCreatedAt)
+            .offsetDateTime("updated_at", BankTransaction::setUpdatedAt);
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public BankTransactionExportDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+            @Value("${clearing.export.fetch-size:1000}") int exportFetchSize) {
+        JdbcTemplate streaming = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(exportFetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Streams the transactions matching {@code query} in created_at order. Must run inside
+     * a transaction so PgJDBC fetches through a cursor instead of loading every row.
+     *
+     * @return number of rows streamed
+     */
+    public long streamTransactions(BankTransactionFilterQuery query, Consumer<BankTransaction> consumer) {
+        String sql = query.exportSql();
+        log.debug("Streaming bank transaction export SQL: {} with params {}", sql, query.params());
+        RowMapper<BankTransaction> rowMapper = COLUMNS.rowMapper();
+        long[] rows = new long[1];
+        streamingJdbcTemplate.query(sql, query.params(), rs -> {
+            consumer.accept(rowMapper.mapRow(rs, (int) rows[0]));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.clearing.dao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.clearing.common.fields.FieldCatalog;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.sql.ColumnMapping;
+import com.example.clearing.domain.BankTransaction;
+import com.example.clearing.repository.BankTransactionFilterQuery;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Sparse pages of the clearing bank transaction list ({@code fields=}): only the columns
+ * the selected properties need are read, into detached {@link BankTransaction} objects.
+ * Full pages still go through {@code BankTransactionRepository.findByFilters}.
+ */
+@Repository
+public class BankTransactionListDao {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionListDao.class);
+
+    /** Properties of the entity's JSON, except the deprecated {@code status}. */
+    public static final FieldCatalog<BankTransaction> FIELDS = FieldCatalog.<BankTransaction>of()
+            .field("bankTxnId", BankTransaction::getBankTxnId, "bank_txn_id")
+            .field("bankAccountId", BankTransaction::getBankAccountId, "bank_account_id")
+            .field("txnRef", BankTransaction::getTxnRef, "txn_ref")
+            .field("internalRef", BankTransaction::getInternalRef, "internal_ref")
+            .field("txnDate", BankTransaction::getTxnDate, "txn_date")
+            .field("amount", BankTransaction::getAmount, "amount")
+            .field("drCrFlag", BankTransaction::getDrCrFlag, "dr_cr_flag")
+            .field("description", BankTransaction::getDescription, "description")
+            .field("allocatedAmount", BankTransaction::getAllocatedAmount, "allocated_amount")
+            .field("remainingAmount", BankTransaction::getRemainingAmount, "remaining_amount")
+            .field("statusId", BankTransaction::getStatusId, "status_id")
+            .field("statusCode", BankTransaction::getStatusCode, "status_id")
+            .field("boardId", BankTransaction::getBoardId, "board_id")
+            .field("employerId", BankTransaction::getEmployerId, "employer_id")
+            .field("toliId", BankTransaction::getToliId, "toli_id")
+            .field("createdAt", BankTransaction::getCreatedAt, "created_at")
+            .field("updatedAt", BankTransaction::getUpdatedAt, "updated_at")
+            .field("txnType", BankTransaction::getTxnType, "txn_type")
+            .field("sourceSystem", BankTransaction::getSourceSystem, "source_system")
+            .field("sourceTxnId", BankTransaction::getSourceTxnId, "source_txn_id")
+            .field("sourceRef", BankTransaction::getSourceRef, "source_ref")
+            .field("claimedBy", BankTransaction::getClaimedBy, "claimed_by")
+            .field("claimedAt", BankTransaction::getClaimedAt, "claimed_at")
+            .field("isSettled", BankTransaction::getIsSettled, "is_settled")
+            .field("version", BankTransaction::getVersion, "version");
+
+    // Read with lenientRowMapper(): a sparse page selects only some of these
+    private static final ColumnMapping<BankTransaction> COLUMNS = ColumnMapping
+            .of(BankTransaction::new)
+            .integer("bank_txn_id", BankTransaction::setBankTxnId)
+            .integer("bank_account_id", BankTransaction::setBankAccountId)
+            .string("txn_ref", BankTransaction::setTxnRef)
+            .string("internal_ref", BankTransaction::setInternalRef)
+            .date("txn_date", BankTransaction::setTxnDate)
+            .decimal("amount", BankTransaction::setAmount)
+            .string("dr_cr_flag", BankTransaction::setDrCrFlag)
+            .string("description", BankTransaction::setDescription)
+            .decimal("allocated_amount", BankTransaction::setAllocatedAmount)
+            .decimal("remaining_amount", BankTransaction::setRemainingAmount)
+            .integer("status_id", BankTransaction::setStatusId)
+            .integer("board_id", BankTransaction::setBoardId)
+            .integer("employer_id", BankTransaction::setEmployerId)
+            .integer("toli_id", BankTransaction::setToliId)
+            .offsetDateTime("created_at", BankTransaction::setCreatedAt)
+            .offsetDateTime("updated_at", BankTransaction::setUpdatedAt)
+            .string("txn_type", BankTransaction::setTxnType)
+            .string("source_system", BankTransaction::setSourceSystem)
+            .string("source_txn_id", BankTransaction::setSourceTxnId)
+            .string("source_ref", BankTransaction::setSourceRef)
+            .string("claimed_by", BankTransaction::setClaimedBy)
+            .offsetDateTime("claimed_at", BankTransaction::setClaimedAt)
+            .bool("is_settled", BankTransaction::setIsSettled)
+            .integer("version", BankTransaction::setVersion);
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public BankTransactionListDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * One page of {@code query} with only the columns of {@code fields}; properties
+     * outside the set are left null. The count is skipped when the page shows the total.
+     */
+    public Page<BankTransaction> findPage(BankTransactionFilterQuery query, FieldSet<BankTransaction> fields,
+            Pageable pageable) {
+        String sql = query.selectSql(fields.columns()) + " LIMIT :limit OFFSET :offset";
+        Map<String, Object> params = new HashMap<>(query.params());
+        params.put("limit", pageable.getPageSize());
+        params.put("offset", pageable.getOffset());
+
+        log.debug("Executing sparse bank transaction list SQL: {} with params {}", sql, params);
+        List<BankTransaction> content = namedParameterJdbcTemplate.query(sql, params, COLUMNS.lenientRowMapper());
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> namedParameterJdbcTemplate.queryForObject(query.countSql(), query.params(), Long.class));
+    }
+}
@@ -1,23 +1,52 @@
 package com.example.clearing.dao;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import static com.example.clearing.jooq.clearing.Tables.BANK_TRANSACTION;
+import static com.example.clearing.jooq.clearing.Tables.BANK_TRANSACTION_GROUP_SUMMARY;
+import static com.example.clearing.jooq.reconciliation.Tables.BANK_ACCOUNT;
+import static com.example.clearing.jooq.reconciliation.Tables.OPEN_RECON_ITEM;
+
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-
+import java.util.TreeSet;
+
+import org.jooq.Field;
+import org.jooq.QueryPart;
+import org.jooq.Select;
+import org.jooq.SelectConditionStep;
+import org.jooq.SelectField;
+import org.jooq.SortField;
+import org.jooq.SortOrder;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.slf4j.Logger;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import com.example.clearing.common.sql.SqlTemplateLoader;
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetColumn;
+import com.example.clearing.common.pagination.KeysetCursor;
+import com.example.clearing.common.pagination.KeysetPage;
+import com.example.clearing.common.pagination.KeysetRowMapper;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.common.sql.ColumnMapping;
+import com.example.clearing.common.sql.QueryShape;
+import com.example.clearing.common.sql.QueryShapeCache;
+import com.example.clearing.common.sql.SqlRenderer;
+import com.example.clearing.dto.AggregateRow;
+import com.example.clearing.jooq.clearing.tables.BankTransaction;
+import com.example.clearing.jooq.clearing.tables.BankTransactionGroupSummary;
+import com.example.clearing.jooq.reconciliation.tables.BankAccount;
+import com.example.clearing.jooq.reconciliation.tables.OpenReconItem;
 import com.example.clearing.model.BankTransactionSearchCriteria;
 import com.example.clearing.model.BankTransactionView;
 import com.shared.utilities.logger.LoggerFactoryProvider;
@@ -26,184 +55,377 @@ import com.shared.utilities.logger.LoggerFactoryProvider;
 public class BankTransactionSearchDao {
 
     private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionSearchDao.class);
-    private static final String BASE_SELECT_TEMPLATE = "sql/reconciliation/bank_transactions_base_select.sql";
+
+    private static final OpenReconItem O = OPEN_RECON_ITEM.as("o");
+    private static final BankTransaction BT = BANK_TRANSACTION.as("bt");
+    private static final BankAccount BA = BANK_ACCOUNT.as("ba");
+    private static final BankTransactionGroupSummary S = BANK_TRANSACTION_GROUP_SUMMARY.as("s");
+
+    // Worklist items are unmapped and have no internal_ref or status yet
+    private static final Select<?> SEARCH_BASE = DSL
+            .select(O.TYPE, O.SOURCE_SYSTEM, O.SOURCE_TXN_ID, O.BANK_ACCOUNT_ID, O.BANK_ACCOUNT_NUMBER, O.TXN_REF,
+                    DSL.castNull(SQLDataType.VARCHAR).as("internal_ref"),
+                    O.TXN_DATE, O.AMOUNT, O.DR_CR_FLAG, O.DESCRIPTION,
+                    DSL.inline(false).as("is_mapped"),
+                    O.CREATED_AT,
+                    DSL.castNull(SQLDataType.INTEGER).as("status_id"))
+            .from(O)
+            .where(DSL.trueCondition());
+
+    private static final QueryPart SEARCH_ORDER = DSL.list(O.TXN_DATE.desc(), O.CREATED_AT.desc());
+
+    private static final Grouping BASE_GROUPING = new Grouping(BT.INTERNAL_REF, BT.TXN_REF, BT.TXN_DATE,
+            BT.TXN_TYPE, BT.STATUS_ID, BT.AMOUNT, BT.ALLOCATED_AMOUNT, BT.REMAINING_AMOUNT);
+
+    // Same grouping read from the trigger-maintained summary (migration 004); one row per
+    // group, created day and raw txn_ref, so it is re-grouped but over far fewer rows
+    private static final Grouping SUMMARY_GROUPING = new Grouping(S.INTERNAL_REF, S.TXN_REF, S.TXN_DATE,
+            S.TXN_TYPE, S.STATUS_ID, S.AMOUNT, S.ALLOCATED_AMOUNT, S.REMAINING_AMOUNT);
+
+    private static final Select<?> SUMMARY_BASE = tenantSummary(SUMMARY_GROUPING.selectFields());
+
+    // Package-private for RowMapperBenchmark
+    static final ColumnMapping<BankTransactionView> SEARCH_COLUMNS = ColumnMapping
+            .of(BankTransactionView::new)
+            .string("type", BankTransactionView::setType)
+            .string("source_txn_id", BankTransactionView::setSourceTxnId)
+            .longValue("bank_account_id", BankTransactionView::setBankAccountId)
+            .string("bank_account_number", BankTransactionView::setBankAccountNumber)
+            .string("txn_ref", BankTransactionView::setTxnRef)
+            .string("internal_ref", BankTransactionView::setInternalRef).optional()
+            .date("txn_date", BankTransactionView::setTxnDate)
+            .decimal("amount", BankTransactionView::setAmount)
+            .decimal("allocated_amount", BankTransactionView::setAllocatedAmount).optional()
+            .decimal("remaining_amount", BankTransactionView::setRemainingAmount).optional()
+            .string("dr_cr_flag", BankTransactionView::setDrCrFlag)
+            .string("description", BankTransactionView::setDescription)
+            .bool("is_mapped", BankTransactionView::setMapped)
+            .localDateTime("created_at", BankTransactionView::setCreatedAt)
+            .integer("status_id", BankTransactionView::setStatusId);
+
+    // Grouped by internal_ref, txn_ref, txn_date, txn_type and status_id with summed amounts
+    private static final ColumnMapping<BankTransactionView> GROUPED_COLUMNS = ColumnMapping
+            .of(BankTransactionView::new)
+            .string("internal_ref", BankTransactionView::setInternalRef)
+            .string("txn_ref", BankTransactionView::setTxnRef)
+            .date("txn_date", BankTransactionView::setTxnDate)
+            .string("type", BankTransactionView::setType)
+            .integer("status_id", BankTransactionView::setStatusId)
+            .decimal("amount", BankTransactionView::setAmount)
+            .decimal("allocated_amount", BankTransactionView::setAllocatedAmount)
+            .decimal("remaining_amount", BankTransactionView::setRemainingAmount);
+
+    private static final String GROUPED_KEYSET_ID = SqlRenderer.render(DSL.min(BT.BANK_TXN_ID));
+    private static final KeysetColumn TXN_DATE_KEYSET = new KeysetColumn(SqlRenderer.render(BT.TXN_DATE),
+            LocalDate.class, true);
+    private static final KeysetColumn AMOUNT_KEYSET = new KeysetColumn(SqlRenderer.render(DSL.sum(BT.AMOUNT)),
+            BigDecimal.class, false);
+    // Keyset sort key per secure sort property. receiptDate is the transaction date here,
+    // as in the offset sort; createdAt and id are the group's earliest row.
+    private static final Map<String, KeysetColumn> KEYSET_COLUMNS = Map.of(
+            "txnDate", TXN_DATE_KEYSET,
+            "receiptDate", TXN_DATE_KEYSET,
+            "createdAt", new KeysetColumn(SqlRenderer.render(DSL.min(BT.CREATED_AT)), OffsetDateTime.class, true),
+            "amount", AMOUNT_KEYSET,
+            "id", new KeysetColumn(GROUPED_KEYSET_ID, Integer.class, false));
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
-    private final SqlTemplateLoader sqlTemplates;
+    private final TotalCountResolver totalCountResolver;
+    private final QueryShapeCache queryShapes;
 
     public BankTransactionSearchDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
-            SqlTemplateLoader sqlTemplates) {
+            TotalCountResolver totalCountResolver, QueryShapeCache queryShapes) {
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
-        this.sqlTemplates = sqlTemplates;
+        this.totalCountResolver = totalCountResolver;
+        this.queryShapes = queryShapes;
     }
 
+    /**
+     * Searches unmapped reconciliation transactions through the open_recon_item
+     * worklist, so cost tracks the open items rather than the full statement history.
+     * Each equality filter has an index ending in the sort order (migration 005), so
+     * the LIMIT stops the index read instead of sorting or filtering every open item.
+     */
     public List<BankTransactionView> search(BankTransactionSearchCriteria criteria, Integer limit) {
-        String baseSql = sqlTemplates.load(BASE_SELECT_TEMPLATE);
-        StringBuilder sql = new StringBuilder(baseSql);
-        Map<String, Object> params = new HashMap<>();
+        String drCrFlag = trimToNull(criteria.getDrCrFlag());
+        QueryShape shape = new QueryShape("bankTransactionSearch")
+                .sql(SEARCH_BASE)
+                .optional(criteria.getTxnDate() != null, O.TXN_DATE.eq(DSL.param("txnDate", O.TXN_DATE)),
+                        "txnDate", criteria.getTxnDate())
+                .optional(criteria.getAmount() != null, O.AMOUNT.eq(DSL.param("amount", O.AMOUNT)),
+                        "amount", criteria.getAmount())
+                // open_recon_item stores dr_cr_flag upper-cased so this stays index-friendly
+                .optional(drCrFlag != null, O.DR_CR_FLAG.eq(DSL.param("drCrFlag", O.DR_CR_FLAG)),
+                        "drCrFlag", drCrFlag != null ? drCrFlag.toUpperCase() : null)
+                .optional(criteria.getBankAccountId() != null,
+                        O.BANK_ACCOUNT_ID.eq(DSL.param("bankAccountId", O.BANK_ACCOUNT_ID)),
+                        "bankAccountId", criteria.getBankAccountId())
+                .optional(hasText(criteria.getBankAccountNumber()),
+                        O.BANK_ACCOUNT_NUMBER.eq(DSL.param("bankAccountNumber", O.BANK_ACCOUNT_NUMBER)),
+                        "bankAccountNumber", trimToNull(criteria.getBankAccountNumber()))
+                .optional(hasText(criteria.getTxnRef()), O.TXN_REF.eq(DSL.param("txnRef", O.TXN_REF)),
+                        "txnRef", trimToNull(criteria.getTxnRef()))
+                .sql(" ORDER BY ").sql(SEARCH_ORDER)
+                .optional(limit != null && limit > 0, " LIMIT :limit", "limit", limit);
+
+        String sql = queryShapes.sql(shape);
+        log.debug("Executing bank transaction search SQL: {} with params {}", sql, shape.params());
+        List<BankTransactionView> results = namedParameterJdbcTemplate.query(
+                sql,
+                shape.params(),
+                SEARCH_COLUMNS.rowMapper());
+        log.debug("Fetched {} transactions for criteria {}", results.size(), criteria);
+        return results;
+    }
 
-        if (criteria.getTxnDate() != null) {
-            sql.append(" AND v.txn_date = :txnDate");
-            params.put("txnDate", criteria.getTxnDate());
-        }
-        if (criteria.getAmount() != null) {
-            sql.append(" AND v.amount = :amount");
-            params.put("amount", criteria.getAmount());
-        }
-        if (hasText(criteria.getDrCrFlag())) {
-            sql.append(" AND UPPER(v.dr_cr_flag) = :drCrFlag");
-            params.put("drCrFlag", criteria.getDrCrFlag().trim().toUpperCase());
-        }
-        if (criteria.getBankAccountId() != null) {
-            sql.append(" AND v.bank_account_id = :bankAccountId");
-            params.put("bankAccountId", criteria.getBankAccountId());
-        }
-        if (hasText(criteria.getBankAccountNumber())) {
-            sql.append(" AND ba.account_no = :bankAccountNumber");
-            params.put("bankAccountNumber", criteria.getBankAccountNumber().trim());
-        }
-        if (hasText(criteria.getTxnRef())) {
-            sql.append(" AND v.txn_ref = :txnRef");
-            params.put("txnRef", criteria.getTxnRef().trim());
+    /**
+     * Grouped secure search. Reads clearing.bank_transaction_group_summary unless a filter
+     * needs individual transactions.
+     */
+    public CountedPage<BankTransactionView> searchPaginated(BankTransactionSearchCriteria criteria,
+            LocalDate startDate, LocalDate endDate, Integer boardId, Integer employerId, Pageable pageable,
+            CountStrategy countStrategy) {
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("startDate and endDate are required for secure pagination");
         }
 
-        sql.append(" ORDER BY v.txn_date DESC, v.created_at DESC");
-        if (limit != null && limit > 0) {
-            sql.append(" LIMIT :limit");
-            params.put("limit", limit);
+        QueryShape shape;
+        Grouping grouping;
+        if (needsRowFilters(criteria)) {
+            shape = new QueryShape("bankTransactionGroupedSearch").sql(groupedBase(List.of()));
+            groupedFilters(shape, criteria, startDate, endDate, boardId, employerId);
+            shape.sql(" GROUP BY ").sql(BASE_GROUPING.groupBy());
+            grouping = BASE_GROUPING;
+        } else {
+            shape = summaryShape(criteria, startDate, endDate, boardId, employerId);
+            grouping = SUMMARY_GROUPING;
         }
+        String countBaseSql = queryShapes.sql(shape);
 
-        log.debug("Executing bank transaction search SQL: {} with params {}", sql, params);
+        // Update order by to use grouped columns
+        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
+        shape.variant("sort=" + sort, () -> grouping.orderBy(sort));
+
+        Pageable safePageable = pageable != null ? pageable : PageRequest.of(0, 20);
+        shape.variant("page", () -> " LIMIT :limit OFFSET :offset")
+                .param("limit", totalCountResolver.fetchLimit(countStrategy, safePageable.getPageSize()))
+                .param("offset", safePageable.getOffset());
+        String sql = queryShapes.sql(shape);
+
+        log.debug("Executing grouped paginated bank transaction search SQL: {} with params {}", sql,
+                shape.params());
         List<BankTransactionView> results = namedParameterJdbcTemplate.query(
-                sql.toString(),
-                params,
-                new BankTransactionRowMapper());
-        log.debug("Fetched {} transactions for criteria {}", results.size(), criteria);
-        return results;
+                sql,
+                shape.params(),
+                GROUPED_COLUMNS.rowMapper());
+
+        return totalCountResolver.toPage(results, safePageable, countStrategy,
+                TotalCountResolver.SCOPE_BANK_TRANSACTIONS, countBaseSql, shape.params());
     }
 
-    public Page<BankTransactionView> searchPaginated(BankTransactionSearchCriteria criteria,
-            LocalDate startDate, LocalDate endDate, Integer boardId, Integer employerId, Pageable pageable) {
+    /**
+     * Keyset variant of {@link #searchPaginated}. Groups are tie-broken by their lowest
+     * bank_txn_id, which is unique because every transaction belongs to exactly one
+     * group. For txn_date sorts the cursor also prunes rows before aggregation, so later
+     * pages aggregate less instead of more; no total count is computed.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     */
+    public KeysetPage<BankTransactionView> searchPaginatedKeyset(BankTransactionSearchCriteria criteria,
+            LocalDate startDate, LocalDate endDate, Integer boardId, Integer employerId, Sort sort, int size,
+            String cursor) {
         if (startDate == null || endDate == null) {
             throw new IllegalArgumentException("startDate and endDate are required for secure pagination");
         }
 
-        // Use grouped query with aggregations
-        // If internal_ref != txn_ref, treat txn_ref as null for grouping
-        String baseSql = """
-                SELECT
-                    bt.internal_ref,
-                    CASE
-                        WHEN bt.internal_ref = bt.txn_ref THEN bt.txn_ref
-                        ELSE NULL
-                    END AS txn_ref,
-                    bt.txn_date,
-                    bt.txn_type AS type,
-                    bt.status_id,
-                    SUM(bt.amount) AS amount,
-                    SUM(bt.allocated_amount) AS allocated_amount,
-                    SUM(bt.remaining_amount) AS remaining_amount
-                FROM clearing.bank_transaction bt
-                LEFT JOIN reconciliation.bank_account ba ON ba.id = bt.bank_account_id
-                WHERE bt.board_id = :boardId
-                  AND bt.employer_id = :employerId
-                """;
-        StringBuilder filters = new StringBuilder();
-        Map<String, Object> params = new HashMap<>();
-
-        filters.append(" AND bt.created_at::date BETWEEN :startDate AND :endDate");
-        params.put("startDate", startDate);
-        params.put("endDate", endDate);
-        params.put("boardId", boardId);
-        params.put("employerId", employerId);
-
-        if (criteria.getTxnDate() != null) {
-            filters.append(" AND bt.txn_date = :txnDate");
-            params.put("txnDate", criteria.getTxnDate());
-        }
-        if (criteria.getAmount() != null) {
-            filters.append(" AND bt.amount = :amount");
-            params.put("amount", criteria.getAmount());
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.desc("txnDate"));
+        KeysetColumn column = KEYSET_COLUMNS.get(order.getProperty());
+        if (column == null) {
+            throw new IllegalArgumentException("Keyset pagination cannot sort by " + order.getProperty()
+                    + "; sort by one of " + String.join(", ", new TreeSet<>(KEYSET_COLUMNS.keySet())));
         }
-        if (hasText(criteria.getDrCrFlag())) {
-            filters.append(" AND UPPER(bt.dr_cr_flag) = :drCrFlag");
-            params.put("drCrFlag", criteria.getDrCrFlag().trim().toUpperCase());
+        boolean ascending = order.isAscending();
+        String sortSpec = order.getProperty() + ":" + order.getDirection();
+        KeysetCursor after = cursor != null && !cursor.isBlank()
+                ? KeysetCursor.decode(cursor, sortSpec, column)
+                : null;
+        boolean seek = after != null;
+        boolean lastKeyNull = seek && after.lastKey() == null;
+        boolean prefilter = seek && column == TXN_DATE_KEYSET;
+
+        QueryShape shape = new QueryShape("bankTransactionGroupedKeyset")
+                .variant("key=" + column.expression(),
+                        () -> SqlRenderer.render(groupedBase(column.selectFields(GROUPED_KEYSET_ID))));
+        groupedFilters(shape, criteria, startDate, endDate, boardId, employerId);
+        Field<LocalDate> keysetKey = DSL.param(KeysetColumn.KEY_PARAM, BT.TXN_DATE);
+        shape.optional(prefilter && lastKeyNull, BT.TXN_DATE.isNull())
+                .optional(prefilter && !lastKeyNull && ascending,
+                        BT.TXN_DATE.ge(keysetKey).or(BT.TXN_DATE.isNull()))
+                .optional(prefilter && !lastKeyNull && !ascending,
+                        BT.TXN_DATE.le(keysetKey).or(BT.TXN_DATE.isNull()))
+                .sql(" GROUP BY ").sql(BASE_GROUPING.groupBy())
+                .variant("seek=" + (seek ? (lastKeyNull ? "null" : "key") : "none") + ",asc=" + ascending,
+                        () -> seek
+                                ? " HAVING " + column.seekPredicate(GROUPED_KEYSET_ID, ascending, lastKeyNull)
+                                : "")
+                .variant("order", () -> " ORDER BY " + column.orderBy(GROUPED_KEYSET_ID, ascending)
+                        + " LIMIT :limit")
+                .param("limit", size + 1);
+        if (seek) {
+            shape.param(KeysetColumn.KEY_PARAM, after.lastKey())
+                    .param(KeysetColumn.ID_PARAM, after.lastId());
         }
-        if (criteria.getBankAccountId() != null) {
-            filters.append(" AND bt.bank_account_id = :bankAccountId");
-            params.put("bankAccountId", criteria.getBankAccountId());
-        }
-        if (hasText(criteria.getBankAccountNumber())) {
-            filters.append(" AND ba.account_no = :bankAccountNumber");
-            params.put("bankAccountNumber", criteria.getBankAccountNumber().trim());
-        }
-        if (hasText(criteria.getTxnRef())) {
-            filters.append(" AND bt.txn_ref = :txnRef");
-            params.put("txnRef", criteria.getTxnRef().trim());
+        String sql = queryShapes.sql(shape);
+
+        log.debug("Executing grouped keyset bank transaction search SQL: {} with params {}", sql, shape.params());
+        KeysetRowMapper<BankTransactionView> rowMapper = new KeysetRowMapper<>(
+                GROUPED_COLUMNS.rowMapper(), column.type());
+        List<BankTransactionView> results = namedParameterJdbcTemplate.query(sql, shape.params(), rowMapper);
+        return rowMapper.toPage(results, size, sortSpec);
+    }
+
+    /**
+     * Count and summed amounts of the transactions the secure search would return, per
+     * created day, bank account or status, in key order. Reads the group summary unless
+     * a filter or the bank-account grouping needs individual transactions.
+     */
+    public List<AggregateRow> aggregate(BankTransactionSearchCriteria criteria, LocalDate startDate,
+            LocalDate endDate, Integer boardId, Integer employerId, AggregateGrouping grouping) {
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("startDate and endDate are required for aggregates");
         }
-        if (criteria.getStatusId() != null) {
-            filters.append(" AND bt.status_id = :statusId");
-            params.put("statusId", criteria.getStatusId());
+        if (grouping == AggregateGrouping.VOUCHER) {
+            throw new IllegalArgumentException("groupBy must be day, bankAccount or status for bank transactions");
         }
 
-        // Add GROUP BY clause - group by txn_ref (after CASE logic), txn_date,
-        // txn_type, internal_ref
-        filters.append("""
+        QueryShape shape;
+        Field<?> key;
+        if (needsRowFilters(criteria) || grouping == AggregateGrouping.BANK_ACCOUNT) {
+            key = switch (grouping) {
+                case BANK_ACCOUNT -> BT.BANK_ACCOUNT_ID;
+                case STATUS -> BT.STATUS_ID;
+                default -> DSL.cast(BT.CREATED_AT, SQLDataType.LOCALDATE);
+            };
+            shape = new QueryShape("bankTransactionAggregate")
+                    .variant("groupBy=" + grouping, () -> SqlRenderer.render(tenantTransactions(List.of(
+                            key.as("group_key"),
+                            DSL.count().as("row_count"),
+                            DSL.coalesce(DSL.sum(BT.AMOUNT), DSL.inline(BigDecimal.ZERO)).as("amount"),
+                            DSL.coalesce(DSL.sum(BT.ALLOCATED_AMOUNT), DSL.inline(BigDecimal.ZERO)).as("allocated_amount"),
+                            DSL.coalesce(DSL.sum(BT.REMAINING_AMOUNT), DSL.inline(BigDecimal.ZERO)).as("remaining_amount")))));
+            groupedFilters(shape, criteria, startDate, endDate, boardId, employerId);
+        } else {
+            key = grouping == AggregateGrouping.STATUS ? S.STATUS_ID : S.CREATED_DAY;
+            shape = new QueryShape("bankTransactionSummaryAggregate")
+                    .variant("groupBy=" + grouping, () -> SqlRenderer.render(tenantSummary(List.of(
+                            key.as("group_key"),
+                            DSL.sum(S.TXN_COUNT).as("row_count"),
+                            DSL.sum(S.AMOUNT).as("amount"),
+                            DSL.sum(S.ALLOCATED_AMOUNT).as("allocated_amount"),
+                            DSL.sum(S.REMAINING_AMOUNT).as("remaining_amount")))));
+            summaryFilters(shape, criteria, startDate, endDate, boardId, employerId);
+        }
+        shape.variant("groupOrder",
+                () -> " GROUP BY " + SqlRenderer.render(key) + " ORDER BY " + SqlRenderer.render(key));
+        String sql = queryShapes.sql(shape);
+
+        log.debug("Executing bank transaction aggregate SQL: {} with params {}", sql, shape.params());
+        return namedParameterJdbcTemplate.query(sql, shape.params(), (rs, rowNum) -> {
+            Object value = rs.getObject(1);
+            return new AggregateRow(value != null ? value.toString() : null, rs.getLong(2), rs.getBigDecimal(3),
+                    rs.getBigDecimal(4), rs.getBigDecimal(5));
+        });
+    }
 
-                GROUP BY CASE
-                             WHEN bt.internal_ref = bt.txn_ref THEN bt.txn_ref
-                             ELSE NULL
-                         END,
-                         bt.txn_date,
-                         bt.txn_type,
-                         bt.internal_ref,
-                         bt.status_id
-                """);
+    // Amount, dr/cr and account filters apply to individual transactions, which the
+    // summary no longer has; only those searches still aggregate the base table
+    private boolean needsRowFilters(BankTransactionSearchCriteria criteria) {
+        return criteria.getAmount() != null
+                || hasText(criteria.getDrCrFlag())
+                || criteria.getBankAccountId() != null
+                || hasText(criteria.getBankAccountNumber());
+    }
 
-        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
-        StringBuilder sql = new StringBuilder(baseSql).append(filters);
+    /**
+     * Grouped select over clearing.bank_transaction for one tenant, with
+     * {@code extraFields} after the grouping columns; filters follow as {@code AND}
+     * fragments.
+     */
+    private static SelectConditionStep<?> groupedBase(Collection<? extends SelectField<?>> extraFields) {
+        List<SelectField<?>> fields = new ArrayList<>(BASE_GROUPING.selectFields());
+        fields.addAll(extraFields);
+        return tenantTransactions(fields);
+    }
 
-        // Update order by to use grouped columns
-        if (sort == null || sort.isUnsorted()) {
-            sql.append(" ORDER BY bt.txn_date DESC");
-        } else {
-            sql.append(" ORDER BY ");
-            boolean first = true;
-            for (Sort.Order order : sort) {
-                if (!first) {
-                    sql.append(", ");
-                }
-                String column = switch (order.getProperty()) {
-                    case "receiptDate" -> "bt.txn_date";
-                    case "amount" -> "amount";
-                    case "txnRef" -> "bt.txn_ref";
-                    case "internalRef" -> "bt.internal_ref";
-                    default -> "bt.txn_date";
-                };
-                sql.append(column).append(order.isAscending() ? " ASC" : " DESC");
-                first = false;
-            }
-        }
+    /** {@code fields} of one tenant's transactions; filters follow as {@code AND} fragments. */
+    private static SelectConditionStep<?> tenantTransactions(Collection<? extends SelectField<?>> fields) {
+        return DSL.select(fields)
+                .from(BT)
+                .leftJoin(BA).on(BA.ID.eq(BT.BANK_ACCOUNT_ID.coerce(Long.class)))
+                .where(BT.BOARD_ID.eq(DSL.param("boardId", BT.BOARD_ID)))
+                .and(BT.EMPLOYER_ID.eq(DSL.param("employerId", BT.EMPLOYER_ID)));
+    }
 
-        if (pageable != null) {
-            sql.append(" LIMIT :limit OFFSET :offset");
-            params.put("limit", pageable.getPageSize());
-            params.put("offset", (long) pageable.getPageNumber() * pageable.getPageSize());
-        }
+    private void groupedFilters(QueryShape shape, BankTransactionSearchCriteria criteria, LocalDate startDate,
+            LocalDate endDate, Integer boardId, Integer employerId) {
+        String drCrFlag = trimToNull(criteria.getDrCrFlag());
+        // Half-open timestamp range over whole days; unlike created_at::date it can use an index
+        shape.sql(" AND ").sql(BT.CREATED_AT.ge(DSL.param("createdFrom", BT.CREATED_AT))
+                        .and(BT.CREATED_AT.lt(DSL.param("createdTo", BT.CREATED_AT))))
+                .param("createdFrom", startDate.atStartOfDay())
+                .param("createdTo", endDate.plusDays(1).atStartOfDay())
+                .param("boardId", boardId)
+                .param("employerId", employerId)
+                .optional(criteria.getTxnDate() != null, BT.TXN_DATE.eq(DSL.param("txnDate", BT.TXN_DATE)),
+                        "txnDate", criteria.getTxnDate())
+                .optional(criteria.getAmount() != null, BT.AMOUNT.eq(DSL.param("amount", BT.AMOUNT)),
+                        "amount", criteria.getAmount())
+                .optional(drCrFlag != null, DSL.upper(BT.DR_CR_FLAG).eq(DSL.param("drCrFlag", BT.DR_CR_FLAG)),
+                        "drCrFlag", drCrFlag != null ? drCrFlag.toUpperCase() : null)
+                .optional(criteria.getBankAccountId() != null,
+                        BT.BANK_ACCOUNT_ID.eq(DSL.param("bankAccountId", BT.BANK_ACCOUNT_ID)),
+                        "bankAccountId", criteria.getBankAccountId())
+                .optional(hasText(criteria.getBankAccountNumber()),
+                        BA.ACCOUNT_NO.eq(DSL.param("bankAccountNumber", BA.ACCOUNT_NO)),
+                        "bankAccountNumber", trimToNull(criteria.getBankAccountNumber()))
+                .optional(hasText(criteria.getTxnRef()), BT.TXN_REF.eq(DSL.param("txnRef", BT.TXN_REF)),
+                        "txnRef", trimToNull(criteria.getTxnRef()))
+                .optional(criteria.getStatusId() != null, BT.STATUS_ID.eq(DSL.param("statusId", BT.STATUS_ID)),
+                        "statusId", criteria.getStatusId());
+    }
 
-        String countSql = "SELECT COUNT(*) FROM (" + baseSql + filters + ") AS count_base";
+    private QueryShape summaryShape(BankTransactionSearchCriteria criteria, LocalDate startDate,
+            LocalDate endDate, Integer boardId, Integer employerId) {
+        QueryShape shape = new QueryShape("bankTransactionGroupSummarySearch").sql(SUMMARY_BASE);
+        summaryFilters(shape, criteria, startDate, endDate, boardId, employerId);
+        return shape.sql(" GROUP BY ").sql(SUMMARY_GROUPING.groupBy());
+    }
 
-        log.debug("Executing grouped paginated bank transaction search SQL: {} with params {}", sql, params);
-        List<BankTransactionView> results = namedParameterJdbcTemplate.query(
-                sql.toString(),
-                params,
-                new BankTransactionGroupedRowMapper());
+    /** {@code fields} of one tenant's group summary in the created-day range. */
+    private static Select<?> tenantSummary(Collection<? extends SelectField<?>> fields) {
+        return DSL.select(fields)
+                .from(S)
+                .where(S.BOARD_ID.eq(DSL.param("boardId", S.BOARD_ID)))
+                .and(S.EMPLOYER_ID.eq(DSL.param("employerId", S.EMPLOYER_ID)))
+                .and(S.CREATED_DAY.between(DSL.param("startDate", S.CREATED_DAY), DSL.param("endDate", S.CREATED_DAY)));
+    }
 
-        Long totalCount = namedParameterJdbcTemplate.queryForObject(countSql, params, Long.class);
-        long total = totalCount != null ? totalCount : 0L;
+    private void summaryFilters(QueryShape shape, BankTransactionSearchCriteria criteria, LocalDate startDate,
+            LocalDate endDate, Integer boardId, Integer employerId) {
+        shape.param("boardId", boardId)
+                .param("employerId", employerId)
+                .param("startDate", startDate)
+                .param("endDate", endDate)
+                .optional(criteria.getTxnDate() != null, S.TXN_DATE.eq(DSL.param("txnDate", S.TXN_DATE)),
+                        "txnDate", criteria.getTxnDate())
+                .optional(hasText(criteria.getTxnRef()), S.TXN_REF.eq(DSL.param("txnRef", S.TXN_REF)),
+                        "txnRef", trimToNull(criteria.getTxnRef()))
+                .optional(criteria.getStatusId() != null, S.STATUS_ID.eq(DSL.param("statusId", S.STATUS_ID)),
+                        "statusId", criteria.getStatusId());
+    }
 
-        Pageable safePageable = pageable != null ? pageable : PageRequest.of(0, 20);
-        return new PageImpl<>(results, safePageable, total);
+    private String trimToNull(String value) {
+        return hasText(value) ? value.trim() : null;
     }
 
     private boolean hasText(String value) {
@@ -211,89 +433,52 @@ public class BankTransactionSearchDao {
     }
 
     /**
-     * Row mapper for grouped bank transactions (aggregated by internal_ref,
-     * txn_ref, txn_date, txn_type, status_id)
+     * Columns of the secure-search grouping, read either from clearing.bank_transaction
+     * or from its group summary.
      */
-    private static class BankTransactionGroupedRowMapper implements RowMapper<BankTransactionView> {
-        @Override
-        public BankTransactionView mapRow(ResultSet rs, int rowNum) throws SQLException {
-            BankTransactionView view = new BankTransactionView();
-            view.setInternalRef(rs.getString("internal_ref"));
-            view.setTxnRef(rs.getString("txn_ref"));
-
-            java.sql.Date txnDate = rs.getDate("txn_date");
-            if (txnDate != null) {
-                view.setTxnDate(txnDate.toLocalDate());
-            }
+    private record Grouping(Field<String> internalRef, Field<String> txnRef, Field<LocalDate> txnDate,
+            Field<String> txnType, Field<Integer> statusId, Field<BigDecimal> amount,
+            Field<BigDecimal> allocatedAmount, Field<BigDecimal> remainingAmount) {
 
-            view.setType(rs.getString("type"));
+        // Output column, so ORDER BY sorts on the group total
+        private static final Field<BigDecimal> SUMMED_AMOUNT = DSL.field(DSL.name("amount"), BigDecimal.class);
 
-            Integer statusId = rs.getObject("status_id", Integer.class);
-            if (statusId != null) {
-                view.setStatusId(statusId);
-            }
-
-            // Aggregated amounts
-            view.setAmount(rs.getBigDecimal("amount"));
-            view.setAllocatedAmount(rs.getBigDecimal("allocated_amount"));
-            view.setRemainingAmount(rs.getBigDecimal("remaining_amount"));
-
-            return view;
+        // If internal_ref != txn_ref, treat txn_ref as null for grouping
+        Field<String> groupTxnRef() {
+            return DSL.when(internalRef.eq(txnRef), txnRef);
         }
-    }
-
-    /**
-     * Row mapper for individual bank transaction records
-     */
-    private static class BankTransactionRowMapper implements RowMapper<BankTransactionView> {
-        @Override
-        public BankTransactionView mapRow(ResultSet rs, int rowNum) throws SQLException {
-            BankTransactionView view = new BankTransactionView();
-            view.setType(rs.getString("type"));
-            view.setSourceTxnId(rs.getString("source_txn_id"));
-            long bankAccountId = rs.getLong("bank_account_id");
-            if (!rs.wasNull()) {
-                view.setBankAccountId(bankAccountId);
-            }
-            view.setBankAccountNumber(rs.getString("bank_account_number"));
-            view.setTxnRef(rs.getString("txn_ref"));
-            if (hasColumn(rs, "internal_ref")) {
-                view.setInternalRef(rs.getString("internal_ref"));
-            }
 
-            java.sql.Date txnDate = rs.getDate("txn_date");
-            if (txnDate != null) {
-                view.setTxnDate(txnDate.toLocalDate());
-            }
-
-            view.setAmount(rs.getBigDecimal("amount"));
-            if (hasColumn(rs, "allocated_amount")) {
-                view.setAllocatedAmount(rs.getBigDecimal("allocated_amount"));
-            }
-            if (hasColumn(rs, "remaining_amount")) {
-                view.setRemainingAmount(rs.getBigDecimal("remaining_amount"));
-            }
-            view.setDrCrFlag(rs.getString("dr_cr_flag"));
-            view.setDescription(rs.getString("description"));
-            view.setMapped(rs.getObject("is_mapped", Boolean.class));
+        List<SelectField<?>> selectFields() {
+            return List.of(
+                    internalRef,
+                    groupTxnRef().as("txn_ref"),
+                    txnDate,
+                    txnType.as("type"),
+                    statusId,
+                    DSL.sum(amount).as("amount"),
+                    DSL.sum(allocatedAmount).as("allocated_amount"),
+                    DSL.sum(remainingAmount).as("remaining_amount"));
+        }
 
-            java.sql.Timestamp createdAt = rs.getTimestamp("created_at");
-            if (createdAt != null) {
-                view.setCreatedAt(createdAt.toLocalDateTime());
-            }
-            Integer statusId = rs.getObject("status_id", Integer.class);
-            if (statusId != null) {
-                view.setStatusId(statusId);
-            }
-            return view;
+        QueryPart groupBy() {
+            return DSL.list(groupTxnRef(), txnDate, txnType, internalRef, statusId);
         }
 
-        private boolean hasColumn(ResultSet rs, String columnLabel) {
-            try {
-                return rs.findColumn(columnLabel) > 0;
-            } catch (SQLException ex) {
-                return false;
+        String orderBy(Sort sort) {
+            List<SortField<?>> fields = new ArrayList<>();
+            for (Sort.Order order : sort) {
+                Field<?> column = switch (order.getProperty()) {
+                    case "amount" -> SUMMED_AMOUNT;
+                    case "txnRef" -> txnRef;
+                    case "internalRef" -> internalRef;
+                    default -> txnDate;
+                };
+                fields.add(column.sort(order.isAscending() ? SortOrder.ASC : SortOrder.DESC));
+            }
+            if (fields.isEmpty()) {
+                fields.add(txnDate.desc());
             }
+            return " ORDER BY " + SqlRenderer.render(DSL.list(fields));
         }
     }
 }
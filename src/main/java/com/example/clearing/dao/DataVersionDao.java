@@ -0,0 +1,81 @@
+package com.example.clearing.dao;
+
+import static com.example.clearing.jooq.clearing.Tables.DATA_VERSION;
+
+import java.math.BigDecimal;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Repository;
+
+/**
+ * clearing.data_version, the per-tenant write counters of the {@code QueryController}
+ * tables, and clearing.data_change, the log their triggers append to (migration 008).
+ */
+@Repository
+public class DataVersionDao {
+
+    public static final String VOUCHER_HEADER = "voucher_header";
+    public static final String PAYMENT_ALLOCATION = "payment_allocation";
+    public static final String REQUEST_SETTLEMENT = "request_settlement";
+
+    // One statement, so the counter rows are locked only while it runs. SKIP LOCKED lets
+    // instances fold side by side; uncommitted entries are not visible to the delete yet.
+    private static final String FOLD_SQL = """
+            WITH changed AS (
+                DELETE FROM clearing.data_change
+                 WHERE change_id IN (SELECT change_id
+                                       FROM clearing.data_change
+                                      ORDER BY change_id
+                                      LIMIT ?
+                                        FOR UPDATE SKIP LOCKED)
+                RETURNING table_name, board_id, employer_id
+            ), bumped AS (
+                INSERT INTO clearing.data_version AS v (table_name, board_id, employer_id, version)
+                SELECT table_name, board_id, employer_id, count(*)
+                  FROM changed
+                 GROUP BY table_name, board_id, employer_id
+                 ORDER BY table_name, board_id, employer_id
+                ON CONFLICT (table_name, board_id, employer_id) DO UPDATE
+                   SET version = v.version + EXCLUDED.version
+                RETURNING 1
+            )
+            SELECT count(*) FROM changed
+            """;
+
+    private final DSLContext dsl;
+
+    public DataVersionDao(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Sum of the write counters of {@code tableName} over the tenants matching
+     * {@code boardId} and {@code employerId} (null matches any). Counters only grow, so
+     * the sum changes whenever a fold counts a write to one of those tenants' rows.
+     */
+    public long version(String tableName, Long boardId, Long employerId) {
+        Condition condition = DATA_VERSION.TABLE_NAME.eq(tableName);
+        if (boardId != null) {
+            condition = condition.and(DATA_VERSION.BOARD_ID.eq(boardId));
+        }
+        if (employerId != null) {
+            condition = condition.and(DATA_VERSION.EMPLOYER_ID.eq(employerId));
+        }
+        BigDecimal sum = dsl.select(DSL.sum(DATA_VERSION.VERSION))
+                .from(DATA_VERSION)
+                .where(condition)
+                .fetchOne(0, BigDecimal.class);
+        return sum != null ? sum.longValue() : 0L;
+    }
+
+    /**
+     * Moves up to {@code limit} committed change log entries into the counters, one
+     * increment per entry, and returns how many it moved.
+     */
+    public int fold(int limit) {
+        Long folded = dsl.fetchOne(FOLD_SQL, limit).get(0, Long.class);
+        return folded != null ? folded.intValue() : 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.clearing.dao;
+
+import static com.example.clearing.jooq.clearing.Tables.PAYMENT_ALLOCATION;
+import static com.example.clearing.jooq.clearing.Tables.RECEIPT_REFERENCE;
+import static com.example.clearing.jooq.payment_flow.Tables.EMPLOYER_PAYMENT_RECEIPTS;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Repository;
+
+import com.example.clearing.jooq.payment_flow.tables.EmployerPaymentReceipts;
+
+/**
+ * clearing.receipt_reference, clearing's copy of the payment-flow worker receipt numbers
+ * of receipts it has allocated against (migration 007). This is the only place that
+ * reads payment_flow.employer_payment_receipts, always by primary key.
+ */
+@Repository
+public class ReceiptReferenceDao {
+
+    private static final EmployerPaymentReceipts E = EMPLOYER_PAYMENT_RECEIPTS.as("e");
+
+    private final DSLContext dsl;
+
+    public ReceiptReferenceDao(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Copies the worker receipt numbers of {@code requestIds} from payment-flow, adding
+     * missing references and updating renumbered ones. Receipts payment-flow does not
+     * know are skipped; references are never removed.
+     *
+     * @return number of references added or changed
+     */
+    public int refresh(Collection<Long> requestIds) {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+        return dsl.insertInto(RECEIPT_REFERENCE,
+                        RECEIPT_REFERENCE.REQUEST_ID, RECEIPT_REFERENCE.WORKER_RECEIPT_NUMBER,
+                        RECEIPT_REFERENCE.SYNCED_AT)
+                .select(DSL.select(E.ID, E.WORKER_RECEIPT_NUMBER, DSL.currentOffsetDateTime())
+                        .from(E)
+                        .where(E.ID.eq(DSL.any(requestIds.toArray(Long[]::new)))))
+                .onConflict(RECEIPT_REFERENCE.REQUEST_ID)
+                .doUpdate()
+                .set(RECEIPT_REFERENCE.WORKER_RECEIPT_NUMBER, DSL.excluded(RECEIPT_REFERENCE.WORKER_RECEIPT_NUMBER))
+                .set(RECEIPT_REFERENCE.SYNCED_AT, DSL.excluded(RECEIPT_REFERENCE.SYNCED_AT))
+                .where(RECEIPT_REFERENCE.WORKER_RECEIPT_NUMBER
+                        .isDistinctFrom(DSL.excluded(RECEIPT_REFERENCE.WORKER_RECEIPT_NUMBER)))
+                .execute();
+    }
+
+    /**
+     * Distinct request ids of allocations greater than {@code afterRequestId}, ascending,
+     * for walking every allocated receipt in batches.
+     */
+    public List<Long> allocatedRequestIds(long afterRequestId, int limit) {
+        return dsl.selectDistinct(PAYMENT_ALLOCATION.REQUEST_ID)
+                .from(PAYMENT_ALLOCATION)
+                .where(PAYMENT_ALLOCATION.REQUEST_ID.gt(afterRequestId))
+                .orderBy(PAYMENT_ALLOCATION.REQUEST_ID)
+                .limit(limit)
+                .fetch(PAYMENT_ALLOCATION.REQUEST_ID);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.clearing.dao;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.clearing.model.VanCreditNotification;
+
+/**
+ * Writes of pushed VAN credits: reconciliation.van_transaction plus the
+ * reconciliation.van_credit_delivery row that records each transaction reference once
+ * (migration 009). Every method expects to run in the caller's transaction.
+ */
+@Repository
+public class VanCreditDao {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public VanCreditDao(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * First delivery of a transaction reference: the van_transaction row it created and
+     * when it was received.
+     */
+    public record Delivery(long vanTransactionId, OffsetDateTime receivedAt) {
+    }
+
+    /**
+     * Claims the given (trimmed) transaction references for this transaction and returns
+     * the ones that were not recorded before. A reference another transaction has claimed
+     * but not yet committed blocks until that transaction ends.
+     */
+    public Set<String> claimReferences(Collection<String> references) {
+        if (references.isEmpty()) {
+            return Set.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder values = new StringBuilder();
+        int i = 0;
+        for (String reference : references) {
+            values.append(i > 0 ? ", " : "").append("(:ref").append(i).append(')');
+            params.addValue("ref" + i, reference);
+            i++;
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                INSERT INTO reconciliation.van_credit_delivery (transaction_reference_number)
+                VALUES %s
+                ON CONFLICT (transaction_reference_number) DO NOTHING
+                RETURNING transaction_reference_number
+                """.formatted(values), params, String.class));
+    }
+
+    /**
+     * Inserts the credits into van_transaction and links each to its claimed delivery
+     * row. Returns the new van_transaction id by trimmed transaction reference; the
+     * references must be distinct and claimed by {@link #claimReferences}.
+     */
+    public Map<String, Long> insert(List<VanCreditNotification> credits) {
+        if (credits.isEmpty()) {
+            return Map.of();
+        }
+        StringBuilder values = new StringBuilder();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < credits.size(); i++) {
+            VanCreditNotification credit = credits.get(i);
+            if (i > 0) {
+                values.append(",\n");
+            }
+            values.append("(:importRunId%1$d, :txnRef%1$d, :txnDate%1$d, :valueDate%1$d, :amount%1$d, :narration%1$d, FALSE)"
+                    .formatted(i));
+            params.addValue("importRunId" + i, credit.getImportRunId())
+                    .addValue("txnRef" + i, credit.getTransactionReferenceNumber().trim())
+                    .addValue("txnDate" + i, credit.getTransactionDate())
+                    .addValue("valueDate" + i,
+                            credit.getValueDate() != null ? credit.getValueDate() : credit.getTransactionDate())
+                    .addValue("amount" + i, credit.getAmount())
+                    .addValue("narration" + i, credit.getPaymentDescriptionNarration());
+        }
+        String sql = """
+                WITH inserted AS (
+                    INSERT INTO reconciliation.van_transaction (
+                        import_run_id,
+                        transaction_reference_number,
+                        transaction_date,
+                        value_date,
+                        amount,
+                        payment_description_narration,
+                        is_mapped
+                    )
+                    VALUES
+                %s
+                    RETURNING id, transaction_reference_number
+                )
+                UPDATE reconciliation.van_credit_delivery d
+                   SET van_transaction_id = i.id
+                  FROM inserted i
+                 WHERE d.transaction_reference_number = i.transaction_reference_number
+                RETURNING i.transaction_reference_number, i.id
+                """.formatted(values);
+
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql, params,
+                rs -> {
+                    ids.put(rs.getString("transaction_reference_number"), rs.getLong("id"));
+                });
+        if (ids.size() != credits.size()) {
+            throw new IllegalStateException(
+                    "Recorded " + ids.size() + " VAN credits but expected " + credits.size());
+        }
+        return ids;
+    }
+
+    /**
+     * Deliveries already recorded for the given (trimmed) transaction references, keyed
+     * by reference.
+     */
+    public Map<String, Delivery> findDeliveries(Collection<String> references) {
+        Map<String, Delivery> deliveries = new HashMap<>();
+        if (references.isEmpty()) {
+            return deliveries;
+        }
+        jdbcTemplate.query("""
+                SELECT transaction_reference_number, van_transaction_id, received_at
+                  FROM reconciliation.van_credit_delivery
+                 WHERE transaction_reference_number IN (:refs)
+                   AND van_transaction_id IS NOT NULL
+                """,
+                new MapSqlParameterSource("refs", references),
+                rs -> {
+                    deliveries.put(rs.getString("transaction_reference_number"), new Delivery(
+                            rs.getLong("van_transaction_id"),
+                            rs.getObject("received_at", OffsetDateTime.class)));
+                });
+        return deliveries;
+    }
+}
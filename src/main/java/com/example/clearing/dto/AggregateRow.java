@@ -0,0 +1,18 @@
+package com.example.clearing.dto;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Count and summed amounts of one group of an aggregates response; {@code key} is null
+ * for the grand totals. Amounts a search does not sum are null and left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AggregateRow(String key, long count, BigDecimal amount, BigDecimal allocatedAmount,
+        BigDecimal remainingAmount) {
+
+    public AggregateRow withKey(String newKey) {
+        return new AggregateRow(newKey, count, amount, allocatedAmount, remainingAmount);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.clearing.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Grand totals and per-group totals of a search, as returned by the aggregates endpoints.
+ */
+public record AggregateTotals(String groupBy, AggregateRow totals, List<AggregateRow> groups) {
+
+    /** Adds up {@code groups} into the grand totals, so they cost no second query. */
+    public static AggregateTotals of(String groupBy, List<AggregateRow> groups) {
+        long count = groups.stream().mapToLong(AggregateRow::count).sum();
+        AggregateRow totals = new AggregateRow(null, count,
+                sum(groups, AggregateRow::amount),
+                sum(groups, AggregateRow::allocatedAmount),
+                sum(groups, AggregateRow::remainingAmount));
+        return new AggregateTotals(groupBy, totals, List.copyOf(groups));
+    }
+
+    // Null when no group has the amount, i.e. the search does not sum it
+    private static BigDecimal sum(List<AggregateRow> groups, Function<AggregateRow, BigDecimal> amount) {
+        BigDecimal total = null;
+        for (AggregateRow group : groups) {
+            BigDecimal value = amount.apply(group);
+            if (value != null) {
+                total = total == null ? value : total.add(value);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.clearing.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Answer to a lookup by a list of ids: what was found keyed by id, in the order the ids
+ * were asked for, and the ids nothing was found for.
+ */
+public record BatchLookup<K, V>(Map<K, V> results, List<K> missing) {
+
+    public static <K, V> BatchLookup<K, V> of(Collection<K> ids, Map<K, V> found) {
+        Map<K, V> results = new LinkedHashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K id : ids) {
+            V value = found.get(id);
+            if (value != null) {
+                results.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new BatchLookup<>(results, missing);
+    }
+
+    /**
+     * The distinct non-null ids of a batch request parameter, in request order.
+     *
+     * @throws IllegalArgumentException when there are none or more than {@code maxIds}
+     */
+    public static <K> List<K> ids(String param, Collection<K> ids, int maxIds) {
+        LinkedHashSet<K> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException(param + " is required");
+        }
+        if (distinct.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " " + param + " per call");
+        }
+        return List.copyOf(distinct);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.clearing.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only row of the payment allocation list, projected straight from the query so no
+ * entity is loaded or tracked. {@code status} is the code of {@code statusId}.
+ */
+public record PaymentAllocationView(Integer allocationId, Long requestId, Integer bankTxnId, Integer boardId,
+        Integer employerId, Integer toliId, BigDecimal allocatedAmount, LocalDate allocationDate, String allocatedBy,
+        Integer voucherId, Integer sourceFileId, Integer statusId, String status, OffsetDateTime createdAt,
+        OffsetDateTime updatedAt, Integer version, String idempotencyKey, String employerReceiptNumber,
+        LocalDate receiptDate) {
+
+    /** Constructor expression target; the status code is filled in by {@link #withStatus}. */
+    public PaymentAllocationView(Integer allocationId, Long requestId, Integer bankTxnId, Integer boardId,
+            Integer employerId, Integer toliId, BigDecimal allocatedAmount, LocalDate allocationDate,
+            String allocatedBy, Integer voucherId, Integer sourceFileId, Integer statusId, OffsetDateTime createdAt,
+            OffsetDateTime updatedAt, Integer version, String idempotencyKey, String employerReceiptNumber,
+            LocalDate receiptDate) {
+        this(allocationId, requestId, bankTxnId, boardId, employerId, toliId, allocatedAmount, allocationDate,
+                allocatedBy, voucherId, sourceFileId, statusId, null, createdAt, updatedAt, version, idempotencyKey,
+                employerReceiptNumber, receiptDate);
+    }
+
+    public PaymentAllocationView withStatus(String statusCode) {
+        return new PaymentAllocationView(allocationId, requestId, bankTxnId, boardId, employerId, toliId,
+                allocatedAmount, allocationDate, allocatedBy, voucherId, sourceFileId, statusId, statusCode, createdAt,
+                updatedAt, version, idempotencyKey, employerReceiptNumber, receiptDate);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.clearing.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only row of the request settlement list, projected straight from the query so no
+ * entity is loaded or tracked. {@code status} is the code of {@code statusId}.
+ */
+public record RequestSettlementView(Long requestSettlementId, Long requestId, Long boardId, Long employerId,
+        Long toliId, BigDecimal totalAmount, BigDecimal allocatedAmount, BigDecimal remainingAmount, Long voucherId,
+        Integer statusId, String status, OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+
+    /** Constructor expression target; the status code is filled in by {@link #withStatus}. */
+    public RequestSettlementView(Long requestSettlementId, Long requestId, Long boardId, Long employerId,
+            Long toliId, BigDecimal totalAmount, BigDecimal allocatedAmount, BigDecimal remainingAmount,
+            Long voucherId, Integer statusId, OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+        this(requestSettlementId, requestId, boardId, employerId, toliId, totalAmount, allocatedAmount,
+                remainingAmount, voucherId, statusId, null, createdAt, updatedAt);
+    }
+
+    public RequestSettlementView withStatus(String statusCode) {
+        return new RequestSettlementView(requestSettlementId, requestId, boardId, employerId, toliId, totalAmount,
+                allocatedAmount, remainingAmount, voucherId, statusId, statusCode, createdAt, updatedAt);
+    }
+}
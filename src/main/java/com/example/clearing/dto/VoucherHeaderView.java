@@ -0,0 +1,27 @@
+package com.example.clearing.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only row of the voucher header list, projected straight from the query so no
+ * entity is loaded or tracked. {@code status} is the code of {@code statusId}.
+ */
+public record VoucherHeaderView(Integer voucherId, Integer boardId, Integer employerId, Integer toliId,
+        String voucherNumber, LocalDate voucherDate, BigDecimal totalAmount, Integer statusId, String status,
+        OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+
+    /** Constructor expression target; the status code is filled in by {@link #withStatus}. */
+    public VoucherHeaderView(Integer voucherId, Integer boardId, Integer employerId, Integer toliId,
+            String voucherNumber, LocalDate voucherDate, BigDecimal totalAmount, Integer statusId,
+            OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+        this(voucherId, boardId, employerId, toliId, voucherNumber, voucherDate, totalAmount, statusId, null,
+                createdAt, updatedAt);
+    }
+
+    public VoucherHeaderView withStatus(String statusCode) {
+        return new VoucherHeaderView(voucherId, boardId, employerId, toliId, voucherNumber, voucherDate, totalAmount,
+                statusId, statusCode, createdAt, updatedAt);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.clearing.model;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 
@@ -25,6 +26,8 @@ public class BankTransactionView {
     private LocalDateTime createdAt;
     private Integer statusId;
     private String status;
+    private Boolean possibleDuplicate;
+    private List<String> duplicateOf;
 
     public String getType() {
         return type;
@@ -153,4 +156,20 @@ public class BankTransactionView {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public Boolean getPossibleDuplicate() {
+        return possibleDuplicate;
+    }
+
+    public void setPossibleDuplicate(Boolean possibleDuplicate) {
+        this.possibleDuplicate = possibleDuplicate;
+    }
+
+    public List<String> getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(List<String> duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
 }
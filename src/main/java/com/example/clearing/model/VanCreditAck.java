@@ -0,0 +1,82 @@
+package com.example.clearing.model;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Acknowledgement returned once a VAN credit has been committed.
+ */
+@Schema(description = "Durable acknowledgement for a committed VAN credit")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class VanCreditAck {
+
+    @Schema(description = "reconciliation.van_transaction id", example = "10231")
+    private Long sourceTxnId;
+
+    @Schema(description = "Bank transaction reference number", example = "UTR2025120600001")
+    private String transactionReferenceNumber;
+
+    @Schema(description = "Commit timestamp of the batch that persisted the credit; receipt time of the first delivery for a re-sent credit")
+    private OffsetDateTime committedAt;
+
+    @Schema(description = "Number of credits committed in the same batch", example = "37")
+    private int batchSize;
+
+    @Schema(description = "Other source rows (TYPE:id) with the same account, value date, amount and reference; absent when none, or while the account's month is not yet loaded for duplicate checks (the duplicate is then only logged)", example = "[\"MT940:88120\"]")
+    private List<String> possibleDuplicateOf;
+
+    @Schema(description = "True when the transaction reference was already recorded and sourceTxnId is the row of its first delivery; absent otherwise")
+    private Boolean redelivery;
+
+    public Long getSourceTxnId() {
+        return sourceTxnId;
+    }
+
+    public void setSourceTxnId(Long sourceTxnId) {
+        this.sourceTxnId = sourceTxnId;
+    }
+
+    public String getTransactionReferenceNumber() {
+        return transactionReferenceNumber;
+    }
+
+    public void setTransactionReferenceNumber(String transactionReferenceNumber) {
+        this.transactionReferenceNumber = transactionReferenceNumber;
+    }
+
+    public OffsetDateTime getCommittedAt() {
+        return committedAt;
+    }
+
+    public void setCommittedAt(OffsetDateTime committedAt) {
+        this.committedAt = committedAt;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public List<String> getPossibleDuplicateOf() {
+        return possibleDuplicateOf;
+    }
+
+    public void setPossibleDuplicateOf(List<String> possibleDuplicateOf) {
+        this.possibleDuplicateOf = possibleDuplicateOf;
+    }
+
+    public Boolean getRedelivery() {
+        return redelivery;
+    }
+
+    public void setRedelivery(Boolean redelivery) {
+        this.redelivery = redelivery;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.clearing.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Single VAN credit pushed by the bank; persisted into reconciliation.van_transaction.
+ */
+@Schema(description = "VAN credit notification pushed by the bank")
+public class VanCreditNotification {
+
+    @Schema(description = "Import run the credit belongs to", example = "42")
+    @NotNull
+    private Long importRunId;
+
+    @Schema(description = "Bank transaction reference number", example = "UTR2025120600001")
+    @NotBlank
+    private String transactionReferenceNumber;
+
+    @Schema(description = "Transaction date", example = "2025-12-06")
+    @NotNull
+    private LocalDate transactionDate;
+
+    @Schema(description = "Value date (defaults to the transaction date when absent)", example = "2025-12-06")
+    private LocalDate valueDate;
+
+    @Schema(description = "Credited amount", example = "1500.00")
+    @NotNull
+    @DecimalMin(value = "0.01")
+    private BigDecimal amount;
+
+    @Schema(description = "Payment narration as received from the bank")
+    private String paymentDescriptionNarration;
+
+    public Long getImportRunId() {
+        return importRunId;
+    }
+
+    public void setImportRunId(Long importRunId) {
+        this.importRunId = importRunId;
+    }
+
+    public String getTransactionReferenceNumber() {
+        return transactionReferenceNumber;
+    }
+
+    public void setTransactionReferenceNumber(String transactionReferenceNumber) {
+        this.transactionReferenceNumber = transactionReferenceNumber;
+    }
+
+    public LocalDate getTransactionDate() {
+        return transactionDate;
+    }
+
+    public void setTransactionDate(LocalDate transactionDate) {
+        this.transactionDate = transactionDate;
+    }
+
+    public LocalDate getValueDate() {
+        return valueDate;
+    }
+
+    public void setValueDate(LocalDate valueDate) {
+        this.valueDate = valueDate;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getPaymentDescriptionNarration() {
+        return paymentDescriptionNarration;
+    }
+
+    public void setPaymentDescriptionNarration(String paymentDescriptionNarration) {
+        this.paymentDescriptionNarration = paymentDescriptionNarration;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.clearing.repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Tenant-scoped clearing.bank_transaction list query containing only the filters that
+ * were supplied. Each combination gets its own plan instead of one generic plan full
+ * of {@code (:x IS NULL OR ...)} branches, and the created_at filter is a half-open
+ * timestamp range so the (board_id, employer_id, created_at) index applies.
+ */
+public final class BankTransactionFilterQuery {
+
+    private static final String FROM_CLAUSE = """
+            FROM clearing.bank_transaction bt
+            WHERE bt.board_id = :boardId
+              AND bt.employer_id = :employerId""";
+
+    private final String whereClause;
+    private final Map<String, Object> params;
+
+    private BankTransactionFilterQuery(String whereClause, Map<String, Object> params) {
+        this.whereClause = whereClause;
+        this.params = params;
+    }
+
+    public static BankTransactionFilterQuery of(Integer boardId, Integer employerId, Integer bankTxnId,
+            String txnRef, Boolean isSettled, LocalDate startDate, LocalDate endDate) {
+        StringBuilder where = new StringBuilder();
+        Map<String, Object> params = new HashMap<>();
+        params.put("boardId", boardId);
+        params.put("employerId", employerId);
+
+        if (bankTxnId != null) {
+            where.append(" AND bt.bank_txn_id = :bankTxnId");
+            params.put("bankTxnId", bankTxnId);
+        }
+        if (txnRef != null && !txnRef.isBlank()) {
+            where.append(" AND bt.txn_ref = :txnRef");
+            params.put("txnRef", txnRef.trim());
+        }
+        if (isSettled != null) {
+            where.append(" AND bt.is_settled = :isSettled");
+            params.put("isSettled", isSettled);
+        }
+        // Whole days as [start 00:00, end + 1 day 00:00) in the session time zone, which is
+        // what CAST(created_at AS DATE) compared against before
+        if (startDate != null) {
+            where.append(" AND bt.created_at >= :createdFrom");
+            params.put("createdFrom", startDate.atStartOfDay());
+        }
+        if (endDate != null) {
+            where.append(" AND bt.created_at < :createdTo");
+            params.put("createdTo", endDate.plusDays(1).atStartOfDay());
+        }
+        return new BankTransactionFilterQuery(where.toString(), params);
+    }
+
+    public String selectSql() {
+        return selectSql(List.of("*"));
+    }
+
+    /**
+     * {@link #selectSql()} reading only {@code columns}; they are spliced into the SQL, so
+     * pass constants, never request input.
+     */
+    public String selectSql(List<String> columns) {
+        StringJoiner select = new StringJoiner(", ", "SELECT ", "\n");
+        columns.forEach(column -> select.add("bt." + column));
+        return select + FROM_CLAUSE + whereClause + "\nORDER BY bt.updated_at DESC";
+    }
+
+    /** Stable order for full extracts; served by the (board_id, employer_id, created_at) index. */
+    public String exportSql() {
+        return "SELECT bt.*\n" + FROM_CLAUSE + whereClause + "\nORDER BY bt.created_at, bt.bank_txn_id";
+    }
+
+    public String countSql() {
+        return "SELECT COUNT(*)\n" + FROM_CLAUSE + whereClause;
+    }
+
+    public Map<String, Object> params() {
+        return params;
+    }
+}
@@ -1,38 +1,33 @@
 package com.example.clearing.repository;
 
-import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.clearing.domain.BankTransaction;
 
-public interface BankTransactionRepository extends JpaRepository<BankTransaction, Integer> {
+import jakarta.persistence.QueryHint;
+
+public interface BankTransactionRepository extends JpaRepository<BankTransaction, Integer>,
+                BankTransactionRepositoryCustom {
 
         Optional<BankTransaction> findBySourceSystemAndSourceTxnId(String sourceSystem, String sourceTxnId);
 
+        /**
+         * The tenant's transactions among {@code bankTxnIds}, bound as one array so every
+         * batch size shares a statement and plan; loaded read-only.
+         */
         @Query(value = """
-                        SELECT * FROM clearing.bank_transaction bt
-                        WHERE bt.board_id = :boardId
-                          AND bt.employer_id = :employerId
-                          AND (CAST(:bankTxnId AS INTEGER) IS NULL OR bt.bank_txn_id = CAST(:bankTxnId AS INTEGER))
-                          AND (CAST(:txnRef AS VARCHAR) IS NULL OR bt.txn_ref = CAST(:txnRef AS VARCHAR))
-                          AND (CAST(:isSettled AS BOOLEAN) IS NULL OR bt.is_settled = CAST(:isSettled AS BOOLEAN))
-                          AND (CAST(:startDate AS DATE) IS NULL OR CAST(bt.created_at AS DATE) >= CAST(:startDate AS DATE))
-                          AND (CAST(:endDate AS DATE) IS NULL OR CAST(bt.created_at AS DATE) <= CAST(:endDate AS DATE))
-                        ORDER BY bt.updated_at DESC
+                        SELECT * FROM clearing.bank_transaction
+                        WHERE bank_txn_id = ANY(:bankTxnIds)
+                          AND board_id = :boardId
+                          AND employer_id = :employerId
                         """, nativeQuery = true)
-        Page<BankTransaction> findByFilters(
-                        @Param("boardId") Integer boardId,
-                        @Param("employerId") Integer employerId,
-                        @Param("bankTxnId") Integer bankTxnId,
-                        @Param("txnRef") String txnRef,
-                        @Param("isSettled") Boolean isSettled,
-                        @Param("startDate") LocalDate startDate,
-                        @Param("endDate") LocalDate endDate,
-                        Pageable pageable);
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+        List<BankTransaction> findAllByBoardIdAndEmployerIdAndBankTxnIdIn(Integer boardId, Integer employerId,
+                        Integer[] bankTxnIds);
 }
@@ -0,0 +1,21 @@
+package com.example.clearing.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import com.example.clearing.domain.BankTransaction;
+
+public interface BankTransactionRepositoryCustom {
+
+        Page<BankTransaction> findByFilters(
+                        Integer boardId,
+                        Integer employerId,
+                        Integer bankTxnId,
+                        String txnRef,
+                        Boolean isSettled,
+                        LocalDate startDate,
+                        LocalDate endDate,
+                        Pageable pageable);
+}
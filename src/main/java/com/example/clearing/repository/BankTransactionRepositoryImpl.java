@@ -0,0 +1,47 @@
+package com.example.clearing.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.example.clearing.domain.BankTransaction;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+/**
+ * Dynamic native queries for {@link BankTransactionRepository}; see
+ * {@link BankTransactionFilterQuery}.
+ */
+public class BankTransactionRepositoryImpl implements BankTransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<BankTransaction> findByFilters(Integer boardId, Integer employerId, Integer bankTxnId,
+            String txnRef, Boolean isSettled, LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        BankTransactionFilterQuery filterQuery = BankTransactionFilterQuery.of(
+                boardId, employerId, bankTxnId, txnRef, isSettled, startDate, endDate);
+
+        Query dataQuery = entityManager.createNativeQuery(filterQuery.selectSql(), BankTransaction.class);
+        filterQuery.params().forEach(dataQuery::setParameter);
+        if (pageable.isPaged()) {
+            dataQuery.setFirstResult((int) pageable.getOffset());
+            dataQuery.setMaxResults(pageable.getPageSize());
+        }
+        @SuppressWarnings("unchecked")
+        List<BankTransaction> content = dataQuery.getResultList();
+
+        // Skips the count when the page itself shows the total (first or last page)
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query countQuery = entityManager.createNativeQuery(filterQuery.countSql());
+            filterQuery.params().forEach(countQuery::setParameter);
+            return ((Number) countQuery.getSingleResult()).longValue();
+        });
+    }
+}
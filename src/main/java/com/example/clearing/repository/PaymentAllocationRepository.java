@@ -1,11 +1,16 @@
 package com.example.clearing.repository;
 
 import com.example.clearing.domain.PaymentAllocation;
+import com.example.clearing.dto.PaymentAllocationView;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface PaymentAllocationRepository extends JpaRepository<PaymentAllocation, Integer> {
 
@@ -17,13 +22,44 @@ public interface PaymentAllocationRepository extends JpaRepository<PaymentAlloca
 
     List<PaymentAllocation> findByRequestIdAndVoucherIdIsNull(Long requestId);
 
-    @Query("""
-            SELECT p FROM PaymentAllocation p
+    String SEARCH = """
+            SELECT new com.example.clearing.dto.PaymentAllocationView(
+                p.allocationId, p.requestId, p.bankTxnId, p.boardId, p.employerId, p.toliId,
+                p.allocatedAmount, p.allocationDate, p.allocatedBy, p.voucherId, p.sourceFileId, p.statusId,
+                p.createdAt, p.updatedAt, p.version, p.idempotencyKey, p.employerReceiptNumber, p.receiptDate)
+            FROM PaymentAllocation p
             WHERE (:requestId IS NULL OR p.requestId = :requestId)
               AND (:bankTxnId IS NULL OR p.bankTxnId = :bankTxnId)
               AND (:voucherId IS NULL OR p.voucherId = :voucherId)
               AND (:statusId IS NULL OR p.statusId = :statusId)
             ORDER BY p.allocationId DESC
-            """)
-    List<PaymentAllocation> search(Long requestId, Integer bankTxnId, Integer voucherId, Integer statusId, Pageable pageable);
+            """;
+
+    /** Projected rows; nothing enters the persistence context. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200")
+    })
+    List<PaymentAllocationView> search(Long requestId, Integer bankTxnId, Integer voucherId, Integer statusId, Pageable pageable);
+
+    /** {@link #search} without the row cap, read through a cursor; close the stream. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000")
+    })
+    Stream<PaymentAllocationView> streamSearch(Long requestId, Integer bankTxnId, Integer voucherId, Integer statusId);
+
+    /**
+     * Allocations of {@code requestIds} in allocation order, bound as one array so every
+     * batch size shares a statement and plan; loaded read-only.
+     */
+    @Query(value = """
+            SELECT * FROM clearing.payment_allocation
+            WHERE request_id = ANY(:requestIds)
+            ORDER BY allocation_id
+            """, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<PaymentAllocation> findAllByRequestIdIn(Long[] requestIds);
 }
@@ -1,23 +1,54 @@
 package com.example.clearing.repository;
 
 import com.example.clearing.domain.RequestSettlement;
+import com.example.clearing.dto.RequestSettlementView;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface RequestSettlementRepository extends JpaRepository<RequestSettlement, Long> {
 
     Optional<RequestSettlement> findByRequestId(Long requestId);
 
-    @Query("""
-            SELECT r FROM RequestSettlement r
+    String SEARCH = """
+            SELECT new com.example.clearing.dto.RequestSettlementView(
+                r.requestSettlementId, r.requestId, r.boardId, r.employerId, r.toliId, r.totalAmount,
+                r.allocatedAmount, r.remainingAmount, r.voucherId, r.statusId, r.createdAt, r.updatedAt)
+            FROM RequestSettlement r
             WHERE (:requestId IS NULL OR r.requestId = :requestId)
               AND (:boardId IS NULL OR r.boardId = :boardId)
               AND (:employerId IS NULL OR r.employerId = :employerId)
               AND (:statusId IS NULL OR r.statusId = :statusId)
             ORDER BY r.requestSettlementId DESC
-            """)
-    List<RequestSettlement> search(Long requestId, Long boardId, Long employerId, Integer statusId, Pageable pageable);
+            """;
+
+    /** Projected rows; nothing enters the persistence context. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200")
+    })
+    List<RequestSettlementView> search(Long requestId, Long boardId, Long employerId, Integer statusId, Pageable pageable);
+
+    /** {@link #search} without the row cap, read through a cursor; close the stream. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000")
+    })
+    Stream<RequestSettlementView> streamSearch(Long requestId, Long boardId, Long employerId, Integer statusId);
+
+    /**
+     * Settlements of {@code requestIds}, bound as one array so every batch size shares a
+     * statement and plan; loaded read-only.
+     */
+    @Query(value = "SELECT * FROM clearing.request_settlement WHERE request_id = ANY(:requestIds)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<RequestSettlement> findAllByRequestIdIn(Long[] requestIds);
 }
@@ -1,13 +1,19 @@
 package com.example.clearing.repository;
 
 import com.example.clearing.domain.VoucherHeader;
+import com.example.clearing.dto.VoucherHeaderView;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface VoucherHeaderRepository extends JpaRepository<VoucherHeader, Integer> {
 
@@ -15,13 +21,42 @@ public interface VoucherHeaderRepository extends JpaRepository<VoucherHeader, In
     Optional<VoucherHeader> findFirstByBoardIdAndEmployerIdAndVoucherNumber(
             Integer boardId, Integer employerId, String voucherNumber);
 
-    @Query("""
-            SELECT v FROM VoucherHeader v
+    String SEARCH = """
+            SELECT new com.example.clearing.dto.VoucherHeaderView(
+                v.voucherId, v.boardId, v.employerId, v.toliId, v.voucherNumber, v.voucherDate,
+                v.totalAmount, v.statusId, v.createdAt, v.updatedAt)
+            FROM VoucherHeader v
             WHERE (:boardId IS NULL OR v.boardId = :boardId)
               AND (:employerId IS NULL OR v.employerId = :employerId)
               AND (:voucherNumber IS NULL OR v.voucherNumber = :voucherNumber)
               AND (:statusId IS NULL OR v.statusId = :statusId)
             ORDER BY v.voucherId DESC
+            """;
+
+    /** Projected rows; nothing enters the persistence context. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200")
+    })
+    List<VoucherHeaderView> search(Integer boardId, Integer employerId, String voucherNumber, Integer statusId, Pageable pageable);
+
+    /** {@link #search} without the row cap, read through a cursor; close the stream. */
+    @Query(SEARCH)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000")
+    })
+    Stream<VoucherHeaderView> streamSearch(Integer boardId, Integer employerId, String voucherNumber, Integer statusId);
+
+    @Query("""
+            SELECT v FROM VoucherHeader v
+            WHERE v.boardId = :boardId
+              AND v.employerId = :employerId
+              AND v.voucherDate BETWEEN :fromDate AND :toDate
+              AND (:statusId IS NULL OR v.statusId = :statusId)
+            ORDER BY v.voucherDate, v.voucherId
             """)
-    List<VoucherHeader> search(Integer boardId, Integer employerId, String voucherNumber, Integer statusId, Pageable pageable);
+    List<VoucherHeader> findForPrinting(Integer boardId, Integer employerId, LocalDate fromDate, LocalDate toDate,
+            Integer statusId, Pageable pageable);
 }
@@ -1,10 +1,13 @@
 package com.example.clearing.repository;
 
 import com.example.clearing.domain.VoucherLine;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface VoucherLineRepository extends JpaRepository<VoucherLine, Integer> {
 
     List<VoucherLine> findByVoucherId(Integer voucherId);
+
+    List<VoucherLine> findByVoucherIdInOrderByVoucherIdAscLineNumberAsc(Collection<Integer> voucherIds);
 }
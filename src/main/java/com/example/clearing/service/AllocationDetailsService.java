@@ -1,14 +1,31 @@
 package com.example.clearing.service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
 import org.slf4j.Logger;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.clearing.common.aggregate.AggregateCache;
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetPage;
+import com.example.clearing.common.pagination.TotalCountResolver;
 import com.example.clearing.dao.AllocationDetailsDao;
+import com.example.clearing.dto.AggregateTotals;
 import com.example.clearing.dto.AllocationDetailsView;
 import com.shared.common.dao.TenantAccessDao;
 import com.shared.utilities.logger.LoggerFactoryProvider;
@@ -23,12 +40,31 @@ public class AllocationDetailsService {
 
     private static final Logger log = LoggerFactoryProvider.getLogger(AllocationDetailsService.class);
 
+    private static final String[] CSV_HEADER = {
+            "voucherNumber", "voucherDate", "employerReceiptNumber", "workerReceiptNumber", "receiptDate",
+            "receiptAmount", "bankTxnId", "internalRef", "txnRef", "txnAmount", "allocatedAmountFromTxn",
+            "remainingAmountOfTxn", "txnDate" };
+
+    // Cache key of an aggregates request; strings are trimmed the way the DAO binds them
+    private record AggregateFilters(Integer boardId, Integer employerId, LocalDate startDate, LocalDate endDate,
+            String employerReceiptNumber, String voucherNumber, LocalDate voucherDateStart, LocalDate voucherDateEnd,
+            LocalDate txnDateStart, LocalDate txnDateEnd, AggregateGrouping grouping) {
+    }
+
     private final AllocationDetailsDao dao;
     private final TenantAccessDao tenantAccessDao;
+    private final AggregateCache aggregateCache;
 
-    public AllocationDetailsService(AllocationDetailsDao dao, TenantAccessDao tenantAccessDao) {
+    public AllocationDetailsService(AllocationDetailsDao dao, TenantAccessDao tenantAccessDao,
+            AggregateCache aggregateCache) {
         this.dao = dao;
         this.tenantAccessDao = tenantAccessDao;
+        this.aggregateCache = aggregateCache;
+    }
+
+    /** Parses a {@code fields=} value; null means every field. */
+    public FieldSet<AllocationDetailsView> detailFields(String fields) {
+        return AllocationDetailsDao.FIELDS.select(fields);
     }
 
     /**
@@ -45,9 +81,11 @@ public class AllocationDetailsService {
      * @param txnDateStart          Optional filter
      * @param txnDateEnd            Optional filter
      * @param pageable              Pagination and sorting
-     * @return Page of AllocationDetailsView
+     * @param countStrategy         How the total is computed
+     * @param fields                From {@link #detailFields}; null reads every column
+     * @return Page of AllocationDetailsView with the count strategy actually used
      */
-    public Page<AllocationDetailsView> searchAllocationDetails(
+    public CountedPage<AllocationDetailsView> searchAllocationDetails(
             LocalDate startDate,
             LocalDate endDate,
             String employerReceiptNumber,
@@ -56,7 +94,9 @@ public class AllocationDetailsService {
             LocalDate voucherDateEnd,
             LocalDate txnDateStart,
             LocalDate txnDateEnd,
-            Pageable pageable) {
+            Pageable pageable,
+            CountStrategy countStrategy,
+            FieldSet<AllocationDetailsView> fields) {
 
         // Get tenant context
         TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
@@ -65,14 +105,164 @@ public class AllocationDetailsService {
         }
 
         log.info("Searching allocation details: startDate={}, endDate={}, employerReceiptNumber={}, " +
-                "voucherNumber={}, voucherDateRange=[{},{}], txnDateRange=[{},{}], boardId={}, employerId={}, page={}, size={}",
+                "voucherNumber={}, voucherDateRange=[{},{}], txnDateRange=[{},{}], boardId={}, employerId={}, page={}, size={}, countStrategy={}, fields={}",
                 startDate, endDate, employerReceiptNumber, voucherNumber,
                 voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
-                ta.boardId, ta.employerId, pageable.getPageNumber(), pageable.getPageSize());
+                ta.boardId, ta.employerId, pageable.getPageNumber(), pageable.getPageSize(), countStrategy,
+                fields != null ? fields.columns() : "all");
 
         return dao.searchAllocationDetails(
                 startDate, endDate, employerReceiptNumber, voucherNumber,
                 voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
-                ta.boardId, ta.employerId, pageable);
+                ta.boardId, ta.employerId, pageable, countStrategy, fields);
+    }
+
+    /**
+     * Keyset-paginated variant of {@link #searchAllocationDetails}; see
+     * {@link AllocationDetailsDao#searchAllocationDetailsKeyset}.
+     */
+    public KeysetPage<AllocationDetailsView> searchAllocationDetailsKeyset(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            Sort sort,
+            int size,
+            String cursor,
+            FieldSet<AllocationDetailsView> fields) {
+
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to query allocation details");
+        }
+
+        log.info("Keyset search of allocation details: startDate={}, endDate={}, employerReceiptNumber={}, " +
+                "voucherNumber={}, voucherDateRange=[{},{}], txnDateRange=[{},{}], boardId={}, employerId={}, size={}, hasCursor={}, fields={}",
+                startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
+                ta.boardId, ta.employerId, size, cursor != null, fields != null ? fields.columns() : "all");
+
+        return dao.searchAllocationDetailsKeyset(
+                startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
+                ta.boardId, ta.employerId, sort, size, cursor, fields);
+    }
+
+    /**
+     * Totals of the allocation details matching the filters, grouped by {@code grouping};
+     * see {@link AllocationDetailsDao#aggregateAllocationDetails}. Cached per tenant and
+     * filters by {@link AggregateCache}.
+     */
+    public AggregateTotals aggregateAllocationDetails(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            AggregateGrouping grouping) {
+
+        TenantAccessDao.TenantAccess ta = requireTenantAccess();
+        AggregateFilters filters = new AggregateFilters(ta.boardId, ta.employerId, startDate, endDate,
+                trimToNull(employerReceiptNumber), trimToNull(voucherNumber), voucherDateStart, voucherDateEnd,
+                txnDateStart, txnDateEnd, grouping);
+
+        log.info("Aggregating allocation details: startDate={}, endDate={}, employerReceiptNumber={}, " +
+                "voucherNumber={}, voucherDateRange=[{},{}], txnDateRange=[{},{}], boardId={}, employerId={}, groupBy={}",
+                startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, ta.boardId, ta.employerId,
+                grouping.paramValue());
+
+        return aggregateCache.get(TotalCountResolver.SCOPE_ALLOCATION_DETAILS, filters, endDate,
+                () -> AggregateTotals.of(grouping.paramValue(), dao.aggregateAllocationDetails(
+                        startDate, endDate, filters.employerReceiptNumber(), filters.voucherNumber(),
+                        voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
+                        ta.boardId, ta.employerId, grouping)));
+    }
+
+    /**
+     * Resolves the caller's tenant up front so an export can be rejected before any
+     * response bytes are written.
+     */
+    public TenantAccessDao.TenantAccess requireTenantAccess() {
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to query allocation details");
+        }
+        return ta;
+    }
+
+    /**
+     * Writes every matching allocation detail as CSV to {@code out} while rows are still
+     * being fetched, so heap use does not grow with the export size. The read-only
+     * transaction keeps the cursor open for the whole export.
+     *
+     * @return number of data rows written
+     */
+    public long exportAllocationDetailsCsv(
+            LocalDate startDate,
+            LocalDate endDate,
+            String employerReceiptNumber,
+            String voucherNumber,
+            LocalDate voucherDateStart,
+            LocalDate voucherDateEnd,
+            LocalDate txnDateStart,
+            LocalDate txnDateEnd,
+            TenantAccessDao.TenantAccess ta,
+            OutputStream out) throws IOException {
+
+        log.info("Exporting allocation details CSV: startDate={}, endDate={}, employerReceiptNumber={}, " +
+                "voucherNumber={}, voucherDateRange=[{},{}], txnDateRange=[{},{}], boardId={}, employerId={}",
+                startDate, endDate, employerReceiptNumber, voucherNumber,
+                voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd, ta.boardId, ta.employerId);
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(CSV_HEADER).build());
+        long rows;
+        try {
+            rows = dao.streamAllocationDetails(
+                    startDate, endDate, employerReceiptNumber, voucherNumber,
+                    voucherDateStart, voucherDateEnd, txnDateStart, txnDateEnd,
+                    ta.boardId, ta.employerId,
+                    view -> printCsvRow(printer, view));
+        } catch (UncheckedIOException ex) {
+            // Usually the client went away; surface the I/O failure rather than a data error
+            throw ex.getCause();
+        }
+        printer.flush();
+        log.info("Exported {} allocation detail rows for boardId={}, employerId={}", rows, ta.boardId,
+                ta.employerId);
+        return rows;
+    }
+
+    private static String trimToNull(String value) {
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    private void printCsvRow(CSVPrinter printer, AllocationDetailsView view) {
+        try {
+            printer.printRecord(
+                    view.getVoucherNumber(),
+                    view.getVoucherDate(),
+                    view.getEmployerReceiptNumber(),
+                    view.getWorkerReceiptNumber(),
+                    view.getReceiptDate(),
+                    view.getReceiptAmount(),
+                    view.getBankTxnId(),
+                    view.getInternalRef(),
+                    view.getTxnRef(),
+                    view.getTxnAmount(),
+                    view.getAllocatedAmountFromTxn(),
+                    view.getRemainingAmountOfTxn(),
+                    view.getTxnDate());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 }
@@ -4,13 +4,17 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.example.clearing.client.PaymentFlowClient;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.dao.ReceiptReferenceDao;
 import com.example.clearing.domain.BankTransaction;
 import com.example.clearing.domain.PaymentAllocation;
 import com.example.clearing.domain.RequestSettlement;
@@ -49,6 +53,8 @@ public class AllocationService {
     private final TenantAccessDao tenantAccessDao;
     private final SettlementService settlementService;
     private final PaymentFlowClient paymentFlowClient;
+    private final TotalCountResolver totalCountResolver;
+    private final ReceiptReferenceDao receiptReferenceDao;
     private final int statusIdAllocatedAllocation;
     private final int statusIdSettledAllocation;
     private final int statusIdAllocatedRequestSettlement;
@@ -61,7 +67,9 @@ public class AllocationService {
             StatusService statusService,
             TenantAccessDao tenantAccessDao,
             SettlementService settlementService,
-            PaymentFlowClient paymentFlowClient) {
+            PaymentFlowClient paymentFlowClient,
+            TotalCountResolver totalCountResolver,
+            ReceiptReferenceDao receiptReferenceDao) {
         this.bankTransactionRepository = bankTransactionRepository;
         this.paymentAllocationRepository = paymentAllocationRepository;
         this.requestSettlementRepository = requestSettlementRepository;
@@ -69,6 +77,8 @@ public class AllocationService {
         this.tenantAccessDao = tenantAccessDao;
         this.settlementService = settlementService;
         this.paymentFlowClient = paymentFlowClient;
+        this.totalCountResolver = totalCountResolver;
+        this.receiptReferenceDao = receiptReferenceDao;
         this.statusIdAllocatedAllocation = statusService.requireStatusId(STATUS_TYPE_ALLOCATION, STATUS_CODE_ALLOCATED);
         this.statusIdSettledAllocation = statusService.requireStatusId(STATUS_TYPE_ALLOCATION, STATUS_CODE_SETTLED);
         this.statusIdAllocatedRequestSettlement = statusService.requireStatusId(
@@ -79,7 +89,10 @@ public class AllocationService {
 
     @Transactional
     public AllocationResponse createAllocation(AllocationRequest request) {
-        return processAllocation(request);
+        AllocationResponse response = processAllocation(request);
+        // Allocation details show the receipt's worker number from clearing's own copy
+        receiptReferenceDao.refresh(List.of(request.getRequestId()));
+        return response;
     }
 
     @Transactional
@@ -88,9 +101,13 @@ public class AllocationService {
             throw new IllegalArgumentException("At least one allocation must be provided");
         }
         List<AllocationResponse> responses = new ArrayList<>(requests.size());
+        Set<Long> requestIds = new LinkedHashSet<>();
         for (AllocationRequest request : requests) {
             responses.add(processAllocation(request));
+            requestIds.add(request.getRequestId());
         }
+        // One copy of the batch's worker receipt numbers rather than one per allocation
+        receiptReferenceDao.refresh(requestIds);
         return responses;
     }
 
@@ -178,6 +195,9 @@ public class AllocationService {
         allocation.setToliId(tenantAccess.toliId);
 
         PaymentAllocation saved = paymentAllocationRepository.save(allocation);
+        // Status and amounts of the bank transaction changed, and a new allocation row exists
+        totalCountResolver.invalidate(TotalCountResolver.SCOPE_BANK_TRANSACTIONS);
+        totalCountResolver.invalidate(TotalCountResolver.SCOPE_ALLOCATION_DETAILS);
         RequestSettlement rs = updateRequestSettlement(request, amount, tenantAccess, now);
         syncPaymentFlowStatus(rs);
         autoFinalizeIfSettled(rs, tenantAccess);
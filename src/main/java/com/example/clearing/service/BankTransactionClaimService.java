@@ -1,17 +1,33 @@
 package com.example.clearing.service;
 
+import static com.example.clearing.jooq.clearing.Tables.BANK_TRANSACTION;
+import static com.example.clearing.jooq.reconciliation.Tables.OPEN_RECON_ITEM;
+import static com.example.clearing.jooq.reconciliation.Tables.STATEMENT_TRANSACTION;
+import static com.example.clearing.jooq.reconciliation.Tables.VAN_TRANSACTION;
+
 import java.math.BigDecimal;
-import java.sql.Date;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Records;
+import org.jooq.impl.DSL;
 import org.springframework.stereotype.Service;
 
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.jooq.clearing.tables.BankTransaction;
+import com.example.clearing.jooq.reconciliation.tables.OpenReconItem;
+import com.example.clearing.jooq.reconciliation.tables.StatementTransaction;
+import com.example.clearing.jooq.reconciliation.tables.VanTransaction;
 import com.example.clearing.model.BankTransactionClaimResult;
 import com.shared.common.dao.TenantAccessDao;
 
@@ -23,58 +39,158 @@ public class BankTransactionClaimService {
     private static final String SOURCE_SYSTEM = "RECON";
     private static final String STATUS_TYPE_BANK_TXN = "bank_transaction";
     private static final int STATUS_ID_CLAIMED = 1;
+    private static final List<String> STATEMENT_TYPES = List.of("MT940", "CAMT53");
+
+    private static final StatementTransaction ST = STATEMENT_TRANSACTION;
+    private static final VanTransaction VT = VAN_TRANSACTION;
+    private static final OpenReconItem O = OPEN_RECON_ITEM;
+    private static final BankTransaction BT = BANK_TRANSACTION;
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DSLContext dsl;
     private final StatusService statusService;
     private final TenantAccessDao tenantAccessDao;
+    private final TotalCountResolver totalCountResolver;
+    private final BankTransactionSearchCache searchCache;
 
     public BankTransactionClaimService(
-            NamedParameterJdbcTemplate jdbcTemplate,
+            DSLContext dsl,
             StatusService statusService,
-            TenantAccessDao tenantAccessDao) {
-        this.jdbcTemplate = jdbcTemplate;
+            TenantAccessDao tenantAccessDao,
+            TotalCountResolver totalCountResolver,
+            BankTransactionSearchCache searchCache) {
+        this.dsl = dsl;
         this.statusService = statusService;
         this.tenantAccessDao = tenantAccessDao;
+        this.totalCountResolver = totalCountResolver;
+        this.searchCache = searchCache;
+    }
+
+    /** One reconciliation transaction to claim into clearing.bank_transaction. */
+    public record Claim(String type, Long sourceTxnId, String claimedBy, String internalRef) {
+    }
+
+    /**
+     * Outcome of a claim request: the claims that committed, in request order, and the
+     * error of the claim that stopped the request, or null when every claim committed.
+     */
+    public record ClaimBatch(List<BankTransactionClaimResult> results, RuntimeException failure) {
     }
 
     @Transactional
     public BankTransactionClaimResult claimFromRecon(String type, Long sourceTxnId, String claimedBy,
             String internalRef) {
-        String normalizedType = normalizeType(type);
+        ClaimBatch batch = claimFromRecon(List.of(new Claim(type, sourceTxnId, claimedBy, internalRef)));
+        if (batch.failure() != null) {
+            throw batch.failure();
+        }
+        return batch.results().get(0);
+    }
+
+    /**
+     * Claims {@code claims} in order up to the first one that fails, as claiming them one
+     * at a time would: the claims before it commit, and it and every later claim are left
+     * untouched. A claim fails when it is invalid, its source is unknown or already mapped,
+     * or an earlier claim in the request took the same source.
+     *
+     * <p>The failing claim is found up front from one locking read per source table, so
+     * the claims that commit still take one statement per step for the whole batch: the
+     * is_mapped flip, the worklist delete and a JDBC batch of upserts.
+     */
+    @Transactional
+    public ClaimBatch claimFromRecon(List<Claim> claims) {
         TenantAccessDao.TenantAccess tenantAccess = requireTenantAccess();
-        SourceTxnRow sourceTxn = fetchAndLockSource(normalizedType, sourceTxnId);
-        if (Boolean.TRUE.equals(sourceTxn.isMapped)) {
-            throw new IllegalStateException("Transaction already mapped/claimed: " + sourceTxnId);
+        List<Claim> normalizedClaims = new ArrayList<>(claims.size());
+        RuntimeException failure = null;
+        for (Claim claim : claims) {
+            try {
+                normalizedClaims.add(normalize(claim));
+            } catch (IllegalArgumentException ex) {
+                failure = ex;
+                break;
+            }
         }
 
-        String resolvedInternalRef = resolveInternalRef(internalRef, sourceTxn.txnRef);
+        Map<Long, SourceTxnRow> statementRows = lockStatementTxns(sourceIds(normalizedClaims, true));
+        Map<Long, SourceTxnRow> vanRows = lockVanTxns(sourceIds(normalizedClaims, false));
+
+        Map<Long, Claim> statementClaims = new LinkedHashMap<>();
+        Map<Long, Claim> vanClaims = new LinkedHashMap<>();
+        List<Claim> accepted = new ArrayList<>(normalizedClaims.size());
+        for (Claim claim : normalizedClaims) {
+            boolean statement = isStatementType(claim.type());
+            SourceTxnRow row = (statement ? statementRows : vanRows).get(claim.sourceTxnId());
+            if (row == null) {
+                failure = new IllegalArgumentException(
+                        (statement ? "statement_transaction" : "van_transaction") + " not found: "
+                                + claim.sourceTxnId());
+                break;
+            }
+            Map<Long, Claim> target = statement ? statementClaims : vanClaims;
+            // A source claimed earlier in this request is mapped by the time this claim runs
+            if (row.isMapped() || target.containsKey(claim.sourceTxnId())) {
+                failure = new IllegalStateException("Transaction already mapped/claimed: " + claim.sourceTxnId());
+                break;
+            }
+            target.put(claim.sourceTxnId(), claim);
+            accepted.add(claim);
+        }
+        if (accepted.isEmpty()) {
+            return new ClaimBatch(List.of(), failure);
+        }
 
         OffsetDateTime now = OffsetDateTime.now();
-        markSourceMapped(normalizedType, sourceTxnId);
-        Integer bankTxnId = upsertClearingBankTxn(
-                normalizedType,
-                sourceTxn,
-                claimedBy,
-                now,
-                tenantAccess,
-                sourceTxn.amount,
-                resolvedInternalRef);
+        List<BankTransactionSearchCache.SourceRow> removed = new ArrayList<>();
+        // Worklist rows first: the is_mapped update trigger would otherwise delete them
+        // without handing them back for the search cache
+        if (!statementClaims.isEmpty()) {
+            removed.addAll(removeFromWorklist(STATEMENT_TYPES, statementClaims.keySet()));
+            markStatementTxnsMapped(statementClaims.keySet());
+        }
+        if (!vanClaims.isEmpty()) {
+            removed.addAll(removeFromWorklist(List.of("VAN"), vanClaims.keySet()));
+            markVanTxnsMapped(vanClaims.keySet());
+        }
+        // Same transaction as the is_mapped flip, so the worklist never shows a claimed row
+        searchCache.sourceRowsChanged(removed);
 
-        BankTransactionClaimResult result = new BankTransactionClaimResult();
-        result.setBankTxnId(bankTxnId);
-        result.setTxnType(normalizedType);
-        result.setSourceSystem(SOURCE_SYSTEM);
-        result.setSourceTxnId(sourceTxnId);
-        result.setBankAccountId(sourceTxn.bankAccountId);
-        result.setTxnRef(sourceTxn.txnRef);
-        result.setInternalRef(resolvedInternalRef);
-        result.setTxnDate(sourceTxn.txnDate);
-        result.setAmount(sourceTxn.amount);
-        result.setDrCrFlag(sourceTxn.drCrFlag);
-        result.setDescription(sourceTxn.description);
-        result.setClaimedBy(claimedBy);
-        result.setClaimedAt(now);
-        return result;
+        List<ClaimedTxn> claimed = new ArrayList<>(accepted.size());
+        statementClaims.forEach((id, claim) -> claimed.add(claimed(claim, statementRows.get(id))));
+        vanClaims.forEach((id, claim) -> claimed.add(claimed(claim, vanRows.get(id))));
+        Map<String, Integer> bankTxnIds = upsertClearingBankTxns(claimed, now, tenantAccess);
+        totalCountResolver.invalidate(TotalCountResolver.SCOPE_BANK_TRANSACTIONS);
+
+        Map<Claim, BankTransactionClaimResult> results = new HashMap<>();
+        for (ClaimedTxn txn : claimed) {
+            Integer bankTxnId = bankTxnIds.get(String.valueOf(txn.row().sourceTxnId()));
+            if (bankTxnId == null) {
+                throw new IllegalStateException(
+                        "Failed to upsert clearing.bank_transaction for source " + txn.row().sourceTxnId());
+            }
+            results.put(txn.claim(), toResult(txn, bankTxnId, now));
+        }
+        return new ClaimBatch(accepted.stream().map(results::get).toList(), failure);
+    }
+
+    private Claim normalize(Claim claim) {
+        String normalizedType = normalizeType(claim.type());
+        if (claim.sourceTxnId() == null) {
+            throw new IllegalArgumentException("sourceTxnId is required");
+        }
+        if (!isStatementType(normalizedType) && !"VAN".equals(normalizedType)) {
+            throw new IllegalArgumentException("Unsupported transaction type: " + normalizedType);
+        }
+        return new Claim(normalizedType, claim.sourceTxnId(), claim.claimedBy(), claim.internalRef());
+    }
+
+    private boolean isStatementType(String normalizedType) {
+        return STATEMENT_TYPES.contains(normalizedType);
+    }
+
+    private Set<Long> sourceIds(List<Claim> claims, boolean statement) {
+        return claims.stream()
+                .filter(claim -> isStatementType(claim.type()) == statement)
+                .map(Claim::sourceTxnId)
+                .collect(Collectors.toCollection(TreeSet::new));
     }
 
     private TenantAccessDao.TenantAccess requireTenantAccess() {
@@ -85,207 +201,192 @@ public class BankTransactionClaimService {
         return tenantAccess;
     }
 
-    private SourceTxnRow fetchAndLockSource(String type, Long sourceTxnId) {
-        if (sourceTxnId == null) {
-            throw new IllegalArgumentException("sourceTxnId is required");
-        }
-        if ("MT940".equals(type) || "CAMT53".equals(type)) {
-            return fetchStatementTxn(sourceTxnId);
-        }
-        if ("VAN".equals(type)) {
-            return fetchVanTxn(sourceTxnId);
+    // Rows are locked in id order, so concurrent batches over the same rows cannot deadlock
+    private Map<Long, SourceTxnRow> lockStatementTxns(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
         }
-        throw new IllegalArgumentException("Unsupported transaction type: " + type);
+        List<SourceTxnRow> rows = dsl
+                .select(ST.ID,
+                        ST.STATEMENT_FILE_ID.cast(Long.class),
+                        ST.BANK_REFERENCE,
+                        ST.VALUE_DATE,
+                        ST.AMOUNT,
+                        ST.DC,
+                        ST.NARRATIVE,
+                        DSL.coalesce(ST.IS_MAPPED, DSL.inline(false)))
+                .from(ST)
+                .where(ST.ID.in(ids))
+                .orderBy(ST.ID)
+                .forUpdate()
+                .fetch(Records.mapping(SourceTxnRow::new));
+        return byId(rows);
     }
 
-    private SourceTxnRow fetchStatementTxn(Long id) {
-        String sql = """
-                SELECT id AS source_txn_id,
-                       statement_file_id::bigint AS bank_account_id,
-                       bank_reference AS txn_ref,
-                       value_date AS txn_date,
-                       amount,
-                       dc AS dr_cr_flag,
-                       narrative AS description,
-                       COALESCE(is_mapped, FALSE) AS is_mapped
-                  FROM reconciliation.statement_transaction
-                 WHERE id = :id
-                 FOR UPDATE
-                """;
-        try {
-            return jdbcTemplate.queryForObject(
-                    sql,
-                    Map.of("id", id),
-                    (rs, rowNum) -> {
-                        SourceTxnRow row = new SourceTxnRow();
-                        row.sourceTxnId = rs.getLong("source_txn_id");
-                        row.bankAccountId = rs.getLong("bank_account_id");
-                        row.txnRef = rs.getString("txn_ref");
-                        Date txnDate = rs.getDate("txn_date");
-                        row.txnDate = txnDate != null ? txnDate.toLocalDate() : null;
-                        row.amount = rs.getBigDecimal("amount");
-                        row.drCrFlag = rs.getString("dr_cr_flag");
-                        row.description = rs.getString("description");
-                        row.isMapped = rs.getBoolean("is_mapped");
-                        return row;
-                    });
-        } catch (EmptyResultDataAccessException ex) {
-            throw new IllegalArgumentException("statement_transaction not found: " + id);
+    private Map<Long, SourceTxnRow> lockVanTxns(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
         }
+        List<SourceTxnRow> rows = dsl
+                .select(VT.ID,
+                        VT.IMPORT_RUN_ID,
+                        VT.TRANSACTION_REFERENCE_NUMBER,
+                        DSL.coalesce(VT.VALUE_DATE, VT.TRANSACTION_DATE),
+                        VT.AMOUNT,
+                        DSL.inline("CR"),
+                        VT.PAYMENT_DESCRIPTION_NARRATION,
+                        DSL.coalesce(VT.IS_MAPPED, DSL.inline(false)))
+                .from(VT)
+                .where(VT.ID.in(ids))
+                .orderBy(VT.ID)
+                .forUpdate()
+                .fetch(Records.mapping(SourceTxnRow::new));
+        return byId(rows);
     }
 
-    private SourceTxnRow fetchVanTxn(Long id) {
-        String sql = """
-                SELECT id AS source_txn_id,
-                       import_run_id::bigint AS bank_account_id,
-                       transaction_reference_number AS txn_ref,
-                       COALESCE(value_date, transaction_date) AS txn_date,
-                       amount,
-                       'CR' AS dr_cr_flag,
-                       payment_description_narration AS description,
-                       COALESCE(is_mapped, FALSE) AS is_mapped
-                  FROM reconciliation.van_transaction
-                 WHERE id = :id
-                 FOR UPDATE
-                """;
-        try {
-            return jdbcTemplate.queryForObject(
-                    sql,
-                    Map.of("id", id),
-                    (rs, rowNum) -> {
-                        SourceTxnRow row = new SourceTxnRow();
-                        row.sourceTxnId = rs.getLong("source_txn_id");
-                        row.bankAccountId = rs.getLong("bank_account_id");
-                        row.txnRef = rs.getString("txn_ref");
-                        Date txnDate = rs.getDate("txn_date");
-                        row.txnDate = txnDate != null ? txnDate.toLocalDate() : null;
-                        row.amount = rs.getBigDecimal("amount");
-                        row.drCrFlag = rs.getString("dr_cr_flag");
-                        row.description = rs.getString("description");
-                        row.isMapped = rs.getBoolean("is_mapped");
-                        return row;
-                    });
-        } catch (EmptyResultDataAccessException ex) {
-            throw new IllegalArgumentException("van_transaction not found: " + id);
-        }
+    private Map<Long, SourceTxnRow> byId(List<SourceTxnRow> rows) {
+        return rows.stream().collect(Collectors.toMap(SourceTxnRow::sourceTxnId, row -> row));
+    }
+
+    private void markStatementTxnsMapped(Set<Long> ids) {
+        int updated = dsl.update(ST)
+                .set(ST.IS_MAPPED, true)
+                .where(ST.ID.in(ids))
+                .and(DSL.coalesce(ST.IS_MAPPED, DSL.inline(false)).isFalse())
+                .execute();
+        requireAllUpdated(updated, ids);
     }
 
-    private void markSourceMapped(String type, Long id) {
-        String table = "MT940".equals(type) || "CAMT53".equals(type)
-                ? "reconciliation.statement_transaction"
-                : "reconciliation.van_transaction";
-        String sql = "UPDATE %s SET is_mapped = TRUE WHERE id = :id AND COALESCE(is_mapped, FALSE) = FALSE"
-                .formatted(table);
-        int updated = jdbcTemplate.update(
-                sql,
-                Map.of("id", id));
-        if (updated == 0) {
-            throw new IllegalStateException("Transaction already mapped/claimed: " + id);
+    private void markVanTxnsMapped(Set<Long> ids) {
+        int updated = dsl.update(VT)
+                .set(VT.IS_MAPPED, true)
+                .where(VT.ID.in(ids))
+                .and(DSL.coalesce(VT.IS_MAPPED, DSL.inline(false)).isFalse())
+                .execute();
+        requireAllUpdated(updated, ids);
+    }
+
+    private void requireAllUpdated(int updated, Set<Long> ids) {
+        // The rows are locked and were checked unmapped, so this only trips if the lock was lost
+        if (updated != ids.size()) {
+            throw new IllegalStateException("Transaction already mapped/claimed: " + ids);
         }
     }
 
-    private Integer upsertClearingBankTxn(
-            String type,
-            SourceTxnRow row,
-            String claimedBy,
-            OffsetDateTime claimedAt,
-            TenantAccessDao.TenantAccess tenantAccess,
-            BigDecimal remainingAmount,
-            String internalRef) {
-        String sql = """
-                INSERT INTO clearing.bank_transaction (
-                    bank_account_id,
-                    txn_ref,
-                    internal_ref,
-                    txn_date,
-                    amount,
-                    dr_cr_flag,
-                    description,
-                    allocated_amount,
-                    remaining_amount,
-                    status,
-                    status_id,
-                    board_id,
-                    employer_id,
-                    toli_id,
-                    created_at,
-                    updated_at,
-                    txn_type,
-                    source_system,
-                    source_txn_id,
-                    source_ref,
-                    claimed_by,
-                    claimed_at,
-                    is_settled
-                )
-                VALUES (
-                    :bankAccountId,
-                    :txnRef,
-                    :internalRef,
-                    :txnDate,
-                    :amount,
-                    :drCrFlag,
-                    :description,
-                    0,
-                    :remainingAmount,
-                    1,
-                    :statusId,
-                    :boardId,
-                    :employerId,
-                    :toliId,
-                    :claimedAt,
-                    :claimedAt,
-                    :txnType,
-                    :sourceSystem,
-                    :sourceTxnId,
-                    :sourceRef,
-                    :claimedBy,
-                    :claimedAt,
-                    FALSE
-                )
-                ON CONFLICT (source_system, source_txn_id)
-                DO UPDATE SET
-                    claimed_by = EXCLUDED.claimed_by,
-                    claimed_at = EXCLUDED.claimed_at,
-                    description = COALESCE(EXCLUDED.description, clearing.bank_transaction.description),
-                    internal_ref = COALESCE(EXCLUDED.internal_ref, clearing.bank_transaction.internal_ref),
-                    txn_ref = COALESCE(EXCLUDED.txn_ref, clearing.bank_transaction.txn_ref),
-                    txn_date = COALESCE(EXCLUDED.txn_date, clearing.bank_transaction.txn_date),
-                    amount = COALESCE(EXCLUDED.amount, clearing.bank_transaction.amount),
-                    dr_cr_flag = COALESCE(EXCLUDED.dr_cr_flag, clearing.bank_transaction.dr_cr_flag),
-                    status_id = COALESCE(EXCLUDED.status_id, clearing.bank_transaction.status_id),
-                    board_id = COALESCE(EXCLUDED.board_id, clearing.bank_transaction.board_id),
-                    employer_id = COALESCE(EXCLUDED.employer_id, clearing.bank_transaction.employer_id),
-                    toli_id = COALESCE(EXCLUDED.toli_id, clearing.bank_transaction.toli_id),
-                    updated_at = EXCLUDED.updated_at
-                RETURNING bank_txn_id;
-                """;
-
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("bankAccountId", row.bankAccountId)
-                .addValue("txnRef", row.txnRef)
-                .addValue("internalRef", internalRef)
-                .addValue("txnDate", row.txnDate)
-                .addValue("amount", row.amount)
-                .addValue("drCrFlag", row.drCrFlag)
-                .addValue("description", row.description)
-                .addValue("remainingAmount", remainingAmount != null ? remainingAmount : row.amount)
-                .addValue("claimedAt", claimedAt)
-                .addValue("txnType", type)
-                .addValue("sourceSystem", SOURCE_SYSTEM)
-                .addValue("sourceTxnId", row.sourceTxnId)
-                .addValue("sourceRef", row.txnRef)
-                .addValue("claimedBy", claimedBy)
-                .addValue("statusId", STATUS_ID_CLAIMED)
-                .addValue("boardId", tenantAccess.boardId)
-                .addValue("employerId", tenantAccess.employerId)
-                .addValue("toliId", tenantAccess.toliId);
-
-        List<Integer> ids = jdbcTemplate.query(sql, params, (rs, rowNum) -> rs.getInt("bank_txn_id"));
-        if (ids.isEmpty()) {
-            throw new IllegalStateException("Failed to upsert clearing.bank_transaction for source " + row.sourceTxnId);
+    private List<BankTransactionSearchCache.SourceRow> removeFromWorklist(List<String> types,
+            Set<Long> ids) {
+        return dsl.deleteFrom(O)
+                .where(O.TYPE.in(types))
+                .and(O.SOURCE_TXN_ID.in(ids))
+                .returningResult(O.BANK_ACCOUNT_ID, O.BANK_ACCOUNT_NUMBER, O.TXN_REF, O.TXN_DATE, O.AMOUNT,
+                        O.DR_CR_FLAG)
+                .fetch(Records.mapping(BankTransactionSearchCache.SourceRow::new));
+    }
+
+    /**
+     * Upserts every claimed transaction in one JDBC batch.
+     *
+     * @return bank_txn_id by source_txn_id
+     */
+    private Map<String, Integer> upsertClearingBankTxns(List<ClaimedTxn> claimed, OffsetDateTime claimedAt,
+            TenantAccessDao.TenantAccess tenantAccess) {
+        BatchBindStep batch = dsl.batch(dsl.insertInto(BT)
+                .set(BT.BANK_ACCOUNT_ID, DSL.param("bankAccountId", BT.BANK_ACCOUNT_ID))
+                .set(BT.TXN_REF, DSL.param("txnRef", BT.TXN_REF))
+                .set(BT.INTERNAL_REF, DSL.param("internalRef", BT.INTERNAL_REF))
+                .set(BT.TXN_DATE, DSL.param("txnDate", BT.TXN_DATE))
+                .set(BT.AMOUNT, DSL.param("amount", BT.AMOUNT))
+                .set(BT.DR_CR_FLAG, DSL.param("drCrFlag", BT.DR_CR_FLAG))
+                .set(BT.DESCRIPTION, DSL.param("description", BT.DESCRIPTION))
+                .set(BT.ALLOCATED_AMOUNT, DSL.inline(BigDecimal.ZERO))
+                .set(BT.REMAINING_AMOUNT, DSL.param("remainingAmount", BT.REMAINING_AMOUNT))
+                .set(BT.STATUS, DSL.inline("1"))
+                .set(BT.STATUS_ID, DSL.param("statusId", BT.STATUS_ID))
+                .set(BT.BOARD_ID, DSL.param("boardId", BT.BOARD_ID))
+                .set(BT.EMPLOYER_ID, DSL.param("employerId", BT.EMPLOYER_ID))
+                .set(BT.TOLI_ID, DSL.param("toliId", BT.TOLI_ID))
+                .set(BT.CREATED_AT, DSL.param("claimedAt", BT.CREATED_AT))
+                .set(BT.UPDATED_AT, DSL.param("claimedAt", BT.UPDATED_AT))
+                .set(BT.TXN_TYPE, DSL.param("txnType", BT.TXN_TYPE))
+                .set(BT.SOURCE_SYSTEM, DSL.param("sourceSystem", BT.SOURCE_SYSTEM))
+                .set(BT.SOURCE_TXN_ID, DSL.param("sourceTxnId", BT.SOURCE_TXN_ID))
+                .set(BT.SOURCE_REF, DSL.param("sourceRef", BT.SOURCE_REF))
+                .set(BT.CLAIMED_BY, DSL.param("claimedBy", BT.CLAIMED_BY))
+                .set(BT.CLAIMED_AT, DSL.param("claimedAt", BT.CLAIMED_AT))
+                .set(BT.IS_SETTLED, DSL.inline(false))
+                .onConflict(BT.SOURCE_SYSTEM, BT.SOURCE_TXN_ID)
+                .doUpdate()
+                .set(BT.CLAIMED_BY, DSL.excluded(BT.CLAIMED_BY))
+                .set(BT.CLAIMED_AT, DSL.excluded(BT.CLAIMED_AT))
+                .set(BT.DESCRIPTION, DSL.coalesce(DSL.excluded(BT.DESCRIPTION), BT.DESCRIPTION))
+                .set(BT.INTERNAL_REF, DSL.coalesce(DSL.excluded(BT.INTERNAL_REF), BT.INTERNAL_REF))
+                .set(BT.TXN_REF, DSL.coalesce(DSL.excluded(BT.TXN_REF), BT.TXN_REF))
+                .set(BT.TXN_DATE, DSL.coalesce(DSL.excluded(BT.TXN_DATE), BT.TXN_DATE))
+                .set(BT.AMOUNT, DSL.coalesce(DSL.excluded(BT.AMOUNT), BT.AMOUNT))
+                .set(BT.DR_CR_FLAG, DSL.coalesce(DSL.excluded(BT.DR_CR_FLAG), BT.DR_CR_FLAG))
+                .set(BT.STATUS_ID, DSL.coalesce(DSL.excluded(BT.STATUS_ID), BT.STATUS_ID))
+                .set(BT.BOARD_ID, DSL.coalesce(DSL.excluded(BT.BOARD_ID), BT.BOARD_ID))
+                .set(BT.EMPLOYER_ID, DSL.coalesce(DSL.excluded(BT.EMPLOYER_ID), BT.EMPLOYER_ID))
+                .set(BT.TOLI_ID, DSL.coalesce(DSL.excluded(BT.TOLI_ID), BT.TOLI_ID))
+                .set(BT.UPDATED_AT, DSL.excluded(BT.UPDATED_AT)));
+
+        List<String> sourceTxnIds = new ArrayList<>(claimed.size());
+        for (ClaimedTxn txn : claimed) {
+            SourceTxnRow row = txn.row();
+            String sourceTxnId = String.valueOf(row.sourceTxnId());
+            sourceTxnIds.add(sourceTxnId);
+            Map<String, Object> params = new HashMap<>();
+            params.put("bankAccountId", row.bankAccountId());
+            params.put("txnRef", row.txnRef());
+            params.put("internalRef", txn.internalRef());
+            params.put("txnDate", row.txnDate());
+            params.put("amount", row.amount());
+            params.put("drCrFlag", row.drCrFlag());
+            params.put("description", row.description());
+            params.put("remainingAmount", row.amount());
+            params.put("claimedAt", claimedAt);
+            params.put("txnType", txn.claim().type());
+            params.put("sourceSystem", SOURCE_SYSTEM);
+            params.put("sourceTxnId", sourceTxnId);
+            params.put("sourceRef", row.txnRef());
+            params.put("claimedBy", txn.claim().claimedBy());
+            params.put("statusId", STATUS_ID_CLAIMED);
+            params.put("boardId", tenantAccess.boardId);
+            params.put("employerId", tenantAccess.employerId);
+            params.put("toliId", tenantAccess.toliId);
+            batch.bind(params);
         }
-        return ids.get(0);
+        batch.execute();
+
+        // A JDBC batch returns no rows, so read the ids back in one query
+        return dsl.select(BT.SOURCE_TXN_ID, BT.BANK_TXN_ID)
+                .from(BT)
+                .where(BT.SOURCE_SYSTEM.eq(SOURCE_SYSTEM))
+                .and(BT.SOURCE_TXN_ID.in(sourceTxnIds))
+                .fetchMap(BT.SOURCE_TXN_ID, BT.BANK_TXN_ID);
+    }
+
+    private ClaimedTxn claimed(Claim claim, SourceTxnRow row) {
+        return new ClaimedTxn(claim, row, resolveInternalRef(claim.internalRef(), row.txnRef()));
+    }
+
+    private BankTransactionClaimResult toResult(ClaimedTxn txn, Integer bankTxnId, OffsetDateTime claimedAt) {
+        SourceTxnRow row = txn.row();
+        BankTransactionClaimResult result = new BankTransactionClaimResult();
+        result.setBankTxnId(bankTxnId);
+        result.setTxnType(txn.claim().type());
+        result.setSourceSystem(SOURCE_SYSTEM);
+        result.setSourceTxnId(row.sourceTxnId());
+        result.setBankAccountId(row.bankAccountId());
+        result.setTxnRef(row.txnRef());
+        result.setInternalRef(txn.internalRef());
+        result.setTxnDate(row.txnDate());
+        result.setAmount(row.amount());
+        result.setDrCrFlag(row.drCrFlag());
+        result.setDescription(row.description());
+        result.setClaimedBy(txn.claim().claimedBy());
+        result.setClaimedAt(claimedAt);
+        return result;
     }
 
     private String normalizeType(String type) {
@@ -309,14 +410,10 @@ public class BankTransactionClaimService {
         return drCrFlag.trim().toUpperCase();
     }
 
-    private static class SourceTxnRow {
-        Long sourceTxnId;
-        Long bankAccountId;
-        String txnRef;
-        LocalDate txnDate;
-        BigDecimal amount;
-        String drCrFlag;
-        String description;
-        Boolean isMapped;
+    private record SourceTxnRow(Long sourceTxnId, Long bankAccountId, String txnRef, LocalDate txnDate,
+            BigDecimal amount, String drCrFlag, String description, boolean isMapped) {
+    }
+
+    private record ClaimedTxn(Claim claim, SourceTxnRow row, String internalRef) {
     }
 }
@@ -0,0 +1,417 @@
+package com.example.clearing.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.clearing.common.dedupe.TransactionFingerprint;
+import com.example.clearing.model.BankTransactionView;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Detects the same credit arriving more than once, whether re-delivered in a
+ * statement or present in both the statement and VAN feeds. Fingerprints are held in
+ * an exact index per (account number, month) partition, so candidates are checked in
+ * memory without touching the database. Partitions are loaded on a small bounded pool
+ * so the VAN intake flusher and search requests never wait out a load one partition at
+ * a time.
+ *
+ * <p>The account is the {@code reconciliation.bank_account.account_no} the view's
+ * {@code bank_account_id} resolves to, as on the open reconciliation worklist; the id
+ * itself is a statement file id for statement rows and an import run id for VAN rows,
+ * so it cannot be compared across feeds.
+ */
+@Service
+public class BankTransactionDedupeService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionDedupeService.class);
+
+    private static final String PARTITION_SQL = """
+            SELECT v.type,
+                   v.source_txn_id,
+                   v.txn_ref,
+                   v.txn_date,
+                   v.amount
+              FROM reconciliation.vw_all_bank_transactions v
+              JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+             WHERE ba.account_no = :accountNumber
+               AND v.txn_date >= :monthStart
+               AND v.txn_date < :nextMonthStart
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final long partitionTtlNanos;
+    private final long searchWaitMillis;
+    private final ThreadPoolExecutor loaderPool;
+    // Both guarded by the partitions lock
+    private final Map<PartitionKey, Partition> partitions;
+    private final Map<PartitionKey, CompletableFuture<Partition>> warming = new HashMap<>();
+
+    public BankTransactionDedupeService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            @Value("${clearing.dedupe.max-partitions:2000}") int maxPartitions,
+            @Value("${clearing.dedupe.partition-ttl-minutes:10}") long partitionTtlMinutes,
+            @Value("${clearing.dedupe.loader-threads:2}") int loaderThreads,
+            @Value("${clearing.dedupe.loader-queue-capacity:500}") int loaderQueueCapacity,
+            @Value("${clearing.dedupe.search-wait-ms:250}") long searchWaitMillis) {
+        if (maxPartitions < 1 || loaderThreads < 1 || loaderQueueCapacity < 1 || searchWaitMillis < 0) {
+            throw new IllegalArgumentException("Invalid clearing.dedupe configuration");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionTtlNanos = TimeUnit.MINUTES.toNanos(partitionTtlMinutes);
+        this.searchWaitMillis = searchWaitMillis;
+        this.partitions = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PartitionKey, Partition> eldest) {
+                return size() > maxPartitions;
+            }
+        };
+        AtomicInteger threadCount = new AtomicInteger();
+        // Rejected work is dropped by the callers: a skipped warm-up is retried by the next lookup
+        this.loaderPool = new ThreadPoolExecutor(loaderThreads, loaderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(loaderQueueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "dedupe-loader-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        loaderPool.shutdownNow();
+    }
+
+    /**
+     * Returns the other source rows sharing the candidate's fingerprint, excluding
+     * the candidate itself. Loads the partition on the calling thread when it is not in
+     * memory or has expired.
+     */
+    public List<SourceRef> findDuplicates(TransactionFingerprint fingerprint, SourceRef self) {
+        Partition partition = partitionFor(keyOf(fingerprint));
+        synchronized (partition) {
+            return partition.others(fingerprint, self);
+        }
+    }
+
+    /**
+     * Records a newly imported source row so later candidates see it without a
+     * partition reload.
+     */
+    public void register(TransactionFingerprint fingerprint, SourceRef ref) {
+        PartitionKey key = keyOf(fingerprint);
+        partitionFor(key);
+        synchronized (partitions) {
+            // Under the map lock so a reload replacing the partition cannot drop the row
+            Partition partition = partitions.get(key);
+            if (partition != null) {
+                synchronized (partition) {
+                    partition.register(fingerprint, ref);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a newly imported row and returns the other rows sharing its fingerprint,
+     * without querying the database on the calling thread. When the row's partition is
+     * not in memory yet this returns null, and the check and registration run on the
+     * loader pool, which logs a duplicate it finds. An expired partition is still
+     * answered from and reloaded in the background.
+     */
+    public List<SourceRef> checkAndRegister(TransactionFingerprint fingerprint, SourceRef self) {
+        PartitionKey key = keyOf(fingerprint);
+        List<SourceRef> others = null;
+        boolean stale = false;
+        synchronized (partitions) {
+            Partition partition = partitions.get(key);
+            if (partition != null) {
+                synchronized (partition) {
+                    others = partition.others(fingerprint, self);
+                    partition.register(fingerprint, self);
+                }
+                stale = !partition.isFresh(partitionTtlNanos);
+            }
+        }
+        if (others != null) {
+            if (stale) {
+                warm(key);
+            }
+            return others;
+        }
+        try {
+            loaderPool.execute(() -> {
+                try {
+                    List<SourceRef> duplicates = findDuplicates(fingerprint, self);
+                    register(fingerprint, self);
+                    if (!duplicates.isEmpty()) {
+                        log.warn("{} looks like a duplicate of {}", self, duplicates);
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Duplicate check failed for {}", self, ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.warn("Dedupe loader is saturated; skipping duplicate check for {}", self);
+        }
+        return null;
+    }
+
+    /**
+     * Marks search results that look like a cross-source or re-imported duplicate so
+     * the claim screen can warn before a clerk claims the same money twice. Partitions
+     * that are not in memory are loaded in parallel on the loader pool and waited for
+     * up to {@code search-wait-ms}; rows whose partition is still loading are left
+     * unmarked and are marked by a later search.
+     */
+    public void flagDuplicates(List<BankTransactionView> views) {
+        Map<PartitionKey, Partition> ready = new HashMap<>();
+        Map<PartitionKey, CompletableFuture<Partition>> loading = new HashMap<>();
+        for (BankTransactionView view : views) {
+            TransactionFingerprint fingerprint = fingerprintOf(view);
+            if (fingerprint == null) {
+                continue;
+            }
+            PartitionKey key = keyOf(fingerprint);
+            if (!ready.containsKey(key) && !loading.containsKey(key)) {
+                CompletableFuture<Partition> partition = inMemory(key);
+                if (partition.isDone()) {
+                    ready.put(key, partition.join());
+                } else {
+                    loading.put(key, partition);
+                }
+            }
+        }
+        if (!loading.isEmpty()) {
+            try {
+                CompletableFuture.allOf(loading.values().toArray(CompletableFuture[]::new))
+                        .get(searchWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException ex) {
+                log.debug("Dedupe partitions not all loaded within {} ms", searchWaitMillis);
+            }
+            loading.forEach((key, partition) -> {
+                if (partition.isDone() && !partition.isCompletedExceptionally()) {
+                    ready.put(key, partition.join());
+                }
+            });
+        }
+
+        for (BankTransactionView view : views) {
+            TransactionFingerprint fingerprint = fingerprintOf(view);
+            Partition partition = fingerprint != null ? ready.get(keyOf(fingerprint)) : null;
+            if (partition == null) {
+                continue;
+            }
+            List<SourceRef> duplicates;
+            synchronized (partition) {
+                duplicates = partition.others(fingerprint, new SourceRef(view.getType(), view.getSourceTxnId()));
+            }
+            if (!duplicates.isEmpty()) {
+                view.setPossibleDuplicate(Boolean.TRUE);
+                view.setDuplicateOf(duplicates.stream().map(SourceRef::toString).toList());
+            }
+        }
+    }
+
+    private static TransactionFingerprint fingerprintOf(BankTransactionView view) {
+        if (view.getBankAccountNumber() == null || view.getTxnDate() == null || view.getAmount() == null) {
+            return null;
+        }
+        return TransactionFingerprint.of(
+                view.getBankAccountNumber(), view.getTxnDate(), view.getAmount(), view.getTxnRef());
+    }
+
+    private static PartitionKey keyOf(TransactionFingerprint fingerprint) {
+        return new PartitionKey(fingerprint.accountNumber(), YearMonth.from(fingerprint.valueDate()));
+    }
+
+    /**
+     * The partition as held in memory, completed at once even when expired, or its
+     * load on the loader pool when there is none. Expired partitions are reloaded in
+     * the background.
+     */
+    private CompletableFuture<Partition> inMemory(PartitionKey key) {
+        Partition partition;
+        synchronized (partitions) {
+            partition = partitions.get(key);
+        }
+        if (partition == null) {
+            return warm(key);
+        }
+        if (!partition.isFresh(partitionTtlNanos)) {
+            warm(key);
+        }
+        return CompletableFuture.completedFuture(partition);
+    }
+
+    /** Loads the partition on the loader pool, joining a load already under way. */
+    private CompletableFuture<Partition> warm(PartitionKey key) {
+        CompletableFuture<Partition> load;
+        synchronized (partitions) {
+            load = warming.get(key);
+            if (load != null) {
+                return load;
+            }
+            load = new CompletableFuture<>();
+            warming.put(key, load);
+        }
+        CompletableFuture<Partition> result = load;
+        try {
+            loaderPool.execute(() -> {
+                try {
+                    result.complete(store(key, loadPartition(key)));
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to load dedupe partition account={} month={}", key.accountNumber(), key.month(),
+                            ex);
+                    result.completeExceptionally(ex);
+                } finally {
+                    synchronized (partitions) {
+                        warming.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            synchronized (partitions) {
+                warming.remove(key);
+            }
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    // Blocking: loads on the calling thread; concurrent loads of the same partition are harmless
+    private Partition partitionFor(PartitionKey key) {
+        synchronized (partitions) {
+            Partition partition = partitions.get(key);
+            if (partition != null && partition.isFresh(partitionTtlNanos)) {
+                return partition;
+            }
+        }
+        return store(key, loadPartition(key));
+    }
+
+    private Partition store(PartitionKey key, Partition loaded) {
+        synchronized (partitions) {
+            Partition previous = partitions.put(key, loaded);
+            if (previous != null) {
+                synchronized (previous) {
+                    loaded.carryOver(previous);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private Partition loadPartition(PartitionKey key) {
+        LocalDate monthStart = key.month().atDay(1);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("accountNumber", key.accountNumber())
+                .addValue("monthStart", monthStart)
+                .addValue("nextMonthStart", monthStart.plusMonths(1));
+        Partition partition = new Partition();
+        jdbcTemplate.query(PARTITION_SQL, params, rs -> {
+            Date txnDate = rs.getDate("txn_date");
+            BigDecimal amount = rs.getBigDecimal("amount");
+            if (txnDate == null || amount == null) {
+                return;
+            }
+            TransactionFingerprint fingerprint = TransactionFingerprint.of(
+                    key.accountNumber(), txnDate.toLocalDate(), amount, rs.getString("txn_ref"));
+            partition.add(fingerprint, new SourceRef(rs.getString("type"), rs.getString("source_txn_id")));
+        });
+        log.debug("Loaded dedupe partition account={} month={} with {} fingerprints",
+                key.accountNumber(), key.month(), partition.exact.size());
+        return partition;
+    }
+
+    /**
+     * Source row identity as exposed by vw_all_bank_transactions, rendered as
+     * {@code TYPE:sourceTxnId}.
+     */
+    public record SourceRef(String type, String sourceTxnId) {
+        @Override
+        public String toString() {
+            return type + ":" + sourceTxnId;
+        }
+    }
+
+    private record PartitionKey(String accountNumber, YearMonth month) {
+    }
+
+    private record Registration(TransactionFingerprint fingerprint, SourceRef ref, long registeredAt) {
+    }
+
+    private static final class Partition {
+        final Map<TransactionFingerprint, List<SourceRef>> exact = new HashMap<>();
+        // Taken before the partition query runs
+        final long loadedAt = System.nanoTime();
+        final List<Registration> registered = new ArrayList<>();
+
+        boolean isFresh(long ttlNanos) {
+            return System.nanoTime() - loadedAt < ttlNanos;
+        }
+
+        List<SourceRef> others(TransactionFingerprint fingerprint, SourceRef self) {
+            List<SourceRef> matches = exact.get(fingerprint);
+            if (matches == null) {
+                return List.of();
+            }
+            List<SourceRef> others = new ArrayList<>(matches.size());
+            for (SourceRef ref : matches) {
+                if (!ref.equals(self)) {
+                    others.add(ref);
+                }
+            }
+            return others;
+        }
+
+        void add(TransactionFingerprint fingerprint, SourceRef ref) {
+            List<SourceRef> refs = exact.computeIfAbsent(fingerprint, f -> new ArrayList<>(1));
+            if (!refs.contains(ref)) {
+                refs.add(ref);
+            }
+        }
+
+        void register(TransactionFingerprint fingerprint, SourceRef ref) {
+            add(fingerprint, ref);
+            registered.add(new Registration(fingerprint, ref, System.nanoTime()));
+        }
+
+        /**
+         * Keeps rows registered with the partition this one replaces while this one's
+         * query ran; rows registered earlier were committed before it and were read.
+         */
+        void carryOver(Partition previous) {
+            for (Registration registration : previous.registered) {
+                if (registration.registeredAt() - loadedAt >= 0) {
+                    add(registration.fingerprint(), registration.ref());
+                    registered.add(registration);
+                }
+            }
+        }
+    }
+}
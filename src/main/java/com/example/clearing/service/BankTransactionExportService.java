@@ -0,0 +1,253 @@
+package com.example.clearing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.clearing.common.ndjson.NdjsonWriter;
+import com.example.clearing.dao.BankTransactionExportDao;
+import com.example.clearing.domain.BankTransaction;
+import com.example.clearing.repository.BankTransactionFilterQuery;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.common.dao.TenantAccessDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Bulk extracts of clearing.bank_transaction. Rows come from a JDBC cursor and go either
+ * into an {@link SXSSFWorkbook}, which keeps only the last {@code rowWindow} rows in
+ * memory and spills the rest to a compressed temp file until the workbook is written
+ * out, or straight to the response as NDJSON.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BankTransactionExportService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(BankTransactionExportService.class);
+
+    private static final String STATUS_TYPE_BANK_TXN = "bank_transaction";
+    private static final String[] HEADER = {
+            "Bank Txn ID", "Bank Account ID", "Txn Ref", "Internal Ref", "Txn Date", "Amount", "Dr/Cr",
+            "Description", "Allocated Amount", "Remaining Amount", "Status", "Txn Type", "Source System",
+            "Source Txn ID", "Claimed By", "Claimed At", "Settled", "Created At", "Updated At" };
+    private static final int[] COLUMN_WIDTHS = {
+            12, 14, 24, 24, 12, 16, 7, 40, 16, 16, 14, 10, 14, 16, 20, 20, 8, 20, 20 };
+    // Header row plus data rows must fit the .xlsx row limit; further rows go to a new sheet
+    private static final int MAX_DATA_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+    private final BankTransactionExportDao exportDao;
+    private final TenantAccessDao tenantAccessDao;
+    private final StatusService statusService;
+    private final ObjectMapper objectMapper;
+    private final int rowWindow;
+
+    public BankTransactionExportService(
+            BankTransactionExportDao exportDao,
+            TenantAccessDao tenantAccessDao,
+            StatusService statusService,
+            ObjectMapper objectMapper,
+            @Value("${clearing.export.xlsx-row-window:200}") int rowWindow) {
+        this.exportDao = exportDao;
+        this.tenantAccessDao = tenantAccessDao;
+        this.statusService = statusService;
+        this.objectMapper = objectMapper;
+        this.rowWindow = rowWindow;
+    }
+
+    /**
+     * Resolves the caller's tenant before any response bytes are written.
+     */
+    public TenantAccessDao.TenantAccess requireTenantAccess() {
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to export bank transactions");
+        }
+        return ta;
+    }
+
+    /**
+     * Writes the tenant's transactions matching the list filters as an .xlsx workbook.
+     *
+     * @return number of data rows written
+     */
+    public long exportXlsx(Integer bankTxnId, String txnRef, Boolean isSettled, LocalDate startDate,
+            LocalDate endDate, TenantAccessDao.TenantAccess ta, OutputStream out) throws IOException {
+        log.info(
+                "Exporting clearing bank transactions to XLSX bankTxnId={}, txnRef={}, isSettled={}, boardId={}, employerId={}, startDate={}, endDate={}",
+                bankTxnId, txnRef, isSettled, ta.boardId, ta.employerId, startDate, endDate);
+        BankTransactionFilterQuery query = BankTransactionFilterQuery.of(
+                ta.boardId, ta.employerId, bankTxnId, txnRef, isSettled, startDate, endDate);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook);
+            long rows = exportDao.streamTransactions(query, writer::append);
+            workbook.write(out);
+            out.flush();
+            log.info("Exported {} bank transactions to XLSX for boardId={}, employerId={}", rows, ta.boardId,
+                    ta.employerId);
+            return rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Writes the tenant's transactions matching the list filters as NDJSON, one
+     * transaction per line in created_at order, as they come off the cursor. If the client
+     * disconnects the next write fails, which stops the row callback and closes the cursor
+     * before another batch is fetched.
+     *
+     * @return number of rows written
+     */
+    public long exportNdjson(Integer bankTxnId, String txnRef, Boolean isSettled, LocalDate startDate,
+            LocalDate endDate, TenantAccessDao.TenantAccess ta, OutputStream out) throws IOException {
+        log.info(
+                "Streaming clearing bank transactions as NDJSON bankTxnId={}, txnRef={}, isSettled={}, boardId={}, employerId={}, startDate={}, endDate={}",
+                bankTxnId, txnRef, isSettled, ta.boardId, ta.employerId, startDate, endDate);
+        BankTransactionFilterQuery query = BankTransactionFilterQuery.of(
+                ta.boardId, ta.employerId, bankTxnId, txnRef, isSettled, startDate, endDate);
+
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+            try {
+                exportDao.streamTransactions(query, txn -> {
+                    txn.setStatusCode(statusService.resolveStatusCode(STATUS_TYPE_BANK_TXN, txn.getStatusId()));
+                    writer.write(txn);
+                });
+            } catch (UncheckedIOException ex) {
+                log.info("Stopped streaming bank transactions for boardId={}, employerId={} after {} rows: {}",
+                        ta.boardId, ta.employerId, writer.rows(), ex.getCause().getMessage());
+                throw ex.getCause();
+            }
+            log.info("Streamed {} bank transactions as NDJSON for boardId={}, employerId={}", writer.rows(),
+                    ta.boardId, ta.employerId);
+            return writer.rows();
+        }
+    }
+
+    /**
+     * Appends rows to the current sheet, starting a new one at the row limit. Cell styles
+     * are created once per workbook; the format has a hard cap on distinct styles.
+     */
+    private final class SheetWriter {
+        private final SXSSFWorkbook workbook;
+        private final CellStyle headerStyle;
+        private final CellStyle dateStyle;
+        private final CellStyle dateTimeStyle;
+        private final CellStyle amountStyle;
+        private final ZoneId zone = ZoneId.systemDefault();
+        private Sheet sheet;
+        private int rowIndex;
+
+        SheetWriter(SXSSFWorkbook workbook) {
+            this.workbook = workbook;
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            this.headerStyle = workbook.createCellStyle();
+            this.headerStyle.setFont(bold);
+            this.dateStyle = workbook.createCellStyle();
+            this.dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+            this.dateTimeStyle = workbook.createCellStyle();
+            this.dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            this.amountStyle = workbook.createCellStyle();
+            this.amountStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+            newSheet();
+        }
+
+        void append(BankTransaction txn) {
+            if (rowIndex > MAX_DATA_ROWS_PER_SHEET) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            int col = 0;
+            number(row, col++, txn.getBankTxnId());
+            number(row, col++, txn.getBankAccountId());
+            text(row, col++, txn.getTxnRef());
+            text(row, col++, txn.getInternalRef());
+            date(row, col++, txn.getTxnDate());
+            amount(row, col++, txn.getAmount());
+            text(row, col++, txn.getDrCrFlag());
+            text(row, col++, txn.getDescription());
+            amount(row, col++, txn.getAllocatedAmount());
+            amount(row, col++, txn.getRemainingAmount());
+            text(row, col++, statusService.resolveStatusCode(STATUS_TYPE_BANK_TXN, txn.getStatusId()));
+            text(row, col++, txn.getTxnType());
+            text(row, col++, txn.getSourceSystem());
+            text(row, col++, txn.getSourceTxnId());
+            text(row, col++, txn.getClaimedBy());
+            dateTime(row, col++, txn.getClaimedAt());
+            text(row, col++, txn.getIsSettled() == null ? null : txn.getIsSettled() ? "Y" : "N");
+            dateTime(row, col++, txn.getCreatedAt());
+            dateTime(row, col, txn.getUpdatedAt());
+        }
+
+        private void newSheet() {
+            int sheetNumber = workbook.getNumberOfSheets() + 1;
+            sheet = workbook.createSheet(sheetNumber == 1 ? "Bank Transactions" : "Bank Transactions " + sheetNumber);
+            for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+                sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+            }
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(HEADER[i]);
+                cell.setCellStyle(headerStyle);
+            }
+            sheet.createFreezePane(0, 1);
+            rowIndex = 1;
+        }
+
+        private void text(Row row, int col, String value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+
+        private void number(Row row, int col, Integer value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+
+        private void amount(Row row, int col, BigDecimal value) {
+            if (value != null) {
+                Cell cell = row.createCell(col);
+                cell.setCellValue(value.doubleValue());
+                cell.setCellStyle(amountStyle);
+            }
+        }
+
+        private void date(Row row, int col, LocalDate value) {
+            if (value != null) {
+                Cell cell = row.createCell(col);
+                cell.setCellValue(value);
+                cell.setCellStyle(dateStyle);
+            }
+        }
+
+        private void dateTime(Row row, int col, OffsetDateTime value) {
+            if (value != null) {
+                Cell cell = row.createCell(col);
+                cell.setCellValue(value.atZoneSameInstant(zone).toLocalDateTime());
+                cell.setCellStyle(dateTimeStyle);
+            }
+        }
+    }
+}
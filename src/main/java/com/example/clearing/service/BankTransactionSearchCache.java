@@ -0,0 +1,274 @@
+package com.example.clearing.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.clearing.model.BankTransactionSearchCriteria;
+import com.example.clearing.model.BankTransactionView;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded per-tenant cache of {@link BankTransactionSearchService#search} results, keyed
+ * by the normalised criteria. The claim screen repeats the same lookups while a clerk
+ * works through a statement.
+ *
+ * <p>
+ * Writers report the open_recon_item rows they add or remove through
+ * {@link #sourceRowsChanged}; only entries whose criteria could match one of those rows
+ * are dropped. Entries that filter on a bank account are indexed by it, so a change on
+ * one account only checks that account's entries and the ones without an account
+ * filter. Rows imported by other services are not reported, so entries also expire
+ * after {@code ttl-seconds}.
+ */
+@Component
+public class BankTransactionSearchCache {
+
+    /** Values of an open_recon_item row as the search filters see them. */
+    public record SourceRow(Long bankAccountId, String bankAccountNumber, String txnRef, LocalDate txnDate,
+            BigDecimal amount, String drCrFlag) {
+    }
+
+    record Key(Integer boardId, Integer employerId, LocalDate txnDate, BigDecimal amount, String drCrFlag,
+            Long bankAccountId, String bankAccountNumber, String txnRef, Integer limit) {
+
+        static Key of(Integer boardId, Integer employerId, BankTransactionSearchCriteria criteria, Integer limit) {
+            // Normalised the way BankTransactionSearchDao binds them, so equivalent requests share an entry
+            return new Key(boardId, employerId,
+                    criteria.getTxnDate(),
+                    criteria.getAmount() != null ? criteria.getAmount().stripTrailingZeros() : null,
+                    trimToNull(criteria.getDrCrFlag()) != null ? criteria.getDrCrFlag().trim().toUpperCase() : null,
+                    criteria.getBankAccountId(),
+                    trimToNull(criteria.getBankAccountNumber()),
+                    trimToNull(criteria.getTxnRef()),
+                    limit != null && limit > 0 ? limit : null);
+        }
+
+        boolean mayContain(SourceRow row) {
+            return (txnDate == null || txnDate.equals(row.txnDate()))
+                    && (amount == null || (row.amount() != null && amount.compareTo(row.amount()) == 0))
+                    && (drCrFlag == null || drCrFlag.equalsIgnoreCase(row.drCrFlag()))
+                    && (bankAccountId == null || bankAccountId.equals(row.bankAccountId()))
+                    // Writers may not know the account number; treat it as a possible match
+                    && (bankAccountNumber == null || row.bankAccountNumber() == null
+                            || bankAccountNumber.equals(row.bankAccountNumber()))
+                    && (txnRef == null || txnRef.equals(row.txnRef()));
+        }
+    }
+
+    private record Entry(List<BankTransactionView> results, long expiresAt) {
+    }
+
+    private final boolean enabled;
+    private final boolean tagByBankAccount;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    private final Map<Long, Set<Key>> keysByBankAccount = new HashMap<>();
+    private final Set<Key> untaggedKeys = new HashSet<>();
+    // Bumped on every invalidation; a load that overlapped one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidatedEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+
+    public BankTransactionSearchCache(
+            MeterRegistry meterRegistry,
+            @Value("${clearing.search-cache.enabled:true}") boolean enabled,
+            @Value("${clearing.search-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${clearing.search-cache.max-entries:5000}") int maxEntries,
+            @Value("${clearing.search-cache.tag-by-bank-account:true}") boolean tagByBankAccount) {
+        if (ttlSeconds < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid clearing.search-cache configuration");
+        }
+        this.enabled = enabled;
+        this.tagByBankAccount = tagByBankAccount;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= BankTransactionSearchCache.this.maxEntries) {
+                    return false;
+                }
+                untag(eldest.getKey());
+                sizeEvictions.increment();
+                return true;
+            }
+        };
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * Returns the cached results for the tenant and criteria, or loads and caches them.
+     */
+    public List<BankTransactionView> get(Integer boardId, Integer employerId, BankTransactionSearchCriteria criteria,
+            Integer limit, Supplier<List<BankTransactionView>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = Key.of(boardId, employerId, criteria, limit);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt() < 0) {
+                    hits.increment();
+                    return entry.results();
+                }
+                remove(key);
+                expiredEvictions.increment();
+            }
+        }
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        List<BankTransactionView> results = List.copyOf(loader.get());
+        synchronized (this) {
+            if (invalidations.get() == invalidationsBefore) {
+                entries.put(key, new Entry(results, System.nanoTime() + ttlNanos));
+                tag(key);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Drops entries whose criteria match any of the rows. Inside a transaction this
+     * happens after commit, so a concurrent search cannot re-cache the old result.
+     */
+    public void sourceRowsChanged(Collection<SourceRow> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        List<SourceRow> changed = List.copyOf(rows);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(changed);
+                }
+            });
+        } else {
+            invalidate(changed);
+        }
+    }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void invalidate(List<SourceRow> rows) {
+        invalidations.incrementAndGet();
+        if (!tagByBankAccount) {
+            invalidatedEvictions.add(entries.size());
+            entries.clear();
+            keysByBankAccount.clear();
+            untaggedKeys.clear();
+            return;
+        }
+        for (SourceRow row : rows) {
+            Collection<Key> candidates;
+            if (row.bankAccountId() == null) {
+                candidates = new ArrayList<>(entries.keySet());
+            } else {
+                candidates = new ArrayList<>(untaggedKeys);
+                candidates.addAll(keysByBankAccount.getOrDefault(row.bankAccountId(), Set.of()));
+            }
+            for (Key key : candidates) {
+                if (key.mayContain(row) && remove(key)) {
+                    invalidatedEvictions.increment();
+                }
+            }
+        }
+    }
+
+    private boolean remove(Key key) {
+        if (entries.remove(key) == null) {
+            return false;
+        }
+        untag(key);
+        return true;
+    }
+
+    private void tag(Key key) {
+        if (key.bankAccountId() == null) {
+            untaggedKeys.add(key);
+        } else {
+            keysByBankAccount.computeIfAbsent(key.bankAccountId(), id -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void untag(Key key) {
+        if (key.bankAccountId() == null) {
+            untaggedKeys.remove(key);
+            return;
+        }
+        Set<Key> keys = keysByBankAccount.get(key.bankAccountId());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByBankAccount.remove(key.bankAccountId());
+        }
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("clearing.search.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Bank transaction searches answered from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.search.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Bank transaction searches that queried the database")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.search.cache.evictions", invalidatedEvictions, LongAdder::sum)
+                .tag("cause", "invalidated")
+                .description("Cached searches dropped because a claim or import touched a matching row")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.search.cache.evictions", expiredEvictions, LongAdder::sum)
+                .tag("cause", "expired")
+                .description("Cached searches dropped after ttl-seconds")
+                .register(meterRegistry);
+        FunctionCounter.builder("clearing.search.cache.evictions", sizeEvictions, LongAdder::sum)
+                .tag("cause", "size")
+                .description("Least recently used searches dropped to stay within max-entries")
+                .register(meterRegistry);
+        Gauge.builder("clearing.search.cache.size", this, BankTransactionSearchCache::size)
+                .description("Cached bank transaction searches")
+                .register(meterRegistry);
+        Gauge.builder("clearing.search.cache.hit.ratio", this, BankTransactionSearchCache::hitRate)
+                .description("Share of bank transaction searches answered from the cache")
+                .register(meterRegistry);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -3,18 +3,35 @@ package com.example.clearing.service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.clearing.common.aggregate.AggregateCache;
+import com.example.clearing.common.aggregate.AggregateGrouping;
+import com.example.clearing.common.fields.FieldCatalog;
+import com.example.clearing.common.fields.FieldSet;
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.CountedPage;
+import com.example.clearing.common.pagination.KeysetPage;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.dao.BankTransactionListDao;
 import com.example.clearing.dao.BankTransactionSearchDao;
 import com.example.clearing.domain.BankTransaction;
+import com.example.clearing.dto.AggregateRow;
+import com.example.clearing.dto.AggregateTotals;
+import com.example.clearing.dto.BatchLookup;
 import com.example.clearing.model.BankTransactionSearchCriteria;
 import com.example.clearing.model.BankTransactionView;
+import com.example.clearing.repository.BankTransactionFilterQuery;
 import com.example.clearing.repository.BankTransactionRepository;
 import com.shared.common.dao.TenantAccessDao;
 import com.shared.utilities.logger.LoggerFactoryProvider;
@@ -27,18 +44,49 @@ public class BankTransactionSearchService {
 
     private final BankTransactionSearchDao dao;
     private final BankTransactionRepository bankTransactionRepository;
+    private final BankTransactionListDao listDao;
     private final TenantAccessDao tenantAccessDao;
     private final StatusService statusService;
+    private final BankTransactionDedupeService dedupeService;
+    private final BankTransactionSearchCache searchCache;
+    private final AggregateCache aggregateCache;
+
+    // Properties of a grouped secure search row. Every column is a group key, so fields=
+    // trims only the JSON; dropping a column from the SELECT would merge groups
+    private static final FieldCatalog<BankTransactionView> SECURE_FIELDS = FieldCatalog.<BankTransactionView>of()
+            .field("internalRef", BankTransactionView::getInternalRef)
+            .field("txnRef", BankTransactionView::getTxnRef)
+            .field("txnDate", BankTransactionView::getTxnDate)
+            .field("type", BankTransactionView::getType)
+            .field("amount", BankTransactionView::getAmount)
+            .field("allocatedAmount", BankTransactionView::getAllocatedAmount)
+            .field("remainingAmount", BankTransactionView::getRemainingAmount)
+            .field("statusId", BankTransactionView::getStatusId)
+            .field("status", BankTransactionView::getStatus);
+
+    // Cache key of an aggregates request; strings are trimmed the way the DAO binds them
+    private record AggregateFilters(Integer boardId, Integer employerId, LocalDate startDate, LocalDate endDate,
+            BigDecimal amount, String drCrFlag, Long bankAccountId, String bankAccountNumber, String txnRef,
+            Integer statusId, AggregateGrouping grouping) {
+    }
 
     public BankTransactionSearchService(
             BankTransactionSearchDao dao,
             BankTransactionRepository bankTransactionRepository,
+            BankTransactionListDao listDao,
             TenantAccessDao tenantAccessDao,
-            StatusService statusService) {
+            StatusService statusService,
+            BankTransactionDedupeService dedupeService,
+            BankTransactionSearchCache searchCache,
+            AggregateCache aggregateCache) {
         this.dao = dao;
         this.bankTransactionRepository = bankTransactionRepository;
+        this.listDao = listDao;
         this.tenantAccessDao = tenantAccessDao;
         this.statusService = statusService;
+        this.dedupeService = dedupeService;
+        this.searchCache = searchCache;
+        this.aggregateCache = aggregateCache;
     }
 
     public List<BankTransactionView> search(LocalDate txnDate,
@@ -64,12 +112,32 @@ public class BankTransactionSearchService {
         log.info(
                 "Searching bank transactions with criteria txnDate={}, amount={}, drCrFlag={}, bankAccountId={}, bankAccountNumber={}, txnRef={}, limit={}",
                 txnDate, amount, drCrFlag, bankAccountId, bankAccountNumber, txnRef, limit);
-        return dao.search(criteria, limit);
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        return searchCache.get(ta != null ? ta.boardId : null, ta != null ? ta.employerId : null, criteria, limit,
+                () -> {
+                    List<BankTransactionView> results = dao.search(criteria, limit);
+                    dedupeService.flagDuplicates(results);
+                    return results;
+                });
+    }
+
+    /** Parses the {@code fields=} value of the secure search; null means every field. */
+    public FieldSet<BankTransactionView> secureFields(String fields) {
+        return SECURE_FIELDS.select(fields);
+    }
+
+    /** Parses the {@code fields=} value of the clearing list; null means every field. */
+    public FieldSet<BankTransaction> clearingFields(String fields) {
+        return BankTransactionListDao.FIELDS.select(fields);
     }
 
+    /**
+     * @param fields from {@link #clearingFields}; when not null only its columns are read
+     *               and the other properties are left null
+     */
     public Page<BankTransaction> findClearingTransactions(
             Integer bankTxnId, String txnRef, Boolean isSettled,
-            LocalDate startDate, LocalDate endDate, int page, int size) {
+            LocalDate startDate, LocalDate endDate, int page, int size, FieldSet<BankTransaction> fields) {
         TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
         if (ta == null || ta.boardId == null || ta.employerId == null) {
             throw new IllegalStateException("User has no tenant access (board/employer) to list bank transactions");
@@ -79,15 +147,42 @@ public class BankTransactionSearchService {
         // Sort is already defined in the native SQL query, don't add it here
         Pageable pageable = PageRequest.of(safePage, safeSize);
         log.info(
-                "Fetching clearing bank transactions bankTxnId={}, txnRef={}, isSettled={}, boardId={}, employerId={}, page={}, size={}, startDate={}, endDate={}",
-                bankTxnId, txnRef, isSettled, ta.boardId, ta.employerId, safePage, safeSize, startDate, endDate);
-        Page<BankTransaction> txns = bankTransactionRepository.findByFilters(
-                ta.boardId, ta.employerId, bankTxnId, txnRef, isSettled, startDate, endDate, pageable);
-        txns.forEach(txn -> txn.setStatusCode(statusService.resolveStatusCode("bank_transaction", txn.getStatusId())));
+                "Fetching clearing bank transactions bankTxnId={}, txnRef={}, isSettled={}, boardId={}, employerId={}, page={}, size={}, startDate={}, endDate={}, fields={}",
+                bankTxnId, txnRef, isSettled, ta.boardId, ta.employerId, safePage, safeSize, startDate, endDate,
+                fields != null ? fields.columns() : "all");
+        Page<BankTransaction> txns = fields != null
+                ? listDao.findPage(BankTransactionFilterQuery.of(
+                        ta.boardId, ta.employerId, bankTxnId, txnRef, isSettled, startDate, endDate), fields, pageable)
+                : bankTransactionRepository.findByFilters(
+                        ta.boardId, ta.employerId, bankTxnId, txnRef, isSettled, startDate, endDate, pageable);
+        if (fields == null || fields.includes("statusCode")) {
+            txns.forEach(txn -> txn.setStatusCode(
+                    statusService.resolveStatusCode("bank_transaction", txn.getStatusId())));
+        }
         return txns;
     }
 
-    public Page<BankTransactionView> searchSecure(LocalDate startDate,
+    /**
+     * The caller's clearing transactions among {@code bankTxnIds}, in one query; ids of
+     * other tenants are reported missing like unknown ones.
+     */
+    public BatchLookup<Integer, BankTransaction> findClearingTransactionsByIds(List<Integer> bankTxnIds) {
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to list bank transactions");
+        }
+        log.info("Fetching {} clearing bank transactions by id for boardId={}, employerId={}", bankTxnIds.size(),
+                ta.boardId, ta.employerId);
+        List<BankTransaction> txns = bankTransactionRepository.findAllByBoardIdAndEmployerIdAndBankTxnIdIn(
+                ta.boardId, ta.employerId, bankTxnIds.toArray(Integer[]::new));
+        Map<Integer, String> codes = statusService.resolveStatusCodes("bank_transaction",
+                txns.stream().map(BankTransaction::getStatusId).toList());
+        txns.forEach(txn -> txn.setStatusCode(codes.get(txn.getStatusId())));
+        return BatchLookup.of(bankTxnIds,
+                txns.stream().collect(Collectors.toMap(BankTransaction::getBankTxnId, Function.identity())));
+    }
+
+    public CountedPage<BankTransactionView> searchSecure(LocalDate startDate,
             LocalDate endDate,
             BigDecimal amount,
             String drCrFlag,
@@ -95,11 +190,108 @@ public class BankTransactionSearchService {
             String bankAccountNumber,
             String txnRef,
             String statusCode,
-            Pageable pageable) {
+            Pageable pageable,
+            CountStrategy countStrategy) {
+        TenantAccessDao.TenantAccess ta = requireTenant();
+        BankTransactionSearchCriteria criteria = secureCriteria(amount, drCrFlag, bankAccountId, bankAccountNumber,
+                txnRef, statusCode);
+
+        log.info(
+                "Secure paginated search for bank transactions startDate={}, endDate={}, amount={}, drCrFlag={}, bankAccountId={}, bankAccountNumber={}, txnRef={}, statusId={}, page={}, size={}, countStrategy={}",
+                startDate, endDate, amount, drCrFlag, bankAccountId, bankAccountNumber, txnRef, criteria.getStatusId(),
+                pageable != null ? pageable.getPageNumber() : null,
+                pageable != null ? pageable.getPageSize() : null,
+                countStrategy);
+        CountedPage<BankTransactionView> result = dao.searchPaginated(
+                criteria, startDate, endDate, ta.boardId, ta.employerId, pageable, countStrategy);
+        result.page().forEach(this::resolveStatus);
+        return result;
+    }
+
+    /**
+     * Keyset-paginated variant of {@link #searchSecure}; see
+     * {@link BankTransactionSearchDao#searchPaginatedKeyset}.
+     */
+    public KeysetPage<BankTransactionView> searchSecureKeyset(LocalDate startDate,
+            LocalDate endDate,
+            BigDecimal amount,
+            String drCrFlag,
+            Long bankAccountId,
+            String bankAccountNumber,
+            String txnRef,
+            String statusCode,
+            Sort sort,
+            int size,
+            String cursor) {
+        TenantAccessDao.TenantAccess ta = requireTenant();
+        BankTransactionSearchCriteria criteria = secureCriteria(amount, drCrFlag, bankAccountId, bankAccountNumber,
+                txnRef, statusCode);
+
+        log.info(
+                "Secure keyset search for bank transactions startDate={}, endDate={}, amount={}, drCrFlag={}, bankAccountId={}, bankAccountNumber={}, txnRef={}, statusId={}, size={}, hasCursor={}",
+                startDate, endDate, amount, drCrFlag, bankAccountId, bankAccountNumber, txnRef, criteria.getStatusId(),
+                size, cursor != null);
+        KeysetPage<BankTransactionView> result = dao.searchPaginatedKeyset(
+                criteria, startDate, endDate, ta.boardId, ta.employerId, sort, size, cursor);
+        result.content().forEach(this::resolveStatus);
+        return result;
+    }
+
+    /**
+     * Totals of the transactions {@link #searchSecure} would return, grouped by
+     * {@code grouping}; status groups are keyed by status code. Cached per tenant and
+     * filters by {@link AggregateCache}.
+     */
+    public AggregateTotals aggregateSecure(LocalDate startDate,
+            LocalDate endDate,
+            BigDecimal amount,
+            String drCrFlag,
+            Long bankAccountId,
+            String bankAccountNumber,
+            String txnRef,
+            String statusCode,
+            AggregateGrouping grouping) {
+        TenantAccessDao.TenantAccess ta = requireTenant();
+        BankTransactionSearchCriteria criteria = secureCriteria(amount, drCrFlag, bankAccountId, bankAccountNumber,
+                txnRef, statusCode);
+        AggregateFilters filters = new AggregateFilters(ta.boardId, ta.employerId, startDate, endDate,
+                amount != null ? amount.stripTrailingZeros() : null,
+                trimToNull(drCrFlag) != null ? drCrFlag.trim().toUpperCase() : null,
+                bankAccountId, trimToNull(bankAccountNumber), trimToNull(txnRef), criteria.getStatusId(), grouping);
+
+        log.info(
+                "Aggregating bank transactions startDate={}, endDate={}, amount={}, drCrFlag={}, bankAccountId={}, bankAccountNumber={}, txnRef={}, statusId={}, groupBy={}",
+                startDate, endDate, amount, drCrFlag, bankAccountId, bankAccountNumber, txnRef, criteria.getStatusId(),
+                grouping.paramValue());
+        return aggregateCache.get(TotalCountResolver.SCOPE_BANK_TRANSACTIONS, filters, endDate, () -> {
+            List<AggregateRow> groups = dao.aggregate(criteria, startDate, endDate, ta.boardId, ta.employerId,
+                    grouping);
+            if (grouping == AggregateGrouping.STATUS) {
+                groups = groups.stream()
+                        .map(group -> group.key() != null
+                                ? group.withKey(statusService.resolveStatusCode("bank_transaction",
+                                        Integer.valueOf(group.key())))
+                                : group)
+                        .toList();
+            }
+            return AggregateTotals.of(grouping.paramValue(), groups);
+        });
+    }
+
+    private static String trimToNull(String value) {
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    private TenantAccessDao.TenantAccess requireTenant() {
         TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
         if (ta == null || ta.boardId == null || ta.employerId == null) {
             throw new IllegalStateException("User has no tenant access (board/employer) to list bank transactions");
         }
+        return ta;
+    }
+
+    private BankTransactionSearchCriteria secureCriteria(BigDecimal amount, String drCrFlag, Long bankAccountId,
+            String bankAccountNumber, String txnRef, String statusCode) {
         BankTransactionSearchCriteria criteria = new BankTransactionSearchCriteria();
         criteria.setAmount(amount);
         criteria.setDrCrFlag(drCrFlag);
@@ -110,19 +302,12 @@ public class BankTransactionSearchService {
                 ? statusService.requireStatusId("bank_transaction", statusCode.trim())
                 : null;
         criteria.setStatusId(resolvedStatusId);
+        return criteria;
+    }
 
-        log.info(
-                "Secure paginated search for bank transactions startDate={}, endDate={}, amount={}, drCrFlag={}, bankAccountId={}, bankAccountNumber={}, txnRef={}, statusId={}, page={}, size={}",
-                startDate, endDate, amount, drCrFlag, bankAccountId, bankAccountNumber, txnRef, resolvedStatusId,
-                pageable != null ? pageable.getPageNumber() : null,
-                pageable != null ? pageable.getPageSize() : null);
-        Page<BankTransactionView> result = dao.searchPaginated(
-                criteria, startDate, endDate, ta.boardId, ta.employerId, pageable);
-        result.forEach(v -> {
-            if (v.getStatusId() != null) {
-                v.setStatus(statusService.resolveStatusCode("bank_transaction", v.getStatusId()));
-            }
-        });
-        return result;
+    private void resolveStatus(BankTransactionView view) {
+        if (view.getStatusId() != null) {
+            view.setStatus(statusService.resolveStatusCode("bank_transaction", view.getStatusId()));
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.example.clearing.service;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.clearing.dao.DataVersionDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Folds the clearing.data_change log into the clearing.data_version counters behind the
+ * {@code QueryController} ETags. Writers only append to the log, so allocations of one
+ * tenant never queue on its counter row; each fold is its own short statement on the
+ * primary, run after the writes it counts have committed.
+ */
+@Component
+public class DataVersionFolder {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(DataVersionFolder.class);
+
+    private final DataVersionDao dataVersionDao;
+    private final int batchSize;
+
+    public DataVersionFolder(DataVersionDao dataVersionDao,
+            @Value("${clearing.data-version.fold-batch-size:10000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("clearing.data-version.fold-batch-size must be > 0");
+        }
+        this.dataVersionDao = dataVersionDao;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${clearing.data-version.fold-interval-ms:1000}")
+    public void fold() {
+        try {
+            int folded;
+            do {
+                folded = dataVersionDao.fold(batchSize);
+            } while (folded == batchSize);
+        } catch (RuntimeException ex) {
+            // Entries stay in the log and are folded on the next run
+            log.warn("Folding data_change into data_version failed", ex);
+        }
+    }
+}
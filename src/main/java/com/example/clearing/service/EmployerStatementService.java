@@ -0,0 +1,298 @@
+package com.example.clearing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.shared.common.dao.TenantAccessDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Monthly statement-of-account files per employer. Once a month is closed (a grace
+ * period after its last day, for late allocations) a scheduled run writes each
+ * employer's allocation details for the month to
+ * {@code <file.upload.base-dir>/statements/<board>/<employer>/statement_<yyyy-MM>.csv},
+ * so downloads are plain file reads instead of the allocation-details join.
+ *
+ * <p>
+ * Employers are generated in parallel on a small pool; each task holds one
+ * connection while it streams its rows. Next to each file a
+ * {@code statement_<yyyy-MM>.watermark} records the state of the employer's allocations
+ * for the month it was written from. Every run re-checks the last
+ * {@code catch-up-months} closed months and rewrites only the statements whose
+ * allocations were posted, changed or reversed since, so runs can safely be repeated.
+ */
+@Service
+public class EmployerStatementService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(EmployerStatementService.class);
+
+    // Row count for reversals that delete, version sum and last update for changes in place
+    private static final String EMPLOYER_WATERMARKS_SQL = """
+            SELECT p.board_id,
+                   p.employer_id,
+                   count(*) AS allocations,
+                   coalesce(sum(p.version), 0) AS versions,
+                   max(coalesce(p.updated_at, p.created_at)) AS last_change
+              FROM clearing.payment_allocation p
+             WHERE p.receipt_date BETWEEN :startDate AND :endDate
+               AND p.board_id IS NOT NULL
+               AND p.employer_id IS NOT NULL
+             GROUP BY p.board_id, p.employer_id
+            """;
+
+    // An employer whose allocations for the month were all reversed still gets its file rewritten
+    private static final String NO_ALLOCATIONS_WATERMARK = "0:0:";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AllocationDetailsService allocationDetailsService;
+    private final TenantAccessDao tenantAccessDao;
+    private final Path statementsDir;
+    private final int closeAfterDays;
+    private final int catchUpMonths;
+    private final boolean enabled;
+    private final ExecutorService generatorPool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Clock clock;
+
+    public EmployerStatementService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            AllocationDetailsService allocationDetailsService,
+            TenantAccessDao tenantAccessDao,
+            @Value("${file.upload.base-dir:uploads/}") String baseDir,
+            @Value("${clearing.statements.threads:4}") int threads,
+            @Value("${clearing.statements.close-after-days:5}") int closeAfterDays,
+            @Value("${clearing.statements.catch-up-months:3}") int catchUpMonths,
+            @Value("${clearing.statements.enabled:true}") boolean enabled) {
+        this(jdbcTemplate, allocationDetailsService, tenantAccessDao, baseDir, threads, closeAfterDays,
+                catchUpMonths, enabled, Clock.systemDefaultZone());
+    }
+
+    EmployerStatementService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            AllocationDetailsService allocationDetailsService,
+            TenantAccessDao tenantAccessDao,
+            String baseDir,
+            int threads,
+            int closeAfterDays,
+            int catchUpMonths,
+            boolean enabled,
+            Clock clock) {
+        if (threads < 1 || closeAfterDays < 0 || catchUpMonths < 1) {
+            throw new IllegalArgumentException("Invalid clearing.statements configuration");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.allocationDetailsService = allocationDetailsService;
+        this.tenantAccessDao = tenantAccessDao;
+        this.statementsDir = Paths.get(baseDir).toAbsolutePath().normalize().resolve("statements");
+        this.closeAfterDays = closeAfterDays;
+        this.catchUpMonths = catchUpMonths;
+        this.enabled = enabled;
+        this.clock = clock;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.generatorPool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "employer-statement-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        generatorPool.shutdownNow();
+    }
+
+    /**
+     * Generates missing and outdated statements for the most recent closed months.
+     */
+    @Scheduled(cron = "${clearing.statements.cron:0 30 2 * * *}")
+    public void generateClosedPeriods() {
+        if (!enabled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous employer statement run is still in progress; skipping this one");
+            return;
+        }
+        try {
+            YearMonth latest = latestClosedPeriod();
+            for (int i = catchUpMonths - 1; i >= 0; i--) {
+                generate(latest.minusMonths(i));
+            }
+        } catch (Exception ex) {
+            log.error("Employer statement run failed", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Writes the statement of every employer with receipts in the period that has none
+     * yet, or whose allocations changed since its statement was written.
+     *
+     * @return number of statements written
+     */
+    public int generate(YearMonth period) throws InterruptedException {
+        if (period.isAfter(latestClosedPeriod())) {
+            throw new IllegalArgumentException("Period " + period + " is not closed yet");
+        }
+        long started = System.nanoTime();
+        Map<List<Integer>, String> watermarks = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(EMPLOYER_WATERMARKS_SQL,
+                Map.of("startDate", period.atDay(1), "endDate", period.atEndOfMonth()))) {
+            List<Integer> tenant = List.of(((Number) row.get("board_id")).intValue(),
+                    ((Number) row.get("employer_id")).intValue());
+            watermarks.put(tenant, row.get("allocations") + ":" + row.get("versions") + ":"
+                    + Objects.toString(row.get("last_change"), ""));
+        }
+        for (List<Integer> tenant : existingStatements(period)) {
+            watermarks.putIfAbsent(tenant, NO_ALLOCATIONS_WATERMARK);
+        }
+
+        List<Future<Boolean>> tasks = new ArrayList<>(watermarks.size());
+        watermarks.forEach((tenant, watermark) -> {
+            TenantAccessDao.TenantAccess ta = new TenantAccessDao.TenantAccess();
+            ta.boardId = tenant.get(0);
+            ta.employerId = tenant.get(1);
+            tasks.add(generatorPool.submit(() -> writeStatement(period, ta, watermark)));
+        });
+
+        int written = 0;
+        int failed = 0;
+        for (Future<Boolean> task : tasks) {
+            try {
+                if (task.get()) {
+                    written++;
+                }
+            } catch (ExecutionException ex) {
+                // One employer's failure must not stop the others; the next run retries it
+                failed++;
+                log.error("Employer statement for {} failed", period, ex.getCause());
+            }
+        }
+        log.info("Employer statements for {}: {} employers, {} written, {} failed in {} ms", period,
+                watermarks.size(), written, failed, (System.nanoTime() - started) / 1_000_000);
+        return written;
+    }
+
+    /**
+     * Locates the caller's statement for a period.
+     */
+    public Path findStatement(YearMonth period, TenantAccessDao.TenantAccess ta) {
+        Path file = statementPath(period, ta.boardId, ta.employerId);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("No statement available for " + period);
+        }
+        return file;
+    }
+
+    /**
+     * Resolves the caller's tenant before the file is looked up.
+     */
+    public TenantAccessDao.TenantAccess requireTenantAccess() {
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to download statements");
+        }
+        return ta;
+    }
+
+    YearMonth latestClosedPeriod() {
+        return YearMonth.from(LocalDate.now(clock).minusDays(closeAfterDays)).minusMonths(1);
+    }
+
+    Path statementPath(YearMonth period, Integer boardId, Integer employerId) {
+        return statementsDir.resolve(boardId.toString())
+                .resolve(employerId.toString())
+                .resolve("statement_" + period + ".csv");
+    }
+
+    Path watermarkPath(Path statement) {
+        return statement.resolveSibling(statement.getFileName().toString().replace(".csv", ".watermark"));
+    }
+
+    /** (board, employer) of every statement already written for the period. */
+    private List<List<Integer>> existingStatements(YearMonth period) {
+        List<List<Integer>> tenants = new ArrayList<>();
+        if (!Files.isDirectory(statementsDir)) {
+            return tenants;
+        }
+        try (DirectoryStream<Path> boards = Files.newDirectoryStream(statementsDir, Files::isDirectory)) {
+            for (Path board : boards) {
+                try (DirectoryStream<Path> employers = Files.newDirectoryStream(board, Files::isDirectory)) {
+                    for (Path employer : employers) {
+                        if (Files.isRegularFile(employer.resolve("statement_" + period + ".csv"))) {
+                            tenants.add(List.of(Integer.valueOf(board.getFileName().toString()),
+                                    Integer.valueOf(employer.getFileName().toString())));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            log.warn("Could not list existing statements for {}", period, ex);
+        }
+        return tenants;
+    }
+
+    private boolean writeStatement(YearMonth period, TenantAccessDao.TenantAccess ta, String watermark)
+            throws IOException {
+        Path target = statementPath(period, ta.boardId, ta.employerId);
+        Path watermarkFile = watermarkPath(target);
+        if (Files.exists(target) && Files.isRegularFile(watermarkFile)
+                && watermark.equals(Files.readString(watermarkFile, StandardCharsets.UTF_8))) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        // Written under a temporary name and moved into place, so downloads never see a partial file
+        Path partial = Files.createTempFile(target.getParent(), "statement_" + period + "_", ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                allocationDetailsService.exportAllocationDetailsCsv(period.atDay(1), period.atEndOfMonth(),
+                        null, null, null, null, null, null, ta, out);
+            }
+            moveIntoPlace(partial, target);
+            // Recorded last: a run interrupted before this rewrites the statement again
+            Files.writeString(partial, watermark, StandardCharsets.UTF_8);
+            moveIntoPlace(partial, watermarkFile);
+            return true;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
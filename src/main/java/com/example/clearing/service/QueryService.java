@@ -0,0 +1,138 @@
+package com.example.clearing.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.clearing.dao.DataVersionDao;
+import com.example.clearing.domain.PaymentAllocation;
+import com.example.clearing.domain.RequestSettlement;
+import com.example.clearing.dto.BatchLookup;
+import com.example.clearing.dto.PaymentAllocationView;
+import com.example.clearing.dto.RequestSettlementView;
+import com.example.clearing.dto.VoucherHeaderView;
+import com.example.clearing.repository.PaymentAllocationRepository;
+import com.example.clearing.repository.RequestSettlementRepository;
+import com.example.clearing.repository.VoucherHeaderRepository;
+
+/**
+ * JSON lists of the {@code QueryController}. Rows are projected into immutable views in a
+ * read-only transaction, so nothing is tracked or checked at flush, and the status codes
+ * of a page are resolved together. Each list also returns the write counter its ETag is
+ * built from; the {@code *ByRequestIds} methods answer batch lookups with one query per
+ * batch.
+ */
+@Service
+@Transactional(readOnly = true)
+public class QueryService {
+
+    private final VoucherHeaderRepository voucherHeaderRepository;
+    private final PaymentAllocationRepository paymentAllocationRepository;
+    private final RequestSettlementRepository requestSettlementRepository;
+    private final StatusService statusService;
+    private final DataVersionDao dataVersionDao;
+
+    public QueryService(
+            VoucherHeaderRepository voucherHeaderRepository,
+            PaymentAllocationRepository paymentAllocationRepository,
+            RequestSettlementRepository requestSettlementRepository,
+            StatusService statusService,
+            DataVersionDao dataVersionDao) {
+        this.voucherHeaderRepository = voucherHeaderRepository;
+        this.paymentAllocationRepository = paymentAllocationRepository;
+        this.requestSettlementRepository = requestSettlementRepository;
+        this.statusService = statusService;
+        this.dataVersionDao = dataVersionDao;
+    }
+
+    /**
+     * A list with the write counter read before it in the same transaction, so both come
+     * from one node. {@code rows} is null when the caller's ETag for the counter still
+     * matched and the list was not read.
+     */
+    public record Versioned<T>(long version, List<T> rows) {
+    }
+
+    public Versioned<VoucherHeaderView> voucherHeaders(Integer boardId, Integer employerId, String voucherNumber,
+            Integer statusId, int limit, LongPredicate notModified) {
+        long version = dataVersionDao.version(DataVersionDao.VOUCHER_HEADER, toLong(boardId), toLong(employerId));
+        if (notModified.test(version)) {
+            return new Versioned<>(version, null);
+        }
+        return new Versioned<>(version, withStatus("voucher_header",
+                voucherHeaderRepository.search(boardId, employerId, voucherNumber, statusId, PageRequest.of(0, limit)),
+                VoucherHeaderView::statusId, VoucherHeaderView::withStatus));
+    }
+
+    /** Allocations are not searched by tenant, so every tenant's writes count towards the version. */
+    public Versioned<PaymentAllocationView> paymentAllocations(Long requestId, Integer bankTxnId, Integer voucherId,
+            Integer statusId, int limit, LongPredicate notModified) {
+        long version = dataVersionDao.version(DataVersionDao.PAYMENT_ALLOCATION, null, null);
+        if (notModified.test(version)) {
+            return new Versioned<>(version, null);
+        }
+        return new Versioned<>(version, withStatus("payment_allocation",
+                paymentAllocationRepository.search(requestId, bankTxnId, voucherId, statusId, PageRequest.of(0, limit)),
+                PaymentAllocationView::statusId, PaymentAllocationView::withStatus));
+    }
+
+    public Versioned<RequestSettlementView> requestSettlements(Long requestId, Long boardId, Long employerId,
+            Integer statusId, int limit, LongPredicate notModified) {
+        long version = dataVersionDao.version(DataVersionDao.REQUEST_SETTLEMENT, boardId, employerId);
+        if (notModified.test(version)) {
+            return new Versioned<>(version, null);
+        }
+        return new Versioned<>(version, withStatus("request_settlement",
+                requestSettlementRepository.search(requestId, boardId, employerId, statusId, PageRequest.of(0, limit)),
+                RequestSettlementView::statusId, RequestSettlementView::withStatus));
+    }
+
+    public BatchLookup<Long, RequestSettlementView> requestSettlementsByRequestIds(List<Long> requestIds) {
+        List<RequestSettlementView> rows = withStatus("request_settlement",
+                requestSettlementRepository.findAllByRequestIdIn(requestIds.toArray(Long[]::new)).stream()
+                        .map(QueryService::view).toList(),
+                RequestSettlementView::statusId, RequestSettlementView::withStatus);
+        return BatchLookup.of(requestIds,
+                rows.stream().collect(Collectors.toMap(RequestSettlementView::requestId, Function.identity())));
+    }
+
+    /** Every allocation of each request; a request with none is reported missing. */
+    public BatchLookup<Long, List<PaymentAllocationView>> paymentAllocationsByRequestIds(List<Long> requestIds) {
+        List<PaymentAllocationView> rows = withStatus("payment_allocation",
+                paymentAllocationRepository.findAllByRequestIdIn(requestIds.toArray(Long[]::new)).stream()
+                        .map(QueryService::view).toList(),
+                PaymentAllocationView::statusId, PaymentAllocationView::withStatus);
+        return BatchLookup.of(requestIds,
+                rows.stream().collect(Collectors.groupingBy(PaymentAllocationView::requestId)));
+    }
+
+    private <T> List<T> withStatus(String statusType, List<T> rows, Function<T, Integer> statusId,
+            BiFunction<T, String, T> withStatus) {
+        Map<Integer, String> codes = statusService.resolveStatusCodes(statusType, rows.stream().map(statusId).toList());
+        return rows.stream().map(row -> withStatus.apply(row, codes.get(statusId.apply(row)))).toList();
+    }
+
+    private static RequestSettlementView view(RequestSettlement s) {
+        return new RequestSettlementView(s.getRequestSettlementId(), s.getRequestId(), s.getBoardId(),
+                s.getEmployerId(), s.getToliId(), s.getTotalAmount(), s.getAllocatedAmount(), s.getRemainingAmount(),
+                s.getVoucherId(), s.getStatusId(), s.getCreatedAt(), s.getUpdatedAt());
+    }
+
+    private static PaymentAllocationView view(PaymentAllocation p) {
+        return new PaymentAllocationView(p.getAllocationId(), p.getRequestId(), p.getBankTxnId(), p.getBoardId(),
+                p.getEmployerId(), p.getToliId(), p.getAllocatedAmount(), p.getAllocationDate(), p.getAllocatedBy(),
+                p.getVoucherId(), p.getSourceFileId(), p.getStatusId(), p.getCreatedAt(), p.getUpdatedAt(),
+                p.getVersion(), p.getIdempotencyKey(), p.getEmployerReceiptNumber(), p.getReceiptDate());
+    }
+
+    private static Long toLong(Integer value) {
+        return value != null ? value.longValue() : null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.clearing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.clearing.common.ndjson.NdjsonWriter;
+import com.example.clearing.repository.PaymentAllocationRepository;
+import com.example.clearing.repository.RequestSettlementRepository;
+import com.example.clearing.repository.VoucherHeaderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * NDJSON variants of the {@code QueryController} lists. Views are read through a
+ * cursor and written one per line; they are projections rather than entities, so
+ * neither the response nor the persistence context grows with the result.
+ */
+@Service
+@Transactional(readOnly = true)
+public class QueryStreamService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(QueryStreamService.class);
+
+    private final VoucherHeaderRepository voucherHeaderRepository;
+    private final PaymentAllocationRepository paymentAllocationRepository;
+    private final RequestSettlementRepository requestSettlementRepository;
+    private final StatusService statusService;
+    private final ObjectMapper objectMapper;
+
+    public QueryStreamService(
+            VoucherHeaderRepository voucherHeaderRepository,
+            PaymentAllocationRepository paymentAllocationRepository,
+            RequestSettlementRepository requestSettlementRepository,
+            StatusService statusService,
+            ObjectMapper objectMapper) {
+        this.voucherHeaderRepository = voucherHeaderRepository;
+        this.paymentAllocationRepository = paymentAllocationRepository;
+        this.requestSettlementRepository = requestSettlementRepository;
+        this.statusService = statusService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param limit optional cap on rows written; null streams every match
+     * @return number of rows written
+     */
+    public long streamVoucherHeaders(Integer boardId, Integer employerId, String voucherNumber, Integer statusId,
+            Integer limit, OutputStream out) throws IOException {
+        return write("voucher headers", voucherHeaderRepository.streamSearch(boardId, employerId, voucherNumber, statusId),
+                vh -> vh.withStatus(statusService.resolveStatusCode("voucher_header", vh.statusId())), limit, out);
+    }
+
+    public long streamPaymentAllocations(Long requestId, Integer bankTxnId, Integer voucherId, Integer statusId,
+            Integer limit, OutputStream out) throws IOException {
+        return write("payment allocations", paymentAllocationRepository.streamSearch(requestId, bankTxnId, voucherId, statusId),
+                pa -> pa.withStatus(statusService.resolveStatusCode("payment_allocation", pa.statusId())), limit, out);
+    }
+
+    public long streamRequestSettlements(Long requestId, Long boardId, Long employerId, Integer statusId,
+            Integer limit, OutputStream out) throws IOException {
+        return write("request settlements", requestSettlementRepository.streamSearch(requestId, boardId, employerId, statusId),
+                rs -> rs.withStatus(statusService.resolveStatusCode("request_settlement", rs.statusId())), limit, out);
+    }
+
+    /**
+     * Closing the stream closes the cursor, whether the rows ran out, the limit was hit
+     * or a write failed because the client went away.
+     */
+    private <T> long write(String what, Stream<T> rows, Function<T, T> decorate, Integer limit, OutputStream out)
+            throws IOException {
+        try (Stream<T> stream = limit != null ? rows.limit(Math.max(0, limit)) : rows;
+                NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+            try {
+                stream.forEach(row -> writer.write(decorate.apply(row)));
+            } catch (UncheckedIOException ex) {
+                log.info("Stopped streaming {} after {} rows: {}", what, writer.rows(), ex.getCause().getMessage());
+                throw ex.getCause();
+            }
+            return writer.rows();
+        }
+    }
+}
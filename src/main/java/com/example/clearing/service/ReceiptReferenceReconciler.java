@@ -0,0 +1,68 @@
+package com.example.clearing.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.clearing.dao.ReceiptReferenceDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Keeps clearing.receipt_reference in line with payment-flow: walks every allocated
+ * receipt in request_id batches and re-copies its worker receipt number, which adds
+ * receipts whose allocation missed the copy and picks up renumbered ones. Each batch is
+ * its own statement, so row locks are held only for one batch.
+ */
+@Component
+public class ReceiptReferenceReconciler {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(ReceiptReferenceReconciler.class);
+
+    private final ReceiptReferenceDao receiptReferenceDao;
+    private final int batchSize;
+    private final boolean enabled;
+
+    public ReceiptReferenceReconciler(ReceiptReferenceDao receiptReferenceDao,
+            @Value("${clearing.receipt-reference.batch-size:1000}") int batchSize,
+            @Value("${clearing.receipt-reference.reconcile-enabled:true}") boolean enabled) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("clearing.receipt-reference.batch-size must be > 0");
+        }
+        this.receiptReferenceDao = receiptReferenceDao;
+        this.batchSize = batchSize;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${clearing.receipt-reference.reconcile-interval-ms:600000}",
+            initialDelayString = "${clearing.receipt-reference.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long after = Long.MIN_VALUE;
+        int checked = 0;
+        int changed = 0;
+        try {
+            List<Long> requestIds;
+            do {
+                requestIds = receiptReferenceDao.allocatedRequestIds(after, batchSize);
+                if (requestIds.isEmpty()) {
+                    break;
+                }
+                changed += receiptReferenceDao.refresh(requestIds);
+                checked += requestIds.size();
+                after = requestIds.get(requestIds.size() - 1);
+            } while (requestIds.size() == batchSize);
+        } catch (RuntimeException ex) {
+            // The next run starts over; references already copied stay correct
+            log.error("Receipt reference reconciliation failed after {} receipts", checked, ex);
+            return;
+        }
+        log.info("Reconciled {} receipt references with payment-flow, {} added or changed, in {} ms",
+                checked, changed, (System.nanoTime() - started) / 1_000_000);
+    }
+}
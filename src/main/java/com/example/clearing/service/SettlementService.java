@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import com.example.clearing.client.PaymentFlowClient;
+import com.example.clearing.common.pagination.TotalCountResolver;
 import com.example.clearing.domain.PaymentAllocation;
 import com.example.clearing.domain.RequestSettlement;
 import com.example.clearing.domain.VoucherHeader;
@@ -36,6 +37,7 @@ public class SettlementService {
     private final StatusService statusService;
     private final TenantAccessDao tenantAccessDao;
     private final PaymentFlowClient paymentFlowClient;
+    private final TotalCountResolver totalCountResolver;
 
     public SettlementService(
             VoucherHeaderRepository voucherHeaderRepository,
@@ -43,13 +45,15 @@ public class SettlementService {
             RequestSettlementRepository requestSettlementRepository,
             StatusService statusService,
             TenantAccessDao tenantAccessDao,
-            PaymentFlowClient paymentFlowClient) {
+            PaymentFlowClient paymentFlowClient,
+            TotalCountResolver totalCountResolver) {
         this.voucherHeaderRepository = voucherHeaderRepository;
         this.paymentAllocationRepository = paymentAllocationRepository;
         this.requestSettlementRepository = requestSettlementRepository;
         this.statusService = statusService;
         this.tenantAccessDao = tenantAccessDao;
         this.paymentFlowClient = paymentFlowClient;
+        this.totalCountResolver = totalCountResolver;
     }
 
     @Transactional
@@ -76,6 +80,7 @@ public class SettlementService {
         voucherHeader.setUpdatedAt(now);
         voucherHeader.setStatusId(statusService.requireStatusId("voucher_header", "POSTED"));
         voucherHeaderRepository.save(voucherHeader);
+        totalCountResolver.invalidate(TotalCountResolver.SCOPE_ALLOCATION_DETAILS);
 
         // Update payment status in payment-flow-service via internal API
         if (request.getRequestId() != null) {
@@ -1,7 +1,11 @@
 package com.example.clearing.service;
 
 import jakarta.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -74,6 +78,38 @@ public class StatusService {
         return code;
     }
 
+    /**
+     * Status codes of {@code statusIds}, keyed by id; ids missing from the cache are
+     * looked up in one query. Unknown and null ids are left out.
+     */
+    public Map<Integer, String> resolveStatusCodes(String statusType, Collection<Integer> statusIds) {
+        Map<Integer, String> codes = new HashMap<>();
+        Set<Integer> missing = new HashSet<>();
+        for (Integer statusId : statusIds) {
+            if (statusId == null || codes.containsKey(statusId)) {
+                continue;
+            }
+            String cached = codeCache.get(codeKey(statusType, statusId));
+            if (cached != null) {
+                codes.put(statusId, cached);
+            } else {
+                missing.add(statusId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query(
+                    "SELECT seq_no, status_code FROM clearing.status_master WHERE status_type = :type AND seq_no IN (:seqs) AND is_active = TRUE",
+                    Map.of("type", statusType, "seqs", missing),
+                    rs -> {
+                        Integer seq = rs.getInt("seq_no");
+                        String code = rs.getString("status_code");
+                        codeCache.put(codeKey(statusType, seq), code);
+                        codes.put(seq, code);
+                    });
+        }
+        return codes;
+    }
+
     private String key(String type, String code) {
         return type + "::" + code;
     }
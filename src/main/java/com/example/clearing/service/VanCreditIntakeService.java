@@ -0,0 +1,307 @@
+package com.example.clearing.service;
+
+import java.sql.Date;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.clearing.common.dedupe.TransactionFingerprint;
+import com.example.clearing.dao.VanCreditDao;
+import com.example.clearing.model.VanCreditAck;
+import com.example.clearing.model.VanCreditNotification;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Accepts single VAN credit notifications and commits them in micro-batches so a
+ * payday burst costs one multi-row insert per window instead of one transaction per
+ * credit. Callers are acknowledged only after the batch holding their credit commits;
+ * a transaction reference that is already recorded is acknowledged with its existing
+ * row instead of being inserted again.
+ */
+@Service
+public class VanCreditIntakeService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VanCreditIntakeService.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final VanCreditDao vanCreditDao;
+    private final TransactionTemplate transactionTemplate;
+    private final BankTransactionDedupeService dedupeService;
+    private final BankTransactionSearchCache searchCache;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long ackTimeoutMillis;
+    private final BlockingQueue<PendingCredit> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public VanCreditIntakeService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            VanCreditDao vanCreditDao,
+            TransactionTemplate transactionTemplate,
+            BankTransactionDedupeService dedupeService,
+            BankTransactionSearchCache searchCache,
+            @Value("${clearing.van-intake.max-batch-size:500}") int maxBatchSize,
+            @Value("${clearing.van-intake.max-wait-ms:20}") long maxWaitMillis,
+            @Value("${clearing.van-intake.queue-capacity:20000}") int queueCapacity,
+            @Value("${clearing.van-intake.ack-timeout-ms:5000}") long ackTimeoutMillis) {
+        if (maxBatchSize < 1 || maxWaitMillis < 0 || queueCapacity < maxBatchSize) {
+            throw new IllegalArgumentException("Invalid clearing.van-intake configuration");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.vanCreditDao = vanCreditDao;
+        this.transactionTemplate = transactionTemplate;
+        this.dedupeService = dedupeService;
+        this.searchCache = searchCache;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::drainLoop, "van-credit-intake");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Let the flusher drain what is already queued; new submissions are refused.
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a credit for the next batch. The returned future completes once the
+     * credit is committed, or exceptionally if the commit fails or the ack timeout
+     * elapses. A timed-out credit stays queued and is still committed; the bank's
+     * re-send is then answered with that row, since each transaction reference is
+     * recorded only once.
+     */
+    public CompletableFuture<VanCreditAck> submit(VanCreditNotification notification) {
+        if (!running) {
+            throw new IllegalStateException("VAN credit intake is shutting down; retry shortly");
+        }
+        PendingCredit pending = new PendingCredit(notification);
+        if (!queue.offer(pending)) {
+            throw new IllegalStateException("VAN credit intake is saturated; retry shortly");
+        }
+        return pending.ack.orTimeout(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void drainLoop() {
+        List<PendingCredit> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCredit first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingCredit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // Treat as shutdown but keep draining so queued callers still get an answer
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingCredit> batch) {
+        Recorded recorded;
+        try {
+            recorded = transactionTemplate.execute(status -> record(batch));
+        } catch (Exception ex) {
+            if (batch.size() == 1) {
+                log.error("Failed to commit VAN credit {}", batch.get(0).notification.getTransactionReferenceNumber(),
+                        ex);
+                batch.get(0).ack.completeExceptionally(ex);
+                return;
+            }
+            // Isolate the offending credit instead of failing every caller in the window
+            log.warn("VAN credit batch of {} failed, retrying credits individually", batch.size(), ex);
+            for (PendingCredit pending : batch) {
+                flush(List.of(pending));
+            }
+            return;
+        }
+
+        OffsetDateTime committedAt = OffsetDateTime.now();
+        for (PendingCredit pending : batch) {
+            String reference = pending.reference();
+            VanCreditAck ack;
+            if (recorded.inserted().get(reference) == pending) {
+                ack = toAck(pending.notification, recorded.ids().get(reference), committedAt, batch.size());
+                flagDuplicates(recorded.openItems().get(ack.getSourceTxnId()), ack);
+            } else {
+                // A re-send of a credit that is already recorded: answer with its first row
+                VanCreditDao.Delivery first = recorded.earlier().get(reference);
+                ack = first != null
+                        ? toAck(pending.notification, first.vanTransactionId(), first.receivedAt(), batch.size())
+                        : toAck(pending.notification, recorded.ids().get(reference), committedAt, batch.size());
+                ack.setRedelivery(Boolean.TRUE);
+                log.info("VAN credit {} re-sent; already recorded as {}", reference, ack.getSourceTxnId());
+            }
+            pending.ack.complete(ack);
+        }
+        log.debug("Committed VAN credit batch of {} ({} new)", batch.size(), recorded.ids().size());
+    }
+
+    /**
+     * Claims the batch's transaction references and inserts one van_transaction row per
+     * reference that was not recorded before; credits re-sent after a timed-out
+     * acknowledgement (or twice within the window) resolve to the row already recorded.
+     */
+    private Recorded record(List<PendingCredit> batch) {
+        Map<String, PendingCredit> byReference = new LinkedHashMap<>();
+        for (PendingCredit pending : batch) {
+            byReference.putIfAbsent(pending.reference(), pending);
+        }
+        Set<String> claimed = vanCreditDao.claimReferences(byReference.keySet());
+        Map<String, PendingCredit> inserted = new LinkedHashMap<>(byReference);
+        inserted.keySet().retainAll(claimed);
+
+        Map<String, Long> ids = inserted.isEmpty() ? Map.of() : vanCreditDao.insert(
+                inserted.values().stream().map(pending -> pending.notification).toList());
+        Map<String, VanCreditDao.Delivery> earlier = claimed.size() < byReference.size()
+                ? vanCreditDao.findDeliveries(byReference.keySet().stream()
+                        .filter(reference -> !claimed.contains(reference)).toList())
+                : Map.of();
+        for (String reference : byReference.keySet()) {
+            if (!ids.containsKey(reference) && !earlier.containsKey(reference)) {
+                throw new IllegalStateException("VAN credit " + reference + " is claimed but has no recorded row");
+            }
+        }
+        Map<Long, BankTransactionSearchCache.SourceRow> openItems = ids.isEmpty() ? Map.of() : openItems(ids.values());
+        searchCache.sourceRowsChanged(openItems.values());
+        return new Recorded(inserted, ids, earlier, openItems);
+    }
+
+    /**
+     * Worklist rows the open_recon_item trigger created for the inserted credits, keyed
+     * by van_transaction id, as the search sees them (account number resolved and dr/cr
+     * upper-cased).
+     */
+    private Map<Long, BankTransactionSearchCache.SourceRow> openItems(Collection<Long> ids) {
+        Map<Long, BankTransactionSearchCache.SourceRow> rows = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT source_txn_id, bank_account_id, bank_account_number, txn_ref, txn_date, amount, dr_cr_flag
+                  FROM reconciliation.open_recon_item
+                 WHERE type = 'VAN'
+                   AND source_txn_id IN (:ids)
+                """,
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    Date txnDate = rs.getDate("txn_date");
+                    rows.put(rs.getLong("source_txn_id"), new BankTransactionSearchCache.SourceRow(
+                            rs.getObject("bank_account_id", Long.class),
+                            rs.getString("bank_account_number"),
+                            rs.getString("txn_ref"),
+                            txnDate != null ? txnDate.toLocalDate() : null,
+                            rs.getBigDecimal("amount"),
+                            rs.getString("dr_cr_flag")));
+                });
+        return rows;
+    }
+
+    /**
+     * Fingerprints the credit from its worklist row, which carries the same account
+     * number and transaction date the dedupe partitions are loaded with. Only a
+     * partition already in memory is consulted here, so a cold (account, month) never
+     * holds up the batch's acks; its check runs on the dedupe loader pool instead.
+     */
+    private void flagDuplicates(BankTransactionSearchCache.SourceRow row, VanCreditAck ack) {
+        if (row == null || row.bankAccountNumber() == null || row.txnDate() == null || row.amount() == null) {
+            log.debug("VAN credit {} has no bank account; skipping duplicate check", ack.getSourceTxnId());
+            return;
+        }
+        // The credit is already committed; dedupe only annotates the ack and must never fail it
+        try {
+            TransactionFingerprint fingerprint = TransactionFingerprint.of(
+                    row.bankAccountNumber(), row.txnDate(), row.amount(), row.txnRef());
+            BankTransactionDedupeService.SourceRef self = new BankTransactionDedupeService.SourceRef(
+                    "VAN", String.valueOf(ack.getSourceTxnId()));
+            List<BankTransactionDedupeService.SourceRef> duplicates = dedupeService.checkAndRegister(fingerprint, self);
+            if (duplicates != null && !duplicates.isEmpty()) {
+                log.warn("VAN credit {} looks like a duplicate of {}", self, duplicates);
+                ack.setPossibleDuplicateOf(duplicates.stream().map(Object::toString).toList());
+            }
+        } catch (Exception ex) {
+            log.warn("Duplicate check failed for VAN credit {}", ack.getSourceTxnId(), ex);
+        }
+    }
+
+    private VanCreditAck toAck(VanCreditNotification credit, Long id, OffsetDateTime committedAt, int batchSize) {
+        VanCreditAck ack = new VanCreditAck();
+        ack.setSourceTxnId(id);
+        ack.setTransactionReferenceNumber(credit.getTransactionReferenceNumber());
+        ack.setCommittedAt(committedAt);
+        ack.setBatchSize(batchSize);
+        return ack;
+    }
+
+    /**
+     * Outcome of one batch transaction: the credit inserted per new reference, the ids of
+     * their rows, the first delivery of each reference that was already recorded, and the
+     * worklist rows of the inserted credits.
+     */
+    private record Recorded(Map<String, PendingCredit> inserted, Map<String, Long> ids,
+            Map<String, VanCreditDao.Delivery> earlier, Map<Long, BankTransactionSearchCache.SourceRow> openItems) {
+    }
+
+    private static class PendingCredit {
+        final VanCreditNotification notification;
+        final CompletableFuture<VanCreditAck> ack = new CompletableFuture<>();
+
+        PendingCredit(VanCreditNotification notification) {
+            this.notification = notification;
+        }
+
+        String reference() {
+            return notification.getTransactionReferenceNumber().trim();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.clearing.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.clearing.common.pdf.VoucherPdfLayout;
+import com.example.clearing.domain.VoucherHeader;
+import com.example.clearing.domain.VoucherLine;
+import com.example.clearing.repository.VoucherHeaderRepository;
+import com.example.clearing.repository.VoucherLineRepository;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+import com.shared.common.dao.TenantAccessDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Prints vouchers as PDF. Bulk runs split the vouchers into chunks that are rendered
+ * concurrently on a bounded pool; the caller's thread writes finished chunks to the
+ * response in voucher order, either merged into one PDF or as one file per voucher in a
+ * zip. Only a small window of chunks is in flight at a time, so memory does not grow
+ * with the size of the run.
+ */
+@Service
+public class VoucherPdfService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VoucherPdfService.class);
+
+    private static final String STATUS_TYPE_VOUCHER = "voucher_header";
+
+    private final VoucherHeaderRepository voucherHeaderRepository;
+    private final VoucherLineRepository voucherLineRepository;
+    private final TenantAccessDao tenantAccessDao;
+    private final StatusService statusService;
+    private final VoucherPdfLayout layout;
+    private final int chunkSize;
+    private final int maxVouchers;
+    private final int maxChunksInFlight;
+    private final ThreadPoolExecutor renderPool;
+
+    public VoucherPdfService(
+            VoucherHeaderRepository voucherHeaderRepository,
+            VoucherLineRepository voucherLineRepository,
+            TenantAccessDao tenantAccessDao,
+            StatusService statusService,
+            VoucherPdfLayout layout,
+            @Value("${clearing.voucher-pdf.threads:4}") int threads,
+            @Value("${clearing.voucher-pdf.chunk-size:200}") int chunkSize,
+            @Value("${clearing.voucher-pdf.max-vouchers:50000}") int maxVouchers) {
+        if (threads < 1 || chunkSize < 1 || maxVouchers < 1) {
+            throw new IllegalArgumentException("Invalid clearing.voucher-pdf configuration");
+        }
+        this.voucherHeaderRepository = voucherHeaderRepository;
+        this.voucherLineRepository = voucherLineRepository;
+        this.tenantAccessDao = tenantAccessDao;
+        this.statusService = statusService;
+        this.layout = layout;
+        this.chunkSize = chunkSize;
+        this.maxVouchers = maxVouchers;
+        this.maxChunksInFlight = threads * 2;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                task -> {
+                    Thread thread = new Thread(task, "voucher-pdf-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    // Concurrent bulk runs saturate the queue: render on the caller instead of failing
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Voucher PDF rendering is shutting down");
+                    }
+                    task.run();
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * Resolves the caller's tenant before any response bytes are written.
+     */
+    public TenantAccessDao.TenantAccess requireTenantAccess() {
+        TenantAccessDao.TenantAccess ta = tenantAccessDao.getFirstAccessibleTenant();
+        if (ta == null || ta.boardId == null || ta.employerId == null) {
+            throw new IllegalStateException("User has no tenant access (board/employer) to print vouchers");
+        }
+        return ta;
+    }
+
+    /**
+     * Renders a single voucher of the caller's tenant.
+     */
+    public byte[] renderVoucher(Integer voucherId, TenantAccessDao.TenantAccess ta) throws IOException {
+        VoucherHeader header = voucherHeaderRepository.findById(voucherId)
+                .filter(v -> ta.boardId.equals(v.getBoardId()) && ta.employerId.equals(v.getEmployerId()))
+                .orElseThrow(() -> new IllegalArgumentException("Voucher " + voucherId + " not found"));
+        return render(load(List.of(header)));
+    }
+
+    /**
+     * Loads the headers of the tenant's vouchers dated in the range, in print order.
+     * Fails when the range is empty or holds more than the configured maximum, so the
+     * caller can answer with a 400 before streaming starts.
+     */
+    public List<VoucherHeader> findVouchersToPrint(LocalDate fromDate, LocalDate toDate, Integer statusId,
+            TenantAccessDao.TenantAccess ta) {
+        if (toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("toDate must not be before fromDate");
+        }
+        List<VoucherHeader> headers = voucherHeaderRepository.findForPrinting(
+                ta.boardId, ta.employerId, fromDate, toDate, statusId, PageRequest.of(0, maxVouchers + 1));
+        if (headers.isEmpty()) {
+            throw new IllegalArgumentException("No vouchers dated between " + fromDate + " and " + toDate);
+        }
+        if (headers.size() > maxVouchers) {
+            throw new IllegalArgumentException(
+                    "More than " + maxVouchers + " vouchers in range; print a shorter date range");
+        }
+        return headers;
+    }
+
+    /**
+     * Writes the vouchers as one PDF. Chunk documents are appended with a smart copy,
+     * which writes the shared header band (logo and fonts) once for the whole file.
+     */
+    public void writeMerged(List<VoucherHeader> vouchers, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Document document = new Document();
+        try {
+            PdfSmartCopy copy = new PdfSmartCopy(document, out);
+            copy.setCloseStream(false);
+            copy.setFullCompression();
+            document.open();
+            renderInParallel(vouchers, false, part -> {
+                PdfReader reader = new PdfReader(part.content());
+                try {
+                    copy.addDocument(reader);
+                    copy.freeReader(reader);
+                } catch (DocumentException ex) {
+                    throw new IOException("Unable to merge voucher PDFs", ex);
+                } finally {
+                    reader.close();
+                }
+            });
+            document.close();
+        } catch (DocumentException ex) {
+            throw new IOException("Unable to merge voucher PDFs", ex);
+        }
+        log.info("Printed {} vouchers into one PDF in {} ms", vouchers.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Writes one PDF per voucher into a zip archive.
+     */
+    public void writeZip(List<VoucherHeader> vouchers, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PDF content streams are already deflated; spend as little CPU as possible again
+        zip.setLevel(Deflater.BEST_SPEED);
+        renderInParallel(vouchers, true, part -> {
+            zip.putNextEntry(new ZipEntry(part.name()));
+            zip.write(part.content());
+            zip.closeEntry();
+        });
+        zip.finish();
+        log.info("Printed {} vouchers into a zip in {} ms", vouchers.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void renderInParallel(List<VoucherHeader> vouchers, boolean perVoucher, PartSink sink)
+            throws IOException {
+        Deque<Future<List<RenderedPart>>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < vouchers.size() || !inFlight.isEmpty()) {
+                while (next < vouchers.size() && inFlight.size() < maxChunksInFlight) {
+                    List<VoucherHeader> chunk = vouchers.subList(next, Math.min(next + chunkSize, vouchers.size()));
+                    next += chunk.size();
+                    inFlight.add(renderPool.submit(() -> renderChunk(chunk, perVoucher)));
+                }
+                // Parts are written in submission order, so the output follows voucher order
+                for (RenderedPart part : inFlight.removeFirst().get()) {
+                    sink.accept(part);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Voucher PDF rendering was interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Unable to render voucher PDFs", cause);
+        } finally {
+            // Client went away or a chunk failed: stop rendering chunks nobody will read
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<RenderedPart> renderChunk(List<VoucherHeader> chunk, boolean perVoucher) throws IOException {
+        List<VoucherPdfLayout.Voucher> vouchers = load(chunk);
+        if (!perVoucher) {
+            return List.of(new RenderedPart(null, render(vouchers)));
+        }
+        List<RenderedPart> parts = new ArrayList<>(vouchers.size());
+        for (VoucherPdfLayout.Voucher voucher : vouchers) {
+            parts.add(new RenderedPart(entryName(voucher.header()), render(List.of(voucher))));
+        }
+        return parts;
+    }
+
+    private List<VoucherPdfLayout.Voucher> load(List<VoucherHeader> headers) {
+        List<Integer> voucherIds = headers.stream().map(VoucherHeader::getVoucherId).toList();
+        // One query per chunk rather than one per voucher
+        Map<Integer, List<VoucherLine>> linesByVoucher = voucherLineRepository
+                .findByVoucherIdInOrderByVoucherIdAscLineNumberAsc(voucherIds).stream()
+                .collect(Collectors.groupingBy(VoucherLine::getVoucherId));
+        return headers.stream()
+                .map(header -> new VoucherPdfLayout.Voucher(header,
+                        statusService.resolveStatusCode(STATUS_TYPE_VOUCHER, header.getStatusId()),
+                        linesByVoucher.getOrDefault(header.getVoucherId(), List.of())))
+                .toList();
+    }
+
+    private byte[] render(List<VoucherPdfLayout.Voucher> vouchers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        try {
+            layout.render(vouchers, out);
+        } catch (DocumentException ex) {
+            throw new IOException("Unable to render voucher PDF", ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static String entryName(VoucherHeader header) {
+        String number = header.getVoucherNumber() == null ? "voucher"
+                : header.getVoucherNumber().replaceAll("[^A-Za-z0-9._-]", "_");
+        // The id keeps names unique even if two voucher numbers sanitise to the same text
+        return number + "_" + header.getVoucherId() + ".pdf";
+    }
+
+    private record RenderedPart(String name, byte[] content) {
+    }
+
+    @FunctionalInterface
+    private interface PartSink {
+        void accept(RenderedPart part) throws IOException;
+    }
+}
@@ -0,0 +1,191 @@
+-- Open reconciliation worklist: one row per unmapped statement/VAN transaction.
+--
+-- Replaces scans of reconciliation.vw_all_bank_transactions with
+-- COALESCE(is_mapped, FALSE) = FALSE for the claim-screen search. Rows are added by
+-- statement-level triggers when transactions are imported (by any service) and
+-- removed by BankTransactionClaimService in the same transaction that sets is_mapped.
+-- Row-level triggers keep them in step with later changes by any service: an update of
+-- a column the view maps (or of is_mapped) rebuilds the row from the view, or drops it
+-- once the transaction is mapped, and a delete (e.g. a re-import replacing a statement)
+-- drops it. Column mapping is taken from the view. Only changes to the two source
+-- tables are tracked; the view's other inputs (bank_account, statement_file) are
+-- joined at insert time, and the backfill at the end of this script, when re-run,
+-- adds rows that are missing but does not correct ones already present.
+
+CREATE TABLE IF NOT EXISTS reconciliation.open_recon_item (
+    type                varchar(16)   NOT NULL,
+    source_txn_id       bigint        NOT NULL,
+    source_system       varchar(32),
+    bank_account_id     bigint,
+    bank_account_number varchar(64),
+    txn_ref             varchar(128),
+    txn_date            date,
+    amount              numeric(18, 2),
+    dr_cr_flag          varchar(2),
+    description         text,
+    created_at          timestamp,
+    CONSTRAINT pk_open_recon_item PRIMARY KEY (type, source_txn_id)
+);
+
+-- Default sort of the search (txn_date DESC, created_at DESC) plus one index per
+-- filter the claim screen uses; all predicates are plain equality on stored columns.
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_txn_date
+    ON reconciliation.open_recon_item (txn_date DESC, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_account_date
+    ON reconciliation.open_recon_item (bank_account_id, txn_date DESC, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_account_no
+    ON reconciliation.open_recon_item (bank_account_number);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_txn_ref
+    ON reconciliation.open_recon_item (txn_ref);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_amount
+    ON reconciliation.open_recon_item (amount);
+
+CREATE OR REPLACE FUNCTION reconciliation.fn_open_recon_item_from_statement()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO reconciliation.open_recon_item (
+        type, source_txn_id, source_system, bank_account_id, bank_account_number,
+        txn_ref, txn_date, amount, dr_cr_flag, description, created_at)
+    SELECT v.type, v.source_txn_id, v.source_system, v.bank_account_id, ba.account_no,
+           v.txn_ref, v.txn_date, v.amount, UPPER(v.dr_cr_flag), v.description, v.created_at
+      FROM new_rows n
+      JOIN reconciliation.vw_all_bank_transactions v
+        ON v.source_txn_id = n.id
+       AND v.type IN ('MT940', 'CAMT53')
+      LEFT JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+     WHERE COALESCE(n.is_mapped, FALSE) = FALSE
+    ON CONFLICT (type, source_txn_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION reconciliation.fn_open_recon_item_from_van()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO reconciliation.open_recon_item (
+        type, source_txn_id, source_system, bank_account_id, bank_account_number,
+        txn_ref, txn_date, amount, dr_cr_flag, description, created_at)
+    SELECT v.type, v.source_txn_id, v.source_system, v.bank_account_id, ba.account_no,
+           v.txn_ref, v.txn_date, v.amount, UPPER(v.dr_cr_flag), v.description, v.created_at
+      FROM new_rows n
+      JOIN reconciliation.vw_all_bank_transactions v
+        ON v.source_txn_id = n.id
+       AND v.type = 'VAN'
+      LEFT JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+     WHERE COALESCE(n.is_mapped, FALSE) = FALSE
+    ON CONFLICT (type, source_txn_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$;
+
+-- Statement-level so a bulk import or a micro-batched VAN insert costs one trigger call.
+DROP TRIGGER IF EXISTS trg_open_recon_item_statement ON reconciliation.statement_transaction;
+CREATE TRIGGER trg_open_recon_item_statement
+    AFTER INSERT ON reconciliation.statement_transaction
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION reconciliation.fn_open_recon_item_from_statement();
+
+DROP TRIGGER IF EXISTS trg_open_recon_item_van ON reconciliation.van_transaction;
+CREATE TRIGGER trg_open_recon_item_van
+    AFTER INSERT ON reconciliation.van_transaction
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION reconciliation.fn_open_recon_item_from_van();
+
+-- Rebuild (or drop) the worklist row of an updated or deleted source transaction.
+CREATE OR REPLACE FUNCTION reconciliation.fn_open_recon_item_statement_sync()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    DELETE FROM reconciliation.open_recon_item
+     WHERE type IN ('MT940', 'CAMT53')
+       AND source_txn_id = OLD.id;
+    IF TG_OP = 'UPDATE' AND COALESCE(NEW.is_mapped, FALSE) = FALSE THEN
+        INSERT INTO reconciliation.open_recon_item (
+            type, source_txn_id, source_system, bank_account_id, bank_account_number,
+            txn_ref, txn_date, amount, dr_cr_flag, description, created_at)
+        SELECT v.type, v.source_txn_id, v.source_system, v.bank_account_id, ba.account_no,
+               v.txn_ref, v.txn_date, v.amount, UPPER(v.dr_cr_flag), v.description, v.created_at
+          FROM reconciliation.vw_all_bank_transactions v
+          LEFT JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+         WHERE v.source_txn_id = NEW.id
+           AND v.type IN ('MT940', 'CAMT53')
+        ON CONFLICT (type, source_txn_id) DO NOTHING;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION reconciliation.fn_open_recon_item_van_sync()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    DELETE FROM reconciliation.open_recon_item
+     WHERE type = 'VAN'
+       AND source_txn_id = OLD.id;
+    IF TG_OP = 'UPDATE' AND COALESCE(NEW.is_mapped, FALSE) = FALSE THEN
+        INSERT INTO reconciliation.open_recon_item (
+            type, source_txn_id, source_system, bank_account_id, bank_account_number,
+            txn_ref, txn_date, amount, dr_cr_flag, description, created_at)
+        SELECT v.type, v.source_txn_id, v.source_system, v.bank_account_id, ba.account_no,
+               v.txn_ref, v.txn_date, v.amount, UPPER(v.dr_cr_flag), v.description, v.created_at
+          FROM reconciliation.vw_all_bank_transactions v
+          LEFT JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+         WHERE v.source_txn_id = NEW.id
+           AND v.type = 'VAN'
+        ON CONFLICT (type, source_txn_id) DO NOTHING;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+-- Updates are filtered to the columns the view maps, so unrelated writes cost nothing.
+DROP TRIGGER IF EXISTS trg_open_recon_item_statement_update ON reconciliation.statement_transaction;
+CREATE TRIGGER trg_open_recon_item_statement_update
+    AFTER UPDATE ON reconciliation.statement_transaction
+    FOR EACH ROW
+    WHEN ((OLD.statement_file_id, OLD.bank_reference, OLD.value_date, OLD.amount, OLD.dc, OLD.narrative,
+           OLD.is_mapped)
+          IS DISTINCT FROM
+          (NEW.statement_file_id, NEW.bank_reference, NEW.value_date, NEW.amount, NEW.dc, NEW.narrative,
+           NEW.is_mapped))
+    EXECUTE FUNCTION reconciliation.fn_open_recon_item_statement_sync();
+
+DROP TRIGGER IF EXISTS trg_open_recon_item_statement_delete ON reconciliation.statement_transaction;
+CREATE TRIGGER trg_open_recon_item_statement_delete
+    AFTER DELETE ON reconciliation.statement_transaction
+    FOR EACH ROW EXECUTE FUNCTION reconciliation.fn_open_recon_item_statement_sync();
+
+DROP TRIGGER IF EXISTS trg_open_recon_item_van_update ON reconciliation.van_transaction;
+CREATE TRIGGER trg_open_recon_item_van_update
+    AFTER UPDATE ON reconciliation.van_transaction
+    FOR EACH ROW
+    WHEN ((OLD.import_run_id, OLD.transaction_reference_number, OLD.transaction_date, OLD.value_date,
+           OLD.amount, OLD.payment_description_narration, OLD.is_mapped)
+          IS DISTINCT FROM
+          (NEW.import_run_id, NEW.transaction_reference_number, NEW.transaction_date, NEW.value_date,
+           NEW.amount, NEW.payment_description_narration, NEW.is_mapped))
+    EXECUTE FUNCTION reconciliation.fn_open_recon_item_van_sync();
+
+DROP TRIGGER IF EXISTS trg_open_recon_item_van_delete ON reconciliation.van_transaction;
+CREATE TRIGGER trg_open_recon_item_van_delete
+    AFTER DELETE ON reconciliation.van_transaction
+    FOR EACH ROW EXECUTE FUNCTION reconciliation.fn_open_recon_item_van_sync();
+
+-- Backfill existing unmapped transactions.
+INSERT INTO reconciliation.open_recon_item (
+    type, source_txn_id, source_system, bank_account_id, bank_account_number,
+    txn_ref, txn_date, amount, dr_cr_flag, description, created_at)
+SELECT v.type, v.source_txn_id, v.source_system, v.bank_account_id, ba.account_no,
+       v.txn_ref, v.txn_date, v.amount, UPPER(v.dr_cr_flag), v.description, v.created_at
+  FROM reconciliation.vw_all_bank_transactions v
+  LEFT JOIN reconciliation.bank_account ba ON ba.id = v.bank_account_id
+ WHERE COALESCE(v.is_mapped, FALSE) = FALSE
+ON CONFLICT (type, source_txn_id) DO NOTHING;
+
+ANALYZE reconciliation.open_recon_item;
@@ -0,0 +1,13 @@
+-- Indexes backing keyset pagination of the secure search endpoints.
+--
+-- Each matches the default seek order (tenant, sort key, tie-breaking id) so a page
+-- after the cursor is an index range scan of `size + 1` entries instead of an
+-- OFFSET that reads and discards every earlier row.
+
+-- AllocationDetailsDao.searchAllocationDetailsKeyset, default sort receiptDate
+CREATE INDEX IF NOT EXISTS ix_payment_allocation_tenant_receipt_keyset
+    ON clearing.payment_allocation (board_id, employer_id, receipt_date DESC, allocation_id DESC);
+
+-- BankTransactionSearchDao.searchPaginatedKeyset, default sort txn_date (NULLS LAST)
+CREATE INDEX IF NOT EXISTS ix_bank_transaction_tenant_txn_date_keyset
+    ON clearing.bank_transaction (board_id, employer_id, txn_date DESC NULLS LAST, bank_txn_id);
@@ -0,0 +1,18 @@
+-- Indexes for the sargable clearing.bank_transaction filters.
+--
+-- The secure grouped search and the list endpoint now filter created_at with a
+-- half-open timestamp range instead of created_at::date, and only emit the optional
+-- predicates that were supplied, so these composite indexes are usable per shape.
+-- src/test/.../QueryPlanRegressionTest checks every filter shape against them.
+
+-- Secure grouped search: mandatory created_at range per tenant
+CREATE INDEX IF NOT EXISTS ix_bank_transaction_tenant_created_at
+    ON clearing.bank_transaction (board_id, employer_id, created_at);
+
+-- List endpoint: ORDER BY updated_at DESC LIMIT n per tenant
+CREATE INDEX IF NOT EXISTS ix_bank_transaction_tenant_updated_at
+    ON clearing.bank_transaction (board_id, employer_id, updated_at DESC);
+
+-- Exact txn_ref lookups from both endpoints
+CREATE INDEX IF NOT EXISTS ix_bank_transaction_tenant_txn_ref
+    ON clearing.bank_transaction (board_id, employer_id, txn_ref);
@@ -0,0 +1,132 @@
+-- Pre-aggregated grouping of clearing.bank_transaction for the secure grouped search.
+--
+-- BankTransactionSearchDao#searchPaginated groups by internal_ref, CASE txn_ref,
+-- txn_date, txn_type and status_id and sums the amounts. This table holds those sums
+-- per tenant and created day (the mandatory created_at range is whole days), so the
+-- search reads a few summary rows per group instead of aggregating every transaction.
+-- The raw txn_ref is kept in the key so the txn_ref filter can still be applied.
+--
+-- Maintained as deltas by row-level triggers, in the same transaction as the allocation,
+-- claim or any other write to bank_transaction. Rows without board, employer or
+-- created_at are skipped because the secure search can never return them.
+
+CREATE TABLE IF NOT EXISTS clearing.bank_transaction_group_summary (
+    board_id          integer        NOT NULL,
+    employer_id       integer        NOT NULL,
+    created_day       date           NOT NULL,
+    -- NULL-safe encoding of the nullable key columns below, so the key can be unique
+    group_key         text           NOT NULL,
+    internal_ref      varchar(64),
+    txn_ref           varchar(64),
+    txn_date          date,
+    txn_type          varchar(16),
+    status_id         integer,
+    amount            numeric(18, 2) NOT NULL,
+    allocated_amount  numeric(18, 2) NOT NULL,
+    remaining_amount  numeric(18, 2) NOT NULL,
+    txn_count         integer        NOT NULL,
+    CONSTRAINT pk_bank_transaction_group_summary PRIMARY KEY (board_id, employer_id, created_day, group_key)
+);
+
+CREATE OR REPLACE FUNCTION clearing.fn_bank_txn_group_key(
+    p_internal_ref varchar, p_txn_ref varchar, p_txn_date date, p_txn_type varchar, p_status_id integer)
+RETURNS text
+LANGUAGE sql
+IMMUTABLE
+AS $$
+    -- quote_nullable keeps NULL and '' apart; the date is encoded independently of DateStyle
+    SELECT concat_ws('|', quote_nullable(p_internal_ref), quote_nullable(p_txn_ref),
+                     quote_nullable(p_txn_date - DATE '2000-01-01'), quote_nullable(p_txn_type),
+                     quote_nullable(p_status_id));
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_bank_txn_group_summary_apply(
+    p_sign integer, p_row clearing.bank_transaction)
+RETURNS void
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_day   date;
+    v_key   text;
+BEGIN
+    IF p_row.board_id IS NULL OR p_row.employer_id IS NULL OR p_row.created_at IS NULL THEN
+        RETURN;
+    END IF;
+    v_day := p_row.created_at::date;
+    v_key := clearing.fn_bank_txn_group_key(p_row.internal_ref, p_row.txn_ref, p_row.txn_date,
+                                            p_row.txn_type, p_row.status_id);
+
+    INSERT INTO clearing.bank_transaction_group_summary AS s (
+        board_id, employer_id, created_day, group_key, internal_ref, txn_ref, txn_date, txn_type,
+        status_id, amount, allocated_amount, remaining_amount, txn_count)
+    VALUES (p_row.board_id, p_row.employer_id, v_day, v_key, p_row.internal_ref, p_row.txn_ref,
+            p_row.txn_date, p_row.txn_type, p_row.status_id, p_sign * COALESCE(p_row.amount, 0),
+            p_sign * COALESCE(p_row.allocated_amount, 0), p_sign * COALESCE(p_row.remaining_amount, 0), p_sign)
+    ON CONFLICT (board_id, employer_id, created_day, group_key) DO UPDATE
+       SET amount = s.amount + EXCLUDED.amount,
+           allocated_amount = s.allocated_amount + EXCLUDED.allocated_amount,
+           remaining_amount = s.remaining_amount + EXCLUDED.remaining_amount,
+           txn_count = s.txn_count + EXCLUDED.txn_count;
+
+    IF p_sign < 0 THEN
+        DELETE FROM clearing.bank_transaction_group_summary s
+         WHERE s.board_id = p_row.board_id
+           AND s.employer_id = p_row.employer_id
+           AND s.created_day = v_day
+           AND s.group_key = v_key
+           AND s.txn_count = 0;
+    END IF;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_bank_txn_group_summary()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM clearing.fn_bank_txn_group_summary_apply(-1, OLD);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM clearing.fn_bank_txn_group_summary_apply(1, NEW);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_bank_txn_group_summary_insert_delete ON clearing.bank_transaction;
+CREATE TRIGGER trg_bank_txn_group_summary_insert_delete
+    AFTER INSERT OR DELETE ON clearing.bank_transaction
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_bank_txn_group_summary();
+
+-- Claims re-stamping claimed_by/updated_at do not touch the summary
+DROP TRIGGER IF EXISTS trg_bank_txn_group_summary_update ON clearing.bank_transaction;
+CREATE TRIGGER trg_bank_txn_group_summary_update
+    AFTER UPDATE ON clearing.bank_transaction
+    FOR EACH ROW
+    WHEN ((OLD.board_id, OLD.employer_id, OLD.created_at, OLD.internal_ref, OLD.txn_ref, OLD.txn_date,
+           OLD.txn_type, OLD.status_id, OLD.amount, OLD.allocated_amount, OLD.remaining_amount)
+          IS DISTINCT FROM
+          (NEW.board_id, NEW.employer_id, NEW.created_at, NEW.internal_ref, NEW.txn_ref, NEW.txn_date,
+           NEW.txn_type, NEW.status_id, NEW.amount, NEW.allocated_amount, NEW.remaining_amount))
+    EXECUTE FUNCTION clearing.fn_bank_txn_group_summary();
+
+-- Rebuild from the base table; re-running this script resynchronises the summary.
+-- Apply while bank_transaction writers are paused, or inside one transaction.
+TRUNCATE clearing.bank_transaction_group_summary;
+INSERT INTO clearing.bank_transaction_group_summary (
+    board_id, employer_id, created_day, group_key, internal_ref, txn_ref, txn_date, txn_type,
+    status_id, amount, allocated_amount, remaining_amount, txn_count)
+SELECT bt.board_id, bt.employer_id, bt.created_at::date,
+       clearing.fn_bank_txn_group_key(bt.internal_ref, bt.txn_ref, bt.txn_date, bt.txn_type, bt.status_id),
+       bt.internal_ref, bt.txn_ref, bt.txn_date, bt.txn_type, bt.status_id,
+       SUM(COALESCE(bt.amount, 0)), SUM(COALESCE(bt.allocated_amount, 0)),
+       SUM(COALESCE(bt.remaining_amount, 0)), COUNT(*)
+  FROM clearing.bank_transaction bt
+ WHERE bt.board_id IS NOT NULL
+   AND bt.employer_id IS NOT NULL
+   AND bt.created_at IS NOT NULL
+ GROUP BY bt.board_id, bt.employer_id, bt.created_at::date, bt.internal_ref, bt.txn_ref, bt.txn_date,
+          bt.txn_type, bt.status_id;
+
+ANALYZE clearing.bank_transaction_group_summary;
@@ -0,0 +1,22 @@
+-- Ordered filter indexes for the claim-screen search over reconciliation.open_recon_item.
+--
+-- The search sorts by txn_date DESC, created_at DESC with a LIMIT. With single-column
+-- filter indexes the planner either sorts every match or walks
+-- idx_open_recon_item_txn_date and discards non-matching rows, which reads most of the
+-- worklist when the matches are old (an account or amount with no recent items).
+-- Ending each filter index in the sort order makes every equality shape an index range
+-- read that stops after LIMIT rows, however the matches are spread over time.
+
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_account_no_date
+    ON reconciliation.open_recon_item (bank_account_number, txn_date DESC, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_txn_ref_date
+    ON reconciliation.open_recon_item (txn_ref, txn_date DESC, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_open_recon_item_amount_date
+    ON reconciliation.open_recon_item (amount, txn_date DESC, created_at DESC);
+
+-- Superseded by the indexes above, which serve the same lookups
+DROP INDEX IF EXISTS reconciliation.idx_open_recon_item_account_no;
+DROP INDEX IF EXISTS reconciliation.idx_open_recon_item_txn_ref;
+DROP INDEX IF EXISTS reconciliation.idx_open_recon_item_amount;
+
+ANALYZE reconciliation.open_recon_item;
@@ -0,0 +1,257 @@
+-- Denormalised read model for the secure allocation-details searches.
+--
+-- AllocationDetailsDao used to join payment_allocation to voucher_header,
+-- bank_transaction and request_settlement on every page, count and export. This table
+-- holds one row per allocation with exactly the AllocationDetailsView columns (plus the
+-- tenant, join keys and created_at), so a search reads one table through an index that
+-- ends in its sort key. worker_receipt_number stays a join to
+-- payment_flow.employer_payment_receipts, which payment-flow-service owns.
+--
+-- Maintained by row-level triggers on the four source tables, in the same transaction as
+-- the allocation, settlement, voucher or claim write, so it never lags the tables it is
+-- built from. Rows keep the inner-join semantics of the old query: an allocation whose
+-- bank transaction or settlement is missing has no row.
+
+CREATE TABLE IF NOT EXISTS clearing.allocation_details (
+    allocation_id              integer        NOT NULL,
+    board_id                   integer        NOT NULL,
+    employer_id                integer        NOT NULL,
+    request_id                 bigint         NOT NULL,
+    voucher_id                 integer,
+    bank_txn_id                integer        NOT NULL,
+    voucher_number             varchar(64),
+    voucher_date               date,
+    employer_receipt_number    varchar(40),
+    receipt_date               date,
+    receipt_amount             numeric(18, 2) NOT NULL,
+    internal_ref               varchar(64),
+    txn_ref                    varchar(64),
+    txn_amount                 numeric(18, 2) NOT NULL,
+    allocated_amount_from_txn  numeric(18, 2) NOT NULL,
+    remaining_amount_of_txn    numeric(18, 2),
+    txn_date                   date,
+    created_at                 timestamp with time zone,
+    CONSTRAINT pk_allocation_details PRIMARY KEY (allocation_id)
+);
+
+-- One (tenant, sort key, allocation_id) index per sortable property, in the keyset seek
+-- order of AllocationDetailsDao (nullable keys sort NULLS LAST when descending). Keys
+-- that cannot be NULL serve both directions. workerReceiptNumber is not indexable here.
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_receipt_date
+    ON clearing.allocation_details (board_id, employer_id, receipt_date DESC, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_voucher_number
+    ON clearing.allocation_details (board_id, employer_id, voucher_number DESC NULLS LAST, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_voucher_date
+    ON clearing.allocation_details (board_id, employer_id, voucher_date DESC NULLS LAST, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_employer_receipt
+    ON clearing.allocation_details (board_id, employer_id, employer_receipt_number DESC NULLS LAST, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_txn_date
+    ON clearing.allocation_details (board_id, employer_id, txn_date DESC NULLS LAST, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_created_at
+    ON clearing.allocation_details (board_id, employer_id, created_at DESC NULLS LAST, allocation_id DESC);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_receipt_amount
+    ON clearing.allocation_details (board_id, employer_id, receipt_amount, allocation_id);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_txn_amount
+    ON clearing.allocation_details (board_id, employer_id, txn_amount, allocation_id);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_allocated_amount
+    ON clearing.allocation_details (board_id, employer_id, allocated_amount_from_txn, allocation_id);
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_id
+    ON clearing.allocation_details (board_id, employer_id, allocation_id);
+
+-- Lookups the triggers make from a changed voucher, transaction or settlement
+CREATE INDEX IF NOT EXISTS ix_payment_allocation_voucher_id
+    ON clearing.payment_allocation (voucher_id);
+CREATE INDEX IF NOT EXISTS ix_payment_allocation_bank_txn_id
+    ON clearing.payment_allocation (bank_txn_id);
+CREATE INDEX IF NOT EXISTS ix_payment_allocation_request_id
+    ON clearing.payment_allocation (request_id);
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_refresh(p_allocation_ids integer[])
+RETURNS void
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF cardinality(p_allocation_ids) = 0 THEN
+        RETURN;
+    END IF;
+
+    -- Upsert rather than delete and re-insert: two transactions refreshing the same
+    -- allocation under READ COMMITTED would both miss the other's uncommitted row and the
+    -- second insert would fail on pk_allocation_details.
+    INSERT INTO clearing.allocation_details (
+        allocation_id, board_id, employer_id, request_id, voucher_id, bank_txn_id, voucher_number,
+        voucher_date, employer_receipt_number, receipt_date, receipt_amount, internal_ref, txn_ref,
+        txn_amount, allocated_amount_from_txn, remaining_amount_of_txn, txn_date, created_at)
+    SELECT p.allocation_id, p.board_id, p.employer_id, p.request_id, p.voucher_id, p.bank_txn_id,
+           c.voucher_number, c.voucher_date, p.employer_receipt_number, p.receipt_date, rs.total_amount,
+           b.internal_ref, b.txn_ref, b.amount, p.allocated_amount, b.remaining_amount, b.txn_date,
+           p.created_at
+      FROM clearing.payment_allocation p
+      LEFT JOIN clearing.voucher_header c ON c.voucher_id = p.voucher_id
+      JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+      JOIN clearing.request_settlement rs ON rs.request_id = p.request_id
+     WHERE p.allocation_id = ANY (p_allocation_ids)
+    ON CONFLICT (allocation_id) DO UPDATE
+       SET board_id = EXCLUDED.board_id,
+           employer_id = EXCLUDED.employer_id,
+           request_id = EXCLUDED.request_id,
+           voucher_id = EXCLUDED.voucher_id,
+           bank_txn_id = EXCLUDED.bank_txn_id,
+           voucher_number = EXCLUDED.voucher_number,
+           voucher_date = EXCLUDED.voucher_date,
+           employer_receipt_number = EXCLUDED.employer_receipt_number,
+           receipt_date = EXCLUDED.receipt_date,
+           receipt_amount = EXCLUDED.receipt_amount,
+           internal_ref = EXCLUDED.internal_ref,
+           txn_ref = EXCLUDED.txn_ref,
+           txn_amount = EXCLUDED.txn_amount,
+           allocated_amount_from_txn = EXCLUDED.allocated_amount_from_txn,
+           remaining_amount_of_txn = EXCLUDED.remaining_amount_of_txn,
+           txn_date = EXCLUDED.txn_date,
+           created_at = EXCLUDED.created_at;
+
+    -- Only allocations that no longer produce a row (deleted, or lost their transaction or
+    -- settlement) leave the projection
+    DELETE FROM clearing.allocation_details d
+     WHERE d.allocation_id = ANY (p_allocation_ids)
+       AND NOT EXISTS (
+               SELECT 1
+                 FROM clearing.payment_allocation p
+                 JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+                 JOIN clearing.request_settlement rs ON rs.request_id = p.request_id
+                WHERE p.allocation_id = d.allocation_id);
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_allocation()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM clearing.allocation_details d WHERE d.allocation_id = OLD.allocation_id;
+    ELSIF TG_OP = 'UPDATE' AND OLD.allocation_id <> NEW.allocation_id THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY[OLD.allocation_id, NEW.allocation_id]);
+    ELSE
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY[NEW.allocation_id]);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_voucher()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.voucher_id = OLD.voucher_id));
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND OLD.voucher_id <> NEW.voucher_id) THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.voucher_id = NEW.voucher_id));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_bank_txn()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.bank_txn_id = OLD.bank_txn_id));
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND OLD.bank_txn_id <> NEW.bank_txn_id) THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.bank_txn_id = NEW.bank_txn_id));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_settlement()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.request_id = OLD.request_id));
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND OLD.request_id <> NEW.request_id) THEN
+        PERFORM clearing.fn_allocation_details_refresh(ARRAY(
+            SELECT p.allocation_id FROM clearing.payment_allocation p WHERE p.request_id = NEW.request_id));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_allocation_details_allocation ON clearing.payment_allocation;
+CREATE TRIGGER trg_allocation_details_allocation
+    AFTER INSERT OR DELETE OR UPDATE OF allocation_id, board_id, employer_id, request_id, voucher_id,
+        bank_txn_id, employer_receipt_number, receipt_date, allocated_amount, created_at
+    ON clearing.payment_allocation
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_allocation_details_allocation();
+
+-- The UPDATE triggers below only fire when a projected column changes, so status and
+-- audit updates (and claims re-stamping claimed_by) cost nothing extra
+DROP TRIGGER IF EXISTS trg_allocation_details_voucher_insert_delete ON clearing.voucher_header;
+CREATE TRIGGER trg_allocation_details_voucher_insert_delete
+    AFTER INSERT OR DELETE ON clearing.voucher_header
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_allocation_details_voucher();
+
+DROP TRIGGER IF EXISTS trg_allocation_details_voucher_update ON clearing.voucher_header;
+CREATE TRIGGER trg_allocation_details_voucher_update
+    AFTER UPDATE ON clearing.voucher_header
+    FOR EACH ROW
+    WHEN ((OLD.voucher_id, OLD.voucher_number, OLD.voucher_date)
+          IS DISTINCT FROM (NEW.voucher_id, NEW.voucher_number, NEW.voucher_date))
+    EXECUTE FUNCTION clearing.fn_allocation_details_voucher();
+
+DROP TRIGGER IF EXISTS trg_allocation_details_bank_txn_insert_delete ON clearing.bank_transaction;
+CREATE TRIGGER trg_allocation_details_bank_txn_insert_delete
+    AFTER INSERT OR DELETE ON clearing.bank_transaction
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_allocation_details_bank_txn();
+
+DROP TRIGGER IF EXISTS trg_allocation_details_bank_txn_update ON clearing.bank_transaction;
+CREATE TRIGGER trg_allocation_details_bank_txn_update
+    AFTER UPDATE ON clearing.bank_transaction
+    FOR EACH ROW
+    WHEN ((OLD.bank_txn_id, OLD.internal_ref, OLD.txn_ref, OLD.amount, OLD.remaining_amount, OLD.txn_date)
+          IS DISTINCT FROM
+          (NEW.bank_txn_id, NEW.internal_ref, NEW.txn_ref, NEW.amount, NEW.remaining_amount, NEW.txn_date))
+    EXECUTE FUNCTION clearing.fn_allocation_details_bank_txn();
+
+DROP TRIGGER IF EXISTS trg_allocation_details_settlement_insert_delete ON clearing.request_settlement;
+CREATE TRIGGER trg_allocation_details_settlement_insert_delete
+    AFTER INSERT OR DELETE ON clearing.request_settlement
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_allocation_details_settlement();
+
+DROP TRIGGER IF EXISTS trg_allocation_details_settlement_update ON clearing.request_settlement;
+CREATE TRIGGER trg_allocation_details_settlement_update
+    AFTER UPDATE ON clearing.request_settlement
+    FOR EACH ROW
+    WHEN ((OLD.request_id, OLD.total_amount) IS DISTINCT FROM (NEW.request_id, NEW.total_amount))
+    EXECUTE FUNCTION clearing.fn_allocation_details_settlement();
+
+-- Rebuild from the source tables; re-running this script resynchronises the projection.
+-- Apply while allocation writers are paused, or inside one transaction.
+TRUNCATE clearing.allocation_details;
+INSERT INTO clearing.allocation_details (
+    allocation_id, board_id, employer_id, request_id, voucher_id, bank_txn_id, voucher_number,
+    voucher_date, employer_receipt_number, receipt_date, receipt_amount, internal_ref, txn_ref,
+    txn_amount, allocated_amount_from_txn, remaining_amount_of_txn, txn_date, created_at)
+SELECT p.allocation_id, p.board_id, p.employer_id, p.request_id, p.voucher_id, p.bank_txn_id,
+       c.voucher_number, c.voucher_date, p.employer_receipt_number, p.receipt_date, rs.total_amount,
+       b.internal_ref, b.txn_ref, b.amount, p.allocated_amount, b.remaining_amount, b.txn_date,
+       p.created_at
+  FROM clearing.payment_allocation p
+  LEFT JOIN clearing.voucher_header c ON c.voucher_id = p.voucher_id
+  JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+  JOIN clearing.request_settlement rs ON rs.request_id = p.request_id;
+
+ANALYZE clearing.allocation_details;
@@ -0,0 +1,133 @@
+-- Clearing's own copy of the payment-flow receipt references it displays.
+--
+-- Allocation details show the worker receipt number of the employer payment receipt an
+-- allocation settles (payment_allocation.request_id is the receipt id). Reading it from
+-- payment_flow.employer_payment_receipts on every search tied clearing's plans and locks
+-- to payment-flow-service's tables. This table keeps request_id -> worker_receipt_number
+-- for every receipt clearing has allocated against:
+--
+--   * AllocationService fills it for the receipt of each allocation it creates;
+--   * ReceiptReferenceReconciler re-reads payment-flow in request_id batches on a fixed
+--     delay, adding missed receipts and picking up renumbered ones;
+--   * this script backfills it in bulk.
+--
+-- The allocation_details projection (006) carries worker_receipt_number from here, so
+-- allocation-details searches read only the clearing schema. This script redefines
+-- fn_allocation_details_refresh; re-run it after re-running 006.
+
+CREATE TABLE IF NOT EXISTS clearing.receipt_reference (
+    request_id             bigint                   NOT NULL,
+    worker_receipt_number  varchar(40),
+    synced_at              timestamp with time zone NOT NULL,
+    CONSTRAINT pk_receipt_reference PRIMARY KEY (request_id)
+);
+
+-- Backfill before the trigger below exists; the projection is rebuilt once at the end
+INSERT INTO clearing.receipt_reference AS r (request_id, worker_receipt_number, synced_at)
+SELECT e.id, e.worker_receipt_number, now()
+  FROM payment_flow.employer_payment_receipts e
+ WHERE e.id IN (SELECT p.request_id FROM clearing.payment_allocation p)
+ON CONFLICT (request_id) DO UPDATE
+   SET worker_receipt_number = EXCLUDED.worker_receipt_number,
+       synced_at = EXCLUDED.synced_at
+ WHERE r.worker_receipt_number IS DISTINCT FROM EXCLUDED.worker_receipt_number;
+
+ALTER TABLE clearing.allocation_details ADD COLUMN IF NOT EXISTS worker_receipt_number varchar(40);
+
+CREATE INDEX IF NOT EXISTS ix_allocation_details_tenant_worker_receipt
+    ON clearing.allocation_details (board_id, employer_id, worker_receipt_number DESC NULLS LAST, allocation_id DESC);
+
+CREATE OR REPLACE FUNCTION clearing.fn_allocation_details_refresh(p_allocation_ids integer[])
+RETURNS void
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF cardinality(p_allocation_ids) = 0 THEN
+        RETURN;
+    END IF;
+
+    -- Upsert rather than delete and re-insert: two transactions refreshing the same
+    -- allocation under READ COMMITTED would both miss the other's uncommitted row and the
+    -- second insert would fail on pk_allocation_details.
+    INSERT INTO clearing.allocation_details (
+        allocation_id, board_id, employer_id, request_id, voucher_id, bank_txn_id, voucher_number,
+        voucher_date, employer_receipt_number, worker_receipt_number, receipt_date, receipt_amount,
+        internal_ref, txn_ref, txn_amount, allocated_amount_from_txn, remaining_amount_of_txn, txn_date,
+        created_at)
+    SELECT p.allocation_id, p.board_id, p.employer_id, p.request_id, p.voucher_id, p.bank_txn_id,
+           c.voucher_number, c.voucher_date, p.employer_receipt_number, r.worker_receipt_number,
+           p.receipt_date, rs.total_amount, b.internal_ref, b.txn_ref, b.amount, p.allocated_amount,
+           b.remaining_amount, b.txn_date, p.created_at
+      FROM clearing.payment_allocation p
+      LEFT JOIN clearing.voucher_header c ON c.voucher_id = p.voucher_id
+      LEFT JOIN clearing.receipt_reference r ON r.request_id = p.request_id
+      JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+      JOIN clearing.request_settlement rs ON rs.request_id = p.request_id
+     WHERE p.allocation_id = ANY (p_allocation_ids)
+    ON CONFLICT (allocation_id) DO UPDATE
+       SET board_id = EXCLUDED.board_id,
+           employer_id = EXCLUDED.employer_id,
+           request_id = EXCLUDED.request_id,
+           voucher_id = EXCLUDED.voucher_id,
+           bank_txn_id = EXCLUDED.bank_txn_id,
+           voucher_number = EXCLUDED.voucher_number,
+           voucher_date = EXCLUDED.voucher_date,
+           employer_receipt_number = EXCLUDED.employer_receipt_number,
+           worker_receipt_number = EXCLUDED.worker_receipt_number,
+           receipt_date = EXCLUDED.receipt_date,
+           receipt_amount = EXCLUDED.receipt_amount,
+           internal_ref = EXCLUDED.internal_ref,
+           txn_ref = EXCLUDED.txn_ref,
+           txn_amount = EXCLUDED.txn_amount,
+           allocated_amount_from_txn = EXCLUDED.allocated_amount_from_txn,
+           remaining_amount_of_txn = EXCLUDED.remaining_amount_of_txn,
+           txn_date = EXCLUDED.txn_date,
+           created_at = EXCLUDED.created_at;
+
+    -- Only allocations that no longer produce a row (deleted, or lost their transaction or
+    -- settlement) leave the projection
+    DELETE FROM clearing.allocation_details d
+     WHERE d.allocation_id = ANY (p_allocation_ids)
+       AND NOT EXISTS (
+               SELECT 1
+                 FROM clearing.payment_allocation p
+                 JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+                 JOIN clearing.request_settlement rs ON rs.request_id = p.request_id
+                WHERE p.allocation_id = d.allocation_id);
+END;
+$$;
+
+-- Keyed by request_id like settlements, so the settlement trigger function applies as is
+DROP TRIGGER IF EXISTS trg_allocation_details_receipt_insert_delete ON clearing.receipt_reference;
+CREATE TRIGGER trg_allocation_details_receipt_insert_delete
+    AFTER INSERT OR DELETE ON clearing.receipt_reference
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_allocation_details_settlement();
+
+-- Reconciliation re-stamping synced_at does not touch the projection
+DROP TRIGGER IF EXISTS trg_allocation_details_receipt_update ON clearing.receipt_reference;
+CREATE TRIGGER trg_allocation_details_receipt_update
+    AFTER UPDATE ON clearing.receipt_reference
+    FOR EACH ROW
+    WHEN ((OLD.request_id, OLD.worker_receipt_number) IS DISTINCT FROM (NEW.request_id, NEW.worker_receipt_number))
+    EXECUTE FUNCTION clearing.fn_allocation_details_settlement();
+
+-- Rebuild the projection with the receipt numbers.
+-- Apply while allocation writers are paused, or inside one transaction.
+TRUNCATE clearing.allocation_details;
+INSERT INTO clearing.allocation_details (
+    allocation_id, board_id, employer_id, request_id, voucher_id, bank_txn_id, voucher_number,
+    voucher_date, employer_receipt_number, worker_receipt_number, receipt_date, receipt_amount,
+    internal_ref, txn_ref, txn_amount, allocated_amount_from_txn, remaining_amount_of_txn, txn_date,
+    created_at)
+SELECT p.allocation_id, p.board_id, p.employer_id, p.request_id, p.voucher_id, p.bank_txn_id,
+       c.voucher_number, c.voucher_date, p.employer_receipt_number, r.worker_receipt_number,
+       p.receipt_date, rs.total_amount, b.internal_ref, b.txn_ref, b.amount, p.allocated_amount,
+       b.remaining_amount, b.txn_date, p.created_at
+  FROM clearing.payment_allocation p
+  LEFT JOIN clearing.voucher_header c ON c.voucher_id = p.voucher_id
+  LEFT JOIN clearing.receipt_reference r ON r.request_id = p.request_id
+  JOIN clearing.bank_transaction b ON b.bank_txn_id = p.bank_txn_id
+  JOIN clearing.request_settlement rs ON rs.request_id = p.request_id;
+
+ANALYZE clearing.receipt_reference;
+ANALYZE clearing.allocation_details;
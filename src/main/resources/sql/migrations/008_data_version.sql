@@ -0,0 +1,70 @@
+-- Per-tenant, per-table write counters for conditional GETs.
+--
+-- Dashboards poll the QueryController lists (voucher headers, payment allocations,
+-- request settlements) every few seconds. QueryController builds each list's ETag from
+-- the sum of the matching counters below and answers If-None-Match with 304 before
+-- running the list query, so an unchanged poll reads only this table.
+--
+-- Every insert, update and delete on the three tables appends the row's (board_id,
+-- employer_id) to clearing.data_change; an update that moves a row to another tenant
+-- appends both. The triggers only insert, so concurrent writers never wait on each other
+-- here. DataVersionFolder moves committed entries into the counters in its own short
+-- transaction every clearing.data-version.fold-interval-ms, so no writer holds a counter
+-- row lock; until then a list may show a write under the ETag it had before.
+--
+-- Counters only ever grow, so a sum over any set of tenants changes with every fold that
+-- touches one of them. Never truncate or reset clearing.data_version: a sum could then
+-- repeat an ETag that clients hold for different data.
+
+CREATE TABLE IF NOT EXISTS clearing.data_version (
+    table_name   varchar(63) NOT NULL,
+    board_id     bigint      NOT NULL,
+    employer_id  bigint      NOT NULL,
+    version      bigint      NOT NULL,
+    CONSTRAINT pk_data_version PRIMARY KEY (table_name, board_id, employer_id)
+);
+
+CREATE TABLE IF NOT EXISTS clearing.data_change (
+    change_id    bigserial   NOT NULL,
+    table_name   varchar(63) NOT NULL,
+    board_id     bigint      NOT NULL,
+    employer_id  bigint      NOT NULL,
+    CONSTRAINT pk_data_change PRIMARY KEY (change_id)
+);
+
+-- Earlier revisions of this script bumped the counter from the trigger
+DROP FUNCTION IF EXISTS clearing.fn_data_version_bump_tenant(text, bigint, bigint);
+
+CREATE OR REPLACE FUNCTION clearing.fn_data_version_bump()
+RETURNS trigger
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        INSERT INTO clearing.data_change (table_name, board_id, employer_id)
+        VALUES (TG_TABLE_NAME, OLD.board_id, OLD.employer_id);
+    END IF;
+    IF TG_OP = 'INSERT'
+       OR (TG_OP = 'UPDATE'
+           AND (NEW.board_id, NEW.employer_id) IS DISTINCT FROM (OLD.board_id, OLD.employer_id)) THEN
+        INSERT INTO clearing.data_change (table_name, board_id, employer_id)
+        VALUES (TG_TABLE_NAME, NEW.board_id, NEW.employer_id);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS trg_data_version ON clearing.voucher_header;
+CREATE TRIGGER trg_data_version
+    AFTER INSERT OR UPDATE OR DELETE ON clearing.voucher_header
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_data_version_bump();
+
+DROP TRIGGER IF EXISTS trg_data_version ON clearing.payment_allocation;
+CREATE TRIGGER trg_data_version
+    AFTER INSERT OR UPDATE OR DELETE ON clearing.payment_allocation
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_data_version_bump();
+
+DROP TRIGGER IF EXISTS trg_data_version ON clearing.request_settlement;
+CREATE TRIGGER trg_data_version
+    AFTER INSERT OR UPDATE OR DELETE ON clearing.request_settlement
+    FOR EACH ROW EXECUTE FUNCTION clearing.fn_data_version_bump();
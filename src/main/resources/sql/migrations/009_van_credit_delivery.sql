@@ -0,0 +1,28 @@
+-- One row per bank transaction reference the VAN credit intake has recorded.
+--
+-- The bank re-sends a credit whenever the push endpoint does not acknowledge it in time,
+-- including when the batch holding it commits just after the acknowledgement timeout.
+-- VanCreditIntakeService claims each reference here (INSERT ... ON CONFLICT DO NOTHING)
+-- in the transaction that inserts the credit, and inserts into
+-- reconciliation.van_transaction only the references it claimed; a re-sent reference is
+-- answered with the van_transaction row of its first delivery. A concurrent delivery of
+-- the same reference waits on the primary key until the first one commits.
+--
+-- van_transaction itself stays unconstrained because import runs also write it. The
+-- backfill below records the existing rows so references already imported are not
+-- inserted again by the push endpoint; the script is idempotent.
+
+CREATE TABLE IF NOT EXISTS reconciliation.van_credit_delivery (
+    transaction_reference_number  varchar(128)             NOT NULL,
+    van_transaction_id            bigint,
+    received_at                   timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT pk_van_credit_delivery PRIMARY KEY (transaction_reference_number)
+);
+
+INSERT INTO reconciliation.van_credit_delivery (transaction_reference_number, van_transaction_id)
+SELECT DISTINCT ON (btrim(v.transaction_reference_number))
+       btrim(v.transaction_reference_number), v.id
+  FROM reconciliation.van_transaction v
+ WHERE v.transaction_reference_number IS NOT NULL
+ ORDER BY btrim(v.transaction_reference_number), v.id
+ON CONFLICT (transaction_reference_number) DO NOTHING;
@@ -0,0 +1,221 @@
+-- Tables read or written through jOOQ, as jOOQ code generation sees them.
+--
+-- jooq-codegen-maven generates com.example.clearing.jooq from this file with DDLDatabase,
+-- so builds need no database. It describes columns and keys only; indexes, triggers and
+-- the other services' tables live in migrations/ and their own repositories. When a
+-- migration adds or changes a column used by a DAO, change it here in the same commit.
+
+CREATE SCHEMA IF NOT EXISTS clearing;
+CREATE SCHEMA IF NOT EXISTS reconciliation;
+CREATE SCHEMA IF NOT EXISTS payment_flow;
+
+CREATE TABLE clearing.bank_transaction (
+    bank_txn_id       serial         NOT NULL,
+    bank_account_id   integer        NOT NULL,
+    txn_ref           varchar(64),
+    internal_ref      varchar(64),
+    txn_date          date,
+    amount            numeric(18, 2) NOT NULL,
+    dr_cr_flag        varchar(2)     NOT NULL,
+    description       text,
+    allocated_amount  numeric(18, 2),
+    remaining_amount  numeric(18, 2),
+    status            varchar(32),
+    status_id         integer,
+    board_id          integer,
+    employer_id       integer,
+    toli_id           integer,
+    created_at        timestamp with time zone,
+    updated_at        timestamp with time zone,
+    txn_type          varchar(16),
+    source_system     varchar(32),
+    source_txn_id     varchar(64),
+    source_ref        varchar(64),
+    claimed_by        varchar(64),
+    claimed_at        timestamp with time zone,
+    is_settled        boolean,
+    version           integer,
+    CONSTRAINT bank_transaction_pkey PRIMARY KEY (bank_txn_id),
+    CONSTRAINT uk_bank_transaction_source UNIQUE (source_system, source_txn_id)
+);
+
+-- migrations/004_bank_transaction_group_summary.sql
+CREATE TABLE clearing.bank_transaction_group_summary (
+    board_id          integer        NOT NULL,
+    employer_id       integer        NOT NULL,
+    created_day       date           NOT NULL,
+    group_key         varchar        NOT NULL, -- text in 004; same type to PostgreSQL, and H2 cannot key a text column
+    internal_ref      varchar(64),
+    txn_ref           varchar(64),
+    txn_date          date,
+    txn_type          varchar(16),
+    status_id         integer,
+    amount            numeric(18, 2) NOT NULL,
+    allocated_amount  numeric(18, 2) NOT NULL,
+    remaining_amount  numeric(18, 2) NOT NULL,
+    txn_count         integer        NOT NULL,
+    CONSTRAINT pk_bank_transaction_group_summary PRIMARY KEY (board_id, employer_id, created_day, group_key)
+);
+
+CREATE TABLE clearing.payment_allocation (
+    allocation_id            serial         NOT NULL,
+    request_id               bigint         NOT NULL,
+    bank_txn_id              integer        NOT NULL,
+    board_id                 integer        NOT NULL,
+    employer_id              integer        NOT NULL,
+    toli_id                  integer,
+    allocated_amount         numeric(18, 2) NOT NULL,
+    allocation_date          date           NOT NULL,
+    allocated_by             varchar(64),
+    voucher_id               integer,
+    source_file_id           integer,
+    status_id                integer,
+    created_at               timestamp with time zone,
+    updated_at               timestamp with time zone,
+    version                  integer,
+    idempotency_key          varchar(128),
+    employer_receipt_number  varchar(40),
+    receipt_date             date,
+    CONSTRAINT payment_allocation_pkey PRIMARY KEY (allocation_id)
+);
+
+-- migrations/006_allocation_details_projection.sql
+CREATE TABLE clearing.allocation_details (
+    allocation_id              integer        NOT NULL,
+    board_id                   integer        NOT NULL,
+    employer_id                integer        NOT NULL,
+    request_id                 bigint         NOT NULL,
+    voucher_id                 integer,
+    bank_txn_id                integer        NOT NULL,
+    voucher_number             varchar(64),
+    voucher_date               date,
+    employer_receipt_number    varchar(40),
+    receipt_date               date,
+    receipt_amount             numeric(18, 2) NOT NULL,
+    internal_ref               varchar(64),
+    txn_ref                    varchar(64),
+    txn_amount                 numeric(18, 2) NOT NULL,
+    allocated_amount_from_txn  numeric(18, 2) NOT NULL,
+    remaining_amount_of_txn    numeric(18, 2),
+    txn_date                   date,
+    created_at                 timestamp with time zone,
+    worker_receipt_number      varchar(40), -- migrations/007
+    CONSTRAINT pk_allocation_details PRIMARY KEY (allocation_id)
+);
+
+-- migrations/007_receipt_reference.sql
+CREATE TABLE clearing.receipt_reference (
+    request_id             bigint                   NOT NULL,
+    worker_receipt_number  varchar(40),
+    synced_at              timestamp with time zone NOT NULL,
+    CONSTRAINT pk_receipt_reference PRIMARY KEY (request_id)
+);
+
+-- migrations/008_data_version.sql
+CREATE TABLE clearing.data_version (
+    table_name   varchar(63) NOT NULL,
+    board_id     bigint      NOT NULL,
+    employer_id  bigint      NOT NULL,
+    version      bigint      NOT NULL,
+    CONSTRAINT pk_data_version PRIMARY KEY (table_name, board_id, employer_id)
+);
+
+CREATE TABLE clearing.data_change (
+    change_id    bigserial   NOT NULL,
+    table_name   varchar(63) NOT NULL,
+    board_id     bigint      NOT NULL,
+    employer_id  bigint      NOT NULL,
+    CONSTRAINT pk_data_change PRIMARY KEY (change_id)
+);
+
+CREATE TABLE clearing.voucher_header (
+    voucher_id      serial         NOT NULL,
+    board_id        integer        NOT NULL,
+    employer_id     integer        NOT NULL,
+    toli_id         integer,
+    voucher_number  varchar(64)    NOT NULL,
+    voucher_date    date           NOT NULL,
+    status_id       integer,
+    total_amount    numeric(18, 2) NOT NULL,
+    created_at      timestamp with time zone,
+    updated_at      timestamp with time zone,
+    CONSTRAINT voucher_header_pkey PRIMARY KEY (voucher_id)
+);
+
+CREATE TABLE clearing.request_settlement (
+    request_settlement_id  bigserial      NOT NULL,
+    request_id             bigint         NOT NULL,
+    board_id               bigint         NOT NULL,
+    employer_id            bigint         NOT NULL,
+    toli_id                bigint,
+    total_amount           numeric(18, 2) NOT NULL,
+    allocated_amount       numeric(18, 2) NOT NULL,
+    remaining_amount       numeric(18, 2) NOT NULL,
+    voucher_id             bigint,
+    status_id              integer,
+    created_at             timestamp with time zone,
+    updated_at             timestamp with time zone,
+    CONSTRAINT request_settlement_pkey PRIMARY KEY (request_settlement_id),
+    CONSTRAINT uk_request_settlement_request UNIQUE (request_id)
+);
+
+CREATE TABLE reconciliation.bank_account (
+    id          bigserial    NOT NULL,
+    account_no  varchar(34)  NOT NULL,
+    CONSTRAINT bank_account_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE reconciliation.statement_transaction (
+    id                 bigserial      NOT NULL,
+    statement_file_id  integer,
+    bank_reference     varchar(128),
+    value_date         date,
+    amount             numeric(18, 2),
+    dc                 varchar(2),
+    narrative          text,
+    is_mapped          boolean,
+    CONSTRAINT statement_transaction_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE reconciliation.van_transaction (
+    id                             bigserial      NOT NULL,
+    import_run_id                  bigint,
+    transaction_reference_number   varchar(128),
+    transaction_date               date,
+    value_date                     date,
+    amount                         numeric(18, 2),
+    payment_description_narration  text,
+    is_mapped                      boolean,
+    CONSTRAINT van_transaction_pkey PRIMARY KEY (id)
+);
+
+-- migrations/009_van_credit_delivery.sql
+CREATE TABLE reconciliation.van_credit_delivery (
+    transaction_reference_number  varchar(128)             NOT NULL,
+    van_transaction_id            bigint,
+    received_at                   timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT pk_van_credit_delivery PRIMARY KEY (transaction_reference_number)
+);
+
+-- migrations/001_open_recon_item.sql
+CREATE TABLE reconciliation.open_recon_item (
+    type                 varchar(16)    NOT NULL,
+    source_txn_id        bigint         NOT NULL,
+    source_system        varchar(32),
+    bank_account_id      bigint,
+    bank_account_number  varchar(64),
+    txn_ref              varchar(128),
+    txn_date             date,
+    amount               numeric(18, 2),
+    dr_cr_flag           varchar(2),
+    description          text,
+    created_at           timestamp,
+    CONSTRAINT pk_open_recon_item PRIMARY KEY (type, source_txn_id)
+);
+
+-- Owned by payment-flow-service; only the columns clearing reads
+CREATE TABLE payment_flow.employer_payment_receipts (
+    id                     bigint       NOT NULL,
+    worker_receipt_number  varchar(40),
+    CONSTRAINT employer_payment_receipts_pkey PRIMARY KEY (id)
+);
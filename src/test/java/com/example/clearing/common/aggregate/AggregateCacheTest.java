@@ -0,0 +1,111 @@
+package com.example.clearing.common.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.dto.AggregateTotals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AggregateCacheTest {
+
+    private static final String SCOPE = TotalCountResolver.SCOPE_ALLOCATION_DETAILS;
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final MutableClock clock = new MutableClock(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC));
+    private final TotalCountResolver totalCountResolver = new TotalCountResolver(null, null, 60, 100);
+    private final AggregateCache cache = new AggregateCache(totalCountResolver, new SimpleMeterRegistry(), true, 30,
+            900, 100, clock);
+
+    private record Filters(int employerId, LocalDate startDate, LocalDate endDate) {
+    }
+
+    private AggregateTotals aggregate(LocalDate startDate, LocalDate endDate) {
+        return cache.get(SCOPE, new Filters(20, startDate, endDate), endDate, () -> {
+            loads.incrementAndGet();
+            return AggregateTotals.of("day", List.of());
+        });
+    }
+
+    @Test
+    void closedRangeOutlivesTheOpenRangeTtl() {
+        AggregateTotals first = aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        clock.advance(Duration.ofMinutes(10));
+
+        assertSame(first, aggregate(TODAY.minusDays(10), TODAY.minusDays(1)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void closedRangeExpiresAfterItsOwnTtl() {
+        aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        clock.advance(Duration.ofSeconds(901));
+
+        aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        assertEquals(2, loads.get(), "writes through other instances are only bounded by the TTL");
+    }
+
+    @Test
+    void rangeIncludingTodayExpires() {
+        AggregateTotals first = aggregate(TODAY.minusDays(10), TODAY);
+        clock.advance(Duration.ofSeconds(29));
+        assertSame(first, aggregate(TODAY.minusDays(10), TODAY));
+
+        clock.advance(Duration.ofSeconds(2));
+        aggregate(TODAY.minusDays(10), TODAY);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void writeToTheScopeDropsClosedRanges() {
+        aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        totalCountResolver.invalidate(TotalCountResolver.SCOPE_BANK_TRANSACTIONS);
+        aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        assertEquals(1, loads.get(), "other scope's writes keep the entry");
+
+        totalCountResolver.invalidate(SCOPE);
+        aggregate(TODAY.minusDays(10), TODAY.minusDays(1));
+        assertEquals(2, loads.get());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
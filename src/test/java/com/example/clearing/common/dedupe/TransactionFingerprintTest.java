@@ -0,0 +1,34 @@
+package com.example.clearing.common.dedupe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionFingerprintTest {
+
+    private static final String ACCOUNT = "50100012345678";
+    private static final LocalDate VALUE_DATE = LocalDate.of(2025, 12, 6);
+
+    @Test
+    void matchesStatementAndVanFormattingOfSameCredit() {
+        TransactionFingerprint statement = TransactionFingerprint.of(ACCOUNT, VALUE_DATE,
+                new BigDecimal("1500.00"), "utr/2025-0001 ");
+        TransactionFingerprint van = TransactionFingerprint.of(ACCOUNT, VALUE_DATE, new BigDecimal("1500"), "UTR20250001");
+
+        assertEquals(statement, van);
+    }
+
+    @Test
+    void distinguishesDifferentAmountsAndAccounts() {
+        TransactionFingerprint base = TransactionFingerprint.of(ACCOUNT, VALUE_DATE, new BigDecimal("1500"), "UTR1");
+
+        assertNotEquals(base, TransactionFingerprint.of(ACCOUNT, VALUE_DATE, new BigDecimal("1500.01"), "UTR1"));
+        assertNotEquals(base, TransactionFingerprint.of("50100087654321", VALUE_DATE, new BigDecimal("1500"), "UTR1"));
+        assertNotEquals(base,
+                TransactionFingerprint.of(ACCOUNT, VALUE_DATE.plusDays(1), new BigDecimal("1500"), "UTR1"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.clearing.common.fields;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clearing.model.BankTransactionView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class FieldCatalogTest {
+
+    private static final FieldCatalog<BankTransactionView> CATALOG = FieldCatalog.<BankTransactionView>of()
+            .field("txnRef", BankTransactionView::getTxnRef, "txn_ref")
+            .field("amount", BankTransactionView::getAmount, "amount")
+            .field("statusId", BankTransactionView::getStatusId, "status_id")
+            .field("status", BankTransactionView::getStatus, "status_id");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void blankOrAbsentSelectsEverything() {
+        assertNull(CATALOG.select(null));
+        assertNull(CATALOG.select(" "));
+        assertNull(CATALOG.select(" , "));
+    }
+
+    @Test
+    void keepsCatalogOrderAndDistinctColumns() {
+        FieldSet<BankTransactionView> fields = CATALOG.select("status, txnRef ,statusId");
+
+        assertEquals(List.of("txn_ref", "status_id"), fields.columns());
+        assertTrue(fields.includes("status"));
+        assertFalse(fields.includes("amount"));
+        assertEquals(fields.key(), CATALOG.select("txnRef,statusId,status").key());
+        assertSame(fields, CATALOG.select("status, txnRef ,statusId"));
+    }
+
+    @Test
+    void rejectsUnknownField() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> CATALOG.select("txnRef,password"));
+        assertEquals("Unknown field 'password'; fields must be among txnRef, amount, statusId, status",
+                ex.getMessage());
+    }
+
+    @Test
+    void serializesOnlySelectedPropertiesIncludingNulls() throws JsonProcessingException {
+        BankTransactionView view = new BankTransactionView();
+        view.setTxnRef("UTR-1");
+        view.setAmount(new BigDecimal("12.50"));
+
+        FieldSet<BankTransactionView> fields = CATALOG.select("amount,txnRef,status");
+
+        assertEquals("[{\"txnRef\":\"UTR-1\",\"amount\":12.50,\"status\":null}]",
+                objectMapper.writeValueAsString(fields.rows(List.of(view))));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.clearing.common.ndjson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class NdjsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesOneDocumentPerLineAndLeavesStreamOpen() throws IOException {
+        boolean[] closed = new boolean[1];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, bytes)) {
+            writer.write(Map.of("id", 1));
+            writer.write(Map.of("id", 2));
+            assertEquals(2, writer.rows());
+        }
+
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", bytes.toString(StandardCharsets.UTF_8));
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    void failedWriteSurfacesAsUncheckedIOException() throws IOException {
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, disconnected);
+
+        // Buffered until the generator fills its buffer, then the broken stream is hit
+        UncheckedIOException ex = assertThrows(UncheckedIOException.class, () -> {
+            for (int i = 0; i < 10_000; i++) {
+                writer.write(Map.of("id", i));
+            }
+        });
+        assertEquals("Broken pipe", ex.getCause().getMessage());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.clearing.common.pagination;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class KeysetCursorTest {
+
+    private static final KeysetColumn TXN_DATE = new KeysetColumn("bt.txn_date", LocalDate.class, true);
+    private static final KeysetColumn AMOUNT = new KeysetColumn("SUM(bt.amount)", BigDecimal.class, false);
+
+    @Test
+    void roundTripsTypedKeysAndNullKeys() {
+        String dated = new KeysetCursor("receiptDate:DESC", LocalDate.of(2025, 12, 6), 42L).encode();
+        KeysetCursor decoded = KeysetCursor.decode(dated, "receiptDate:DESC", TXN_DATE);
+        assertEquals(LocalDate.of(2025, 12, 6), decoded.lastKey());
+        assertEquals(42L, decoded.lastId());
+
+        String amount = new KeysetCursor("amount:ASC", new BigDecimal("1500.50"), 7L).encode();
+        assertEquals(new BigDecimal("1500.50"), KeysetCursor.decode(amount, "amount:ASC", AMOUNT).lastKey());
+
+        String nullKey = new KeysetCursor("receiptDate:DESC", null, 9L).encode();
+        assertNull(KeysetCursor.decode(nullKey, "receiptDate:DESC", TXN_DATE).lastKey());
+    }
+
+    @Test
+    void rejectsTamperedOrMismatchedCursors() {
+        String token = new KeysetCursor("receiptDate:DESC", LocalDate.of(2025, 12, 6), 42L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token, "amount:DESC", TXN_DATE));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor", "x", TXN_DATE));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token, "receiptDate:DESC", AMOUNT));
+    }
+
+    @Test
+    void seekPredicateKeepsNullKeysAfterNonNullOnes() {
+        assertEquals("(SUM(bt.amount), MIN(bt.bank_txn_id)) > (:keysetKey, :keysetId)",
+                AMOUNT.seekPredicate("MIN(bt.bank_txn_id)", true, false));
+        assertEquals("((bt.txn_date, bt.id) < (:keysetKey, :keysetId) OR bt.txn_date IS NULL)",
+                TXN_DATE.seekPredicate("bt.id", false, false));
+        assertEquals("(bt.txn_date IS NULL AND bt.id < :keysetId)", TXN_DATE.seekPredicate("bt.id", false, true));
+        assertEquals("bt.txn_date DESC NULLS LAST, bt.id DESC", TXN_DATE.orderBy("bt.id", false));
+    }
+}
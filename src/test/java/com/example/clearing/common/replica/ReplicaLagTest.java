@@ -0,0 +1,65 @@
+package com.example.clearing.common.replica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ReplicaLagTest {
+
+    @Test
+    void lagIsAgeOfOldestUnreplayedPosition() {
+        ReplicaLag lag = new ReplicaLag(5_000);
+
+        lag.record(1_000, 100, 100);
+        assertEquals(0, lag.lagMillis());
+
+        lag.record(2_000, 200, 100);
+        lag.record(3_000, 300, 150);
+        assertEquals(1_000, lag.lagMillis(), "position 200 was reached at t=2000 and is not replayed");
+
+        lag.record(4_000, 300, 300);
+        assertEquals(0, lag.lagMillis());
+    }
+
+    @Test
+    void idlePrimaryIsNotLag() {
+        ReplicaLag lag = new ReplicaLag(5_000);
+
+        lag.record(1_000, 100, 100);
+        lag.record(60_000, 100, 100);
+
+        assertEquals(0, lag.lagMillis());
+    }
+
+    @Test
+    void replicaServesOnlyWhenFreshCaughtUpAndPastToken() {
+        ReplicaLag lag = new ReplicaLag(5_000);
+        assertFalse(lag.canServe(0, 1_000, 0), "no sample yet");
+
+        lag.record(1_000, 100, 100);
+        assertTrue(lag.canServe(0, 1_000, 1_500));
+        assertTrue(lag.canServe(100, 1_000, 1_500));
+        assertFalse(lag.canServe(101, 1_000, 1_500), "token ahead of the replay position");
+        assertFalse(lag.canServe(0, 1_000, 7_000), "sample is stale");
+
+        lag.record(2_000, 200, 100);
+        lag.record(4_000, 300, 100);
+        assertFalse(lag.canServe(0, 1_000, 4_000), "lagging 2s behind");
+
+        lag.unavailable(5_000);
+        assertFalse(lag.canServe(0, Long.MAX_VALUE, 5_000));
+        assertEquals(-1, lag.lagMillis());
+    }
+
+    @Test
+    void parsesPgLsnTokens() {
+        assertEquals(0x7D0B9688L, ReadConsistency.parseLsn("0/7D0B9688"));
+        assertEquals((0x16L << 32) | 0xB374D848L, ReadConsistency.parseLsn(" 16/b374d848 "));
+        assertThrows(IllegalArgumentException.class, () -> ReadConsistency.parseLsn("16"));
+        assertThrows(IllegalArgumentException.class, () -> ReadConsistency.parseLsn("-1/0"));
+        assertThrows(IllegalArgumentException.class, () -> ReadConsistency.parseLsn("1/123456789"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.clearing.common.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.clearing.model.BankTransactionView;
+
+class ColumnMappingTest {
+
+    private static final ColumnMapping<BankTransactionView> MAPPING = ColumnMapping
+            .of(BankTransactionView::new)
+            .string("txn_ref", BankTransactionView::setTxnRef)
+            .longValue("bank_account_id", BankTransactionView::setBankAccountId)
+            .date("txn_date", BankTransactionView::setTxnDate)
+            .decimal("amount", BankTransactionView::setAmount)
+            .bool("is_mapped", BankTransactionView::setMapped)
+            .integer("status_id", BankTransactionView::setStatusId).optional();
+
+    private Connection connection;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:column_mapping");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    private List<BankTransactionView> map(RowMapper<BankTransactionView> mapper, String sql) throws SQLException {
+        List<BankTransactionView> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(mapper.mapRow(rs, rows.size()));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void mapsByLabelAndKeepsNulls() throws SQLException {
+        List<BankTransactionView> rows = map(MAPPING.rowMapper(), """
+                SELECT * FROM (VALUES
+                    (CAST(1 AS INT), DATE '2026-03-02', 'UTR1', CAST(7 AS BIGINT), TRUE, CAST(1500.00 AS NUMERIC(18, 2))),
+                    (NULL, NULL, 'UTR2', NULL, NULL, NULL)
+                ) AS t(status_id, txn_date, txn_ref, bank_account_id, is_mapped, amount)
+                """);
+
+        BankTransactionView first = rows.get(0);
+        assertEquals("UTR1", first.getTxnRef());
+        assertEquals(7L, first.getBankAccountId());
+        assertEquals(LocalDate.of(2026, 3, 2), first.getTxnDate());
+        assertEquals(new BigDecimal("1500.00"), first.getAmount());
+        assertEquals(Boolean.TRUE, first.getMapped());
+        assertEquals(1, first.getStatusId());
+
+        BankTransactionView second = rows.get(1);
+        assertEquals("UTR2", second.getTxnRef());
+        assertNull(second.getBankAccountId(), "NULL bigint is not read as 0");
+        assertNull(second.getTxnDate());
+        assertNull(second.getAmount());
+        assertNull(second.getMapped(), "NULL boolean is not read as false");
+        assertNull(second.getStatusId());
+    }
+
+    @Test
+    void skipsMissingOptionalColumnAndRejectsMissingRequiredOne() throws SQLException {
+        List<BankTransactionView> rows = map(MAPPING.rowMapper(), """
+                SELECT 'UTR1' AS txn_ref, CAST(7 AS BIGINT) AS bank_account_id, DATE '2026-03-02' AS txn_date,
+                       CAST(1 AS NUMERIC(18, 2)) AS amount, FALSE AS is_mapped
+                """);
+        assertNull(rows.get(0).getStatusId());
+
+        SQLException missing = assertThrows(SQLException.class,
+                () -> map(MAPPING.rowMapper(), "SELECT 'UTR1' AS txn_ref"));
+        assertEquals("Column 'bank_account_id' not found in result set", missing.getMessage());
+    }
+
+    @Test
+    void lenientMapperLeavesUnselectedColumnsUnset() throws SQLException {
+        List<BankTransactionView> rows = map(MAPPING.lenientRowMapper(), "SELECT 'UTR1' AS txn_ref");
+        assertEquals("UTR1", rows.get(0).getTxnRef());
+        assertNull(rows.get(0).getBankAccountId());
+        assertNull(rows.get(0).getAmount());
+    }
+
+    @Test
+    void rebindsWhenHandedAnotherResultSet() throws SQLException {
+        RowMapper<BankTransactionView> mapper = MAPPING.rowMapper();
+        map(mapper, """
+                SELECT 'UTR1' AS txn_ref, CAST(7 AS BIGINT) AS bank_account_id, DATE '2026-03-02' AS txn_date,
+                       CAST(1 AS NUMERIC(18, 2)) AS amount, FALSE AS is_mapped
+                """);
+
+        List<BankTransactionView> rows = map(mapper, """
+                SELECT FALSE AS is_mapped, CAST(2 AS NUMERIC(18, 2)) AS amount, DATE '2026-03-03' AS txn_date,
+                       CAST(8 AS BIGINT) AS bank_account_id, 'UTR2' AS txn_ref
+                """);
+        assertEquals("UTR2", rows.get(0).getTxnRef());
+        assertEquals(8L, rows.get(0).getBankAccountId());
+    }
+}
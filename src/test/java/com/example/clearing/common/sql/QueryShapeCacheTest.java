@@ -0,0 +1,74 @@
+package com.example.clearing.common.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryShapeCacheTest {
+
+    private static QueryShape search(String txnRef, Integer statusId, int offset) {
+        return new QueryShape("search")
+                .sql("SELECT * FROM t WHERE tenant = :tenant")
+                .param("tenant", 1)
+                .optional(txnRef != null, " AND txn_ref = :txnRef", "txnRef", txnRef)
+                .optional(statusId != null, " AND status_id = :statusId", "statusId", statusId)
+                .variant("page", () -> " LIMIT :limit OFFSET :offset")
+                .param("limit", 20)
+                .param("offset", offset);
+    }
+
+    @Test
+    void sameShapeWithDifferentValuesReusesSqlText() {
+        QueryShapeCache cache = new QueryShapeCache(new SimpleMeterRegistry(), 16);
+
+        String first = cache.sql(search("UTR1", null, 0));
+        String second = cache.sql(search("UTR2", null, 40));
+
+        assertSame(first, second);
+        assertEquals("SELECT * FROM t WHERE tenant = :tenant AND txn_ref = :txnRef LIMIT :limit OFFSET :offset",
+                first);
+        assertEquals(1, cache.distinctShapes());
+        assertEquals(0.5, cache.hitRate());
+    }
+
+    @Test
+    void filterPresenceAndVariantsProduceDistinctShapes() {
+        QueryShapeCache cache = new QueryShapeCache(new SimpleMeterRegistry(), 16);
+
+        String byRef = cache.sql(search("UTR1", null, 0));
+        String byStatus = cache.sql(search(null, 2, 0));
+        String sorted = cache.sql(search(null, 2, 0).variant("sort=amount: ASC", () -> " ORDER BY amount"));
+
+        assertNotEquals(byRef, byStatus);
+        assertNotEquals(byStatus, sorted);
+        assertEquals(3, cache.distinctShapes());
+    }
+
+    @Test
+    void absentFiltersBindNoParameters() {
+        QueryShape shape = search(null, 2, 0);
+
+        assertEquals(4, shape.params().size());
+        assertEquals(2, shape.params().get("statusId"));
+    }
+
+    @Test
+    void typedFragmentsRenderWithNamedParameters() {
+        QueryShapeCache cache = new QueryShapeCache(new SimpleMeterRegistry(), 16);
+        Field<String> txnRef = DSL.field(DSL.name("t", "txn_ref"), String.class);
+        Field<Integer> statusId = DSL.field(DSL.name("t", "status_id"), Integer.class);
+        QueryShape shape = new QueryShape("typed")
+                .sql(DSL.select(txnRef).from(DSL.table(DSL.name("t"))).where(DSL.trueCondition()))
+                .optional(true, txnRef.eq(DSL.param("txnRef", txnRef)), "txnRef", "UTR1")
+                .optional(false, statusId.eq(DSL.param("statusId", statusId)), "statusId", 2);
+
+        assertEquals("SELECT t.txn_ref FROM t WHERE TRUE AND t.txn_ref = :txnRef", cache.sql(shape));
+        assertEquals(1, shape.params().size());
+    }
+}
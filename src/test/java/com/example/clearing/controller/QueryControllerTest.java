@@ -0,0 +1,112 @@
+package com.example.clearing.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.clearing.dao.DataVersionDao;
+import com.example.clearing.dto.VoucherHeaderView;
+import com.example.clearing.repository.PaymentAllocationRepository;
+import com.example.clearing.repository.RequestSettlementRepository;
+import com.example.clearing.repository.VoucherHeaderRepository;
+import com.example.clearing.service.QueryService;
+import com.example.clearing.service.QueryStreamService;
+import com.example.clearing.service.StatusService;
+
+@ExtendWith(MockitoExtension.class)
+class QueryControllerTest {
+
+    @Mock
+    private VoucherHeaderRepository voucherHeaderRepository;
+
+    @Mock
+    private PaymentAllocationRepository paymentAllocationRepository;
+
+    @Mock
+    private RequestSettlementRepository requestSettlementRepository;
+
+    @Mock
+    private StatusService statusService;
+
+    @Mock
+    private DataVersionDao dataVersionDao;
+
+    @Mock
+    private QueryStreamService queryStreamService;
+
+    private QueryController controller;
+
+    @BeforeEach
+    void setUp() {
+        QueryService queryService = new QueryService(voucherHeaderRepository, paymentAllocationRepository,
+                requestSettlementRepository, statusService, dataVersionDao);
+        controller = new QueryController(queryService, statusService, queryStreamService);
+        when(voucherHeaderRepository.search(eq(10), eq(20), eq(null), eq(null), any(Pageable.class)))
+                .thenReturn(List.of(new VoucherHeaderView(1, 10, 20, null, "V-1", LocalDate.of(2026, 3, 2),
+                        new BigDecimal("100.00"), null, null, null, null)));
+    }
+
+    @Test
+    void unchangedVersionAnswers304WithoutReadingTheList() {
+        when(dataVersionDao.version(DataVersionDao.VOUCHER_HEADER, 10L, 20L)).thenReturn(5L);
+        String etag = firstPoll();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Object body = controller.getVoucherHeaders(10, 20, null, null, null, 100, conditional(etag, response));
+
+        assertNull(body);
+        assertEquals(304, response.getStatus());
+        verify(voucherHeaderRepository, times(1)).search(any(), any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void changedVersionReadsTheListAgain() {
+        when(dataVersionDao.version(DataVersionDao.VOUCHER_HEADER, 10L, 20L)).thenReturn(5L, 6L);
+        String etag = firstPoll();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<?> second = controller.getVoucherHeaders(10, 20, null, null, null, 100,
+                conditional(etag, response));
+
+        assertEquals(200, second.getStatusCode().value());
+        assertNotEquals(etag, second.getHeaders().getETag());
+        verify(voucherHeaderRepository, times(2)).search(any(), any(), any(), any(), any(Pageable.class));
+    }
+
+    private String firstPoll() {
+        ResponseEntity<?> first = controller.getVoucherHeaders(10, 20, null, null, null, 100,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/voucher-headers"),
+                        new MockHttpServletResponse()));
+        assertEquals(200, first.getStatusCode().value());
+        assertNotNull(first.getHeaders().getETag());
+        return first.getHeaders().getETag();
+    }
+
+    private static ServletWebRequest conditional(String etag, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/voucher-headers");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return new ServletWebRequest(request, response);
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.clearing.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.clearing.common.pagination.CountStrategy;
+import com.example.clearing.common.pagination.KeysetPage;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.common.sql.QueryShapeCache;
+import com.example.clearing.model.BankTransactionSearchCriteria;
+import com.example.clearing.model.BankTransactionView;
+import com.example.clearing.repository.BankTransactionFilterQuery;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs EXPLAIN for every optional-filter shape of the bank-transaction searches against
+ * synthetic data and fails if any shape falls back to a sequential scan of
+ * clearing.bank_transaction or its group summary, or if the claim-screen search reads
+ * open_recon_item rows only to discard them. Needs a scratch PostgreSQL database:
+ *
+ * <pre>
+ * PLAN_CHECK_JDBC_URL=jdbc:postgresql://localhost:5432/plan_check \
+ * PLAN_CHECK_JDBC_USER=postgres PLAN_CHECK_JDBC_PASSWORD=postgres \
+ * mvn test -Dtest=QueryPlanRegressionTest
+ * </pre>
+ *
+ * Schema, data and migrations are applied in one transaction that is rolled back.
+ */
+@EnabledIfEnvironmentVariable(named = "PLAN_CHECK_JDBC_URL", matches = ".+")
+class QueryPlanRegressionTest {
+
+    private static final int BOARD_ID = 1;
+    private static final int EMPLOYER_ID = 1;
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+    private static final LocalDate END = LocalDate.of(2025, 3, 31);
+    private static final List<String> MIGRATIONS = List.of(
+            "sql/migrations/002_keyset_pagination_indexes.sql",
+            "sql/migrations/003_bank_transaction_filter_indexes.sql",
+            "sql/migrations/004_bank_transaction_group_summary.sql",
+            "sql/migrations/005_open_recon_item_ordered_filter_indexes.sql");
+
+    // Walking idx_open_recon_item_txn_date to the old seeded account discards ~200k rows
+    private static final long MAX_WORKLIST_ROWS_DISCARDED = 1_000;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static Connection connection;
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        connection = DriverManager.getConnection(System.getenv("PLAN_CHECK_JDBC_URL"),
+                System.getenv("PLAN_CHECK_JDBC_USER"), System.getenv("PLAN_CHECK_JDBC_PASSWORD"));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT to_regclass('clearing.bank_transaction') IS NOT NULL")) {
+            rs.next();
+            if (rs.getBoolean(1)) {
+                throw new IllegalStateException("PLAN_CHECK_JDBC_URL must point at a scratch database");
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(classpathSql("plan-check/seed.sql"));
+            for (String migration : MIGRATIONS) {
+                statement.execute(classpathSql(migration));
+            }
+            statement.execute("ANALYZE clearing.bank_transaction");
+            statement.execute("ANALYZE reconciliation.bank_account");
+            statement.execute("ANALYZE reconciliation.open_recon_item");
+        }
+        DataSource dataSource = new SingleConnectionDataSource(connection, true);
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void rollback() throws Exception {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    void secureGroupedSearchUsesIndexesForEveryFilterShape() throws Exception {
+        CapturingJdbcTemplate capturing = new CapturingJdbcTemplate(jdbcTemplate);
+        TotalCountResolver countResolver = new TotalCountResolver(capturing, objectMapper, 60, 100);
+        BankTransactionSearchDao dao = new BankTransactionSearchDao(capturing, countResolver,
+                new QueryShapeCache(new SimpleMeterRegistry(), 1024));
+
+        List<String> regressions = new ArrayList<>();
+        for (int shape = 0; shape < 1 << 6; shape++) {
+            BankTransactionSearchCriteria criteria = new BankTransactionSearchCriteria();
+            if ((shape & 1) != 0) {
+                criteria.setAmount(new BigDecimal("101.00"));
+            }
+            if ((shape & 2) != 0) {
+                criteria.setDrCrFlag("cr");
+            }
+            if ((shape & 4) != 0) {
+                criteria.setBankAccountId(201L);
+            }
+            if ((shape & 8) != 0) {
+                criteria.setBankAccountNumber("ACC200");
+            }
+            if ((shape & 16) != 0) {
+                criteria.setTxnRef("UTR10000");
+            }
+            if ((shape & 32) != 0) {
+                criteria.setStatusId(2);
+            }
+            dao.searchPaginated(criteria, START, END, BOARD_ID, EMPLOYER_ID, PageRequest.of(0, 20),
+                    CountStrategy.NONE);
+            checkPlan("searchPaginated shape " + Integer.toBinaryString(shape), capturing.lastSql,
+                    capturing.lastParams, regressions);
+        }
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+
+    @Test
+    void claimSearchReadsWorklistInOrderForEveryFilterShape() throws Exception {
+        CapturingJdbcTemplate capturing = new CapturingJdbcTemplate(jdbcTemplate);
+        BankTransactionSearchDao dao = new BankTransactionSearchDao(capturing, null,
+                new QueryShapeCache(new SimpleMeterRegistry(), 1024));
+
+        List<String> regressions = new ArrayList<>();
+        for (int shape = 0; shape < 1 << 6; shape++) {
+            BankTransactionSearchCriteria criteria = new BankTransactionSearchCriteria();
+            if ((shape & 1) != 0) {
+                criteria.setTxnDate(LocalDate.of(2024, 6, 10));
+            }
+            if ((shape & 2) != 0) {
+                criteria.setAmount(new BigDecimal("777.77"));
+            }
+            if ((shape & 4) != 0) {
+                criteria.setDrCrFlag("cr");
+            }
+            if ((shape & 8) != 0) {
+                criteria.setBankAccountId(999L);
+            }
+            if ((shape & 16) != 0) {
+                criteria.setBankAccountNumber("ACC999");
+            }
+            if ((shape & 32) != 0) {
+                criteria.setTxnRef("OLD7");
+            }
+            dao.search(criteria, 50);
+            String label = "search shape " + Integer.toBinaryString(shape);
+            // Executed rather than estimated: walking the date index past non-matching rows
+            // only shows up in the rows the scan actually discarded
+            JsonNode plan = explain(label, "EXPLAIN (ANALYZE, FORMAT JSON) ", capturing.lastSql,
+                    capturing.lastParams);
+            long discarded = rowsDiscarded(plan, "open_recon_item");
+            if (hasNode(plan, "Seq Scan", "open_recon_item") || discarded > MAX_WORKLIST_ROWS_DISCARDED) {
+                regressions.add(label + " discarded " + discarded + " open_recon_item rows:\n"
+                        + capturing.lastSql);
+            }
+        }
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+
+    @Test
+    void listFiltersUseIndexesForEveryFilterShape() throws Exception {
+        List<String> regressions = new ArrayList<>();
+        for (int shape = 0; shape < 1 << 5; shape++) {
+            BankTransactionFilterQuery query = BankTransactionFilterQuery.of(
+                    BOARD_ID,
+                    EMPLOYER_ID,
+                    (shape & 1) != 0 ? 10000 : null,
+                    (shape & 2) != 0 ? "UTR10000" : null,
+                    (shape & 4) != 0 ? Boolean.TRUE : null,
+                    (shape & 8) != 0 ? START : null,
+                    (shape & 16) != 0 ? END : null);
+            // Only the page query is checked: counting a large tenant without a selective filter
+            // legitimately scans, and the count is skipped whenever the page shows the total
+            checkPlan("findByFilters shape " + Integer.toBinaryString(shape), query.selectSql() + " LIMIT 20",
+                    query.params(), regressions);
+        }
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+
+    @Test
+    void keysetPagesFollowEverySortProperty() {
+        BankTransactionSearchDao dao = new BankTransactionSearchDao(jdbcTemplate, null,
+                new QueryShapeCache(new SimpleMeterRegistry(), 1024));
+        BankTransactionSearchCriteria criteria = new BankTransactionSearchCriteria();
+
+        for (String property : List.of("txnDate", "receiptDate", "createdAt", "amount", "id")) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                String label = property + " " + direction;
+                Sort sort = Sort.by(direction, property);
+                KeysetPage<BankTransactionView> first = dao.searchPaginatedKeyset(criteria, START, END, BOARD_ID,
+                        EMPLOYER_ID, sort, 20, null);
+                assertTrue(first.hasNext(), label);
+                KeysetPage<BankTransactionView> second = dao.searchPaginatedKeyset(criteria, START, END, BOARD_ID,
+                        EMPLOYER_ID, sort, 20, first.nextCursor());
+
+                Set<String> seen = new HashSet<>();
+                first.content().forEach(row -> seen.add(groupKey(row)));
+                assertEquals(20, seen.size(), label);
+                assertFalse(second.content().isEmpty(), label);
+                second.content().forEach(
+                        row -> assertTrue(seen.add(groupKey(row)), label + " repeated " + groupKey(row)));
+            }
+        }
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> dao.searchPaginatedKeyset(criteria, START, END, BOARD_ID, EMPLOYER_ID,
+                        Sort.by("voucherNumber"), 20, null));
+        assertEquals("Keyset pagination cannot sort by voucherNumber; sort by one of amount, createdAt, id, "
+                + "receiptDate, txnDate", ex.getMessage());
+    }
+
+    private static String groupKey(BankTransactionView row) {
+        return row.getInternalRef() + "|" + row.getTxnRef() + "|" + row.getTxnDate() + "|" + row.getType() + "|"
+                + row.getStatusId();
+    }
+
+    private void checkPlan(String label, String sql, Map<String, ?> params, List<String> regressions)
+            throws Exception {
+        JsonNode root = explain(label, "EXPLAIN (FORMAT JSON) ", sql, params);
+        if (hasNode(root, "Seq Scan", "bank_transaction")
+                || hasNode(root, "Seq Scan", "bank_transaction_group_summary")) {
+            regressions.add(label + " regressed to a seq scan on clearing.bank_transaction(_group_summary):\n" + sql);
+        }
+    }
+
+    private JsonNode explain(String label, String explain, String sql, Map<String, ?> params) throws Exception {
+        assertFalse(sql == null || sql.isBlank(), label + ": no query captured");
+        String plan = jdbcTemplate.queryForObject(explain + sql, params, String.class);
+        return objectMapper.readTree(plan).path(0).path("Plan");
+    }
+
+    /**
+     * Rows the executed plan fetched from the relation only to drop them in a filter.
+     */
+    private long rowsDiscarded(JsonNode node, String relation) {
+        long rows = 0;
+        if (relation.equals(node.path("Relation Name").asText())) {
+            rows += (node.path("Rows Removed by Filter").asLong()
+                    + node.path("Rows Removed by Index Recheck").asLong()) * node.path("Actual Loops").asLong(1);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            rows += rowsDiscarded(child, relation);
+        }
+        return rows;
+    }
+
+    /**
+     * Whether the plan contains a node of the given type, on the given relation when one
+     * is named.
+     */
+    private boolean hasNode(JsonNode node, String nodeType, String relation) {
+        if (nodeType.equals(node.path("Node Type").asText())
+                && (relation == null || relation.equals(node.path("Relation Name").asText()))) {
+            return true;
+        }
+        for (JsonNode child : node.path("Plans")) {
+            if (hasNode(child, nodeType, relation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String classpathSql(String location) throws Exception {
+        return new ClassPathResource(location).getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records the data query a DAO would run instead of executing it.
+     */
+    private static class CapturingJdbcTemplate extends NamedParameterJdbcTemplate {
+        private String lastSql;
+        private Map<String, ?> lastParams;
+
+        CapturingJdbcTemplate(NamedParameterJdbcTemplate delegate) {
+            super(delegate.getJdbcTemplate());
+        }
+
+        @Override
+        public <T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) {
+            this.lastSql = sql;
+            this.lastParams = paramMap;
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.clearing.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.clearing.dto.AllocationDetailsView;
+import com.example.clearing.model.BankTransactionView;
+
+/**
+ * Maps 10k-row result sets with the label-based row mappers the DAOs used before
+ * {@link com.example.clearing.common.sql.ColumnMapping} and with the index-bound
+ * mappings that replaced them. Result sets come from in-memory H2 so the numbers are
+ * mapping cost only; H2 resolves labels through a hash map much like PgJDBC.
+ *
+ * <p>
+ * The search shape selects internal_ref but not allocated_amount/remaining_amount,
+ * so the old mapper paid two failed {@code findColumn} calls per row. Not part of the
+ * test run; start it from the IDE or with:
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.clearing.dao.RowMapperBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private Connection connection;
+    private ResultSet searchRows;
+    private ResultSet allocationRows;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:row_mapper_benchmark");
+        try (Statement statement = connection.createStatement()) {
+            createTables(statement);
+        }
+        searchRows = connection
+                .createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM search_rows");
+        allocationRows = connection
+                .createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM allocation_rows");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private static void createTables(Statement statement) throws SQLException {
+        statement.execute("""
+                CREATE TABLE search_rows AS
+                SELECT CASE WHEN MOD(x, 4) = 0 THEN 'VAN' ELSE 'MT940' END AS type,
+                       CAST(x AS VARCHAR) AS source_txn_id,
+                       CAST(1 + MOD(x, 50) AS BIGINT) AS bank_account_id,
+                       'ACC' || (1 + MOD(x, 50)) AS bank_account_number,
+                       'UTR' || x AS txn_ref,
+                       CAST(NULL AS VARCHAR) AS internal_ref,
+                       DATEADD(DAY, MOD(x, 365), DATE '2026-01-01') AS txn_date,
+                       CAST(1 + MOD(x, 100000) / 100.0 AS NUMERIC(18, 2)) AS amount,
+                       CASE WHEN MOD(x, 2) = 0 THEN 'CR' ELSE 'DR' END AS dr_cr_flag,
+                       'NEFT credit ' || x AS description,
+                       FALSE AS is_mapped,
+                       DATEADD(SECOND, x, TIMESTAMP '2026-01-01 00:00:00') AS created_at,
+                       CAST(NULL AS INT) AS status_id
+                  FROM SYSTEM_RANGE(1, %d)
+                """.formatted(ROWS));
+        statement.execute("""
+                CREATE TABLE allocation_rows AS
+                SELECT 'V' || x AS voucher_number,
+                       DATEADD(DAY, MOD(x, 365), DATE '2026-01-01') AS voucher_date,
+                       'ER' || x AS employer_receipt_number,
+                       CASE WHEN MOD(x, 3) = 0 THEN NULL ELSE 'WR' || x END AS worker_receipt_number,
+                       DATEADD(DAY, MOD(x, 365), DATE '2026-01-01') AS receipt_date,
+                       CAST(1 + MOD(x, 100000) / 100.0 AS NUMERIC(18, 2)) AS receipt_amount,
+                       CAST(x AS BIGINT) AS bank_txn_id,
+                       'INT' || x AS internal_ref,
+                       'UTR' || x AS txn_ref,
+                       CAST(1 + MOD(x, 100000) / 100.0 AS NUMERIC(18, 2)) AS txn_amount,
+                       CAST(1 + MOD(x, 1000) / 100.0 AS NUMERIC(18, 2)) AS allocated_amount_from_txn,
+                       CAST(MOD(x, 1000) / 100.0 AS NUMERIC(18, 2)) AS remaining_amount_of_txn,
+                       DATEADD(DAY, MOD(x, 365), DATE '2026-01-01') AS txn_date
+                  FROM SYSTEM_RANGE(1, %d)
+                """.formatted(ROWS));
+    }
+
+    @Benchmark
+    public void searchByLabel(Blackhole blackhole) throws SQLException {
+        mapAll(searchRows, new LabelSearchRowMapper(), blackhole);
+    }
+
+    @Benchmark
+    public void searchByIndex(Blackhole blackhole) throws SQLException {
+        mapAll(searchRows, BankTransactionSearchDao.SEARCH_COLUMNS.rowMapper(), blackhole);
+    }
+
+    @Benchmark
+    public void allocationDetailsByLabel(Blackhole blackhole) throws SQLException {
+        mapAll(allocationRows, new LabelAllocationDetailsRowMapper(), blackhole);
+    }
+
+    @Benchmark
+    public void allocationDetailsByIndex(Blackhole blackhole) throws SQLException {
+        mapAll(allocationRows, AllocationDetailsDao.COLUMNS.rowMapper(), blackhole);
+    }
+
+    private static <T> void mapAll(ResultSet rs, RowMapper<T> mapper, Blackhole blackhole) throws SQLException {
+        rs.beforeFirst();
+        int rowNum = 0;
+        while (rs.next()) {
+            blackhole.consume(mapper.mapRow(rs, rowNum++));
+        }
+    }
+
+    /** BankTransactionSearchDao.BankTransactionRowMapper as it was. */
+    private static final class LabelSearchRowMapper implements RowMapper<BankTransactionView> {
+        @Override
+        public BankTransactionView mapRow(ResultSet rs, int rowNum) throws SQLException {
+            BankTransactionView view = new BankTransactionView();
+            view.setType(rs.getString("type"));
+            view.setSourceTxnId(rs.getString("source_txn_id"));
+            long bankAccountId = rs.getLong("bank_account_id");
+            if (!rs.wasNull()) {
+                view.setBankAccountId(bankAccountId);
+            }
+            view.setBankAccountNumber(rs.getString("bank_account_number"));
+            view.setTxnRef(rs.getString("txn_ref"));
+            if (hasColumn(rs, "internal_ref")) {
+                view.setInternalRef(rs.getString("internal_ref"));
+            }
+            java.sql.Date txnDate = rs.getDate("txn_date");
+            if (txnDate != null) {
+                view.setTxnDate(txnDate.toLocalDate());
+            }
+            view.setAmount(rs.getBigDecimal("amount"));
+            if (hasColumn(rs, "allocated_amount")) {
+                view.setAllocatedAmount(rs.getBigDecimal("allocated_amount"));
+            }
+            if (hasColumn(rs, "remaining_amount")) {
+                view.setRemainingAmount(rs.getBigDecimal("remaining_amount"));
+            }
+            view.setDrCrFlag(rs.getString("dr_cr_flag"));
+            view.setDescription(rs.getString("description"));
+            view.setMapped(rs.getObject("is_mapped", Boolean.class));
+            java.sql.Timestamp createdAt = rs.getTimestamp("created_at");
+            if (createdAt != null) {
+                view.setCreatedAt(createdAt.toLocalDateTime());
+            }
+            Integer statusId = rs.getObject("status_id", Integer.class);
+            if (statusId != null) {
+                view.setStatusId(statusId);
+            }
+            return view;
+        }
+
+        private boolean hasColumn(ResultSet rs, String columnLabel) {
+            try {
+                return rs.findColumn(columnLabel) > 0;
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+    }
+
+    /** AllocationDetailsDao.AllocationDetailsRowMapper as it was. */
+    private static final class LabelAllocationDetailsRowMapper implements RowMapper<AllocationDetailsView> {
+        @Override
+        public AllocationDetailsView mapRow(ResultSet rs, int rowNum) throws SQLException {
+            AllocationDetailsView view = new AllocationDetailsView();
+            view.setVoucherNumber(rs.getString("voucher_number"));
+            java.sql.Date voucherDate = rs.getDate("voucher_date");
+            view.setVoucherDate(voucherDate != null ? voucherDate.toLocalDate() : null);
+            view.setEmployerReceiptNumber(rs.getString("employer_receipt_number"));
+            view.setWorkerReceiptNumber(rs.getString("worker_receipt_number"));
+            java.sql.Date receiptDate = rs.getDate("receipt_date");
+            view.setReceiptDate(receiptDate != null ? receiptDate.toLocalDate() : null);
+            view.setReceiptAmount(rs.getBigDecimal("receipt_amount"));
+            view.setBankTxnId(rs.getLong("bank_txn_id"));
+            view.setInternalRef(rs.getString("internal_ref"));
+            view.setTxnRef(rs.getString("txn_ref"));
+            view.setTxnAmount(rs.getBigDecimal("txn_amount"));
+            view.setAllocatedAmountFromTxn(rs.getBigDecimal("allocated_amount_from_txn"));
+            view.setRemainingAmountOfTxn(rs.getBigDecimal("remaining_amount_of_txn"));
+            java.sql.Date txnDate = rs.getDate("txn_date");
+            view.setTxnDate(txnDate != null ? txnDate.toLocalDate() : null);
+            return view;
+        }
+    }
+}
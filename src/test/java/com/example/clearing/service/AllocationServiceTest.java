@@ -8,11 +8,14 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.clearing.client.PaymentFlowClient;
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.dao.ReceiptReferenceDao;
 import com.example.clearing.domain.BankTransaction;
 import com.example.clearing.domain.PaymentAllocation;
 import com.example.clearing.domain.RequestSettlement;
@@ -29,6 +32,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -58,9 +62,15 @@ class AllocationServiceTest {
     @Mock
     private SettlementService settlementService;
 
+    @Mock
+    private TotalCountResolver totalCountResolver;
+
     @Mock
     private PaymentFlowClient paymentFlowClient;
 
+    @Mock
+    private ReceiptReferenceDao receiptReferenceDao;
+
     private AllocationService allocationService;
     private final Map<Integer, BankTransaction> bankTxnStore = new HashMap<>();
     private final Map<Long, RequestSettlement> settlementStore = new HashMap<>();
@@ -120,7 +130,9 @@ class AllocationServiceTest {
                 statusService,
                 tenantAccessDao,
                 settlementService,
-                paymentFlowClient);
+                paymentFlowClient,
+                totalCountResolver,
+                receiptReferenceDao);
     }
 
     @Test
@@ -136,6 +148,7 @@ class AllocationServiceTest {
         BankTransaction updated = bankTxnStore.get(900);
         assertEquals(0, updated.getRemainingAmount().compareTo(new BigDecimal("320")));
         verify(paymentAllocationRepository, times(2)).save(any());
+        verify(receiptReferenceDao).refresh(Set.of(1L, 2L));
     }
 
     @Test
@@ -154,6 +167,7 @@ class AllocationServiceTest {
         assertNotNull(settlement);
         assertEquals(0, settlement.getRemainingAmount().compareTo(new BigDecimal("50")));
         verify(paymentAllocationRepository, times(2)).save(any());
+        verify(receiptReferenceDao).refresh(Set.of(500L));
     }
 
     @Test
@@ -166,6 +180,7 @@ class AllocationServiceTest {
                         createRequest(800L, 777, new BigDecimal("400"), new BigDecimal("50")))));
 
         assertEquals("Allocation already exists for this request and bank transaction", ex.getMessage());
+        verify(receiptReferenceDao, never()).refresh(any());
     }
 
     @Test
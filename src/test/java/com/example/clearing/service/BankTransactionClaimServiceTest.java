@@ -0,0 +1,181 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.clearing.common.pagination.TotalCountResolver;
+import com.example.clearing.model.BankTransactionClaimResult;
+import com.shared.common.dao.TenantAccessDao;
+
+/**
+ * Claims against H2, with the source, worklist and clearing tables created from the
+ * checked-in jOOQ DDL (sql/schema/clearing_schema.sql).
+ */
+@ExtendWith(MockitoExtension.class)
+class BankTransactionClaimServiceTest {
+
+    private static final List<String> TABLES = List.of("clearing.bank_transaction",
+            "reconciliation.statement_transaction", "reconciliation.van_transaction",
+            "reconciliation.open_recon_item");
+
+    @Mock
+    private StatusService statusService;
+
+    @Mock
+    private TenantAccessDao tenantAccessDao;
+
+    @Mock
+    private TotalCountResolver totalCountResolver;
+
+    @Mock
+    private BankTransactionSearchCache searchCache;
+
+    private JdbcTemplate jdbc;
+    private BankTransactionClaimService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:claim;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE SCHEMA IF NOT EXISTS clearing");
+        jdbc.execute("CREATE SCHEMA IF NOT EXISTS reconciliation");
+        String ddl = new ClassPathResource("sql/schema/clearing_schema.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        Arrays.stream(ddl.split(";"))
+                .map(statement -> statement.replaceAll("(?m)^--.*$", "").trim())
+                .filter(statement -> TABLES.stream()
+                        .anyMatch(table -> statement.startsWith("CREATE TABLE " + table + " ")))
+                .forEach(jdbc::execute);
+
+        insertStatement(501, "UTR-501", false);
+        insertStatement(502, "UTR-502", false);
+        insertStatement(503, "UTR-503", true);
+        insertVan(901, "VAN-901");
+        insertVan(902, "VAN-902");
+
+        TenantAccessDao.TenantAccess tenant = new TenantAccessDao.TenantAccess();
+        tenant.boardId = 1;
+        tenant.employerId = 10;
+        lenient().when(tenantAccessDao.getFirstAccessibleTenant()).thenReturn(tenant);
+        service = new BankTransactionClaimService(DSL.using(dataSource, SQLDialect.H2), statusService,
+                tenantAccessDao, totalCountResolver, searchCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    private void insertStatement(long id, String reference, boolean mapped) {
+        jdbc.update("INSERT INTO reconciliation.statement_transaction (id, statement_file_id, bank_reference, "
+                + "value_date, amount, dc, is_mapped) VALUES (?, 7, ?, ?, 150.00, 'CR', ?)",
+                id, reference, LocalDate.of(2026, 3, 2), mapped);
+        worklist("MT940", id, reference);
+    }
+
+    private void insertVan(long id, String reference) {
+        jdbc.update("INSERT INTO reconciliation.van_transaction (id, import_run_id, transaction_reference_number, "
+                + "transaction_date, amount, is_mapped) VALUES (?, 42, ?, ?, 200.00, FALSE)",
+                id, reference, LocalDate.of(2026, 3, 3));
+        worklist("VAN", id, reference);
+    }
+
+    private void worklist(String type, long id, String reference) {
+        jdbc.update("INSERT INTO reconciliation.open_recon_item (type, source_txn_id, txn_ref) VALUES (?, ?, ?)",
+                type, id, reference);
+    }
+
+    private static BankTransactionClaimService.Claim claim(String type, long sourceTxnId) {
+        return new BankTransactionClaimService.Claim(type, sourceTxnId, "clerk", null);
+    }
+
+    private boolean mapped(String table, long id) {
+        return jdbc.queryForObject("SELECT is_mapped FROM reconciliation." + table + " WHERE id = ?",
+                Boolean.class, id);
+    }
+
+    private int claimedRows() {
+        return jdbc.queryForObject("SELECT count(*) FROM clearing.bank_transaction", Integer.class);
+    }
+
+    @Test
+    void claimsMixedSourcesAndAnswersInRequestOrder() {
+        BankTransactionClaimService.ClaimBatch batch = service.claimFromRecon(List.of(
+                claim("VAN", 902), claim("mt940", 502), claim("VAN", 901), claim("CAMT53", 501)));
+
+        assertNull(batch.failure());
+        assertEquals(List.of(902L, 502L, 901L, 501L),
+                batch.results().stream().map(BankTransactionClaimResult::getSourceTxnId).toList());
+        assertEquals(List.of("VAN", "MT940", "VAN", "CAMT53"),
+                batch.results().stream().map(BankTransactionClaimResult::getTxnType).toList());
+        assertEquals(new BigDecimal("200.00"), batch.results().get(0).getAmount());
+        assertEquals("UTR-502", batch.results().get(1).getInternalRef());
+        assertEquals(4, claimedRows());
+        assertEquals(List.of(503L), jdbc.queryForList(
+                "SELECT source_txn_id FROM reconciliation.open_recon_item", Long.class));
+    }
+
+    @Test
+    void commitsClaimsBeforeAMidBatchFailureAndLeavesTheRest() {
+        BankTransactionClaimService.ClaimBatch batch = service.claimFromRecon(List.of(
+                claim("MT940", 501), claim("VAN", 901), claim("MT940", 503), claim("MT940", 502)));
+
+        assertEquals(List.of(501L, 901L),
+                batch.results().stream().map(BankTransactionClaimResult::getSourceTxnId).toList());
+        assertInstanceOf(IllegalStateException.class, batch.failure());
+        assertEquals("Transaction already mapped/claimed: 503", batch.failure().getMessage());
+        assertEquals(true, mapped("statement_transaction", 501));
+        assertEquals(true, mapped("van_transaction", 901));
+        // Claims after the failure are not attempted
+        assertEquals(false, mapped("statement_transaction", 502));
+        assertEquals(2, claimedRows());
+    }
+
+    @Test
+    void rejectsASourceRepeatedInOneRequest() {
+        BankTransactionClaimService.ClaimBatch batch = service.claimFromRecon(List.of(
+                claim("VAN", 901), claim("van", 901), claim("VAN", 902)));
+
+        assertEquals(1, batch.results().size());
+        assertEquals("Transaction already mapped/claimed: 901", batch.failure().getMessage());
+        assertEquals(false, mapped("van_transaction", 902));
+        assertEquals(1, claimedRows());
+    }
+
+    @Test
+    void reportsAnUnknownSource() {
+        BankTransactionClaimService.ClaimBatch batch = service.claimFromRecon(List.of(
+                claim("MT940", 501), claim("VAN", 999)));
+
+        assertEquals(1, batch.results().size());
+        assertInstanceOf(IllegalArgumentException.class, batch.failure());
+        assertEquals("van_transaction not found: 999", batch.failure().getMessage());
+
+        IllegalArgumentException single = assertThrows(IllegalArgumentException.class,
+                () -> service.claimFromRecon("MT940", 998L, "clerk", null));
+        assertEquals("statement_transaction not found: 998", single.getMessage());
+        assertEquals(1, claimedRows());
+    }
+}
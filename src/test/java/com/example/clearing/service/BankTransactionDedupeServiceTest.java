@@ -0,0 +1,153 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.clearing.common.dedupe.TransactionFingerprint;
+import com.example.clearing.model.BankTransactionView;
+
+/**
+ * Partition loads against H2, with vw_all_bank_transactions stood in by a table that
+ * has the view's columns. As in the real view, bank_account_id is the statement file
+ * id for statement rows and the import run id for VAN rows.
+ */
+class BankTransactionDedupeServiceTest {
+
+    private static final String ACCOUNT = "50100012345678";
+    private static final LocalDate VALUE_DATE = LocalDate.of(2026, 3, 2);
+
+    private JdbcTemplate jdbc;
+    private BankTransactionDedupeService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:dedupe;DB_CLOSE_DELAY=-1"));
+        jdbc.execute("CREATE SCHEMA IF NOT EXISTS reconciliation");
+        jdbc.execute("CREATE TABLE reconciliation.bank_account (id bigint PRIMARY KEY, account_no varchar(34))");
+        jdbc.execute("""
+                CREATE TABLE reconciliation.vw_all_bank_transactions (
+                    type varchar(16), source_txn_id varchar(32), bank_account_id bigint,
+                    txn_ref varchar(128), txn_date date, amount numeric(18, 2))
+                """);
+        // Statement file 11 and VAN import run 42 both resolve to ACCOUNT; 12 is another account
+        jdbc.update("INSERT INTO reconciliation.bank_account VALUES (11, ?), (42, ?), (12, '50100087654321')",
+                ACCOUNT, ACCOUNT);
+        insertRow("MT940", "501", 11, "utr/2026-0001", "1500.00");
+        insertRow("VAN", "9001", 42, "UTR20260001", "1500");
+        insertRow("CAMT53", "777", 12, "UTR20260001", "1500.00");
+
+        service = new BankTransactionDedupeService(new NamedParameterJdbcTemplate(jdbc), 100, 10, 2, 10, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    private void insertRow(String type, String sourceTxnId, long bankAccountId, String txnRef, String amount) {
+        jdbc.update("INSERT INTO reconciliation.vw_all_bank_transactions VALUES (?, ?, ?, ?, ?, ?)",
+                type, sourceTxnId, bankAccountId, txnRef, VALUE_DATE, new BigDecimal(amount));
+    }
+
+    private static BankTransactionView view(String type, String sourceTxnId, String accountNumber) {
+        BankTransactionView view = new BankTransactionView();
+        view.setType(type);
+        view.setSourceTxnId(sourceTxnId);
+        view.setBankAccountNumber(accountNumber);
+        view.setTxnRef("UTR-2026-0001");
+        view.setTxnDate(VALUE_DATE);
+        view.setAmount(new BigDecimal("1500.00"));
+        return view;
+    }
+
+    @Test
+    void flagsStatementAndVanRowsOfTheSameAccountAsDuplicates() {
+        BankTransactionView statement = view("MT940", "501", ACCOUNT);
+        BankTransactionView van = view("VAN", "9001", ACCOUNT);
+
+        service.flagDuplicates(List.of(statement, van));
+
+        assertEquals(Boolean.TRUE, statement.getPossibleDuplicate());
+        assertEquals(List.of("VAN:9001"), statement.getDuplicateOf());
+        assertEquals(List.of("MT940:501"), van.getDuplicateOf());
+    }
+
+    @Test
+    void leavesSameCreditOnAnotherAccountAlone() {
+        BankTransactionView other = view("CAMT53", "777", "50100087654321");
+        BankTransactionView unresolved = view("VAN", "9002", null);
+
+        service.flagDuplicates(List.of(other, unresolved));
+
+        assertNull(other.getPossibleDuplicate());
+        assertNull(unresolved.getPossibleDuplicate());
+    }
+
+    @Test
+    void registeredRowsAreSeenWithoutReloadingThePartition() {
+        TransactionFingerprint fingerprint = TransactionFingerprint.of(ACCOUNT, VALUE_DATE,
+                new BigDecimal("1500"), "UTR20260001");
+        BankTransactionDedupeService.SourceRef statement = new BankTransactionDedupeService.SourceRef("MT940", "501");
+        BankTransactionDedupeService.SourceRef resent = new BankTransactionDedupeService.SourceRef("VAN", "9003");
+
+        assertEquals(List.of(new BankTransactionDedupeService.SourceRef("VAN", "9001")),
+                service.findDuplicates(fingerprint, statement));
+
+        // Committed after the partition was loaded; only register() makes it visible
+        insertRow("VAN", "9003", 42, "UTR20260001", "1500");
+        service.register(fingerprint, resent);
+
+        assertEquals(Set.of(new BankTransactionDedupeService.SourceRef("VAN", "9001"), resent),
+                Set.copyOf(service.findDuplicates(fingerprint, statement)));
+        assertEquals(2, service.findDuplicates(fingerprint, resent).size());
+    }
+
+    @Test
+    void checksCreditsOfAColdPartitionOffTheCallingThread() throws Exception {
+        TransactionFingerprint fingerprint = TransactionFingerprint.of(ACCOUNT, VALUE_DATE,
+                new BigDecimal("1500"), "UTR20260001");
+        BankTransactionDedupeService.SourceRef first = new BankTransactionDedupeService.SourceRef("VAN", "9004");
+        BankTransactionDedupeService.SourceRef second = new BankTransactionDedupeService.SourceRef("VAN", "9005");
+
+        // Not in memory yet: no answer now, the load and registration run on the loader pool
+        assertNull(service.checkAndRegister(fingerprint, first));
+
+        List<BankTransactionDedupeService.SourceRef> duplicates = null;
+        for (int i = 0; i < 100 && duplicates == null; i++) {
+            Thread.sleep(20);
+            duplicates = service.checkAndRegister(fingerprint, second);
+        }
+        assertEquals(Set.of(new BankTransactionDedupeService.SourceRef("MT940", "501"),
+                new BankTransactionDedupeService.SourceRef("VAN", "9001"), first), Set.copyOf(duplicates));
+    }
+
+    @Test
+    void leavesRowsOfAPartitionStillLoadingUnflagged() throws Exception {
+        service.stop();
+        service = new BankTransactionDedupeService(new NamedParameterJdbcTemplate(jdbc), 100, 10, 1, 10, 0);
+        BankTransactionView statement = view("MT940", "501", ACCOUNT);
+
+        service.flagDuplicates(List.of(statement));
+        assertNull(statement.getPossibleDuplicate());
+
+        // The search above started the load; a later search is answered from memory
+        for (int i = 0; i < 100 && statement.getPossibleDuplicate() == null; i++) {
+            Thread.sleep(20);
+            service.flagDuplicates(List.of(statement));
+        }
+        assertEquals(List.of("VAN:9001"), statement.getDuplicateOf());
+    }
+}
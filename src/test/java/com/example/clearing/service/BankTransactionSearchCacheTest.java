@@ -0,0 +1,116 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clearing.model.BankTransactionSearchCriteria;
+import com.example.clearing.model.BankTransactionView;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BankTransactionSearchCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static BankTransactionSearchCriteria criteria(Long bankAccountId, String amount, String txnRef) {
+        BankTransactionSearchCriteria criteria = new BankTransactionSearchCriteria();
+        criteria.setTxnDate(DAY);
+        criteria.setAmount(amount != null ? new BigDecimal(amount) : null);
+        criteria.setBankAccountId(bankAccountId);
+        criteria.setTxnRef(txnRef);
+        return criteria;
+    }
+
+    private static BankTransactionSearchCache.SourceRow row(Long bankAccountId, String amount, String txnRef) {
+        return new BankTransactionSearchCache.SourceRow(bankAccountId, "ACC" + bankAccountId, txnRef, DAY,
+                new BigDecimal(amount), "CR");
+    }
+
+    private List<BankTransactionView> search(BankTransactionSearchCache cache, int employerId,
+            BankTransactionSearchCriteria criteria) {
+        return cache.get(1, employerId, criteria, 50, () -> {
+            loads.incrementAndGet();
+            return List.of(new BankTransactionView());
+        });
+    }
+
+    @Test
+    void equivalentCriteriaShareAnEntryPerTenant() {
+        BankTransactionSearchCache cache = new BankTransactionSearchCache(new SimpleMeterRegistry(), true, 30, 100, true);
+
+        List<BankTransactionView> first = search(cache, 10, criteria(7L, "1500.00", "UTR1"));
+        List<BankTransactionView> second = search(cache, 10, criteria(7L, "1500", " UTR1 "));
+        search(cache, 11, criteria(7L, "1500.00", "UTR1"));
+
+        assertSame(first, second);
+        assertEquals(2, loads.get(), "other tenant loads its own entry");
+        assertEquals(1.0 / 3, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    void changedRowDropsOnlyEntriesItCouldAppearIn() {
+        BankTransactionSearchCache cache = new BankTransactionSearchCache(new SimpleMeterRegistry(), true, 30, 100, true);
+        search(cache, 10, criteria(7L, "1500.00", null));
+        search(cache, 10, criteria(7L, "99.00", null));
+        search(cache, 10, criteria(8L, "1500.00", null));
+        search(cache, 10, criteria(null, "1500.00", null));
+        search(cache, 10, criteria(null, null, "UTR9"));
+
+        cache.sourceRowsChanged(List.of(row(7L, "1500.00", "UTR1")));
+
+        assertEquals(3, cache.size());
+        loads.set(0);
+        search(cache, 10, criteria(7L, "1500.00", null));
+        search(cache, 10, criteria(null, "1500.00", null));
+        search(cache, 10, criteria(7L, "99.00", null));
+        search(cache, 10, criteria(8L, "1500.00", null));
+        search(cache, 10, criteria(null, null, "UTR9"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void withoutTaggingAnyChangeFlushesEverything() {
+        BankTransactionSearchCache cache = new BankTransactionSearchCache(new SimpleMeterRegistry(), true, 30, 100, false);
+        search(cache, 10, criteria(7L, "1500.00", null));
+        search(cache, 10, criteria(8L, "99.00", null));
+
+        cache.sourceRowsChanged(List.of(row(9L, "1.00", "UTR1")));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        BankTransactionSearchCache cache = new BankTransactionSearchCache(new SimpleMeterRegistry(), true, 30, 100, true);
+
+        cache.get(1, 10, criteria(7L, "1500.00", null), 50, () -> {
+            cache.sourceRowsChanged(List.of(row(7L, "1500.00", "UTR1")));
+            return List.of();
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedAtCapacity() {
+        BankTransactionSearchCache cache = new BankTransactionSearchCache(new SimpleMeterRegistry(), true, 30, 2, true);
+        search(cache, 10, criteria(1L, "1.00", null));
+        search(cache, 10, criteria(2L, "1.00", null));
+        search(cache, 10, criteria(1L, "1.00", null));
+        search(cache, 10, criteria(3L, "1.00", null));
+
+        loads.set(0);
+        search(cache, 10, criteria(1L, "1.00", null));
+        search(cache, 10, criteria(2L, "1.00", null));
+        assertEquals(1, loads.get());
+    }
+}
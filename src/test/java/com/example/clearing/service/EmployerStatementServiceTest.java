@@ -0,0 +1,137 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.shared.common.dao.TenantAccessDao;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class EmployerStatementServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AllocationDetailsService allocationDetailsService;
+
+    @Mock
+    private TenantAccessDao tenantAccessDao;
+
+    @TempDir
+    Path baseDir;
+
+    private EmployerStatementService service;
+
+    @BeforeEach
+    void setUp() {
+        // 2026-04-03: March closes on April 5th with the 5-day grace period
+        Clock clock = Clock.fixed(Instant.parse("2026-04-03T10:00:00Z"), ZoneOffset.UTC);
+        service = new EmployerStatementService(jdbcTemplate, allocationDetailsService, tenantAccessDao,
+                baseDir.toString(), 2, 5, 3, true, clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void latestClosedPeriodWaitsForGracePeriod() {
+        assertEquals(YearMonth.of(2026, 2), service.latestClosedPeriod());
+        assertThrows(IllegalArgumentException.class, () -> service.generate(YearMonth.of(2026, 3)));
+    }
+
+    @Test
+    void generatesMissingStatementsAndKeepsCurrentOnes() throws Exception {
+        YearMonth period = YearMonth.of(2026, 2);
+        when(jdbcTemplate.queryForList(anyString(), anyMap())).thenReturn(List.of(
+                watermark(10, 2, 3, "2026-03-02T09:00Z"),
+                watermark(11, 1, 1, "2026-03-01T08:00Z")));
+        exportWritesEmployerId();
+        Path existing = service.statementPath(period, 1, 11);
+        Files.createDirectories(existing.getParent());
+        Files.writeString(existing, "already generated");
+        Files.writeString(service.watermarkPath(existing), "1:1:2026-03-01T08:00Z");
+
+        assertEquals(1, service.generate(period));
+
+        Path written = service.statementPath(period, 1, 10);
+        assertEquals("employer 10", Files.readString(written));
+        assertEquals("2:3:2026-03-02T09:00Z", Files.readString(service.watermarkPath(written)));
+        assertEquals("already generated", Files.readString(existing));
+        assertEquals("statement_2026-02.csv", written.getFileName().toString());
+        try (var siblings = Files.list(written.getParent())) {
+            assertEquals(2, siblings.count(), "statement and watermark only, no partial files left behind");
+        }
+        verify(allocationDetailsService, times(1)).exportAllocationDetailsCsv(any(), any(), any(), any(), any(),
+                any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void rewritesStatementsWhoseAllocationsChangedAfterClosing() throws Exception {
+        YearMonth period = YearMonth.of(2026, 2);
+        // Employer 10 got a late allocation; employer 12's only allocation was reversed
+        when(jdbcTemplate.queryForList(anyString(), anyMap())).thenReturn(List.of(
+                watermark(10, 3, 4, "2026-03-20T09:00Z")));
+        exportWritesEmployerId();
+        Path changed = service.statementPath(period, 1, 10);
+        Path reversed = service.statementPath(period, 1, 12);
+        for (Path statement : List.of(changed, reversed)) {
+            Files.createDirectories(statement.getParent());
+            Files.writeString(statement, "stale");
+            Files.writeString(service.watermarkPath(statement), "2:3:2026-03-02T09:00Z");
+        }
+
+        assertEquals(2, service.generate(period));
+
+        assertEquals("employer 10", Files.readString(changed));
+        assertEquals("3:4:2026-03-20T09:00Z", Files.readString(service.watermarkPath(changed)));
+        assertEquals("employer 12", Files.readString(reversed));
+        assertEquals(0, service.generate(period), "unchanged statements are not rewritten");
+    }
+
+    private static Map<String, Object> watermark(int employerId, long allocations, long versions, String lastChange) {
+        return Map.of("board_id", 1, "employer_id", employerId, "allocations", allocations, "versions", versions,
+                "last_change", lastChange);
+    }
+
+    private void exportWritesEmployerId() throws Exception {
+        when(allocationDetailsService.exportAllocationDetailsCsv(eq(LocalDate.of(2026, 2, 1)),
+                eq(LocalDate.of(2026, 2, 28)), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                any(), any())).thenAnswer(invocation -> {
+                    TenantAccessDao.TenantAccess ta = invocation.getArgument(8);
+                    OutputStream out = invocation.getArgument(9);
+                    out.write(("employer " + ta.employerId).getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+    }
+}
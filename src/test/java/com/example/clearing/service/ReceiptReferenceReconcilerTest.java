@@ -0,0 +1,65 @@
+package com.example.clearing.service;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.clearing.dao.ReceiptReferenceDao;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptReferenceReconcilerTest {
+
+    @Mock
+    private ReceiptReferenceDao receiptReferenceDao;
+
+    @Test
+    void pagesPastTheLastRequestIdOfEachBatch() {
+        when(receiptReferenceDao.allocatedRequestIds(Long.MIN_VALUE, 2)).thenReturn(List.of(3L, 7L));
+        when(receiptReferenceDao.allocatedRequestIds(7L, 2)).thenReturn(List.of(9L, 12L));
+        when(receiptReferenceDao.allocatedRequestIds(12L, 2)).thenReturn(List.of(15L));
+
+        new ReceiptReferenceReconciler(receiptReferenceDao, 2, true).reconcile();
+
+        InOrder order = inOrder(receiptReferenceDao);
+        order.verify(receiptReferenceDao).allocatedRequestIds(Long.MIN_VALUE, 2);
+        order.verify(receiptReferenceDao).refresh(List.of(3L, 7L));
+        order.verify(receiptReferenceDao).allocatedRequestIds(7L, 2);
+        order.verify(receiptReferenceDao).refresh(List.of(9L, 12L));
+        order.verify(receiptReferenceDao).allocatedRequestIds(12L, 2);
+        order.verify(receiptReferenceDao).refresh(List.of(15L));
+        // A short batch is the last one
+        verify(receiptReferenceDao, times(3)).allocatedRequestIds(anyLong(), anyInt());
+    }
+
+    @Test
+    void stopsOnAnEmptyBatchAfterAFullOne() {
+        when(receiptReferenceDao.allocatedRequestIds(Long.MIN_VALUE, 2)).thenReturn(List.of(3L, 7L));
+        when(receiptReferenceDao.allocatedRequestIds(7L, 2)).thenReturn(List.of());
+
+        new ReceiptReferenceReconciler(receiptReferenceDao, 2, true).reconcile();
+
+        verify(receiptReferenceDao).refresh(List.of(3L, 7L));
+        verify(receiptReferenceDao, times(1)).refresh(anyCollection());
+        verify(receiptReferenceDao, times(2)).allocatedRequestIds(anyLong(), anyInt());
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        new ReceiptReferenceReconciler(receiptReferenceDao, 2, false).reconcile();
+
+        verify(receiptReferenceDao, never()).allocatedRequestIds(anyLong(), anyInt());
+    }
+}
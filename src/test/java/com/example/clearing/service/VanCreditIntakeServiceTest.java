@@ -0,0 +1,189 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.clearing.dao.VanCreditDao;
+import com.example.clearing.model.VanCreditAck;
+import com.example.clearing.model.VanCreditNotification;
+
+@ExtendWith(MockitoExtension.class)
+class VanCreditIntakeServiceTest {
+
+    private static final long ACK_TIMEOUT_MILLIS = 1000;
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BankTransactionDedupeService dedupeService;
+
+    @Mock
+    private BankTransactionSearchCache searchCache;
+
+    private InMemoryVanCreditDao dao;
+    private VanCreditIntakeService service;
+
+    @BeforeEach
+    void setUp() {
+        dao = new InMemoryVanCreditDao();
+        service = new VanCreditIntakeService(jdbcTemplate, dao,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                dedupeService, searchCache, 10, 50, 100, ACK_TIMEOUT_MILLIS);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dao.release.countDown();
+        service.stop();
+    }
+
+    @Test
+    void commitsCreditsArrivingInOneWindowWithOneInsert() throws Exception {
+        List<CompletableFuture<VanCreditAck>> acks = List.of(
+                service.submit(credit("UTR-1")), service.submit(credit("UTR-2")), service.submit(credit("UTR-3")));
+
+        for (CompletableFuture<VanCreditAck> ack : acks) {
+            assertEquals(3, ack.get(5, TimeUnit.SECONDS).getBatchSize());
+            assertNull(ack.get().getRedelivery());
+        }
+        assertEquals(List.of(List.of("UTR-1", "UTR-2", "UTR-3")), dao.inserts);
+    }
+
+    @Test
+    void retriesCreditsIndividuallyWhenTheBatchFails() throws Exception {
+        CompletableFuture<VanCreditAck> first = service.submit(credit("UTR-1"));
+        CompletableFuture<VanCreditAck> bad = service.submit(credit(InMemoryVanCreditDao.REJECTED));
+        CompletableFuture<VanCreditAck> third = service.submit(credit("UTR-3"));
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getBatchSize());
+        assertEquals(1, third.get(5, TimeUnit.SECONDS).getBatchSize());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(Set.of("UTR-1", "UTR-3"), dao.recorded.keySet());
+    }
+
+    @Test
+    void answersResendAfterTimeoutWithTheFirstRow() throws Exception {
+        dao.release = new CountDownLatch(1);
+        CompletableFuture<VanCreditAck> timedOut = service.submit(credit("UTR-1"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, ex.getCause());
+
+        // The timed-out credit is still committed; the bank's re-send must not add a row
+        dao.release.countDown();
+        VanCreditAck resent = service.submit(credit(" UTR-1 ")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Boolean.TRUE, resent.getRedelivery());
+        assertEquals(dao.recorded.get("UTR-1"), resent.getSourceTxnId());
+        assertEquals(List.of(List.of("UTR-1")), dao.inserts);
+    }
+
+    @Test
+    void recordsAReferenceSentTwiceInOneWindowOnce() throws Exception {
+        CompletableFuture<VanCreditAck> first = service.submit(credit("UTR-1"));
+        CompletableFuture<VanCreditAck> second = service.submit(credit("UTR-1"));
+
+        assertNull(first.get(5, TimeUnit.SECONDS).getRedelivery());
+        assertEquals(Boolean.TRUE, second.get(5, TimeUnit.SECONDS).getRedelivery());
+        assertEquals(first.get().getSourceTxnId(), second.get().getSourceTxnId());
+        assertEquals(List.of(List.of("UTR-1")), dao.inserts);
+    }
+
+    private static VanCreditNotification credit(String reference) {
+        VanCreditNotification credit = new VanCreditNotification();
+        credit.setImportRunId(7L);
+        credit.setTransactionReferenceNumber(reference);
+        credit.setTransactionDate(LocalDate.of(2026, 3, 2));
+        credit.setAmount(new BigDecimal("150.00"));
+        return credit;
+    }
+
+    /**
+     * Delivery table in a map. A failing insert records nothing, as a rolled-back batch
+     * transaction would.
+     */
+    private static class InMemoryVanCreditDao extends VanCreditDao {
+
+        static final String REJECTED = "UTR-REJECTED";
+
+        final Map<String, Long> recorded = new ConcurrentHashMap<>();
+        final List<List<String>> inserts = new ArrayList<>();
+        final AtomicLong ids = new AtomicLong(1000);
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        InMemoryVanCreditDao() {
+            super(null);
+        }
+
+        @Override
+        public Set<String> claimReferences(Collection<String> references) {
+            return references.stream().filter(reference -> !recorded.containsKey(reference))
+                    .collect(Collectors.toSet());
+        }
+
+        @Override
+        public Map<String, Long> insert(List<VanCreditNotification> credits) {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            List<String> references = credits.stream()
+                    .map(credit -> credit.getTransactionReferenceNumber().trim()).toList();
+            if (references.contains(REJECTED)) {
+                throw new IllegalStateException("value too long for type character varying(128)");
+            }
+            Map<String, Long> inserted = new HashMap<>();
+            references.forEach(reference -> inserted.put(reference, ids.incrementAndGet()));
+            recorded.putAll(inserted);
+            inserts.add(references);
+            return inserted;
+        }
+
+        @Override
+        public Map<String, Delivery> findDeliveries(Collection<String> references) {
+            Map<String, Delivery> deliveries = new HashMap<>();
+            for (String reference : references) {
+                Long id = recorded.get(reference);
+                if (id != null) {
+                    deliveries.put(reference, new Delivery(id, OffsetDateTime.now()));
+                }
+            }
+            return deliveries;
+        }
+    }
+}
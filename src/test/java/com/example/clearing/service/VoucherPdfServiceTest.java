@@ -0,0 +1,155 @@
+package com.example.clearing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.example.clearing.common.pdf.VoucherPdfLayout;
+import com.example.clearing.domain.VoucherHeader;
+import com.example.clearing.domain.VoucherLine;
+import com.example.clearing.repository.VoucherHeaderRepository;
+import com.example.clearing.repository.VoucherLineRepository;
+import com.itextpdf.text.pdf.PdfReader;
+import com.shared.common.dao.TenantAccessDao;
+
+/**
+ * Bulk printing against the real repository queries, on H2 with the voucher tables
+ * generated from the entities.
+ */
+@ExtendWith(MockitoExtension.class)
+class VoucherPdfServiceTest {
+
+    @Mock
+    private TenantAccessDao tenantAccessDao;
+
+    @Mock
+    private StatusService statusService;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private VoucherPdfService service;
+    private TenantAccessDao.TenantAccess tenant;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:voucher_pdf;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS clearing");
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setManagedTypes(
+                PersistenceManagedTypes.of(VoucherHeader.class.getName(), VoucherLine.class.getName()));
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactory.afterPropertiesSet();
+
+        // Shared proxy: every repository call gets its own EntityManager, as render threads need
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject()));
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (int i = 1; i <= 5; i++) {
+            insertVoucher(jdbc, i, 10, 20, "V-" + i, LocalDate.of(2026, 3, i));
+        }
+        insertVoucher(jdbc, 6, 10, 20, "V-6", LocalDate.of(2026, 4, 1));
+        insertVoucher(jdbc, 7, 11, 20, "V-7", LocalDate.of(2026, 3, 2));
+
+        tenant = new TenantAccessDao.TenantAccess();
+        tenant.boardId = 10;
+        tenant.employerId = 20;
+        lenient().when(statusService.resolveStatusCode(eq("voucher_header"), any())).thenReturn("POSTED");
+
+        service = new VoucherPdfService(
+                repositories.getRepository(VoucherHeaderRepository.class),
+                repositories.getRepository(VoucherLineRepository.class),
+                tenantAccessDao, statusService,
+                new VoucherPdfLayout(new DefaultResourceLoader(), "Voucher", ""),
+                2, 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        entityManagerFactory.destroy();
+    }
+
+    private static void insertVoucher(JdbcTemplate jdbc, int id, int boardId, int employerId, String number,
+            LocalDate date) {
+        jdbc.update("INSERT INTO clearing.voucher_header (voucher_id, board_id, employer_id, voucher_number, "
+                + "voucher_date, status_id, total_amount) VALUES (?, ?, ?, ?, ?, 1, 100)",
+                id, boardId, employerId, number, date);
+        jdbc.update("INSERT INTO clearing.voucher_line (voucher_id, board_id, employer_id, line_number, "
+                + "description, amount) VALUES (?, ?, ?, 1, 'Receipt', 100)", id, boardId, employerId);
+    }
+
+    @Test
+    void findsTenantVouchersInRangeInPrintOrder() {
+        List<VoucherHeader> vouchers = service.findVouchersToPrint(
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31), null, tenant);
+
+        assertEquals(List.of("V-1", "V-2", "V-3", "V-4", "V-5"),
+                vouchers.stream().map(VoucherHeader::getVoucherNumber).toList());
+        assertThrows(IllegalArgumentException.class, () -> service.findVouchersToPrint(
+                LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 31), null, tenant));
+    }
+
+    @Test
+    void mergesEveryVoucherAcrossChunksIntoOnePdf() throws Exception {
+        List<VoucherHeader> vouchers = service.findVouchersToPrint(
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31), null, tenant);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.writeMerged(vouchers, out);
+
+        PdfReader reader = new PdfReader(out.toByteArray());
+        try {
+            assertTrue(reader.getNumberOfPages() >= vouchers.size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void zipsOnePdfPerVoucherInPrintOrder() throws Exception {
+        List<VoucherHeader> vouchers = service.findVouchersToPrint(
+                LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31), null, tenant);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.writeZip(vouchers, out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("V-1_1.pdf", "V-2_2.pdf", "V-3_3.pdf", "V-4_4.pdf", "V-5_5.pdf"), names);
+    }
+}
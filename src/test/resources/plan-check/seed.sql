@@ -0,0 +1,119 @@
+-- Synthetic schema and data for QueryPlanRegressionTest. Runs inside a transaction
+-- that the test rolls back; only the columns the checked queries touch are modelled.
+
+CREATE SCHEMA IF NOT EXISTS clearing;
+CREATE SCHEMA IF NOT EXISTS reconciliation;
+
+CREATE TABLE reconciliation.bank_account (
+    id          bigserial PRIMARY KEY,
+    account_no  varchar(34) NOT NULL
+);
+
+CREATE TABLE clearing.bank_transaction (
+    bank_txn_id       serial PRIMARY KEY,
+    bank_account_id   integer NOT NULL,
+    txn_ref           varchar(64),
+    internal_ref      varchar(64),
+    txn_date          date,
+    amount            numeric(18, 2) NOT NULL,
+    dr_cr_flag        varchar(2) NOT NULL,
+    description       text,
+    allocated_amount  numeric(18, 2),
+    remaining_amount  numeric(18, 2),
+    status            varchar(32),
+    status_id         integer,
+    board_id          integer,
+    employer_id       integer,
+    toli_id           integer,
+    created_at        timestamptz,
+    updated_at        timestamptz,
+    txn_type          varchar(16),
+    source_system     varchar(32),
+    source_txn_id     varchar(64),
+    source_ref        varchar(64),
+    claimed_by        varchar(64),
+    claimed_at        timestamptz,
+    is_settled        boolean,
+    version           integer
+);
+
+CREATE TABLE clearing.payment_allocation (
+    allocation_id  serial PRIMARY KEY,
+    board_id       integer NOT NULL,
+    employer_id    integer NOT NULL,
+    receipt_date   date
+);
+
+INSERT INTO reconciliation.bank_account (account_no)
+SELECT 'ACC' || g FROM generate_series(1, 500) g;
+
+-- Skewed like production: tenant (1, 1) owns 60% of the rows, so a tenant-only index
+-- prefix is not selective and the date/ref predicates must be index conditions
+INSERT INTO clearing.bank_transaction (
+    bank_account_id, txn_ref, internal_ref, txn_date, amount, dr_cr_flag,
+    allocated_amount, remaining_amount, status_id, board_id, employer_id,
+    created_at, updated_at, txn_type, source_system, source_txn_id, is_settled, version)
+SELECT 1 + g % 500,
+       'UTR' || g,
+       CASE WHEN g % 3 = 0 THEN 'UTR' || g ELSE 'INT' || (g / 3) END,
+       DATE '2025-01-01' + g % 365,
+       1 + (g % 100000) / 100.0,
+       CASE WHEN g % 2 = 0 THEN 'CR' ELSE 'DR' END,
+       0,
+       1 + (g % 100000) / 100.0,
+       1 + g % 3,
+       CASE WHEN g % 5 < 3 THEN 1 ELSE 2 + g % 5 END,
+       CASE WHEN g % 5 < 3 THEN 1 ELSE 1 + g % 200 END,
+       TIMESTAMPTZ '2025-01-01 00:00:00+00' + (g % 365) * INTERVAL '1 day' + (g % 86400) * INTERVAL '1 second',
+       TIMESTAMPTZ '2025-01-01 01:00:00+00' + (g % 365) * INTERVAL '1 day' + (g % 86400) * INTERVAL '1 second',
+       CASE WHEN g % 2 = 0 THEN 'MT940' ELSE 'VAN' END,
+       'RECON',
+       g::text,
+       g % 3 = 2,
+       0
+FROM generate_series(1, 300000) g;
+
+-- Claim-screen worklist as created by migration 001 (its triggers need the source
+-- tables, so only the table and the indexes 005 keeps are modelled here)
+CREATE TABLE reconciliation.open_recon_item (
+    type                varchar(16)   NOT NULL,
+    source_txn_id       bigint        NOT NULL,
+    source_system       varchar(32),
+    bank_account_id     bigint,
+    bank_account_number varchar(64),
+    txn_ref             varchar(128),
+    txn_date            date,
+    amount              numeric(18, 2),
+    dr_cr_flag          varchar(2),
+    description         text,
+    created_at          timestamp,
+    CONSTRAINT pk_open_recon_item PRIMARY KEY (type, source_txn_id)
+);
+CREATE INDEX idx_open_recon_item_txn_date
+    ON reconciliation.open_recon_item (txn_date DESC, created_at DESC);
+CREATE INDEX idx_open_recon_item_account_date
+    ON reconciliation.open_recon_item (bank_account_id, txn_date DESC, created_at DESC);
+
+INSERT INTO reconciliation.open_recon_item (
+    type, source_txn_id, source_system, bank_account_id, bank_account_number,
+    txn_ref, txn_date, amount, dr_cr_flag, created_at)
+SELECT CASE WHEN g % 4 = 0 THEN 'VAN' ELSE 'MT940' END,
+       g,
+       'RECON',
+       1 + g % 50,
+       'ACC' || (1 + g % 50),
+       'UTR' || (g % 20000),
+       DATE '2025-01-01' + g % 365,
+       1 + (g % 100000) / 100.0,
+       CASE WHEN g % 2 = 0 THEN 'CR' ELSE 'DR' END,
+       TIMESTAMP '2025-01-01 00:00:00' + (g % 365) * INTERVAL '1 day' + (g % 86400) * INTERVAL '1 second'
+FROM generate_series(1, 200000) g;
+
+-- One account whose open items are all old, so walking the date index to find them
+-- reads almost the whole worklist
+INSERT INTO reconciliation.open_recon_item (
+    type, source_txn_id, source_system, bank_account_id, bank_account_number,
+    txn_ref, txn_date, amount, dr_cr_flag, created_at)
+SELECT 'VAN', 1000000 + g, 'RECON', 999, 'ACC999', 'OLD' || (g % 10), DATE '2024-06-01' + g % 30,
+       777.77, 'CR', TIMESTAMP '2024-06-01 00:00:00' + g * INTERVAL '1 hour'
+FROM generate_series(1, 3000) g;